@@ -113,6 +113,36 @@ public interface Attributes extends Cloneable {
      */
     Integer getInteger(Element e, String k);
 
+    /**
+     * Get an attribute value as a boolean, without boxing.
+     *
+     * @param e   the element
+     * @param k   the attribute value
+     * @param def the value to return if the attribute is not stated or is not a boolean
+     * @return the value if it has been stated. {@code def} otherwise
+     */
+    boolean getBoolean(Element e, String k, boolean def);
+
+    /**
+     * Get an attribute value as a double, without boxing.
+     *
+     * @param e   the element
+     * @param k   the attribute value
+     * @param def the value to return if the attribute is not stated or is not a double
+     * @return the value if it has been stated. {@code def} otherwise
+     */
+    double getDouble(Element e, String k, double def);
+
+    /**
+     * Get an attribute value as an integer, without boxing.
+     *
+     * @param e   the element
+     * @param k   the attribute value
+     * @param def the value to return if the attribute is not stated or is not an integer
+     * @return the value if it has been stated. {@code def} otherwise
+     */
+    int getInteger(Element e, String k, int def);
+
     /**
      * Check if an attribute is set for a given element.
      *
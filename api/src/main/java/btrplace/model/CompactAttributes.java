@@ -0,0 +1,595 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.util.*;
+
+/**
+ * A column-based implementation of {@link Attributes}.
+ * <p/>
+ * Keys are interned and each key is stored as a typed column indexed
+ * by the element identifiers, separately for the VMs and the nodes.
+ * A value is then read using one lookup in the key table and one array access,
+ * while the primitive getters do not box any value.
+ * <p/>
+ * A clone shares the columns of the original instance. A column is only copied once
+ * modified (copy-on-write).
+ *
+ * @author Fabien Hermenier
+ */
+public class CompactAttributes implements Attributes, Cloneable {
+
+    private static final byte UNSET = 0;
+
+    private static final byte INTEGER = 1;
+
+    private static final byte DOUBLE = 2;
+
+    private static final byte BOOLEAN = 3;
+
+    private static final byte STRING = 4;
+
+    /**
+     * The interned keys.
+     */
+    private TObjectIntHashMap<String> keys;
+
+    /**
+     * The key for each column.
+     */
+    private List<String> names;
+
+    private Table vmAttrs;
+
+    private Table nodeAttrs;
+
+    /**
+     * Make a new empty list of attributes.
+     */
+    public CompactAttributes() {
+        keys = new TObjectIntHashMap<>(10, 0.5f, -1);
+        names = new ArrayList<>();
+        vmAttrs = new Table();
+        nodeAttrs = new Table();
+    }
+
+    private Table table(Element e) {
+        if (e instanceof VM) {
+            return vmAttrs;
+        } else if (e instanceof Node) {
+            return nodeAttrs;
+        }
+        return null;
+    }
+
+    private int intern(String k) {
+        int idx = keys.get(k);
+        if (idx < 0) {
+            idx = names.size();
+            keys.put(k, idx);
+            names.add(k);
+        }
+        return idx;
+    }
+
+    /**
+     * Get the column storing a given attribute.
+     *
+     * @return the column, {@code null} if there is no value for this key
+     */
+    private Column column(Element e, String k) {
+        Table t = table(e);
+        if (t == null) {
+            return null;
+        }
+        int idx = keys.get(k);
+        return idx < 0 ? null : t.column(idx);
+    }
+
+    private static byte type(Column c, int id) {
+        return c == null ? UNSET : c.type(id);
+    }
+
+    /**
+     * Prepare the storage of a value.
+     *
+     * @return the column where the value must be stored
+     */
+    private Column prepare(Table t, Element e, String k, byte type) {
+        int id = e.id();
+        Column c = t.writable(intern(k), id);
+        if (c.types[id] == UNSET) {
+            t.declare(e);
+        } else if (c.strings != null) {
+            c.strings[id] = null;
+        }
+        c.types[id] = type;
+        return c;
+    }
+
+    @Override
+    public boolean put(Element e, String k, boolean b) {
+        Table t = table(e);
+        if (t == null) {
+            return false;
+        }
+        boolean overridden = isSet(e, k);
+        prepare(t, e, k, BOOLEAN).ints()[e.id()] = b ? 1 : 0;
+        return overridden;
+    }
+
+    @Override
+    public boolean put(Element e, String k, String s) {
+        Table t = table(e);
+        if (t == null) {
+            return false;
+        }
+        boolean overridden = isSet(e, k);
+        prepare(t, e, k, STRING).strings()[e.id()] = s;
+        return overridden;
+    }
+
+    @Override
+    public boolean put(Element e, String k, double d) {
+        Table t = table(e);
+        if (t == null) {
+            return false;
+        }
+        boolean overridden = isSet(e, k);
+        prepare(t, e, k, DOUBLE).doubles()[e.id()] = d;
+        return overridden;
+    }
+
+    @Override
+    public boolean put(Element e, String k, int d) {
+        Table t = table(e);
+        if (t == null) {
+            return false;
+        }
+        boolean overridden = isSet(e, k);
+        prepare(t, e, k, INTEGER).ints()[e.id()] = d;
+        return overridden;
+    }
+
+    private static Object get(Column c, int id) {
+        switch (type(c, id)) {
+            case INTEGER:
+                return c.ints[id];
+            case DOUBLE:
+                return c.doubles[id];
+            case BOOLEAN:
+                return c.ints[id] == 1;
+            case STRING:
+                return c.strings[id];
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Object get(Element e, String k) {
+        return get(column(e, k), e.id());
+    }
+
+    @Override
+    public Boolean getBoolean(Element e, String k) {
+        return (Boolean) get(e, k);
+    }
+
+    @Override
+    public String getString(Element e, String k) {
+        Column c = column(e, k);
+        int id = e.id();
+        if (type(c, id) == STRING) {
+            return c.strings[id];
+        }
+        Object o = get(c, id);
+        return o == null ? null : o.toString();
+    }
+
+    @Override
+    public Double getDouble(Element e, String k) {
+        return (Double) get(e, k);
+    }
+
+    @Override
+    public Integer getInteger(Element e, String k) {
+        return (Integer) get(e, k);
+    }
+
+    @Override
+    public boolean getBoolean(Element e, String k, boolean def) {
+        Column c = column(e, k);
+        int id = e.id();
+        return type(c, id) == BOOLEAN ? c.ints[id] == 1 : def;
+    }
+
+    @Override
+    public double getDouble(Element e, String k, double def) {
+        Column c = column(e, k);
+        int id = e.id();
+        return type(c, id) == DOUBLE ? c.doubles[id] : def;
+    }
+
+    @Override
+    public int getInteger(Element e, String k, int def) {
+        Column c = column(e, k);
+        int id = e.id();
+        return type(c, id) == INTEGER ? c.ints[id] : def;
+    }
+
+    @Override
+    public boolean isSet(Element e, String k) {
+        return type(column(e, k), e.id()) != UNSET;
+    }
+
+    @Override
+    public boolean unset(Element e, String k) {
+        if (!isSet(e, k)) {
+            return false;
+        }
+        table(e).unset(e.id(), keys.get(k));
+        return true;
+    }
+
+    @Override
+    public Attributes clone() {
+        CompactAttributes cpy = new CompactAttributes();
+        cpy.keys = new TObjectIntHashMap<>(keys);
+        cpy.names = new ArrayList<>(names);
+        cpy.vmAttrs = vmAttrs.share();
+        cpy.nodeAttrs = nodeAttrs.share();
+        return cpy;
+    }
+
+    @Override
+    public Set<Element> getDefined() {
+        Set<Element> s = new HashSet<>(vmAttrs.nbElements + nodeAttrs.nbElements);
+        vmAttrs.addDefined(s);
+        nodeAttrs.addDefined(s);
+        return s;
+    }
+
+    @Override
+    public Set<String> getKeys(Element e) {
+        Table t = table(e);
+        if (t == null) {
+            return Collections.emptySet();
+        }
+        Set<String> s = new HashSet<>();
+        int id = e.id();
+        for (int k = 0; k < names.size(); k++) {
+            if (type(t.column(k), id) != UNSET) {
+                s.add(names.get(k));
+            }
+        }
+        return s;
+    }
+
+    @Override
+    public boolean castAndPut(Element e, String k, String v) {
+        String x = v.toLowerCase().trim();
+        if (x.equals("true")) {
+            return put(e, k, true);
+        } else if (x.equals("false")) {
+            return put(e, k, false);
+        }
+        try {
+            return put(e, k, Integer.parseInt(x));
+        } catch (NumberFormatException ignored) {
+        }
+
+        try {
+            return put(e, k, Double.parseDouble(x));
+        } catch (NumberFormatException ignored) {
+        }
+
+        return put(e, k, v);
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+        names.clear();
+        vmAttrs = new Table();
+        nodeAttrs = new Table();
+    }
+
+    @Override
+    public void clear(Element e) {
+        Table t = table(e);
+        if (t == null) {
+            return;
+        }
+        int id = e.id();
+        for (int k = 0; k < names.size(); k++) {
+            if (type(t.column(k), id) != UNSET) {
+                t.unset(id, k);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null) {
+            return false;
+        }
+        if (o == this) {
+            return true;
+        }
+        if (!o.getClass().equals(getClass())) {
+            return false;
+        }
+        CompactAttributes that = (CompactAttributes) o;
+        Set<Element> defined = getDefined();
+        if (!defined.equals(that.getDefined())) {
+            return false;
+        }
+        for (Element e : defined) {
+            Set<String> ks = getKeys(e);
+            if (!ks.equals(that.getKeys(e))) {
+                return false;
+            }
+            for (String k : ks) {
+                if (!get(e, k).equals(that.get(e, k))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (Element e : getDefined()) {
+            for (String k : getKeys(e)) {
+                h += e.hashCode() ^ k.hashCode() ^ get(e, k).hashCode();
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Element e : getDefined()) {
+            b.append(e);
+            b.append(':');
+            for (String k : getKeys(e)) {
+                b.append(" <").append(k).append(',');
+                Object val = get(e, k);
+                if (val instanceof String) {
+                    b.append('"').append(val).append('"');
+                } else {
+                    b.append(val);
+                }
+                b.append('>');
+            }
+            b.append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * The values for one attribute.
+     * Arrays for the values are allocated once a value of the associated type is stored.
+     */
+    private static final class Column {
+
+        private byte[] types;
+
+        /**
+         * Integers and booleans.
+         */
+        private int[] ints;
+
+        private double[] doubles;
+
+        private String[] strings;
+
+        /**
+         * {@code true} iff the column may be shared with a clone.
+         */
+        private volatile boolean shared;
+
+        private Column(int size) {
+            types = new byte[size];
+        }
+
+        private byte type(int id) {
+            return id < types.length ? types[id] : UNSET;
+        }
+
+        private int[] ints() {
+            if (ints == null) {
+                ints = new int[types.length];
+            }
+            return ints;
+        }
+
+        private double[] doubles() {
+            if (doubles == null) {
+                doubles = new double[types.length];
+            }
+            return doubles;
+        }
+
+        private String[] strings() {
+            if (strings == null) {
+                strings = new String[types.length];
+            }
+            return strings;
+        }
+
+        private void ensureCapacity(int id) {
+            if (id < types.length) {
+                return;
+            }
+            int size = Math.max(types.length * 2, id + 1);
+            types = Arrays.copyOf(types, size);
+            if (ints != null) {
+                ints = Arrays.copyOf(ints, size);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, size);
+            }
+            if (strings != null) {
+                strings = Arrays.copyOf(strings, size);
+            }
+        }
+
+        private Column copy() {
+            Column c = new Column(0);
+            c.types = types.clone();
+            c.ints = ints == null ? null : ints.clone();
+            c.doubles = doubles == null ? null : doubles.clone();
+            c.strings = strings == null ? null : strings.clone();
+            return c;
+        }
+    }
+
+    /**
+     * The columns for one kind of element.
+     */
+    private static final class Table {
+
+        private static final int DEFAULT_SIZE = 16;
+
+        /**
+         * The elements having at least one attribute, indexed by their identifier.
+         */
+        private Element[] elements;
+
+        /**
+         * The number of attributes for each element.
+         */
+        private int[] nbKeys;
+
+        private int nbElements;
+
+        /**
+         * The columns, indexed by the key identifier.
+         */
+        private Column[] columns;
+
+        /**
+         * {@code true} iff the arrays may be shared with a clone.
+         */
+        private volatile boolean shared;
+
+        private Table() {
+            elements = new Element[DEFAULT_SIZE];
+            nbKeys = new int[DEFAULT_SIZE];
+            columns = new Column[0];
+        }
+
+        private Column column(int k) {
+            return k < columns.length ? columns[k] : null;
+        }
+
+        /**
+         * Share the columns with a new table.
+         *
+         * @return the new table
+         */
+        private Table share() {
+            Table t = new Table();
+            t.elements = elements;
+            t.nbKeys = nbKeys;
+            t.nbElements = nbElements;
+            t.columns = columns;
+            for (Column c : columns) {
+                if (c != null) {
+                    c.shared = true;
+                }
+            }
+            t.shared = true;
+            shared = true;
+            return t;
+        }
+
+        private void own() {
+            if (shared) {
+                elements = elements.clone();
+                nbKeys = nbKeys.clone();
+                columns = columns.clone();
+                shared = false;
+            }
+        }
+
+        /**
+         * Get a column ready to be modified for a given element.
+         */
+        private Column writable(int k, int id) {
+            own();
+            if (id >= elements.length) {
+                int size = Math.max(elements.length * 2, id + 1);
+                elements = Arrays.copyOf(elements, size);
+                nbKeys = Arrays.copyOf(nbKeys, size);
+            }
+            if (k >= columns.length) {
+                columns = Arrays.copyOf(columns, k + 1);
+            }
+            Column c = columns[k];
+            if (c == null) {
+                c = new Column(elements.length);
+                columns[k] = c;
+            } else if (c.shared) {
+                c = c.copy();
+                columns[k] = c;
+            }
+            c.ensureCapacity(id);
+            return c;
+        }
+
+        /**
+         * Notify an element has a new attribute.
+         */
+        private void declare(Element e) {
+            int id = e.id();
+            if (nbKeys[id]++ == 0) {
+                elements[id] = e;
+                nbElements++;
+            }
+        }
+
+        private void unset(int id, int k) {
+            Column c = writable(k, id);
+            c.types[id] = UNSET;
+            if (c.strings != null) {
+                c.strings[id] = null;
+            }
+            if (--nbKeys[id] == 0) {
+                elements[id] = null;
+                nbElements--;
+            }
+        }
+
+        private void addDefined(Set<Element> s) {
+            for (Element e : elements) {
+                if (e != null) {
+                    s.add(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,1082 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import gnu.trove.procedure.TIntProcedure;
+import gnu.trove.set.hash.THashSet;
+
+import java.util.*;
+
+/**
+ * An array-based implementation of {@link Mapping}.
+ * <p/>
+ * The state and the location of each element are stored into primitive arrays
+ * indexed by the element identifier. The VMs hosted by a node, the ready VMs
+ * and the nodes in a given state are chained using intrusive doubly-linked
+ * lists of identifiers so no collection is allocated per node.
+ * This implementation is then suited for large models having dense identifiers,
+ * like the ones provided by {@link DefaultElementBuilder}.
+ * <p/>
+ * The sets returned by the getters are copies of the mapping while the views
+ * provided by {@link LiveMapping}, such as {@link #getRunningVMsView()}, are live and read-only.
+ * Methods {@code is*()}, {@code contains()}, {@link #getVMLocation(VM)} and the
+ * state updates have a O(1) complexity.
+ * <p/>
+ * Method {@link #clone()} has a O(1) complexity: the copy shares the arrays of
+ * the original mapping until one of them is modified. The mapping that is modified first then
+ * copies the arrays (copy-on-write).
+ *
+ * @author Fabien Hermenier
+ */
+public class CompactMapping implements LiveMapping, Journaled, Cloneable {
+
+    private static final int NONE = -1;
+
+    private static final int RUNNING_STATE = 0;
+
+    private static final int SLEEPING_STATE = 1;
+
+    private static final int READY_STATE = 2;
+
+    private static final int ONLINE_STATE = 0;
+
+    private static final int OFFLINE_STATE = 1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The VMs, indexed by their identifier.
+     */
+    private VM[] vms;
+
+    /**
+     * The state of each VM. {@link #NONE} if the VM is not in the mapping.
+     */
+    private int[] vmState;
+
+    /**
+     * The identifier of the node hosting each running or sleeping VM.
+     */
+    private int[] vmHost;
+
+    /**
+     * The links of the VM lists.
+     */
+    private int[] vmNext, vmPrev;
+
+    /**
+     * The nodes, indexed by their identifier.
+     */
+    private Node[] nodes;
+
+    /**
+     * The state of each node. {@link #NONE} if the node is not in the mapping.
+     */
+    private int[] nodeState;
+
+    /**
+     * The links of the node lists.
+     */
+    private int[] nodeNext, nodePrev;
+
+    /**
+     * The head of the list of VMs hosted by each node, by state (running or sleeping).
+     */
+    private int[][] hosted;
+
+    /**
+     * The number of VMs hosted by each node, by state (running or sleeping).
+     */
+    private int[][] nbHosted;
+
+    /**
+     * The head of the list of nodes, by state (online, offline).
+     */
+    private int[] nodeHeads;
+
+    /**
+     * The number of nodes, by state (online, offline).
+     */
+    private int[] nbNodes;
+
+    /**
+     * The head of the list of ready VMs.
+     */
+    private int readyHead;
+
+    /**
+     * The number of VMs, by state (running, sleeping, ready).
+     */
+    private int[] nbVMs;
+
+    /**
+     * {@code true} iff the arrays may be shared with another mapping.
+     */
+    private volatile boolean shared;
+
+    /**
+     * The journal recording the changes, if any.
+     */
+    private Journal journal;
+
+    /**
+     * Make a new empty mapping.
+     */
+    public CompactMapping() {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Make a new empty mapping sized for a given number of elements.
+     * The mapping still grows if necessary.
+     *
+     * @param nbVMs   the expected highest VM identifier
+     * @param nbNodes the expected highest node identifier
+     */
+    public CompactMapping(int nbVMs, int nbNodes) {
+        int vmCapacity = Math.max(nbVMs, 1);
+        vms = new VM[vmCapacity];
+        vmState = newArray(vmCapacity);
+        vmHost = newArray(vmCapacity);
+        vmNext = newArray(vmCapacity);
+        vmPrev = newArray(vmCapacity);
+
+        int nodeCapacity = Math.max(nbNodes, 1);
+        nodes = new Node[nodeCapacity];
+        nodeState = newArray(nodeCapacity);
+        nodeNext = newArray(nodeCapacity);
+        nodePrev = newArray(nodeCapacity);
+        hosted = new int[][]{newArray(nodeCapacity), newArray(nodeCapacity)};
+        nbHosted = new int[][]{new int[nodeCapacity], new int[nodeCapacity]};
+
+        nodeHeads = new int[]{NONE, NONE};
+        this.nbNodes = new int[2];
+        readyHead = NONE;
+        this.nbVMs = new int[3];
+    }
+
+    /**
+     * Make a new mapping from an existing one.
+     *
+     * @param m the mapping to copy
+     */
+    public CompactMapping(Mapping m) {
+        this();
+        MappingUtils.fill(m, this);
+    }
+
+    private static int[] newArray(int size) {
+        int[] a = new int[size];
+        Arrays.fill(a, NONE);
+        return a;
+    }
+
+    private static int[] grow(int[] a, int size, int def) {
+        int[] b = Arrays.copyOf(a, size);
+        if (def != 0) {
+            Arrays.fill(b, a.length, size, def);
+        }
+        return b;
+    }
+
+    private static int newCapacity(int cur, int id) {
+        return Math.max(cur * 2, id + 1);
+    }
+
+    /**
+     * Make the arrays private to this mapping prior to a modification.
+     */
+    private void own() {
+        if (!shared) {
+            return;
+        }
+        vms = vms.clone();
+        vmState = vmState.clone();
+        vmHost = vmHost.clone();
+        vmNext = vmNext.clone();
+        vmPrev = vmPrev.clone();
+        nodes = nodes.clone();
+        nodeState = nodeState.clone();
+        nodeNext = nodeNext.clone();
+        nodePrev = nodePrev.clone();
+        hosted = new int[][]{hosted[RUNNING_STATE].clone(), hosted[SLEEPING_STATE].clone()};
+        nbHosted = new int[][]{nbHosted[RUNNING_STATE].clone(), nbHosted[SLEEPING_STATE].clone()};
+        nodeHeads = nodeHeads.clone();
+        nbNodes = nbNodes.clone();
+        nbVMs = nbVMs.clone();
+        shared = false;
+    }
+
+    private void ensureVMCapacity(int id) {
+        if (id < vms.length) {
+            return;
+        }
+        int size = newCapacity(vms.length, id);
+        vms = Arrays.copyOf(vms, size);
+        vmState = grow(vmState, size, NONE);
+        vmHost = grow(vmHost, size, NONE);
+        vmNext = grow(vmNext, size, NONE);
+        vmPrev = grow(vmPrev, size, NONE);
+    }
+
+    private void ensureNodeCapacity(int id) {
+        if (id < nodes.length) {
+            return;
+        }
+        int size = newCapacity(nodes.length, id);
+        nodes = Arrays.copyOf(nodes, size);
+        nodeState = grow(nodeState, size, NONE);
+        nodeNext = grow(nodeNext, size, NONE);
+        nodePrev = grow(nodePrev, size, NONE);
+        for (int i = 0; i < hosted.length; i++) {
+            hosted[i] = grow(hosted[i], size, NONE);
+            nbHosted[i] = grow(nbHosted[i], size, 0);
+        }
+    }
+
+    private int vmState(int id) {
+        return id < vmState.length ? vmState[id] : NONE;
+    }
+
+    private int nodeState(int id) {
+        return id < nodeState.length ? nodeState[id] : NONE;
+    }
+
+    /**
+     * Get the head of the list a VM is currently in.
+     */
+    private int head(int vmId) {
+        int s = vmState[vmId];
+        return s == READY_STATE ? readyHead : hosted[s][vmHost[vmId]];
+    }
+
+    private void setHead(int vmId, int h) {
+        int s = vmState[vmId];
+        if (s == READY_STATE) {
+            readyHead = h;
+        } else {
+            hosted[s][vmHost[vmId]] = h;
+        }
+    }
+
+    /**
+     * Put a VM that is not in the mapping in a given state.
+     */
+    private void attach(VM vm, int state, int nId) {
+        int id = vm.id();
+        vms[id] = vm;
+        vmState[id] = state;
+        vmHost[id] = nId;
+        int h = head(id);
+        vmPrev[id] = NONE;
+        vmNext[id] = h;
+        if (h != NONE) {
+            vmPrev[h] = id;
+        }
+        setHead(id, id);
+        nbVMs[state]++;
+        if (state != READY_STATE) {
+            nbHosted[state][nId]++;
+        }
+    }
+
+    /**
+     * Remove a VM from the list it is in.
+     */
+    private void detach(int id) {
+        int state = vmState[id];
+        int p = vmPrev[id];
+        int n = vmNext[id];
+        if (p == NONE) {
+            setHead(id, n);
+        } else {
+            vmNext[p] = n;
+        }
+        if (n != NONE) {
+            vmPrev[n] = p;
+        }
+        nbVMs[state]--;
+        if (state != READY_STATE) {
+            nbHosted[state][vmHost[id]]--;
+        }
+        vmState[id] = NONE;
+        vmHost[id] = NONE;
+        vmNext[id] = NONE;
+        vmPrev[id] = NONE;
+    }
+
+    private void attach(Node n, int state) {
+        int id = n.id();
+        nodes[id] = n;
+        nodeState[id] = state;
+        int h = nodeHeads[state];
+        nodePrev[id] = NONE;
+        nodeNext[id] = h;
+        if (h != NONE) {
+            nodePrev[h] = id;
+        }
+        nodeHeads[state] = id;
+        nbNodes[state]++;
+    }
+
+    private void detachNode(int id) {
+        int state = nodeState[id];
+        int p = nodePrev[id];
+        int n = nodeNext[id];
+        if (p == NONE) {
+            nodeHeads[state] = n;
+        } else {
+            nodeNext[p] = n;
+        }
+        if (n != NONE) {
+            nodePrev[n] = p;
+        }
+        nbNodes[state]--;
+        nodeState[id] = NONE;
+        nodeNext[id] = NONE;
+        nodePrev[id] = NONE;
+    }
+
+    private boolean place(VM vm, Node n, int state) {
+        int nId = n.id();
+        if (nodeState(nId) != ONLINE_STATE) {
+            return false;
+        }
+        int id = vm.id();
+        if (vmState(id) == state && vmHost[id] == nId) {
+            return true;
+        }
+        own();
+        ensureVMCapacity(id);
+        if (vmState[id] != NONE) {
+            detach(id);
+        }
+        attach(vm, state, nId);
+        if (journal != null) {
+            journal.vmChanged(vm, state == RUNNING_STATE ? VMState.RUNNING : VMState.SLEEPING, n);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addRunningVM(VM vm, Node node) {
+        return place(vm, node, RUNNING_STATE);
+    }
+
+    @Override
+    public boolean addSleepingVM(VM vm, Node node) {
+        return place(vm, node, SLEEPING_STATE);
+    }
+
+    @Override
+    public boolean addReadyVM(VM vm) {
+        int id = vm.id();
+        if (vmState(id) == READY_STATE) {
+            return true;
+        }
+        own();
+        ensureVMCapacity(id);
+        if (vmState[id] != NONE) {
+            detach(id);
+        }
+        attach(vm, READY_STATE, NONE);
+        if (journal != null) {
+            journal.vmChanged(vm, VMState.READY, null);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(VM vm) {
+        int id = vm.id();
+        if (vmState(id) == NONE) {
+            return false;
+        }
+        own();
+        detach(id);
+        vms[id] = null;
+        if (journal != null) {
+            journal.vmChanged(vm, null, null);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Node n) {
+        int id = n.id();
+        int s = nodeState(id);
+        if (s == NONE) {
+            return false;
+        }
+        if (s == ONLINE_STATE && (nbHosted[RUNNING_STATE][id] > 0 || nbHosted[SLEEPING_STATE][id] > 0)) {
+            return false;
+        }
+        own();
+        detachNode(id);
+        nodes[id] = null;
+        if (journal != null) {
+            journal.nodeChanged(n, null);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addOnlineNode(Node node) {
+        int id = node.id();
+        if (nodeState(id) == ONLINE_STATE) {
+            return true;
+        }
+        own();
+        ensureNodeCapacity(id);
+        if (nodeState[id] != NONE) {
+            detachNode(id);
+        }
+        attach(node, ONLINE_STATE);
+        if (journal != null) {
+            journal.nodeChanged(node, NodeState.ONLINE);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addOfflineNode(Node node) {
+        int id = node.id();
+        int s = nodeState(id);
+        if (s == OFFLINE_STATE) {
+            return true;
+        }
+        if (s == ONLINE_STATE && (nbHosted[RUNNING_STATE][id] > 0 || nbHosted[SLEEPING_STATE][id] > 0)) {
+            return false;
+        }
+        own();
+        ensureNodeCapacity(id);
+        if (s == ONLINE_STATE) {
+            detachNode(id);
+        }
+        attach(node, OFFLINE_STATE);
+        if (journal != null) {
+            journal.nodeChanged(node, NodeState.OFFLINE);
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Node> getOnlineNodes() {
+        return new THashSet<>(new NodeSet(true, false));
+    }
+
+    @Override
+    public Set<Node> getOfflineNodes() {
+        return new THashSet<>(new NodeSet(false, true));
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        return new THashSet<>(getAllNodesView());
+    }
+
+    @Override
+    public Set<VM> getRunningVMs() {
+        return new THashSet<>(getRunningVMsView());
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs() {
+        return new THashSet<>(getSleepingVMsView());
+    }
+
+    @Override
+    public Set<VM> getReadyVMs() {
+        return new THashSet<>(new VMSet(true, false, false));
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        return new THashSet<>(getAllVMsView());
+    }
+
+    @Override
+    public Set<Node> getAllNodesView() {
+        return new NodeSet(true, true);
+    }
+
+    @Override
+    public Set<VM> getRunningVMsView() {
+        return new VMSet(false, true, false);
+    }
+
+    @Override
+    public Set<VM> getSleepingVMsView() {
+        return new VMSet(false, false, true);
+    }
+
+    @Override
+    public Set<VM> getAllVMsView() {
+        return new VMSet(true, true, true);
+    }
+
+    @Override
+    public boolean forEachVM(VMState s, TIntProcedure p) {
+        switch (s) {
+            case READY:
+                return forEach(readyHead, p);
+            case RUNNING:
+                return forEachHosted(RUNNING_STATE, p);
+            case SLEEPING:
+                return forEachHosted(SLEEPING_STATE, p);
+            default:
+                return true;
+        }
+    }
+
+    private boolean forEachHosted(int state, TIntProcedure p) {
+        for (int n = nodeHeads[ONLINE_STATE]; n != NONE; n = nodeNext[n]) {
+            if (!forEach(hosted[state][n], p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean forEach(int head, TIntProcedure p) {
+        for (int v = head; v != NONE; v = vmNext[v]) {
+            if (!p.execute(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean forEachNode(NodeState s, TIntProcedure p) {
+        int h = nodeHeads[s == NodeState.ONLINE ? ONLINE_STATE : OFFLINE_STATE];
+        for (int n = h; n != NONE; n = nodeNext[n]) {
+            if (!p.execute(n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Node n) {
+        return new THashSet<>(new HostedSet(RUNNING_STATE, n.id()));
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Node n) {
+        return new THashSet<>(new HostedSet(SLEEPING_STATE, n.id()));
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Collection<Node> ns) {
+        return collect(ns, RUNNING_STATE);
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Collection<Node> ns) {
+        return collect(ns, SLEEPING_STATE);
+    }
+
+    private Set<VM> collect(Collection<Node> ns, int state) {
+        Set<VM> res = new THashSet<>();
+        for (Node n : ns) {
+            int id = n.id();
+            if (nodeState(id) != ONLINE_STATE) {
+                continue;
+            }
+            for (int v = hosted[state][id]; v != NONE; v = vmNext[v]) {
+                res.add(vms[v]);
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public boolean isRunning(VM v) {
+        return vmState(v.id()) == RUNNING_STATE;
+    }
+
+    @Override
+    public boolean isSleeping(VM v) {
+        return vmState(v.id()) == SLEEPING_STATE;
+    }
+
+    @Override
+    public boolean isReady(VM v) {
+        return vmState(v.id()) == READY_STATE;
+    }
+
+    @Override
+    public boolean isOnline(Node n) {
+        return nodeState(n.id()) == ONLINE_STATE;
+    }
+
+    @Override
+    public boolean isOffline(Node n) {
+        return nodeState(n.id()) == OFFLINE_STATE;
+    }
+
+    @Override
+    public Node getVMLocation(VM vm) {
+        int id = vm.id();
+        int s = vmState(id);
+        if (s == RUNNING_STATE || s == SLEEPING_STATE) {
+            return nodes[vmHost[id]];
+        }
+        return null;
+    }
+
+    @Override
+    public Mapping clone() {
+        CompactMapping c = new CompactMapping(1, 1);
+        c.vms = vms;
+        c.vmState = vmState;
+        c.vmHost = vmHost;
+        c.vmNext = vmNext;
+        c.vmPrev = vmPrev;
+        c.nodes = nodes;
+        c.nodeState = nodeState;
+        c.nodeNext = nodeNext;
+        c.nodePrev = nodePrev;
+        c.hosted = hosted;
+        c.nbHosted = nbHosted;
+        c.nodeHeads = nodeHeads;
+        c.nbNodes = nbNodes;
+        c.readyHead = readyHead;
+        c.nbVMs = nbVMs;
+        c.shared = true;
+        shared = true;
+        return c;
+    }
+
+    @Override
+    public void setJournal(Journal j) {
+        journal = j;
+    }
+
+    @Override
+    public Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public boolean contains(VM vm) {
+        return vmState(vm.id()) != NONE;
+    }
+
+    @Override
+    public boolean contains(Node node) {
+        return nodeState(node.id()) != NONE;
+    }
+
+    @Override
+    public void clear() {
+        own();
+        clearAllVMs();
+        if (journal != null) {
+            for (Node n : getAllNodesView()) {
+                journal.nodeChanged(n, null);
+            }
+        }
+        Arrays.fill(nodes, null);
+        Arrays.fill(nodeState, NONE);
+        Arrays.fill(nodeNext, NONE);
+        Arrays.fill(nodePrev, NONE);
+        Arrays.fill(nodeHeads, NONE);
+        Arrays.fill(nbNodes, 0);
+    }
+
+    @Override
+    public void clearNode(Node u) {
+        int id = u.id();
+        if (nodeState(id) != ONLINE_STATE) {
+            return;
+        }
+        own();
+        for (int s = RUNNING_STATE; s <= SLEEPING_STATE; s++) {
+            while (hosted[s][id] != NONE) {
+                int v = hosted[s][id];
+                if (journal != null) {
+                    journal.vmChanged(vms[v], null, null);
+                }
+                detach(v);
+                vms[v] = null;
+            }
+        }
+    }
+
+    @Override
+    public void clearAllVMs() {
+        own();
+        if (journal != null) {
+            for (VM vm : getAllVMsView()) {
+                journal.vmChanged(vm, null, null);
+            }
+        }
+        Arrays.fill(vms, null);
+        Arrays.fill(vmState, NONE);
+        Arrays.fill(vmHost, NONE);
+        Arrays.fill(vmNext, NONE);
+        Arrays.fill(vmPrev, NONE);
+        for (int i = 0; i < hosted.length; i++) {
+            Arrays.fill(hosted[i], NONE);
+            Arrays.fill(nbHosted[i], 0);
+        }
+        readyHead = NONE;
+        Arrays.fill(nbVMs, 0);
+    }
+
+    @Override
+    public int getNbNodes() {
+        return nbNodes[ONLINE_STATE] + nbNodes[OFFLINE_STATE];
+    }
+
+    @Override
+    public int getNbVMs() {
+        return nbVMs[RUNNING_STATE] + nbVMs[SLEEPING_STATE] + nbVMs[READY_STATE];
+    }
+
+    @Override
+    public VMState getState(VM v) {
+        switch (vmState(v.id())) {
+            case RUNNING_STATE:
+                return VMState.RUNNING;
+            case SLEEPING_STATE:
+                return VMState.SLEEPING;
+            case READY_STATE:
+                return VMState.READY;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public NodeState getState(Node n) {
+        switch (nodeState(n.id())) {
+            case ONLINE_STATE:
+                return NodeState.ONLINE;
+            case OFFLINE_STATE:
+                return NodeState.OFFLINE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Mapping)) {
+            return false;
+        }
+
+        Mapping that = (Mapping) o;
+
+        if (!new NodeSet(true, false).equals(that.getOnlineNodes())
+                || !new NodeSet(false, true).equals(that.getOfflineNodes())
+                || !new VMSet(true, false, false).equals(that.getReadyVMs())) {
+            return false;
+        }
+
+        for (Node n : new NodeSet(true, false)) {
+            if (!new HostedSet(RUNNING_STATE, n.id()).equals(that.getRunningVMs(n))
+                    || !new HostedSet(SLEEPING_STATE, n.id()).equals(that.getSleepingVMs(n))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(new NodeSet(false, true), new VMSet(true, false, false), new NodeSet(true, false));
+        for (Node n : new NodeSet(true, false)) {
+            result += Objects.hash(n, new HostedSet(RUNNING_STATE, n.id()), new HostedSet(SLEEPING_STATE, n.id()));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        for (Node n : new NodeSet(true, false)) {
+            buf.append(n);
+            buf.append(':');
+            if (hosted[RUNNING_STATE][n.id()] == NONE && hosted[SLEEPING_STATE][n.id()] == NONE) {
+                buf.append(" - ");
+            }
+            for (VM vm : new HostedSet(RUNNING_STATE, n.id())) {
+                buf.append(' ').append(vm);
+            }
+            for (VM vm : new HostedSet(SLEEPING_STATE, n.id())) {
+                buf.append(" (").append(vm).append(')');
+            }
+            buf.append('\n');
+        }
+
+        for (Node n : new NodeSet(false, true)) {
+            buf.append('(').append(n).append(")\n");
+        }
+
+        buf.append("READY");
+
+        for (VM vm : new VMSet(true, false, false)) {
+            buf.append(' ').append(vm);
+        }
+
+        return buf.append('\n').toString();
+    }
+
+    /**
+     * A read-only view over the nodes in some states.
+     */
+    private class NodeSet extends AbstractSet<Node> {
+
+        private final boolean online;
+
+        private final boolean offline;
+
+        NodeSet(boolean on, boolean off) {
+            online = on;
+            offline = off;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            int s = nodeState(((Node) o).id());
+            return (online && s == ONLINE_STATE) || (offline && s == OFFLINE_STATE);
+        }
+
+        @Override
+        public int size() {
+            return (online ? nbNodes[ONLINE_STATE] : 0) + (offline ? nbNodes[OFFLINE_STATE] : 0);
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new Iterator<Node>() {
+
+                private int state = online ? ONLINE_STATE : OFFLINE_STATE;
+
+                private int cur = nodeHeads[state];
+
+                {
+                    skip();
+                }
+
+                private void skip() {
+                    if (cur == NONE && state == ONLINE_STATE && offline) {
+                        state = OFFLINE_STATE;
+                        cur = nodeHeads[state];
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NONE;
+                }
+
+                @Override
+                public Node next() {
+                    if (cur == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    Node n = nodes[cur];
+                    cur = nodeNext[cur];
+                    skip();
+                    return n;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only view over the VMs hosted on a node in a given state.
+     */
+    private class HostedSet extends AbstractSet<VM> {
+
+        private final int state;
+
+        private final int node;
+
+        HostedSet(int st, int n) {
+            state = st;
+            node = n;
+        }
+
+        private boolean valid() {
+            return nodeState(node) == ONLINE_STATE;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int id = ((VM) o).id();
+            return vmState(id) == state && vmHost[id] == node;
+        }
+
+        @Override
+        public int size() {
+            return valid() ? nbHosted[state][node] : 0;
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            return new Iterator<VM>() {
+
+                private int cur = valid() ? hosted[state][node] : NONE;
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NONE;
+                }
+
+                @Override
+                public VM next() {
+                    if (cur == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    VM v = vms[cur];
+                    cur = vmNext[cur];
+                    return v;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * A read-only view over the VMs in some states.
+     * The running and the sleeping VMs are browsed node by node.
+     */
+    private class VMSet extends AbstractSet<VM> {
+
+        private final boolean ready;
+
+        private final boolean running;
+
+        private final boolean sleeping;
+
+        VMSet(boolean r, boolean run, boolean sl) {
+            ready = r;
+            running = run;
+            sleeping = sl;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int s = vmState(((VM) o).id());
+            return (ready && s == READY_STATE)
+                    || (running && s == RUNNING_STATE)
+                    || (sleeping && s == SLEEPING_STATE);
+        }
+
+        @Override
+        public int size() {
+            return (ready ? nbVMs[READY_STATE] : 0)
+                    + (running ? nbVMs[RUNNING_STATE] : 0)
+                    + (sleeping ? nbVMs[SLEEPING_STATE] : 0);
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            return new Iterator<VM>() {
+
+                /**
+                 * The state of the list currently browsed.
+                 */
+                private int state = READY_STATE;
+
+                /**
+                 * The node hosting the list currently browsed.
+                 */
+                private int node = nodeHeads[ONLINE_STATE];
+
+                private int cur = ready ? readyHead : NONE;
+
+                {
+                    skip();
+                }
+
+                /**
+                 * Move to the next non-empty list if needed.
+                 */
+                private void skip() {
+                    while (cur == NONE && (running || sleeping)) {
+                        if (state == READY_STATE) {
+                            state = RUNNING_STATE;
+                        } else if (state == RUNNING_STATE) {
+                            state = SLEEPING_STATE;
+                        } else {
+                            state = RUNNING_STATE;
+                            node = nodeNext[node];
+                        }
+                        if (node == NONE) {
+                            return;
+                        }
+                        if ((state == RUNNING_STATE && running) || (state == SLEEPING_STATE && sleeping)) {
+                            cur = hosted[state][node];
+                        }
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NONE;
+                }
+
+                @Override
+                public VM next() {
+                    if (cur == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    VM v = vms[cur];
+                    cur = vmNext[cur];
+                    skip();
+                    return v;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
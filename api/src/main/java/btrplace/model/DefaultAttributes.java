@@ -22,6 +22,8 @@ import java.util.*;
 
 /**
  * Default implementation for {@link Attributes}.
+ * <p/>
+ * A clone shares the attributes of the original instance until one of them is modified (copy-on-write).
  *
  * @author Fabien Hermenier
  */
@@ -30,6 +32,11 @@ public class DefaultAttributes implements Attributes, Cloneable {
     private Map<VM, Map<String, Object>> vmAttrs;
     private Map<Node, Map<String, Object>> nodeAttrs;
 
+    /**
+     * {@code true} iff the maps may be shared with another instance.
+     */
+    private volatile boolean shared;
+
     /**
      * Make a new empty list of attributes.
      */
@@ -38,7 +45,31 @@ public class DefaultAttributes implements Attributes, Cloneable {
         nodeAttrs = new HashMap<>();
     }
 
+    /**
+     * Make the maps private to this instance prior to a modification.
+     */
+    private void own() {
+        if (!shared) {
+            return;
+        }
+        Map<VM, Map<String, Object>> vs = new HashMap<>(vmAttrs.size());
+        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
+            vs.put(e.getKey(), new HashMap<>(e.getValue()));
+        }
+        Map<Node, Map<String, Object>> ns = new HashMap<>(nodeAttrs.size());
+        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
+            ns.put(e.getKey(), new HashMap<>(e.getValue()));
+        }
+        vmAttrs = vs;
+        nodeAttrs = ns;
+        shared = false;
+    }
+
     private boolean putObject(Element e, String k, Object v) {
+        if (!(e instanceof VM) && !(e instanceof Node)) {
+            return false;
+        }
+        own();
         Map<String, Object> m;
         if (e instanceof VM) {
             m = vmAttrs.get(e);
@@ -86,6 +117,10 @@ public class DefaultAttributes implements Attributes, Cloneable {
 
     @Override
     public boolean unset(Element e, String k) {
+        if (!isSet(e, k)) {
+            return false;
+        }
+        own();
         Map<String, Object> m;
         if (e instanceof Node) {
             m = nodeAttrs.get(e);
@@ -100,14 +135,10 @@ public class DefaultAttributes implements Attributes, Cloneable {
     @Override
     public Attributes clone() {
         DefaultAttributes cpy = new DefaultAttributes();
-        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
-            cpy.vmAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
-
-        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
-            cpy.nodeAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
-
+        cpy.vmAttrs = vmAttrs;
+        cpy.nodeAttrs = nodeAttrs;
+        cpy.shared = true;
+        shared = true;
         return cpy;
     }
 
@@ -174,8 +205,9 @@ public class DefaultAttributes implements Attributes, Cloneable {
 
     @Override
     public void clear() {
-        this.vmAttrs.clear();
-        this.nodeAttrs.clear();
+        this.vmAttrs = new HashMap<>();
+        this.nodeAttrs = new HashMap<>();
+        shared = false;
     }
 
     @Override
@@ -219,8 +251,32 @@ public class DefaultAttributes implements Attributes, Cloneable {
         return (Integer) get(e, k);
     }
 
+    @Override
+    public boolean getBoolean(Element e, String k, boolean def) {
+        Object o = get(e, k);
+        return o instanceof Boolean ? (Boolean) o : def;
+    }
+
+    @Override
+    public double getDouble(Element e, String k, double def) {
+        Object o = get(e, k);
+        return o instanceof Double ? (Double) o : def;
+    }
+
+    @Override
+    public int getInteger(Element e, String k, int def) {
+        Object o = get(e, k);
+        return o instanceof Integer ? (Integer) o : def;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned set is backed by the attributes so removing a key removes the attribute.
+     * If the attributes are shared with a clone, they are copied first.
+     */
     @Override
     public Set<String> getKeys(Element e) {
+        own();
         Map<String, Object> m;
         if (e instanceof Node) {
             m = nodeAttrs.get(e);
@@ -255,6 +311,7 @@ public class DefaultAttributes implements Attributes, Cloneable {
 
     @Override
     public void clear(Element e) {
+        own();
         if (e instanceof VM) {
             this.vmAttrs.remove(e);
         } else if (e instanceof Node) {
@@ -20,7 +20,8 @@ package btrplace.model;
 
 import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.procedure.TIntObjectProcedure;
+import gnu.trove.procedure.TIntProcedure;
+import gnu.trove.procedure.TObjectProcedure;
 import gnu.trove.set.hash.THashSet;
 
 import java.util.*;
@@ -30,12 +31,13 @@ import java.util.*;
  * <p/>
  * Methods {@link #getRunningVMs()}, {@link #getSleepingVMs()}, {@link #getAllVMs()}, {@link #getAllNodes()},
  * {@link #getRunningVMs(Collection)}, {@link #getSleepingVMs(java.util.Collection)} have a O(n) complexity.
+ * Their live counterparts, such as {@link #getRunningVMsView()}, have a O(1) complexity and do not copy any element.
  * <p/>
  * Methods {@code is*()} have a O(1) complexity.
  *
  * @author Fabien Hermenier
  */
-public class DefaultMapping implements Mapping, Cloneable {
+public class DefaultMapping implements LiveMapping, Journaled, Cloneable {
 
     private static final int RUNNING_STATE = 0;
 
@@ -72,6 +74,16 @@ public class DefaultMapping implements Mapping, Cloneable {
      */
     private TIntObjectHashMap<Set<VM>>[] host;
 
+    /**
+     * The number of running VMs.
+     */
+    private int nbRunning;
+
+    /**
+     * The journal recording the changes, if any.
+     */
+    private Journal journal;
+
     /**
      * Create a new mapping.
      */
@@ -155,18 +167,22 @@ public class DefaultMapping implements Mapping, Cloneable {
                 host[SLEEPING_STATE].get(old.id()).remove(vm);
                 on.add(vm);
                 st.put(vmId, RUNNING_STATE);
+                nbRunning++;
                 break;
             case READY_STATE:
                 place.put(vmId, n);
                 on.add(vm);
                 vmReady.remove(vm);
                 st.put(vmId, RUNNING_STATE);
+                nbRunning++;
                 break;
             default:
                 place.put(vmId, n);
                 on.add(vm);
                 st.put(vmId, RUNNING_STATE);
+                nbRunning++;
         }
+        log(vm, VMState.RUNNING, n);
         return true;
     }
 
@@ -190,6 +206,7 @@ public class DefaultMapping implements Mapping, Cloneable {
                 host[RUNNING_STATE].get(old.id()).remove(vm);
                 on.add(vm);
                 st.put(vmId, SLEEPING_STATE);
+                nbRunning--;
                 break;
             case SLEEPING_STATE:
                 //If was sleeping, sync the state
@@ -212,6 +229,7 @@ public class DefaultMapping implements Mapping, Cloneable {
                 st.put(vmId, SLEEPING_STATE);
         }
         st.put(vm.id(), SLEEPING_STATE);
+        log(vm, VMState.SLEEPING, n);
         return true;
     }
 
@@ -223,6 +241,7 @@ public class DefaultMapping implements Mapping, Cloneable {
             case RUNNING_STATE:
                 //If was running, sync the state
                 host[RUNNING_STATE].get(n.id()).remove(vm);
+                nbRunning--;
                 break;
             case SLEEPING_STATE:
                 //If was sleeping, sync the state
@@ -232,6 +251,7 @@ public class DefaultMapping implements Mapping, Cloneable {
 
         st.put(vm.id(), READY_STATE);
         vmReady.add(vm);
+        log(vm, VMState.READY, null);
         return true;
     }
 
@@ -242,15 +262,18 @@ public class DefaultMapping implements Mapping, Cloneable {
             //The VM exists and is already placed
             if (st.get(vm.id()) == RUNNING_STATE) {
                 host[RUNNING_STATE].get(n.id()).remove(vm);
+                nbRunning--;
             } else if (st.get(vm.id()) == SLEEPING_STATE) {
                 host[SLEEPING_STATE].get(n.id()).remove(vm);
             }
             st.remove(vm.id());
+            log(vm, null, null);
             return true;
         } else if (st.get(vm.id()) == READY_STATE) {
 
             vmReady.remove(vm);
             st.remove(vm.id());
+            log(vm, null, null);
             return true;
         }
         return false;
@@ -275,16 +298,22 @@ public class DefaultMapping implements Mapping, Cloneable {
                 }
                 host[SLEEPING_STATE].remove(nId);
             }
-            return nodeState[ONLINE_STATE].remove(n);
+            nodeState[ONLINE_STATE].remove(n);
+            log(n, null);
+            return true;
         }
-
-        return nodeState[OFFLINE_STATE].remove(n);
+        if (nodeState[OFFLINE_STATE].remove(n)) {
+            log(n, null);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean addOnlineNode(Node n) {
         nodeState[OFFLINE_STATE].remove(n);
         nodeState[ONLINE_STATE].add(n);
+        log(n, NodeState.ONLINE);
         return true;
     }
 
@@ -303,6 +332,7 @@ public class DefaultMapping implements Mapping, Cloneable {
             nodeState[ONLINE_STATE].remove(n);
         }
         nodeState[OFFLINE_STATE].add(n);
+        log(n, NodeState.OFFLINE);
         return true;
     }
 
@@ -318,12 +348,62 @@ public class DefaultMapping implements Mapping, Cloneable {
 
     @Override
     public Set<VM> getRunningVMs() {
-        return getRunningVMs(getOnlineNodes());
+        return new THashSet<>(getRunningVMsView());
     }
 
     @Override
     public Set<VM> getSleepingVMs() {
-        return getSleepingVMs(getOnlineNodes());
+        return new THashSet<>(getSleepingVMsView());
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        return new HashSet<>(getAllVMsView());
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        return new THashSet<>(getAllNodesView());
+    }
+
+    @Override
+    public Set<VM> getRunningVMsView() {
+        return new AbstractSet<VM>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof VM && isRunning((VM) o);
+            }
+
+            @Override
+            public Iterator<VM> iterator() {
+                return new FlatIterator<>(host[RUNNING_STATE].valueCollection().iterator());
+            }
+
+            @Override
+            public int size() {
+                return nbRunning;
+            }
+        };
+    }
+
+    @Override
+    public Set<VM> getSleepingVMsView() {
+        return new AbstractSet<VM>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof VM && isSleeping((VM) o);
+            }
+
+            @Override
+            public Iterator<VM> iterator() {
+                return new FlatIterator<>(host[SLEEPING_STATE].valueCollection().iterator());
+            }
+
+            @Override
+            public int size() {
+                return st.size() - vmReady.size() - nbRunning;
+            }
+        };
     }
 
     @Override
@@ -350,34 +430,85 @@ public class DefaultMapping implements Mapping, Cloneable {
     }
 
     @Override
-    public Set<VM> getAllVMs() {
-        final Set<VM> s = new HashSet<>(vmReady);
-        host[RUNNING_STATE].forEachEntry(new TIntObjectProcedure<Set<VM>>() {
+    public Set<VM> getAllVMsView() {
+        return new AbstractSet<VM>() {
             @Override
-            public boolean execute(int a, Set<VM> b) {
-                s.addAll(b);
-                return true;
+            public boolean contains(Object o) {
+                return o instanceof VM && DefaultMapping.this.contains((VM) o);
             }
-        });
-        host[SLEEPING_STATE].forEachEntry(new TIntObjectProcedure<Set<VM>>() {
+
+            @Override
+            public Iterator<VM> iterator() {
+                return new FlatIterator<>(Arrays.asList(
+                        Collections.unmodifiableSet(vmReady),
+                        getRunningVMsView(),
+                        getSleepingVMsView()).iterator());
+            }
+
+            @Override
+            public int size() {
+                return st.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Node> getAllNodesView() {
+        return new AbstractSet<Node>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Node && DefaultMapping.this.contains((Node) o);
+            }
+
+            @Override
+            public Iterator<Node> iterator() {
+                return new FlatIterator<>(Arrays.asList(
+                        Collections.unmodifiableSet(nodeState[ONLINE_STATE]),
+                        Collections.unmodifiableSet(nodeState[OFFLINE_STATE])).iterator());
+            }
+
             @Override
-            public boolean execute(int a, Set<VM> b) {
-                s.addAll(b);
+            public int size() {
+                return nodeState[ONLINE_STATE].size() + nodeState[OFFLINE_STATE].size();
+            }
+        };
+    }
+
+    @Override
+    public boolean forEachVM(VMState s, TIntProcedure p) {
+        switch (s) {
+            case READY:
+                return forEach(vmReady, p);
+            case RUNNING:
+                return forEachHosted(host[RUNNING_STATE], p);
+            case SLEEPING:
+                return forEachHosted(host[SLEEPING_STATE], p);
+            default:
                 return true;
+        }
+    }
+
+    @Override
+    public boolean forEachNode(NodeState s, TIntProcedure p) {
+        return forEach(s == NodeState.ONLINE ? nodeState[ONLINE_STATE] : nodeState[OFFLINE_STATE], p);
+    }
+
+    private static boolean forEachHosted(TIntObjectHashMap<Set<VM>> h, final TIntProcedure p) {
+        return h.forEachValue(new TObjectProcedure<Set<VM>>() {
+            @Override
+            public boolean execute(Set<VM> vms) {
+                return forEach(vms, p);
             }
         });
-        return s;
     }
 
-    @Override
-    public Set<Node> getAllNodes() {
-        Set<Node> ns = new THashSet<>(
-                nodeState[OFFLINE_STATE].size() +
-                        nodeState[ONLINE_STATE].size()
-        );
-        ns.addAll(nodeState[OFFLINE_STATE]);
-        ns.addAll(nodeState[ONLINE_STATE]);
-        return ns;
+    private static boolean forEach(Set<? extends Element> s, TIntProcedure p) {
+        for (Element e : s) {
+            if (!p.execute(e.id())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -420,6 +551,12 @@ public class DefaultMapping implements Mapping, Cloneable {
 
     @Override
     public void clear() {
+        if (journal != null) {
+            logRemoval();
+            for (Node n : getAllNodes()) {
+                log(n, null);
+            }
+        }
         for (Set<Node> s : nodeState) {
             s.clear();
         }
@@ -429,17 +566,23 @@ public class DefaultMapping implements Mapping, Cloneable {
         for (TIntObjectHashMap<Set<VM>> h : host) {
             h.clear();
         }
+        nbRunning = 0;
     }
 
     @Override
     public void clearNode(Node u) {
         //Get the VMs on the node
+        Set<VM> running = host[RUNNING_STATE].get(u.id());
+        if (running != null) {
+            nbRunning -= running.size();
+        }
         for (TIntObjectHashMap<Set<VM>> h : host) {
             Set<VM> s = h.get(u.id());
             if (s != null) {
                 for (VM vm : s) {
                     place.remove(vm.id());
                     st.remove(vm.id());
+                    log(vm, null, null);
                 }
                 s.clear();
             }
@@ -448,12 +591,47 @@ public class DefaultMapping implements Mapping, Cloneable {
 
     @Override
     public void clearAllVMs() {
+        if (journal != null) {
+            logRemoval();
+        }
         place.clear();
         st.clear();
         vmReady.clear();
         for (TIntObjectHashMap<Set<VM>> h : host) {
             h.clear();
         }
+        nbRunning = 0;
+    }
+
+    @Override
+    public void setJournal(Journal j) {
+        journal = j;
+    }
+
+    @Override
+    public Journal getJournal() {
+        return journal;
+    }
+
+    private void log(VM vm, VMState s, Node n) {
+        if (journal != null) {
+            journal.vmChanged(vm, s, n);
+        }
+    }
+
+    private void log(Node n, NodeState s) {
+        if (journal != null) {
+            journal.nodeChanged(n, s);
+        }
+    }
+
+    /**
+     * Record the removal of all the VMs.
+     */
+    private void logRemoval() {
+        for (VM vm : getAllVMs()) {
+            journal.vmChanged(vm, null, null);
+        }
     }
 
     @Override
@@ -554,4 +732,45 @@ public class DefaultMapping implements Mapping, Cloneable {
         }
         return null;
     }
+
+    /**
+     * A read-only iterator over the elements of a sequence of sets.
+     *
+     * @param <E> the element type
+     */
+    private static class FlatIterator<E> implements Iterator<E> {
+
+        private Iterator<? extends Set<E>> sets;
+
+        private Iterator<E> cur;
+
+        FlatIterator(Iterator<? extends Set<E>> s) {
+            sets = s;
+            cur = Collections.<E>emptySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!cur.hasNext()) {
+                if (!sets.hasNext()) {
+                    return false;
+                }
+                cur = sets.next().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return cur.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -27,6 +27,10 @@ import java.util.Objects;
 
 /**
  * Default implementation for a {@link Model}.
+ * <p/>
+ * The cost of {@link #clone()} depends on the cost of cloning the mapping, the views and the attributes.
+ * Using a {@link CompactMapping} through {@link #DefaultModel(ElementBuilder, Mapping)} makes a clone
+ * share the structures of the original model until they are modified.
  *
  * @author Fabien Hermenier
  */
@@ -49,13 +53,26 @@ public class DefaultModel implements Model, Cloneable {
 
     /**
      * Make a new instance relying on a given element builders.
+     * The elements are placed using a {@link DefaultMapping}.
      *
      * @param eb the builder to use
      */
     public DefaultModel(ElementBuilder eb) {
+        this(eb, new DefaultMapping());
+    }
+
+    /**
+     * Make a new instance relying on a given element builder and a given mapping.
+     * A {@link CompactMapping} is preferable for large models as long as the builder
+     * provides dense identifiers, like a {@link DefaultElementBuilder}.
+     *
+     * @param eb the builder to use
+     * @param m  the mapping to use
+     */
+    public DefaultModel(ElementBuilder eb, Mapping m) {
         this.resources = new HashMap<>();
         attrs = new DefaultAttributes();
-        cfg = new DefaultMapping();
+        cfg = m;
         elemBuilder = eb;
     }
 
@@ -132,8 +149,7 @@ public class DefaultModel implements Model, Cloneable {
 
     @Override
     public Model clone() {
-        DefaultModel m = new DefaultModel(elemBuilder.clone());
-        MappingUtils.fill(cfg, m.cfg);
+        DefaultModel m = new DefaultModel(elemBuilder.clone(), cfg.clone());
         for (ModelView rc : resources.values()) {
             m.attach(rc.clone());
         }
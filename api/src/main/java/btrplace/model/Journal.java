@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import java.util.Arrays;
+
+/**
+ * A journal to record the changes made to a {@link Mapping} or
+ * to a {@link btrplace.model.view.ShareableResource}.
+ * <p/>
+ * Each entry records the state of an element <b>after</b> a modification.
+ * Entries are stored into arrays so recording a change does not allocate
+ * any object, except when the arrays have to grow.
+ * <p/>
+ * A same journal can be attached to several mappings and resources to
+ * get a single, ordered, log of the changes.
+ *
+ * @author Fabien Hermenier
+ * @see Journaled
+ * @see MappingDelta
+ */
+public class Journal {
+
+    /**
+     * The possible type of an entry.
+     */
+    public static enum Type {
+        /**
+         * The state or the location of a VM changed.
+         */
+        VM_STATE,
+        /**
+         * The state of a node changed.
+         */
+        NODE_STATE,
+        /**
+         * The consumption of a VM has been set.
+         */
+        CONSUMPTION,
+        /**
+         * The consumption of a VM has been unset.
+         */
+        UNSET_CONSUMPTION,
+        /**
+         * The capacity of a node has been set.
+         */
+        CAPACITY,
+        /**
+         * The capacity of a node has been unset.
+         */
+        UNSET_CAPACITY
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private static final VMState[] VM_STATES = VMState.values();
+
+    private static final NodeState[] NODE_STATES = NodeState.values();
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private byte[] types;
+
+    private Element[] elements;
+
+    /**
+     * The state ordinal or the resource value. {@code -1} for a removed element.
+     */
+    private int[] values;
+
+    /**
+     * The host of a VM or the resource identifier.
+     */
+    private Object[] args;
+
+    private int size;
+
+    /**
+     * Make a new empty journal.
+     */
+    public Journal() {
+        types = new byte[DEFAULT_CAPACITY];
+        elements = new Element[DEFAULT_CAPACITY];
+        values = new int[DEFAULT_CAPACITY];
+        args = new Object[DEFAULT_CAPACITY];
+    }
+
+    private void append(Type t, Element e, int v, Object a) {
+        if (size == types.length) {
+            int cap = size * 2;
+            types = Arrays.copyOf(types, cap);
+            elements = Arrays.copyOf(elements, cap);
+            values = Arrays.copyOf(values, cap);
+            args = Arrays.copyOf(args, cap);
+        }
+        types[size] = (byte) t.ordinal();
+        elements[size] = e;
+        values[size] = v;
+        args[size] = a;
+        size++;
+    }
+
+    /**
+     * Record the new state of a VM.
+     *
+     * @param v    the VM
+     * @param s    the new state. {@code null} if the VM has been removed
+     * @param host the new host if the VM is running or sleeping. {@code null} otherwise
+     */
+    public void vmChanged(VM v, VMState s, Node host) {
+        append(Type.VM_STATE, v, s == null ? -1 : s.ordinal(), host);
+    }
+
+    /**
+     * Record the new state of a node.
+     *
+     * @param n the node
+     * @param s the new state. {@code null} if the node has been removed
+     */
+    public void nodeChanged(Node n, NodeState s) {
+        append(Type.NODE_STATE, n, s == null ? -1 : s.ordinal(), null);
+    }
+
+    /**
+     * Record the new consumption of a VM.
+     *
+     * @param rc  the resource identifier
+     * @param v   the VM
+     * @param val the new consumption
+     */
+    public void consumptionChanged(String rc, VM v, int val) {
+        append(Type.CONSUMPTION, v, val, rc);
+    }
+
+    /**
+     * Record the consumption of a VM is no longer defined.
+     *
+     * @param rc the resource identifier
+     * @param v  the VM
+     */
+    public void consumptionUnset(String rc, VM v) {
+        append(Type.UNSET_CONSUMPTION, v, -1, rc);
+    }
+
+    /**
+     * Record the new capacity of a node.
+     *
+     * @param rc  the resource identifier
+     * @param n   the node
+     * @param val the new capacity
+     */
+    public void capacityChanged(String rc, Node n, int val) {
+        append(Type.CAPACITY, n, val, rc);
+    }
+
+    /**
+     * Record the capacity of a node is no longer defined.
+     *
+     * @param rc the resource identifier
+     * @param n  the node
+     */
+    public void capacityUnset(String rc, Node n) {
+        append(Type.UNSET_CAPACITY, n, -1, rc);
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return a positive integer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the type of an entry.
+     *
+     * @param i the entry index
+     * @return the entry type
+     */
+    public Type getType(int i) {
+        check(i);
+        return TYPES[types[i]];
+    }
+
+    /**
+     * Get the element concerned by an entry.
+     *
+     * @param i the entry index
+     * @return the VM or the node
+     */
+    public Element getElement(int i) {
+        check(i);
+        return elements[i];
+    }
+
+    /**
+     * Get the VM state recorded by a {@link Type#VM_STATE} entry.
+     *
+     * @param i the entry index
+     * @return the state. {@code null} if the VM has been removed
+     */
+    public VMState getVMState(int i) {
+        check(i, Type.VM_STATE);
+        return values[i] < 0 ? null : VM_STATES[values[i]];
+    }
+
+    /**
+     * Get the VM host recorded by a {@link Type#VM_STATE} entry.
+     *
+     * @param i the entry index
+     * @return the host. {@code null} if the VM is not running nor sleeping
+     */
+    public Node getLocation(int i) {
+        check(i, Type.VM_STATE);
+        return (Node) args[i];
+    }
+
+    /**
+     * Get the node state recorded by a {@link Type#NODE_STATE} entry.
+     *
+     * @param i the entry index
+     * @return the state. {@code null} if the node has been removed
+     */
+    public NodeState getNodeState(int i) {
+        check(i, Type.NODE_STATE);
+        return values[i] < 0 ? null : NODE_STATES[values[i]];
+    }
+
+    /**
+     * Get the resource value recorded by a {@link Type#CONSUMPTION} or a {@link Type#CAPACITY} entry.
+     *
+     * @param i the entry index
+     * @return the recorded value
+     */
+    public int getValue(int i) {
+        check(i);
+        return values[i];
+    }
+
+    /**
+     * Get the resource identifier of a resource-related entry.
+     *
+     * @param i the entry index
+     * @return the identifier. {@code null} if the entry is not related to a resource
+     */
+    public String getResource(int i) {
+        check(i);
+        return types[i] >= Type.CONSUMPTION.ordinal() ? (String) args[i] : null;
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        Arrays.fill(args, 0, size, null);
+        size = 0;
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+        }
+    }
+
+    private void check(int i, Type t) {
+        check(i);
+        if (types[i] != t.ordinal()) {
+            throw new IllegalArgumentException("Entry " + i + " is a '" + TYPES[types[i]] + "' entry");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            b.append(TYPES[types[i]]).append('(').append(elements[i]);
+            if (args[i] != null) {
+                b.append(", ").append(args[i]);
+            }
+            b.append(", ").append(values[i]).append(")\n");
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.model;
+
+/**
+ * An element which changes can be recorded into a {@link Journal}.
+ *
+ * @author Fabien Hermenier
+ */
+public interface Journaled {
+
+    /**
+     * Attach a journal to record the changes.
+     * The journal is not transmitted to the clones.
+     *
+     * @param j the journal to use. {@code null} to stop recording the changes
+     */
+    void setJournal(Journal j);
+
+    /**
+     * Get the journal recording the changes.
+     *
+     * @return the journal if any. {@code null} otherwise
+     */
+    Journal getJournal();
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.model;
+
+import gnu.trove.procedure.TIntProcedure;
+
+import java.util.Set;
+
+/**
+ * A {@link Mapping} that provides live, read-only, views of its content
+ * in addition to the copies returned by the {@link Mapping} getters.
+ * <p/>
+ * The views reflect the changes made to the mapping. They must not be
+ * traversed while the mapping is modified.
+ * Use {@link MappingUtils} to benefit from the views when
+ * the mapping is not known to be a {@code LiveMapping}.
+ *
+ * @author Fabien Hermenier
+ */
+public interface LiveMapping extends Mapping {
+
+    /**
+     * Get a live view of the running VMs.
+     *
+     * @return a read-only set of VMs, may be empty
+     */
+    Set<VM> getRunningVMsView();
+
+    /**
+     * Get a live view of the sleeping VMs.
+     *
+     * @return a read-only set of VMs, may be empty
+     */
+    Set<VM> getSleepingVMsView();
+
+    /**
+     * Get a live view of all the VMs in the mapping.
+     *
+     * @return a read-only set of VMs, may be empty
+     */
+    Set<VM> getAllVMsView();
+
+    /**
+     * Get a live view of all the nodes in the mapping.
+     *
+     * @return a read-only set of nodes, may be empty
+     */
+    Set<Node> getAllNodesView();
+
+    /**
+     * Execute a procedure on the identifier of every VM in a given state.
+     * The mapping must not be modified by the procedure.
+     *
+     * @param s the state of the VMs to consider
+     * @param p the procedure to execute
+     * @return {@code false} iff the procedure stopped the iteration by returning {@code false}
+     */
+    boolean forEachVM(VMState s, TIntProcedure p);
+
+    /**
+     * Execute a procedure on the identifier of every node in a given state.
+     * The mapping must not be modified by the procedure.
+     *
+     * @param s the state of the nodes to consider
+     * @param p the procedure to execute
+     * @return {@code false} iff the procedure stopped the iteration by returning {@code false}
+     */
+    boolean forEachNode(NodeState s, TIntProcedure p);
+}
@@ -18,6 +18,7 @@
 
 package btrplace.model;
 
+
 import java.util.Collection;
 import java.util.Set;
 
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import java.util.*;
+
+/**
+ * The differences between a source and a destination mapping.
+ * The delta stores, for each VM and each node having a different state or location,
+ * its state in both the source and the destination mapping.
+ * <p/>
+ * When a {@link Journal} recorded the modifications that turned the
+ * source mapping into the destination mapping, the delta is computed
+ * in a time proportional to the number of recorded changes. Otherwise,
+ * every element of the two mappings is compared.
+ *
+ * @author Fabien Hermenier
+ */
+public class MappingDelta {
+
+    private Map<VM, VMState> srcVMStates, dstVMStates;
+
+    private Map<VM, Node> srcLocations, dstLocations;
+
+    private Map<Node, NodeState> srcNodeStates, dstNodeStates;
+
+    private MappingDelta() {
+        srcVMStates = new LinkedHashMap<>();
+        dstVMStates = new LinkedHashMap<>();
+        srcLocations = new HashMap<>();
+        dstLocations = new HashMap<>();
+        srcNodeStates = new LinkedHashMap<>();
+        dstNodeStates = new LinkedHashMap<>();
+    }
+
+    /**
+     * Compute the delta between two mappings by comparing all their elements.
+     *
+     * @param src the source mapping
+     * @param dst the destination mapping
+     */
+    public MappingDelta(Mapping src, Mapping dst) {
+        this();
+        for (Node n : MappingUtils.allNodes(src)) {
+            compare(src, dst, n);
+        }
+        for (Node n : MappingUtils.allNodes(dst)) {
+            if (!src.contains(n)) {
+                compare(src, dst, n);
+            }
+        }
+        for (VM v : MappingUtils.allVMs(src)) {
+            compare(src, dst, v);
+        }
+        for (VM v : MappingUtils.allVMs(dst)) {
+            if (!src.contains(v)) {
+                compare(src, dst, v);
+            }
+        }
+    }
+
+    /**
+     * Compute the delta between two mappings from a journal.
+     * Only the elements mentioned in the journal are compared.
+     * The journal must then have recorded every modification made to the
+     * destination mapping since it was equal to the source mapping, typically
+     * since it was cloned from the source mapping.
+     *
+     * @param src the source mapping
+     * @param dst the destination mapping
+     * @param j   the journal that recorded the modifications of {@code dst}
+     */
+    public MappingDelta(Mapping src, Mapping dst, Journal j) {
+        this();
+        for (int i = 0; i < j.size(); i++) {
+            Journal.Type t = j.getType(i);
+            if (t == Journal.Type.VM_STATE) {
+                VM v = (VM) j.getElement(i);
+                if (!dstVMStates.containsKey(v)) {
+                    compare(src, dst, v);
+                }
+            } else if (t == Journal.Type.NODE_STATE) {
+                Node n = (Node) j.getElement(i);
+                if (!dstNodeStates.containsKey(n)) {
+                    compare(src, dst, n);
+                }
+            }
+        }
+    }
+
+    private void compare(Mapping src, Mapping dst, VM v) {
+        VMState from = src.getState(v);
+        VMState to = dst.getState(v);
+        Node fromHost = src.getVMLocation(v);
+        Node toHost = dst.getVMLocation(v);
+        if (from != to || !Objects.equals(fromHost, toHost)) {
+            srcVMStates.put(v, from);
+            dstVMStates.put(v, to);
+            if (fromHost != null) {
+                srcLocations.put(v, fromHost);
+            }
+            if (toHost != null) {
+                dstLocations.put(v, toHost);
+            }
+        }
+    }
+
+    private void compare(Mapping src, Mapping dst, Node n) {
+        NodeState from = src.getState(n);
+        NodeState to = dst.getState(n);
+        if (from != to) {
+            srcNodeStates.put(n, from);
+            dstNodeStates.put(n, to);
+        }
+    }
+
+    /**
+     * Get the VMs having a different state or location.
+     *
+     * @return a set of VMs that may be empty
+     */
+    public Set<VM> getVMs() {
+        return Collections.unmodifiableSet(dstVMStates.keySet());
+    }
+
+    /**
+     * Get the nodes having a different state.
+     *
+     * @return a set of nodes that may be empty
+     */
+    public Set<Node> getNodes() {
+        return Collections.unmodifiableSet(dstNodeStates.keySet());
+    }
+
+    /**
+     * Check if the two mappings are equal.
+     *
+     * @return {@code true} iff there is no difference
+     */
+    public boolean isEmpty() {
+        return dstVMStates.isEmpty() && dstNodeStates.isEmpty();
+    }
+
+    /**
+     * Get the state of a VM in the source mapping.
+     *
+     * @param v the VM
+     * @return the state. {@code null} if the VM is not in the source mapping or if it is not a part of the delta
+     */
+    public VMState getSourceState(VM v) {
+        return srcVMStates.get(v);
+    }
+
+    /**
+     * Get the state of a VM in the destination mapping.
+     *
+     * @param v the VM
+     * @return the state. {@code null} if the VM is not in the destination mapping or if it is not a part of the delta
+     */
+    public VMState getDestinationState(VM v) {
+        return dstVMStates.get(v);
+    }
+
+    /**
+     * Get the location of a VM in the source mapping.
+     *
+     * @param v the VM
+     * @return the hosting node. {@code null} if the VM was not running nor sleeping or if it is not a part of the delta
+     */
+    public Node getSourceLocation(VM v) {
+        return srcLocations.get(v);
+    }
+
+    /**
+     * Get the location of a VM in the destination mapping.
+     *
+     * @param v the VM
+     * @return the hosting node. {@code null} if the VM is not running nor sleeping or if it is not a part of the delta
+     */
+    public Node getDestinationLocation(VM v) {
+        return dstLocations.get(v);
+    }
+
+    /**
+     * Get the state of a node in the source mapping.
+     *
+     * @param n the node
+     * @return the state. {@code null} if the node is not in the source mapping or if it is not a part of the delta
+     */
+    public NodeState getSourceState(Node n) {
+        return srcNodeStates.get(n);
+    }
+
+    /**
+     * Get the state of a node in the destination mapping.
+     *
+     * @param n the node
+     * @return the state. {@code null} if the node is not in the destination mapping or if it is not a part of the delta
+     */
+    public NodeState getDestinationState(Node n) {
+        return dstNodeStates.get(n);
+    }
+
+    /**
+     * Apply the delta on a mapping.
+     * Nodes that are brought online are updated first, then the VMs, and finally
+     * the nodes that go offline or are removed.
+     * Applied on a mapping equal to the source mapping, the result is equal to
+     * the destination mapping.
+     *
+     * @param m the mapping to modify
+     * @return {@code true} iff all the modifications succeeded
+     */
+    public boolean applyTo(Mapping m) {
+        boolean ok = true;
+        for (Map.Entry<Node, NodeState> e : dstNodeStates.entrySet()) {
+            if (e.getValue() == NodeState.ONLINE) {
+                ok &= m.addOnlineNode(e.getKey());
+            }
+        }
+        for (Map.Entry<VM, VMState> e : dstVMStates.entrySet()) {
+            VM v = e.getKey();
+            if (e.getValue() == null) {
+                ok &= m.remove(v);
+                continue;
+            }
+            switch (e.getValue()) {
+                case RUNNING:
+                    ok &= m.addRunningVM(v, dstLocations.get(v));
+                    break;
+                case SLEEPING:
+                    ok &= m.addSleepingVM(v, dstLocations.get(v));
+                    break;
+                case READY:
+                    ok &= m.addReadyVM(v);
+                    break;
+                default:
+                    ok = false;
+            }
+        }
+        for (Map.Entry<Node, NodeState> e : dstNodeStates.entrySet()) {
+            if (e.getValue() == NodeState.OFFLINE) {
+                ok &= m.addOfflineNode(e.getKey());
+            } else if (e.getValue() == null) {
+                ok &= m.remove(e.getKey());
+            }
+        }
+        return ok;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Map.Entry<Node, NodeState> e : dstNodeStates.entrySet()) {
+            b.append(e.getKey()).append(": ").append(srcNodeStates.get(e.getKey()))
+                    .append(" -> ").append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<VM, VMState> e : dstVMStates.entrySet()) {
+            VM v = e.getKey();
+            b.append(v).append(": ").append(srcVMStates.get(v));
+            if (srcLocations.containsKey(v)) {
+                b.append(" on ").append(srcLocations.get(v));
+            }
+            b.append(" -> ").append(e.getValue());
+            if (dstLocations.containsKey(v)) {
+                b.append(" on ").append(dstLocations.get(v));
+            }
+            b.append('\n');
+        }
+        return b.toString();
+    }
+}
@@ -18,6 +18,10 @@
 
 package btrplace.model;
 
+import gnu.trove.procedure.TIntProcedure;
+
+import java.util.Set;
+
 /**
  * Common tools to manipulate a {@link Mapping}.
  *
@@ -57,4 +61,100 @@ public final class MappingUtils {
 
         }
     }
+
+    /**
+     * Get the running VMs of a mapping.
+     *
+     * @param m the mapping
+     * @return a live view if {@code m} is a {@link LiveMapping}, a copy otherwise. The set must not be modified
+     */
+    public static Set<VM> runningVMs(Mapping m) {
+        return m instanceof LiveMapping ? ((LiveMapping) m).getRunningVMsView() : m.getRunningVMs();
+    }
+
+    /**
+     * Get the sleeping VMs of a mapping.
+     *
+     * @param m the mapping
+     * @return a live view if {@code m} is a {@link LiveMapping}, a copy otherwise. The set must not be modified
+     */
+    public static Set<VM> sleepingVMs(Mapping m) {
+        return m instanceof LiveMapping ? ((LiveMapping) m).getSleepingVMsView() : m.getSleepingVMs();
+    }
+
+    /**
+     * Get all the VMs of a mapping.
+     *
+     * @param m the mapping
+     * @return a live view if {@code m} is a {@link LiveMapping}, a copy otherwise. The set must not be modified
+     */
+    public static Set<VM> allVMs(Mapping m) {
+        return m instanceof LiveMapping ? ((LiveMapping) m).getAllVMsView() : m.getAllVMs();
+    }
+
+    /**
+     * Get all the nodes of a mapping.
+     *
+     * @param m the mapping
+     * @return a live view if {@code m} is a {@link LiveMapping}, a copy otherwise. The set must not be modified
+     */
+    public static Set<Node> allNodes(Mapping m) {
+        return m instanceof LiveMapping ? ((LiveMapping) m).getAllNodesView() : m.getAllNodes();
+    }
+
+    /**
+     * Execute a procedure on the identifier of every VM of a mapping in a given state.
+     * The mapping must not be modified by the procedure.
+     *
+     * @param m the mapping
+     * @param s the state of the VMs to consider
+     * @param p the procedure to execute
+     * @return {@code false} iff the procedure stopped the iteration by returning {@code false}
+     */
+    public static boolean forEachVM(Mapping m, VMState s, TIntProcedure p) {
+        if (m instanceof LiveMapping) {
+            return ((LiveMapping) m).forEachVM(s, p);
+        }
+        Set<VM> vms;
+        switch (s) {
+            case READY:
+                vms = m.getReadyVMs();
+                break;
+            case RUNNING:
+                vms = m.getRunningVMs();
+                break;
+            case SLEEPING:
+                vms = m.getSleepingVMs();
+                break;
+            default:
+                return true;
+        }
+        for (VM v : vms) {
+            if (!p.execute(v.id())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Execute a procedure on the identifier of every node of a mapping in a given state.
+     * The mapping must not be modified by the procedure.
+     *
+     * @param m the mapping
+     * @param s the state of the nodes to consider
+     * @param p the procedure to execute
+     * @return {@code false} iff the procedure stopped the iteration by returning {@code false}
+     */
+    public static boolean forEachNode(Mapping m, NodeState s, TIntProcedure p) {
+        if (m instanceof LiveMapping) {
+            return ((LiveMapping) m).forEachNode(s, p);
+        }
+        for (Node n : s == NodeState.ONLINE ? m.getOnlineNodes() : m.getOfflineNodes()) {
+            if (!p.execute(n.id())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -265,4 +265,15 @@ public abstract class AllowAllConstraintChecker<C extends SatConstraint> impleme
     public Set<Node> getNodes() {
         return nodes;
     }
+
+    /**
+     * Indicate whether the checker must be notified about every action and event.
+     * Otherwise, {@link btrplace.plan.ReconfigurationPlanChecker} only notifies
+     * the actions and the events involving one of the VMs or one of the nodes of the checker.
+     *
+     * @return {@code false} by default
+     */
+    public boolean isGlobal() {
+        return false;
+    }
 }
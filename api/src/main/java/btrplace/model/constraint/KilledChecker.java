@@ -49,7 +49,7 @@ public class KilledChecker extends DenyMyVMsActions<Killed> {
     public boolean endsWith(Model mo) {
         Mapping c = mo.getMapping();
         for (VM vm : getVMs()) {
-            if (c.getAllVMs().contains(vm)) {
+            if (c.contains(vm)) {
                 return false;
             }
         }
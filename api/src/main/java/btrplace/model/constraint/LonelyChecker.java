@@ -99,6 +99,16 @@ public class LonelyChecker extends AllowAllConstraintChecker<Lonely> {
         return idleNodes.add(a.getNode());
     }
 
+    /**
+     * In continuous mode, the checker tracks every node and every placed VM.
+     *
+     * @return {@code true} iff the constraint is continuous
+     */
+    @Override
+    public boolean isGlobal() {
+        return getConstraint().isContinuous();
+    }
+
     @Override
     public boolean endsWith(Model mo) {
         return discreteCheck(mo);
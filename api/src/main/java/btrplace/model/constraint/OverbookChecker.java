@@ -21,9 +21,11 @@ package btrplace.model.constraint;
 import btrplace.model.Mapping;
 import btrplace.model.Model;
 import btrplace.model.Node;
-import btrplace.model.VM;
 import btrplace.model.view.ShareableResource;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Checker for the {@link btrplace.model.constraint.Overbook} constraint
  *
@@ -54,17 +56,18 @@ public class OverbookChecker extends AllowAllConstraintChecker<Overbook> {
         if (rc == null) {
             return false;
         }
+        List<Node> online = new ArrayList<>(getNodes().size());
         for (Node nId : getNodes()) {
             if (cfg.isOnline(nId)) {
-                //Server capacity with the ratio
-                double c = rc.getCapacity(nId) * ratio;
-                //Minus the VMs usage
-                for (VM vmId : cfg.getRunningVMs(nId)) {
-                    c -= rc.getConsumption(vmId);
-                    if (c < 0) {
-                        return false;
-                    }
-                }
+                online.add(nId);
+            }
+        }
+        int[] capacities = rc.getCapacities(online.toArray(new Node[online.size()]));
+        for (int k = 0; k < capacities.length; k++) {
+            //Server capacity with the ratio, minus the VMs usage
+            double c = capacities[k] * ratio - rc.sumConsumptions(cfg.getRunningVMs(online.get(k)), true);
+            if (c < 0) {
+                return false;
             }
         }
         return true;
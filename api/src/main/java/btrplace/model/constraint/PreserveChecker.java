@@ -24,6 +24,9 @@ import btrplace.model.view.ShareableResource;
 import btrplace.plan.event.Allocate;
 import btrplace.plan.event.AllocateEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Checker for the {@link btrplace.model.constraint.Preserve} constraint
@@ -75,12 +78,15 @@ public class PreserveChecker extends AllowAllConstraintChecker<Preserve> {
         if (r == null) {
             return false;
         }
+        List<VM> running = new ArrayList<>(getVMs().size());
         for (VM vmId : getVMs()) {
             if (mo.getMapping().isRunning(vmId)) {
-                int v = r.getConsumption(vmId);
-                if (v < amount) {
-                    return false;
-                }
+                running.add(vmId);
+            }
+        }
+        for (int v : r.getConsumptions(running.toArray(new VM[running.size()]))) {
+            if (v < amount) {
+                return false;
             }
         }
         return true;
@@ -18,6 +18,9 @@
 
 package btrplace.model.view;
 
+import btrplace.model.Element;
+import btrplace.model.Journal;
+import btrplace.model.Journaled;
 import btrplace.model.Node;
 import btrplace.model.VM;
 
@@ -41,10 +44,16 @@ import java.util.*;
  * <p/>
  * By default, if there is no {@link btrplace.model.constraint.Overbook} constraint for a node, a conservative ratio
  * of <b>1</b> is used. This means one unit of virtual resources consumes one unit of physical resources.
+ * <p/>
+ * Values are stored into arrays indexed by the element identifiers so reading a value
+ * has a O(1) complexity and does not box any integer. Use {@link #getConsumptions(VM[])}
+ * and {@link #getCapacities(Node[])} to get the values of many elements at once.
+ * <p/>
+ * A clone shares the values of the original resource until one of them is modified (copy-on-write).
  *
  * @author Fabien Hermenier
  */
-public class ShareableResource implements ModelView, Cloneable {
+public class ShareableResource implements ModelView, Journaled, Cloneable {
 
     /**
      * The base of the view identifier. Once instantiated, it is completed
@@ -52,8 +61,25 @@ public class ShareableResource implements ModelView, Cloneable {
      */
     public static final String VIEW_ID_BASE = "ShareableResource.";
 
-    private Map<VM, Integer> vmsConsumption;
-    private Map<Node, Integer> nodesCapacity;
+    private static final int DEFAULT_SIZE = 16;
+
+    /**
+     * The VMs having a defined consumption, indexed by their identifier.
+     */
+    private VM[] vms;
+
+    private int[] vmsConsumption;
+
+    private int nbVMs;
+
+    /**
+     * The nodes having a defined capacity, indexed by their identifier.
+     */
+    private Node[] nodes;
+
+    private int[] nodesCapacity;
+
+    private int nbNodes;
 
     private int vmsNoValue;
     private int nodesNoValue;
@@ -62,6 +88,16 @@ public class ShareableResource implements ModelView, Cloneable {
 
     private String rcId;
 
+    /**
+     * {@code true} iff the arrays may be shared with another resource.
+     */
+    private volatile boolean shared;
+
+    /**
+     * The journal recording the changes, if any.
+     */
+    private Journal journal;
+
     public static final int DEFAULT_NO_VALUE = 0;
 
     /**
@@ -82,8 +118,10 @@ public class ShareableResource implements ModelView, Cloneable {
      * @param defConsumption the VM default consumption
      */
     public ShareableResource(String id, int defCapacity, int defConsumption) {
-        vmsConsumption = new HashMap<>();
-        nodesCapacity = new HashMap<>();
+        vms = new VM[DEFAULT_SIZE];
+        vmsConsumption = new int[DEFAULT_SIZE];
+        nodes = new Node[DEFAULT_SIZE];
+        nodesCapacity = new int[DEFAULT_SIZE];
         this.rcId = id;
         this.viewId = VIEW_ID_BASE + rcId;
         this.nodesNoValue = defCapacity;
@@ -97,8 +135,9 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return its consumption if it was defined otherwise the default value.
      */
     public int getConsumption(VM vm) {
-        if (vmsConsumption.containsKey(vm)) {
-            return vmsConsumption.get(vm);
+        int id = vm.id();
+        if (id < vms.length && vms[id] != null) {
+            return vmsConsumption[id];
         }
         return vmsNoValue;
     }
@@ -110,8 +149,9 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return its capacity if it was defined otherwise the default value.
      */
     public int getCapacity(Node n) {
-        if (nodesCapacity.containsKey(n)) {
-            return nodesCapacity.get(n);
+        int id = n.id();
+        if (id < nodes.length && nodes[id] != null) {
+            return nodesCapacity[id];
         }
         return nodesNoValue;
 
@@ -145,22 +185,99 @@ public class ShareableResource implements ModelView, Cloneable {
         return res;
     }
 
+    /**
+     * Get the capacity for an array of nodes.
+     *
+     * @param ids the nodes
+     * @return the capacity of each node. The order is maintained
+     */
+    public int[] getCapacities(Node[] ids) {
+        int[] res = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            res[i] = getCapacity(ids[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Get the consumption for an array of VMs.
+     *
+     * @param ids the VMs
+     * @return the consumption of each VM. The order is maintained
+     */
+    public int[] getConsumptions(VM[] ids) {
+        int[] res = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            res[i] = getConsumption(ids[i]);
+        }
+        return res;
+    }
+
     /**
      * Get the VMs with defined consumptions.
+     * Removing a VM from the set unsets its consumption.
      *
      * @return a set that may be empty
      */
     public Set<VM> getDefinedVMs() {
-        return vmsConsumption.keySet();
+        return new DefinedSet<VM>() {
+            @Override
+            protected VM[] elements() {
+                return vms;
+            }
+
+            @Override
+            protected boolean unset(VM e) {
+                return ShareableResource.this.unset(e);
+            }
+
+            @Override
+            public int size() {
+                return nbVMs;
+            }
+        };
     }
 
     /**
-     * Get the nodes with defined capacities
+     * Get the nodes with defined capacities.
+     * Removing a node from the set unsets its capacity.
      *
      * @return a set that may be empty
      */
     public Set<Node> getDefinedNodes() {
-        return nodesCapacity.keySet();
+        return new DefinedSet<Node>() {
+            @Override
+            protected Node[] elements() {
+                return nodes;
+            }
+
+            @Override
+            protected boolean unset(Node e) {
+                return ShareableResource.this.unset(e);
+            }
+
+            @Override
+            public int size() {
+                return nbNodes;
+            }
+        };
+    }
+
+    /**
+     * Make the arrays private to this resource prior to a modification.
+     */
+    private void own() {
+        if (shared) {
+            vms = vms.clone();
+            vmsConsumption = vmsConsumption.clone();
+            nodes = nodes.clone();
+            nodesCapacity = nodesCapacity.clone();
+            shared = false;
+        }
+    }
+
+    private static int newSize(int cur, int id) {
+        return Math.max(cur * 2, id + 1);
     }
 
     /**
@@ -171,7 +288,21 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return the current resource
      */
     public ShareableResource setConsumption(VM vm, int val) {
-        vmsConsumption.put(vm, val);
+        own();
+        int id = vm.id();
+        if (id >= vms.length) {
+            int size = newSize(vms.length, id);
+            vms = Arrays.copyOf(vms, size);
+            vmsConsumption = Arrays.copyOf(vmsConsumption, size);
+        }
+        if (vms[id] == null) {
+            nbVMs++;
+        }
+        vms[id] = vm;
+        vmsConsumption[id] = val;
+        if (journal != null) {
+            journal.consumptionChanged(rcId, vm, val);
+        }
         return this;
     }
 
@@ -183,7 +314,21 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return the current resource
      */
     public ShareableResource setCapacity(Node n, int val) {
-        nodesCapacity.put(n, val);
+        own();
+        int id = n.id();
+        if (id >= nodes.length) {
+            int size = newSize(nodes.length, id);
+            nodes = Arrays.copyOf(nodes, size);
+            nodesCapacity = Arrays.copyOf(nodesCapacity, size);
+        }
+        if (nodes[id] == null) {
+            nbNodes++;
+        }
+        nodes[id] = n;
+        nodesCapacity[id] = val;
+        if (journal != null) {
+            journal.capacityChanged(rcId, n, val);
+        }
         return this;
     }
 
@@ -194,7 +339,16 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return {@code true} iff a value was previously defined for {@code n}.
      */
     public boolean unset(VM vm) {
-        return vmsConsumption.remove(vm) != null;
+        if (!consumptionDefined(vm)) {
+            return false;
+        }
+        own();
+        vms[vm.id()] = null;
+        nbVMs--;
+        if (journal != null) {
+            journal.consumptionUnset(rcId, vm);
+        }
+        return true;
     }
 
     /**
@@ -204,9 +358,31 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return {@code true} iff a value was previously defined for {@code n}.
      */
     public boolean unset(Node n) {
-        return nodesCapacity.remove(n) != null;
+        if (!capacityDefined(n)) {
+            return false;
+        }
+        own();
+        nodes[n.id()] = null;
+        nbNodes--;
+        if (journal != null) {
+            journal.capacityUnset(rcId, n);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The journal is not transmitted to the clones of the resource.
+     */
+    @Override
+    public void setJournal(Journal j) {
+        journal = j;
     }
 
+    @Override
+    public Journal getJournal() {
+        return journal;
+    }
 
     /**
      * Check if the resource consumption is defined for a VM.
@@ -215,7 +391,8 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return {@code true} iff the consumption is defined.
      */
     public boolean consumptionDefined(VM vm) {
-        return vmsConsumption.containsKey(vm);
+        int id = vm.id();
+        return id < vms.length && vms[id] != null;
     }
 
     /**
@@ -225,7 +402,8 @@ public class ShareableResource implements ModelView, Cloneable {
      * @return {@code true} iff the capacity is defined}.
      */
     public boolean capacityDefined(Node n) {
-        return nodesCapacity.containsKey(n);
+        int id = n.id();
+        return id < nodes.length && nodes[id] != null;
     }
 
     /**
@@ -265,6 +443,31 @@ public class ShareableResource implements ModelView, Cloneable {
         return nodesNoValue;
     }
 
+    /**
+     * Check if two sets of defined values are equals.
+     */
+    private static boolean sameValues(Element[] e1, int[] v1, Element[] e2, int[] v2) {
+        int max = Math.max(e1.length, e2.length);
+        for (int i = 0; i < max; i++) {
+            boolean in1 = i < e1.length && e1[i] != null;
+            boolean in2 = i < e2.length && e2[i] != null;
+            if (in1 != in2 || (in1 && v1[i] != v2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hashValues(Element[] es, int[] vs) {
+        int h = 0;
+        for (int i = 0; i < es.length; i++) {
+            if (es[i] != null) {
+                h = 31 * h + 31 * i + vs[i];
+            }
+        }
+        return h;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -276,8 +479,9 @@ public class ShareableResource implements ModelView, Cloneable {
 
         ShareableResource that = (ShareableResource) o;
 
-        if (!this.vmsConsumption.equals(that.vmsConsumption) ||
-                !this.nodesCapacity.equals(that.nodesCapacity)) {
+        if (nbVMs != that.nbVMs || nbNodes != that.nbNodes
+                || !sameValues(vms, vmsConsumption, that.vms, that.vmsConsumption)
+                || !sameValues(nodes, nodesCapacity, that.nodes, that.nodesCapacity)) {
             return false;
         }
         return rcId.equals(that.getResourceIdentifier()) && getDefaultCapacity() == that.getDefaultCapacity()
@@ -286,37 +490,41 @@ public class ShareableResource implements ModelView, Cloneable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(rcId, vmsConsumption, vmsNoValue, nodesCapacity, nodesNoValue);
+        return Objects.hash(rcId, hashValues(vms, vmsConsumption), vmsNoValue, hashValues(nodes, nodesCapacity), nodesNoValue);
     }
 
     @Override
     public ShareableResource clone() {
         ShareableResource rc = new ShareableResource(rcId, nodesNoValue, vmsNoValue);
-        for (Map.Entry<VM, Integer> e : vmsConsumption.entrySet()) {
-            rc.vmsConsumption.put(e.getKey(), e.getValue());
-        }
-        for (Map.Entry<Node, Integer> e : nodesCapacity.entrySet()) {
-            rc.nodesCapacity.put(e.getKey(), e.getValue());
-        }
+        rc.vms = vms;
+        rc.vmsConsumption = vmsConsumption;
+        rc.nbVMs = nbVMs;
+        rc.nodes = nodes;
+        rc.nodesCapacity = nodesCapacity;
+        rc.nbNodes = nbNodes;
+        rc.shared = true;
+        shared = true;
         return rc;
     }
 
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder("rc:").append(rcId).append(':');
-        for (Iterator<Map.Entry<Node, Integer>> ite = nodesCapacity.entrySet().iterator(); ite.hasNext(); ) {
-            Map.Entry<Node, Integer> e = ite.next();
-            buf.append("<node ").append(e.getKey().toString()).append(',').append(e.getValue()).append('>');
-            if (ite.hasNext()) {
+        boolean first = true;
+        for (Node n : getDefinedNodes()) {
+            if (!first) {
                 buf.append(',');
             }
+            buf.append("<node ").append(n.toString()).append(',').append(nodesCapacity[n.id()]).append('>');
+            first = false;
         }
-        for (Iterator<Map.Entry<VM, Integer>> ite = vmsConsumption.entrySet().iterator(); ite.hasNext(); ) {
-            Map.Entry<VM, Integer> e = ite.next();
-            buf.append("<VM ").append(e.getKey().toString()).append(',').append(e.getValue()).append('>');
-            if (ite.hasNext()) {
+        first = true;
+        for (VM v : getDefinedVMs()) {
+            if (!first) {
                 buf.append(',');
             }
+            buf.append("<VM ").append(v.toString()).append(',').append(vmsConsumption[v.id()]).append('>');
+            first = false;
         }
         return buf.toString();
     }
@@ -337,8 +545,11 @@ public class ShareableResource implements ModelView, Cloneable {
     public int sumConsumptions(Collection<VM> ids, boolean undef) {
         int s = 0;
         for (VM u : ids) {
-            if (consumptionDefined(u) || undef) {
-                s += consumptionDefined(u) ? vmsConsumption.get(u) : vmsNoValue;
+            int id = u.id();
+            if (id < vms.length && vms[id] != null) {
+                s += vmsConsumption[id];
+            } else if (undef) {
+                s += vmsNoValue;
             }
         }
         return s;
@@ -354,10 +565,95 @@ public class ShareableResource implements ModelView, Cloneable {
     public int sumCapacities(Collection<Node> ids, boolean undef) {
         int s = 0;
         for (Node u : ids) {
-            if (capacityDefined(u) || undef) {
-                s += capacityDefined(u) ? nodesCapacity.get(u) : nodesNoValue;
+            int id = u.id();
+            if (id < nodes.length && nodes[id] != null) {
+                s += nodesCapacity[id];
+            } else if (undef) {
+                s += nodesNoValue;
             }
         }
         return s;
     }
+
+    /**
+     * A view over the elements having a defined value. Removing an element unsets its value.
+     *
+     * @param <E> the element type
+     */
+    private abstract static class DefinedSet<E extends Element> extends AbstractSet<E> {
+
+        /**
+         * Get the current array of elements.
+         *
+         * @return the elements indexed by their identifier, {@code null} for an undefined element
+         */
+        protected abstract E[] elements();
+
+        /**
+         * Unset the value associated to an element.
+         *
+         * @param e the element
+         * @return {@code true} iff a value was defined
+         */
+        protected abstract boolean unset(E e);
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            return contains(o) && unset((E) o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Element)) {
+                return false;
+            }
+            E[] es = elements();
+            int id = ((Element) o).id();
+            return id < es.length && o.equals(es[id]);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final E[] es = elements();
+            return new Iterator<E>() {
+
+                private int cur = next(0);
+
+                private E last;
+
+                private int next(int from) {
+                    int i = from;
+                    while (i < es.length && es[i] == null) {
+                        i++;
+                    }
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return cur < es.length;
+                }
+
+                @Override
+                public E next() {
+                    if (cur >= es.length) {
+                        throw new NoSuchElementException();
+                    }
+                    last = es[cur];
+                    cur = next(cur + 1);
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    unset(last);
+                    last = null;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.Node;
+import btrplace.model.VM;
+import btrplace.plan.event.*;
+
+import java.util.*;
+
+/**
+ * An index over the actions of a plan to browse them wrt. their schedule
+ * or the elements they involve.
+ * <p/>
+ * The actions are kept sorted by their start moment and by their end moment.
+ * New actions are buffered and merged into the sorted lists when a query requires them,
+ * so adding actions in their chronological order costs a linear time overall.
+ * The overlapping queries rely on an interval tree over the actions sorted by their start moment
+ * so their cost depends on the number of reported actions rather than on the plan size.
+ * The actions involving a given VM or a given node are indexed on the first request,
+ * in their registration order.
+ * <p/>
+ * The class is not thread-safe. As the queries update the index lazily,
+ * even concurrent queries must be synchronized externally.
+ *
+ * @author Fabien Hermenier
+ */
+class ActionIndex implements ActionVisitor {
+
+    /**
+     * Compare wrt. the start moment, then the end moment.
+     */
+    private static final Comparator<Action> START_CMP = new Comparator<Action>() {
+        @Override
+        public int compare(Action a1, Action a2) {
+            int d = a1.getStart() - a2.getStart();
+            return d != 0 ? d : a1.getEnd() - a2.getEnd();
+        }
+    };
+
+    /**
+     * Compare wrt. the end moment, then the start moment.
+     */
+    private static final Comparator<Action> END_CMP = new Comparator<Action>() {
+        @Override
+        public int compare(Action a1, Action a2) {
+            int d = a1.getEnd() - a2.getEnd();
+            return d != 0 ? d : a1.getStart() - a2.getStart();
+        }
+    };
+
+    private List<Action> byStart;
+
+    private List<Action> byEnd;
+
+    private List<Action> pending;
+
+    /**
+     * All the actions, in their registration order.
+     */
+    private List<Action> registered;
+
+    /**
+     * The interval tree over {@code byStart}: an implicit binary tree
+     * where each node stores the latest end moment among its leaves.
+     * {@code null} when it must be rebuilt.
+     */
+    private int[] maxEnds;
+
+    /**
+     * The number of leaves in {@code maxEnds}, a power of 2.
+     */
+    private int nbLeaves;
+
+    private Map<VM, List<Action>> vmActions;
+
+    private Map<Node, List<Action>> nodeActions;
+
+    private int duration;
+
+    /**
+     * Make a new empty index.
+     */
+    public ActionIndex() {
+        byStart = new ArrayList<>();
+        byEnd = new ArrayList<>();
+        pending = new ArrayList<>();
+        registered = new ArrayList<>();
+        duration = 0;
+        //Element indexing is performed lazily
+        vmActions = null;
+        nodeActions = null;
+    }
+
+    /**
+     * Register an action.
+     * The action must not be already registered.
+     *
+     * @param a the action to add
+     */
+    public void add(Action a) {
+        pending.add(a);
+        registered.add(a);
+        if (a.getEnd() > duration) {
+            duration = a.getEnd();
+        }
+        if (vmActions != null) {
+            a.visit(this);
+        }
+    }
+
+    /**
+     * Get the end moment of the last action.
+     *
+     * @return a positive integer, {@code 0} if there is no action
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the actions sorted by their start moment, then by their end moment.
+     * Simultaneous actions are kept in their registration order.
+     *
+     * @return an unmodifiable list
+     */
+    public List<Action> getSortedByStart() {
+        flush();
+        return Collections.unmodifiableList(byStart);
+    }
+
+    /**
+     * Get the actions sorted by their end moment, then by their start moment.
+     * Simultaneous actions are kept in their registration order.
+     *
+     * @return an unmodifiable list
+     */
+    public List<Action> getSortedByEnd() {
+        flush();
+        return Collections.unmodifiableList(byEnd);
+    }
+
+    /**
+     * Get the actions that are executed during a given period.
+     * An action overlaps the period iff it starts before {@code to} and ends after {@code from}.
+     *
+     * @param from the beginning of the period, inclusive
+     * @param to   the end of the period, exclusive
+     * @return the actions, sorted by their start moment. May be empty
+     */
+    public List<Action> getOverlapping(int from, int to) {
+        flush();
+        buildTree();
+        //byStart.subList(0, s) started before 'to'. Among them, the tree reports those ending after 'from'
+        int s = firstStartingAt(to);
+        List<Action> res = new ArrayList<>();
+        if (s > 0) {
+            collect(1, 0, nbLeaves, s, from, res);
+        }
+        return res;
+    }
+
+    /**
+     * Collect, in the start order, the actions of a subtree that are among
+     * the {@code s} first actions of {@code byStart} and end after {@code from}.
+     *
+     * @param node the subtree root
+     * @param lo   the position of the first leaf of the subtree
+     * @param hi   the position after the last leaf of the subtree
+     */
+    private void collect(int node, int lo, int hi, int s, int from, List<Action> res) {
+        if (lo >= s || maxEnds[node] <= from) {
+            return;
+        }
+        if (hi - lo == 1) {
+            res.add(byStart.get(lo));
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        collect(2 * node, lo, mid, s, from, res);
+        collect(2 * node + 1, mid, hi, s, from, res);
+    }
+
+    /**
+     * Build the interval tree over {@code byStart} if needed.
+     */
+    private void buildTree() {
+        if (maxEnds != null) {
+            return;
+        }
+        nbLeaves = 1;
+        while (nbLeaves < byStart.size()) {
+            nbLeaves <<= 1;
+        }
+        maxEnds = new int[2 * nbLeaves];
+        for (int i = 0; i < nbLeaves; i++) {
+            maxEnds[nbLeaves + i] = i < byStart.size() ? byStart.get(i).getEnd() : Integer.MIN_VALUE;
+        }
+        for (int i = nbLeaves - 1; i > 0; i--) {
+            maxEnds[i] = Math.max(maxEnds[2 * i], maxEnds[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Get the actions that are executed at a given moment.
+     * An action is running at moment {@code t} iff it starts at or before {@code t}
+     * and ends after {@code t}.
+     *
+     * @param t the moment
+     * @return the actions, sorted by their start moment. May be empty
+     */
+    public List<Action> getRunning(int t) {
+        return getOverlapping(t, t + 1);
+    }
+
+    /**
+     * Get the actions that involve a given VM.
+     *
+     * @param v the VM
+     * @return the actions in their registration order. May be empty
+     */
+    public List<Action> getActions(VM v) {
+        indexElements();
+        List<Action> l = vmActions.get(v);
+        return l == null ? Collections.<Action>emptyList() : Collections.unmodifiableList(l);
+    }
+
+    /**
+     * Get the actions that involve a given node.
+     *
+     * @param n the node
+     * @return the actions in their registration order. May be empty
+     */
+    public List<Action> getActions(Node n) {
+        indexElements();
+        List<Action> l = nodeActions.get(n);
+        return l == null ? Collections.<Action>emptyList() : Collections.unmodifiableList(l);
+    }
+
+    /**
+     * Index of the first action in {@code byStart} that starts at or after {@code t}.
+     */
+    private int firstStartingAt(int t) {
+        int lo = 0, hi = byStart.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (byStart.get(mid).getStart() < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Merge the pending actions into the sorted lists.
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        //The sort is stable so simultaneous actions stay in their registration order
+        List<Action> l = new ArrayList<>(pending);
+        Collections.sort(l, START_CMP);
+        byStart = merge(byStart, l, START_CMP);
+        Collections.sort(pending, END_CMP);
+        byEnd = merge(byEnd, pending, END_CMP);
+        pending.clear();
+        maxEnds = null;
+    }
+
+    /**
+     * Merge two sorted lists. On ties, the actions of {@code l1} come first.
+     */
+    private static List<Action> merge(List<Action> l1, List<Action> l2, Comparator<Action> cmp) {
+        if (l1.isEmpty()) {
+            return new ArrayList<>(l2);
+        }
+        if (cmp.compare(l1.get(l1.size() - 1), l2.get(0)) <= 0) {
+            //Chronological insertion. Nothing to interleave
+            l1.addAll(l2);
+            return l1;
+        }
+        List<Action> res = new ArrayList<>(l1.size() + l2.size());
+        int i = 0, j = 0;
+        while (i < l1.size() && j < l2.size()) {
+            if (cmp.compare(l1.get(i), l2.get(j)) <= 0) {
+                res.add(l1.get(i++));
+            } else {
+                res.add(l2.get(j++));
+            }
+        }
+        res.addAll(l1.subList(i, l1.size()));
+        res.addAll(l2.subList(j, l2.size()));
+        return res;
+    }
+
+    private void indexElements() {
+        if (vmActions == null) {
+            vmActions = new HashMap<>();
+            nodeActions = new HashMap<>();
+            for (Action a : registered) {
+                a.visit(this);
+            }
+        }
+    }
+
+    private void register(Action a, VM v) {
+        List<Action> l = vmActions.get(v);
+        if (l == null) {
+            l = new ArrayList<>();
+            vmActions.put(v, l);
+        }
+        l.add(a);
+    }
+
+    private void register(Action a, Node... ns) {
+        for (Node n : ns) {
+            if (n == null) {
+                continue;
+            }
+            List<Action> l = nodeActions.get(n);
+            if (l == null) {
+                l = new ArrayList<>();
+                nodeActions.put(n, l);
+            } else if (l.get(l.size() - 1) == a) {
+                //Same source and destination
+                continue;
+            }
+            l.add(a);
+        }
+    }
+
+    @Override
+    public Object visit(Allocate a) {
+        register(a, a.getVM());
+        register(a, a.getHost());
+        return null;
+    }
+
+    @Override
+    public Object visit(AllocateEvent a) {
+        return null;
+    }
+
+    @Override
+    public Object visit(SubstitutedVMEvent a) {
+        return null;
+    }
+
+    @Override
+    public Object visit(BootNode a) {
+        register(a, a.getNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(BootVM a) {
+        register(a, a.getVM());
+        register(a, a.getDestinationNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(ForgeVM a) {
+        register(a, a.getVM());
+        return null;
+    }
+
+    @Override
+    public Object visit(KillVM a) {
+        register(a, a.getVM());
+        register(a, a.getNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(MigrateVM a) {
+        register(a, a.getVM());
+        register(a, a.getSourceNode(), a.getDestinationNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(ResumeVM a) {
+        register(a, a.getVM());
+        register(a, a.getSourceNode(), a.getDestinationNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(ShutdownNode a) {
+        register(a, a.getNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(ShutdownVM a) {
+        register(a, a.getVM());
+        register(a, a.getNode());
+        return null;
+    }
+
+    @Override
+    public Object visit(SuspendVM a) {
+        register(a, a.getVM());
+        register(a, a.getSourceNode(), a.getDestinationNode());
+        return null;
+    }
+}
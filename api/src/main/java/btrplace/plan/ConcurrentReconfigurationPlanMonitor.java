@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.Model;
+import btrplace.plan.event.Action;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A {@link ReconfigurationPlanMonitor} for executors that commit actions from many threads.
+ * <p/>
+ * For each node, the length of the longest prefix of committed freeing actions in the
+ * {@link DependencyGraph} of the plan is tracked using atomic counters, so releasing actions does not
+ * require any lock. A demanding action is unblocked once this length reaches its number of dependencies.
+ * The unblocked actions are also published in a lock-free queue, available through {@link #pollUnblocked()}.
+ * <p/>
+ * The current model is not thread-safe, so it is updated by a single writer at a time.
+ * Only this update is performed under a lock: the dependencies are released outside of it.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConcurrentReconfigurationPlanMonitor implements ReconfigurationPlanMonitor {
+
+    private ReconfigurationPlan plan;
+
+    private Model curModel;
+
+    private DependencyGraph deps;
+
+    /**
+     * For each node, the length of the longest prefix of committed freeing actions.
+     */
+    private AtomicIntegerArray nbReleased;
+
+    /**
+     * For each action, {@code 1} once committed.
+     */
+    private AtomicIntegerArray committed;
+
+    private AtomicInteger nbCommitted;
+
+    private Queue<Action> unblocked;
+
+    /**
+     * The lock to acquire to update the model.
+     */
+    private final Object writer;
+
+    /**
+     * Make a new monitor.
+     *
+     * @param p the plan to execute
+     */
+    public ConcurrentReconfigurationPlanMonitor(ReconfigurationPlan p) {
+        this.plan = p;
+        curModel = plan.getOrigin().clone();
+        deps = DependencyGraph.build(plan);
+        nbReleased = new AtomicIntegerArray(deps.getNbNodes());
+        committed = new AtomicIntegerArray(deps.size());
+        nbCommitted = new AtomicInteger(0);
+        unblocked = new ConcurrentLinkedQueue<>();
+        writer = new Object();
+        for (int i = 0; i < deps.size(); i++) {
+            if (deps.getNbDependencies(i) == 0) {
+                unblocked.add(deps.getAction(i));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The model is updated concurrently by the committing threads.
+     */
+    @Override
+    public Model getCurrentModel() {
+        return curModel;
+    }
+
+    @Override
+    public Set<Action> commit(Action a) {
+        if (!apply(a)) {
+            return null;
+        }
+        nbCommitted.incrementAndGet();
+        Set<Action> s = new HashSet<>();
+        int i = deps.getId(a);
+        if (i >= 0 && committed.compareAndSet(i, 0, 1)) {
+            int n = deps.getFreeingNode(i);
+            if (n >= 0) {
+                release(n, s);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Extend the prefix of committed freeing actions on a node and
+     * collect the demanding actions it unblocks.
+     * Each extension is performed by the thread that succeeds in updating the counter,
+     * so every action is released once. As the committed flag is set before, either
+     * the current thread or a concurrent one sees it and extends the prefix.
+     *
+     * @param n the node index
+     * @param s the set to add the unblocked actions to
+     */
+    private void release(int n, Set<Action> s) {
+        while (true) {
+            int k = nbReleased.get(n);
+            if (k == deps.getNbFreeings(n) || committed.get(deps.getFreeing(n, k)) == 0) {
+                return;
+            }
+            if (nbReleased.compareAndSet(n, k, k + 1)) {
+                for (int j = 0; j < deps.getNbReleased(n, k + 1); j++) {
+                    Action u = deps.getAction(deps.getReleased(n, k + 1, j));
+                    s.add(u);
+                    unblocked.add(u);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply an action on the current model, through the single writer.
+     *
+     * @param a the action to apply
+     * @return {@code true} iff the action has been applied
+     */
+    private boolean apply(Action a) {
+        synchronized (writer) {
+            return a.apply(curModel);
+        }
+    }
+
+    /**
+     * Get an action that has been unblocked, either at the beginning of the execution or by a commit.
+     * Each unblocked action is returned once.
+     *
+     * @return an action, {@code null} if there is no unblocked action at the moment
+     */
+    public Action pollUnblocked() {
+        return unblocked.poll();
+    }
+
+    @Override
+    public int getNbCommitted() {
+        return nbCommitted.get();
+    }
+
+    @Override
+    public boolean isBlocked(Action a) {
+        int i = deps.getId(a);
+        return i >= 0 && deps.getNbDependencies(i) > 0
+                && nbReleased.get(deps.getDemandingNode(i)) < deps.getNbDependencies(i);
+    }
+
+    @Override
+    public ReconfigurationPlan getReconfigurationPlan() {
+        return plan;
+    }
+}
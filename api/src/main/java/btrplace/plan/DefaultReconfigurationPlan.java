@@ -19,6 +19,8 @@
 package btrplace.plan;
 
 import btrplace.model.Model;
+import btrplace.model.Node;
+import btrplace.model.VM;
 import btrplace.plan.event.Action;
 
 import java.util.*;
@@ -26,6 +28,9 @@ import java.util.*;
 /**
  * Default implementation for {@link ReconfigurationPlan}.
  * By default, the instance relies on a {@link TimeBasedPlanApplier} to check for the plan applicability.
+ * <p/>
+ * The class is not thread-safe: the indexes over the actions are updated lazily, by the queries,
+ * so a plan shared among threads must be synchronized externally, even for read-only accesses.
  *
  * @author Fabien Hermenier
  */
@@ -35,9 +40,11 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     private Set<Action> actions;
 
+    private ActionIndex index;
+
     private DependenciesExtractor depsExtractor;
 
-    private static Comparator<Action> startFirstComparator = new TimedBasedActionComparator(true, true);
+    private DependencyGraph depsGraph;
 
     private ReconfigurationPlanApplier applier = new TimeBasedPlanApplier();
 
@@ -49,6 +56,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     public DefaultReconfigurationPlan(Model m) {
         this.src = m;
         this.actions = new HashSet<>();
+        this.index = new ActionIndex();
         //Dependency management is performed lazily.
         this.depsExtractor = null;
     }
@@ -61,9 +69,13 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     @Override
     public boolean add(Action a) {
         boolean ret = this.actions.add(a);
-        if (ret && depsExtractor != null) {
-            //We only track dependencies incrementally if already started
-            a.visit(depsExtractor);
+        if (ret) {
+            index.add(a);
+            depsGraph = null;
+            if (depsExtractor != null) {
+                //We only track dependencies incrementally if already started
+                a.visit(depsExtractor);
+            }
         }
         return ret;
     }
@@ -75,31 +87,83 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     @Override
     public int getDuration() {
-        int m = 0;
-        for (Action a : actions) {
-            if (a.getEnd() > m) {
-                m = a.getEnd();
-            }
-        }
-        return m;
+        return index.getDuration();
     }
 
+    /**
+     * {@inheritDoc}
+     * Actions must be added using {@link #add(btrplace.plan.event.Action)}.
+     *
+     * @return an unmodifiable set
+     */
     @Override
     public Set<Action> getActions() {
-        return actions;
+        return Collections.unmodifiableSet(actions);
     }
 
     /**
      * Iterate over the actions.
-     * The action are automatically sorted increasingly by their starting moment.
+     * The action are automatically sorted increasingly by their starting moment,
+     * then by their ending moment.
      *
      * @return an iterator.
      */
     @Override
     public Iterator<Action> iterator() {
-        Set<Action> sorted = new TreeSet<>(startFirstComparator);
-        sorted.addAll(actions);
-        return sorted.iterator();
+        return index.getSortedByStart().iterator();
+    }
+
+    /**
+     * Get the actions sorted increasingly by their ending moment,
+     * then by their starting moment.
+     *
+     * @return an unmodifiable list
+     */
+    public List<Action> getActionsByEnd() {
+        return index.getSortedByEnd();
+    }
+
+    /**
+     * Get the actions that are executed at a given moment, i.e.
+     * that start at or before {@code t} and end after {@code t}.
+     *
+     * @param t the moment
+     * @return the actions, sorted by their starting moment. May be empty
+     */
+    public List<Action> getActionsAt(int t) {
+        return index.getRunning(t);
+    }
+
+    /**
+     * Get the actions that are executed during the period {@code [from, to[}, i.e.
+     * that start before {@code to} and end after {@code from}.
+     *
+     * @param from the beginning of the period, inclusive
+     * @param to   the end of the period, exclusive
+     * @return the actions, sorted by their starting moment. May be empty
+     */
+    public List<Action> getActionsBetween(int from, int to) {
+        return index.getOverlapping(from, to);
+    }
+
+    /**
+     * Get the actions that involve a given VM.
+     *
+     * @param v the VM
+     * @return the actions, in their registration order. May be empty
+     */
+    public List<Action> getActions(VM v) {
+        return index.getActions(v);
+    }
+
+    /**
+     * Get the actions that involve a given node, as a source or a destination.
+     *
+     * @param n the node
+     * @return the actions, in their registration order. May be empty
+     */
+    public List<Action> getActions(Node n) {
+        return index.getActions(n);
     }
 
     @Override
@@ -135,8 +199,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
         return Objects.hash(src, actions);
     }
 
-    @Override
-    public Set<Action> getDirectDependencies(Action a) {
+    private DependenciesExtractor getDependenciesExtractor() {
         if (depsExtractor == null) {
             //Track dependencies of all the already registered actions
             depsExtractor = new DependenciesExtractor(src);
@@ -144,7 +207,26 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
                 x.visit(depsExtractor);
             }
         }
-        return depsExtractor.getDependencies(a);
+        return depsExtractor;
+    }
+
+    @Override
+    public Set<Action> getDirectDependencies(Action a) {
+        return getDependenciesExtractor().getDependencies(a);
+    }
+
+    /**
+     * Get the dependency graph of the actions.
+     * The actions are identified by their position wrt. {@link #iterator()}.
+     * The graph is cached until the next action is added.
+     *
+     * @return the dependency graph
+     */
+    public DependencyGraph getDependencyGraph() {
+        if (depsGraph == null) {
+            depsGraph = getDependenciesExtractor().getDependencyGraph(index.getSortedByStart());
+        }
+        return depsGraph;
     }
 
     @Override
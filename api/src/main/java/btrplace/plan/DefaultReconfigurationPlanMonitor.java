@@ -26,10 +26,12 @@ import java.util.*;
 /**
  * Simulated execution of a {@link ReconfigurationPlan}.
  * The execution relies on the dependencies between the actions, retrieved using
- * {@link ReconfigurationPlan#getDirectDependencies(btrplace.plan.event.Action)}.
+ * {@link DependencyGraph#build(ReconfigurationPlan)}.
  * <p/>
  * The dependencies are updated each time an action is committed, which means the action
- * have been successfully executed.
+ * have been successfully executed. For each node, the monitor tracks the number of
+ * freeing actions that have been committed, in the order of their end moment, without gap.
+ * A demanding action is unblocked once this number reaches its number of dependencies.
  * <p/>
  *
  * @author Fabien Hermenier
@@ -40,9 +42,14 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
 
     private Model curModel;
 
-    private final Map<Action, Set<Dependency>> pre;
+    private DependencyGraph deps;
 
-    private final Map<Action, Dependency> dependencies;
+    /**
+     * For each node, the length of the longest prefix of committed freeing actions.
+     */
+    private int[] nbReleased;
+
+    private boolean[] committed;
 
     private final Object lock;
 
@@ -55,9 +62,6 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
      */
     public DefaultReconfigurationPlanMonitor(ReconfigurationPlan p) {
         this.plan = p;
-
-        pre = new HashMap<>();
-        dependencies = new HashMap<>();
         lock = new Object();
         reset();
     }
@@ -65,25 +69,10 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
     private void reset() {
         synchronized (lock) {
             curModel = plan.getOrigin().clone();
-            pre.clear();
             nbCommitted = 0;
-            for (Action a : plan) {
-                Set<Action> deps = plan.getDirectDependencies(a);
-                if (deps.isEmpty()) {
-                    this.dependencies.put(a, new Dependency(a, Collections.<Action>emptySet()));
-                } else {
-                    Dependency dep = new Dependency(a, deps);
-                    this.dependencies.put(a, dep);
-                    for (Action x : dep.getDependencies()) {
-                        Set<Dependency> pres = pre.get(x);
-                        if (pres == null) {
-                            pres = new HashSet<>();
-                            pre.put(x, pres);
-                        }
-                        pres.add(dep);
-                    }
-                }
-            }
+            deps = DependencyGraph.build(plan);
+            nbReleased = new int[deps.getNbNodes()];
+            committed = new boolean[deps.size()];
         }
     }
 
@@ -101,22 +90,34 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
                 return null;
             }
             nbCommitted++;
-            //Browse all its dependencies for the action
-            Set<Dependency> deps = pre.get(a);
-            if (deps != null) {
-                for (Dependency dep : deps) {
-                    Set<Action> actions = dep.getDependencies();
-                    actions.remove(a);
-                    if (actions.isEmpty()) {
-                        Action x = dep.getAction();
-                        s.add(x);
-                    }
+            int i = deps.getId(a);
+            if (i >= 0 && !committed[i]) {
+                committed[i] = true;
+                int n = deps.getFreeingNode(i);
+                if (n >= 0) {
+                    release(n, s);
                 }
             }
         }
         return s;
     }
 
+    /**
+     * Extend the prefix of committed freeing actions on a node and
+     * collect the demanding actions it unblocks.
+     *
+     * @param n the node index
+     * @param s the set to add the unblocked actions to
+     */
+    private void release(int n, Set<Action> s) {
+        while (nbReleased[n] < deps.getNbFreeings(n) && committed[deps.getFreeing(n, nbReleased[n])]) {
+            int k = ++nbReleased[n];
+            for (int j = 0; j < deps.getNbReleased(n, k); j++) {
+                s.add(deps.getAction(deps.getReleased(n, k, j)));
+            }
+        }
+    }
+
     @Override
     public int getNbCommitted() {
         synchronized (lock) {
@@ -127,7 +128,9 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
     @Override
     public boolean isBlocked(Action a) {
         synchronized (lock) {
-            return !dependencies.get(a).getDependencies().isEmpty();
+            int i = deps.getId(a);
+            return i >= 0 && deps.getNbDependencies(i) > 0
+                    && nbReleased[deps.getDemandingNode(i)] < deps.getNbDependencies(i);
         }
     }
 
@@ -20,6 +20,7 @@ package btrplace.plan;
 
 import btrplace.model.Model;
 import btrplace.model.Node;
+import btrplace.model.VM;
 import btrplace.model.view.ShareableResource;
 import btrplace.plan.event.*;
 
@@ -28,66 +29,115 @@ import java.util.*;
 /**
  * Detect dependencies between actions.
  * Actions are inserted using {@code #visit(...)} methods.
+ * <p/>
+ * An action that demands resources on a node depends on all the actions
+ * that free resources on this node and end before its beginning.
+ * For each node, the freeing actions are sorted by their end moment so the dependencies
+ * of a demanding action are a prefix of this list, retrieved using a binary search
+ * or a sweep over the demanding actions sorted by their start moment.
+ * <p/>
+ * The {@link Allocate} actions are classified lazily, once the dependencies are requested,
+ * so the previous consumptions of the VMs are retrieved in bulk for each resource.
  *
  * @author Fabien Hermenier
  */
 public class DependenciesExtractor implements ActionVisitor {
 
-    private Map<Action, Node> demandingNodes;
+    private static final Comparator<Action> ENDS_CMP = new TimedBasedActionComparator(false, false);
+
+    private static final Comparator<Action> STARTS_CMP = new TimedBasedActionComparator(true, false);
 
-    private Map<Node, Set<Action>> freeing;
+    private Map<Action, Node> demandingNodes;
 
-    private Map<Node, Set<Action>> demanding;
+    private Map<Node, NodeActions> nodeActions;
 
     private Model origin;
 
+    /**
+     * The resources met so far, by identifier.
+     */
+    private Map<String, ShareableResource> resources;
+
+    /**
+     * The allocate actions that are not classified yet, by resource identifier.
+     */
+    private Map<String, List<Allocate>> pendingAllocates;
+
     /**
      * Make a new instance.
      *
      * @param o the model at the source of the reconfiguration plan
      */
     public DependenciesExtractor(Model o) {
-        demanding = new HashMap<>();
-        freeing = new HashMap<>();
+        nodeActions = new HashMap<>();
         this.demandingNodes = new HashMap<>();
         origin = o;
+        resources = new HashMap<>();
+        pendingAllocates = new HashMap<>();
     }
 
-    private Set<Action> getFreeings(Node u) {
-        Set<Action> actions = freeing.get(u);
+    private NodeActions getActions(Node u) {
+        NodeActions actions = nodeActions.get(u);
         if (actions == null) {
-            actions = new HashSet<>();
-            freeing.put(u, actions);
+            actions = new NodeActions();
+            nodeActions.put(u, actions);
         }
         return actions;
     }
 
-    private Set<Action> getDemandings(Node u) {
-        Set<Action> actions = demanding.get(u);
-        if (actions == null) {
-            actions = new HashSet<>();
-            demanding.put(u, actions);
-        }
-        return actions;
+    private boolean addFreeing(Node u, Action a) {
+        return getActions(u).addFreeing(a);
+    }
+
+    private boolean addDemanding(Node u, Action a) {
+        demandingNodes.put(a, u);
+        return getActions(u).addDemanding(a);
     }
 
     @Override
     public Boolean visit(Allocate a) {
         //If the resource allocation is increasing, it's
         //a consuming action. Otherwise, it's a freeing action
+        //The classification is delayed until the dependencies are requested
         String rcId = a.getResourceId();
-        int newAmount = a.getAmount();
-        ShareableResource rc = (ShareableResource) origin.getView(ShareableResource.VIEW_ID_BASE + rcId);
-        if (rc == null) {
-            return false;
+        List<Allocate> pending = pendingAllocates.get(rcId);
+        if (pending == null) {
+            ShareableResource rc = resources.get(rcId);
+            if (rc == null) {
+                rc = (ShareableResource) origin.getView(ShareableResource.VIEW_ID_BASE + rcId);
+                if (rc == null) {
+                    return false;
+                }
+                resources.put(rcId, rc);
+            }
+            pending = new ArrayList<>();
+            pendingAllocates.put(rcId, pending);
         }
-        int oldAmount = rc.getConsumption(a.getVM());
-        if (newAmount > oldAmount) {
-            demandingNodes.put(a, a.getHost());
-            return getDemandings(a.getHost()).add(a);
-        } else {
-            return getFreeings(a.getHost()).add(a);
+        return pending.add(a);
+    }
+
+    /**
+     * Classify the pending allocate actions.
+     * The previous consumptions are retrieved in one bulk call per resource.
+     */
+    private void classifyAllocates() {
+        for (Map.Entry<String, List<Allocate>> e : pendingAllocates.entrySet()) {
+            List<Allocate> pending = e.getValue();
+            VM[] vms = new VM[pending.size()];
+            for (int i = 0; i < vms.length; i++) {
+                vms[i] = pending.get(i).getVM();
+            }
+            int[] oldAmounts = resources.get(e.getKey()).getConsumptions(vms);
+            for (int i = 0; i < vms.length; i++) {
+                Allocate a = pending.get(i);
+                if (a.getAmount() > oldAmounts[i]) {
+                    addDemanding(a.getHost(), a);
+                } else {
+                    addFreeing(a.getHost(), a);
+                }
+            }
         }
+        pendingAllocates.clear();
     }
 
     @Override
@@ -97,14 +147,12 @@ public class DependenciesExtractor implements ActionVisitor {
 
     @Override
     public Boolean visit(BootNode a) {
-        return getFreeings(a.getNode()).add(a);
+        return addFreeing(a.getNode(), a);
     }
 
     @Override
     public Boolean visit(BootVM a) {
-        boolean ret = getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return addDemanding(a.getDestinationNode(), a);
     }
 
     @Override
@@ -117,38 +165,32 @@ public class DependenciesExtractor implements ActionVisitor {
 
     @Override
     public Boolean visit(KillVM a) {
-        return getFreeings(a.getNode()).add(a);
+        return addFreeing(a.getNode(), a);
     }
 
     @Override
     public Boolean visit(MigrateVM a) {
-        boolean ret = getFreeings(a.getSourceNode()).add(a) && getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return addFreeing(a.getSourceNode(), a) && addDemanding(a.getDestinationNode(), a);
     }
 
     @Override
     public Boolean visit(ResumeVM a) {
-        boolean ret = getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return addDemanding(a.getDestinationNode(), a);
     }
 
     @Override
     public Boolean visit(ShutdownNode a) {
-        boolean ret = getDemandings(a.getNode()).add(a);
-        demandingNodes.put(a, a.getNode());
-        return ret;
+        return addDemanding(a.getNode(), a);
     }
 
     @Override
     public Boolean visit(ShutdownVM a) {
-        return getFreeings(a.getNode()).add(a);
+        return addFreeing(a.getNode(), a);
     }
 
     @Override
     public Boolean visit(SuspendVM a) {
-        return getFreeings(a.getSourceNode()).add(a);
+        return addFreeing(a.getSourceNode(), a);
     }
 
     @Override
@@ -163,18 +205,135 @@ public class DependenciesExtractor implements ActionVisitor {
      * @return its dependencies, may be empty
      */
     public Set<Action> getDependencies(Action a) {
-        if (!demandingNodes.containsKey(a)) {
+        classifyAllocates();
+        Node n = demandingNodes.get(a);
+        if (n == null) {
             return Collections.emptySet();
-        } else {
-            Node n = demandingNodes.get(a);
-            Set<Action> allActions = getFreeings(n);
-            Set<Action> pre = new HashSet<>();
-            for (Action action : allActions) {
-                if (!action.equals(a) && a.getStart() >= action.getEnd()) {
-                    pre.add(action);
+        }
+        NodeActions actions = getActions(n);
+        actions.sort();
+        List<Action> freeings = actions.freeings;
+        //Number of freeing actions ending before the beginning of 'a'
+        int lo = 0, hi = freeings.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (freeings.get(mid).getEnd() <= a.getStart()) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        Set<Action> pre = new HashSet<>(freeings.subList(0, lo));
+        pre.remove(a);
+        return pre;
+    }
+
+    /**
+     * Get the dependency graph of the registered actions.
+     *
+     * @param actions all the actions of the plan. The graph identifies each action by its position in this list
+     * @return the dependency graph
+     */
+    public DependencyGraph getDependencyGraph(List<Action> actions) {
+        classifyAllocates();
+        Map<Action, Integer> ids = new HashMap<>(actions.size() * 2);
+        for (int i = 0; i < actions.size(); i++) {
+            ids.put(actions.get(i), i);
+        }
+        int[][] freeings = new int[nodeActions.size()][];
+        int[][] demandings = new int[nodeActions.size()][];
+        int[] nbDependencies = new int[actions.size()];
+        //Position of the actions in the freeing actions of the current node, -1 otherwise
+        int[] freeingPos = new int[actions.size()];
+        Arrays.fill(freeingPos, -1);
+        int n = 0;
+        for (NodeActions na : nodeActions.values()) {
+            na.sort();
+            freeings[n] = new int[na.freeings.size()];
+            for (int j = 0; j < freeings[n].length; j++) {
+                freeings[n][j] = ids.get(na.freeings.get(j));
+                freeingPos[freeings[n][j]] = j;
+            }
+            //A sweep over the demanding actions, sorted by start moment, to get the length
+            //of the prefix of the freeing actions that end before each of them starts
+            demandings[n] = new int[na.demandings.size()];
+            int k = 0;
+            boolean capped = false;
+            for (int j = 0; j < demandings[n].length; j++) {
+                Action d = na.demandings.get(j);
+                while (k < na.freeings.size() && na.freeings.get(k).getEnd() <= d.getStart()) {
+                    k++;
+                }
+                int x = ids.get(d);
+                demandings[n][j] = x;
+                nbDependencies[x] = k;
+                if (freeingPos[x] >= 0 && freeingPos[x] < k) {
+                    //A zero-duration action that both frees and demands resources on the node
+                    //(a migration to the same node) must not depend on itself
+                    nbDependencies[x] = freeingPos[x];
+                    capped = true;
                 }
             }
-            return pre;
+            if (capped) {
+                //Restore the non-decreasing number of dependencies expected by the graph
+                sortByNbDependencies(demandings[n], nbDependencies);
+            }
+            for (int x : freeings[n]) {
+                freeingPos[x] = -1;
+            }
+            n++;
+        }
+        return new DependencyGraph(actions, freeings, demandings, nbDependencies);
+    }
+
+    /**
+     * Stable insertion sort of actions by their number of dependencies.
+     * The array is expected to be almost sorted.
+     */
+    private static void sortByNbDependencies(int[] ids, int[] nbDependencies) {
+        for (int i = 1; i < ids.length; i++) {
+            int x = ids[i];
+            int j = i - 1;
+            while (j >= 0 && nbDependencies[ids[j]] > nbDependencies[x]) {
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            ids[j + 1] = x;
+        }
+    }
+
+    /**
+     * The freeing and the demanding actions of a node.
+     * Both lists are sorted on demand.
+     */
+    private static class NodeActions {
+
+        private List<Action> freeings = new ArrayList<>();
+
+        private List<Action> demandings = new ArrayList<>();
+
+        private boolean sorted = true;
+
+        boolean addFreeing(Action a) {
+            sorted = false;
+            return freeings.add(a);
+        }
+
+        boolean addDemanding(Action a) {
+            sorted = false;
+            return demandings.add(a);
+        }
+
+        /**
+         * Sort the freeing actions by their end moment and
+         * the demanding actions by their start moment.
+         */
+        void sort() {
+            if (!sorted) {
+                Collections.sort(freeings, ENDS_CMP);
+                Collections.sort(demandings, STARTS_CMP);
+                sorted = true;
+            }
         }
     }
 }
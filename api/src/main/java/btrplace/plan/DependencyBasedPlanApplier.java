@@ -20,9 +20,7 @@ package btrplace.plan;
 
 import btrplace.model.Model;
 import btrplace.plan.event.Action;
-
-import java.util.HashSet;
-import java.util.Set;
+import gnu.trove.list.array.TIntArrayList;
 
 /**
  * A plan applier that relies on the dependencies between the actions composing the plan.
@@ -45,29 +43,47 @@ public class DependencyBasedPlanApplier extends DefaultPlanApplier {
 
     @Override
     public Model apply(ReconfigurationPlan p) {
-        int nbCommitted = 0;
-        ReconfigurationPlanMonitor rpm = new DefaultReconfigurationPlanMonitor(p);
-        Set<Action> feasible = new HashSet<>();
-        for (Action a : p.getActions()) {
-            if (!rpm.isBlocked(a)) {
-                feasible.add(a);
+        Model res = p.getOrigin().clone();
+        DependencyGraph deps = DependencyGraph.build(p);
+        //For each node, the length of the longest prefix of applied freeing actions
+        int[] nbReleased = new int[deps.getNbNodes()];
+        boolean[] applied = new boolean[deps.size()];
+        TIntArrayList feasible = new TIntArrayList();
+        for (int i = 0; i < deps.size(); i++) {
+            if (deps.getNbDependencies(i) == 0) {
+                feasible.add(i);
             }
         }
-        while (nbCommitted != p.getSize()) {
-            Set<Action> newFeasible = new HashSet<>();
-            for (Action a : feasible) {
-                Set<Action> s = rpm.commit(a);
-                if (s == null) {
+        int nbCommitted = 0;
+        while (nbCommitted != deps.size()) {
+            if (feasible.isEmpty()) {
+                //Cyclic dependencies
+                return null;
+            }
+            TIntArrayList newFeasible = new TIntArrayList();
+            for (int k = 0; k < feasible.size(); k++) {
+                int i = feasible.get(k);
+                Action a = deps.getAction(i);
+                if (!a.apply(res)) {
                     return null;
                 }
                 fireAction(a);
-                newFeasible.addAll(s);
                 nbCommitted++;
+                applied[i] = true;
+                int n = deps.getFreeingNode(i);
+                if (n < 0) {
+                    continue;
+                }
+                while (nbReleased[n] < deps.getNbFreeings(n) && applied[deps.getFreeing(n, nbReleased[n])]) {
+                    int nb = ++nbReleased[n];
+                    for (int j = 0; j < deps.getNbReleased(n, nb); j++) {
+                        newFeasible.add(deps.getReleased(n, nb, j));
+                    }
+                }
             }
             feasible = newFeasible;
         }
-
-        return rpm.getCurrentModel();
+        return res;
     }
 
     @Override
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.plan;
+
+import btrplace.plan.event.Action;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact representation of the dependencies between the actions of a plan.
+ * Each action is identified by its position in the plan.
+ * <p/>
+ * An action demanding resources on a node depends on the actions freeing resources on this node
+ * that end before its beginning. Once the freeing actions of a node are sorted by their end moment,
+ * these dependencies are a prefix of this list. The graph then only stores, for each demanding action,
+ * the length of this prefix so its size is linear in the number of actions.
+ * <p/>
+ * An executor releases the demanding actions of a node by tracking the length of the longest prefix
+ * of committed freeing actions: a demanding action is unblocked once this length reaches
+ * its number of dependencies. The actions released when the length reaches a given value
+ * are available through {@link #getNbReleased(int, int)} and {@link #getReleased(int, int, int)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class DependencyGraph {
+
+    private List<Action> actions;
+
+    private Map<Action, Integer> ids;
+
+    /**
+     * For each node, the freeing actions sorted by their end moment.
+     */
+    private int[][] freeings;
+
+    /**
+     * For each node, the demanding actions sorted by their number of dependencies.
+     */
+    private int[][] demandings;
+
+    /**
+     * For each node, the offset in {@code demandings} of the first action having
+     * a given number of dependencies.
+     */
+    private int[][] releaseStarts;
+
+    private int[] nbDependencies;
+
+    private int[] demandingNodes;
+
+    private int[] freeingNodes;
+
+    /**
+     * Make a new graph.
+     *
+     * @param actions        the actions
+     * @param freeings       for each node, the identifiers of the freeing actions sorted by their end moment
+     * @param demandings     for each node, the identifiers of the demanding actions sorted by their number of dependencies
+     * @param nbDependencies for each action, the number of freeing actions of its node it depends on
+     */
+    public DependencyGraph(List<Action> actions, int[][] freeings, int[][] demandings, int[] nbDependencies) {
+        this.actions = actions;
+        this.freeings = freeings;
+        this.demandings = demandings;
+        this.nbDependencies = nbDependencies;
+        ids = new HashMap<>(actions.size() * 2);
+        for (int i = 0; i < actions.size(); i++) {
+            ids.put(actions.get(i), i);
+        }
+        freeingNodes = new int[actions.size()];
+        demandingNodes = new int[actions.size()];
+        for (int i = 0; i < actions.size(); i++) {
+            freeingNodes[i] = -1;
+            demandingNodes[i] = -1;
+        }
+        releaseStarts = new int[freeings.length][];
+        for (int n = 0; n < freeings.length; n++) {
+            for (int x : freeings[n]) {
+                freeingNodes[x] = n;
+            }
+            int[] starts = new int[freeings[n].length + 2];
+            int k = 0;
+            for (int j = 0; j < demandings[n].length; j++) {
+                int x = demandings[n][j];
+                demandingNodes[x] = n;
+                while (k <= nbDependencies[x]) {
+                    starts[k++] = j;
+                }
+            }
+            while (k < starts.length) {
+                starts[k++] = demandings[n].length;
+            }
+            releaseStarts[n] = starts;
+        }
+    }
+
+    /**
+     * Make the dependency graph of a plan.
+     * The dependencies are computed using a {@link DependenciesExtractor}, like
+     * {@link DefaultReconfigurationPlan#getDirectDependencies(btrplace.plan.event.Action)},
+     * unless the plan is a {@link DefaultReconfigurationPlan} that caches its graph.
+     *
+     * @param p the plan
+     * @return the graph
+     */
+    public static DependencyGraph build(ReconfigurationPlan p) {
+        if (p instanceof DefaultReconfigurationPlan) {
+            return ((DefaultReconfigurationPlan) p).getDependencyGraph();
+        }
+        DependenciesExtractor ex = new DependenciesExtractor(p.getOrigin());
+        List<Action> actions = new ArrayList<>(p.getSize());
+        for (Action a : p) {
+            a.visit(ex);
+            actions.add(a);
+        }
+        return ex.getDependencyGraph(actions);
+    }
+
+    /**
+     * Get the number of actions.
+     *
+     * @return a positive integer
+     */
+    public int size() {
+        return actions.size();
+    }
+
+    /**
+     * Get an action.
+     *
+     * @param i the action identifier
+     * @return the action
+     */
+    public Action getAction(int i) {
+        return actions.get(i);
+    }
+
+    /**
+     * Get the identifier of an action.
+     *
+     * @param a the action
+     * @return its identifier, {@code -1} if the action is not in the graph
+     */
+    public int getId(Action a) {
+        Integer i = ids.get(a);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Get the number of actions a given action depends on.
+     *
+     * @param i the action identifier
+     * @return a positive integer
+     */
+    public int getNbDependencies(int i) {
+        return nbDependencies[i];
+    }
+
+    /**
+     * Get an action a given action depends on.
+     *
+     * @param i the action identifier
+     * @param j the dependency index, between {@code 0} and {@code getNbDependencies(i) - 1}
+     * @return the identifier of the dependency
+     */
+    public int getDependency(int i, int j) {
+        return freeings[demandingNodes[i]][j];
+    }
+
+    /**
+     * Get the number of nodes having freeing or demanding actions.
+     *
+     * @return a positive integer
+     */
+    public int getNbNodes() {
+        return freeings.length;
+    }
+
+    /**
+     * Get the node an action frees resources on.
+     *
+     * @param i the action identifier
+     * @return the node index, {@code -1} if the action does not free resources
+     */
+    public int getFreeingNode(int i) {
+        return freeingNodes[i];
+    }
+
+    /**
+     * Get the node an action demands resources on.
+     *
+     * @param i the action identifier
+     * @return the node index, {@code -1} if the action does not demand resources
+     */
+    public int getDemandingNode(int i) {
+        return demandingNodes[i];
+    }
+
+    /**
+     * Get the number of freeing actions on a node.
+     *
+     * @param n the node index
+     * @return a positive integer
+     */
+    public int getNbFreeings(int n) {
+        return freeings[n].length;
+    }
+
+    /**
+     * Get a freeing action on a node.
+     *
+     * @param n   the node index
+     * @param pos the position of the action, by increasing end moment
+     * @return the action identifier
+     */
+    public int getFreeing(int n, int pos) {
+        return freeings[n][pos];
+    }
+
+    /**
+     * Get the number of demanding actions on a node that depend on exactly
+     * a given number of freeing actions.
+     *
+     * @param n the node index
+     * @param k the number of dependencies, between {@code 0} and {@code getNbFreeings(n)}
+     * @return a positive integer
+     */
+    public int getNbReleased(int n, int k) {
+        return releaseStarts[n][k + 1] - releaseStarts[n][k];
+    }
+
+    /**
+     * Get a demanding action on a node that depends on exactly a given number
+     * of freeing actions.
+     *
+     * @param n the node index
+     * @param k the number of dependencies, between {@code 0} and {@code getNbFreeings(n)}
+     * @param j the action index, between {@code 0} and {@code getNbReleased(n, k) - 1}
+     * @return the action identifier
+     */
+    public int getReleased(int n, int k, int j) {
+        return demandings[n][releaseStarts[n][k] + j];
+    }
+}
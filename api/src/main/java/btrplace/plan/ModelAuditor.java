@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.Model;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.constraint.SatConstraintChecker;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Check a large number of constraints against a model or a plan, in parallel.
+ * <p/>
+ * The constraints are split into chunks that are checked by the tasks of a {@link ForkJoinPool}.
+ * For a plan, each chunk relies on its own {@link ReconfigurationPlanChecker}, so its checkers
+ * are replayed over a timeline of the actions that is computed once and shared by all the chunks.
+ * <p/>
+ * The violated constraints are returned in the order they have been given, whatever the number of threads.
+ * <p/>
+ * An auditor that created its own pool must be closed to release its threads.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelAuditor implements AutoCloseable {
+
+    /**
+     * The default maximum number of constraints checked by a single task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 512;
+
+    private ForkJoinPool pool;
+
+    /**
+     * {@code true} iff the pool has been created by the auditor.
+     */
+    private boolean ownPool;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Make a new auditor that uses as many threads as available processors.
+     * The threads are released by {@link #close()}.
+     */
+    public ModelAuditor() {
+        this(new ForkJoinPool());
+        ownPool = true;
+    }
+
+    /**
+     * Make a new auditor.
+     * The pool is not shut down by {@link #close()}.
+     *
+     * @param p the pool executing the checking tasks
+     */
+    public ModelAuditor(ForkJoinPool p) {
+        pool = p;
+    }
+
+    /**
+     * Shut down the pool if it has been created by the auditor.
+     * The auditor must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Set the maximum number of constraints checked by a single task.
+     *
+     * @param s a strictly positive number
+     * @throws IllegalArgumentException if {@code s < 1}
+     */
+    public void setChunkSize(int s) {
+        if (s < 1) {
+            throw new IllegalArgumentException("The chunk size must be strictly positive. Was " + s);
+        }
+        chunkSize = s;
+    }
+
+    /**
+     * Get the maximum number of constraints checked by a single task.
+     *
+     * @return a strictly positive number
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the constraints that are not satisfied by a model.
+     *
+     * @param mo    the model to check. It must not be modified during the audit
+     * @param cstrs the constraints to check
+     * @return the violated constraints, in the order of {@code cstrs}
+     */
+    public List<SatConstraint> audit(Model mo, List<? extends SatConstraint> cstrs) {
+        boolean[] violated = new boolean[cstrs.size()];
+        pool.invoke(new ModelTask(mo, cstrs, violated, 0, cstrs.size()));
+        return collect(cstrs, violated);
+    }
+
+    /**
+     * Get the constraints that are not satisfied by a plan.
+     * A constraint is violated iff {@link SatConstraint#isSatisfied(ReconfigurationPlan)} returns {@code false}.
+     *
+     * @param p     the plan to check. It must not be modified during the audit
+     * @param cstrs the constraints to check
+     * @return the violated constraints, in the order of {@code cstrs}
+     */
+    public List<SatConstraint> audit(ReconfigurationPlan p, List<? extends SatConstraint> cstrs) {
+        boolean[] violated = new boolean[cstrs.size()];
+        ReconfigurationPlanChecker.Timeline t = new ReconfigurationPlanChecker.Timeline(p);
+        pool.invoke(new PlanTask(p, t, cstrs, violated, 0, cstrs.size()));
+        return collect(cstrs, violated);
+    }
+
+    private static List<SatConstraint> collect(List<? extends SatConstraint> cstrs, boolean[] violated) {
+        List<SatConstraint> res = new ArrayList<>();
+        for (int i = 0; i < violated.length; i++) {
+            if (violated[i]) {
+                res.add(cstrs.get(i));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * A task that checks a range of constraints against a model.
+     * Each task only writes the cells of {@code violated} that correspond to its range.
+     */
+    private class ModelTask extends RecursiveAction {
+
+        private Model mo;
+
+        private List<? extends SatConstraint> cstrs;
+
+        private boolean[] violated;
+
+        private int from, to;
+
+        ModelTask(Model mo, List<? extends SatConstraint> cstrs, boolean[] violated, int from, int to) {
+            this.mo = mo;
+            this.cstrs = cstrs;
+            this.violated = violated;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunkSize) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ModelTask(mo, cstrs, violated, from, mid),
+                        new ModelTask(mo, cstrs, violated, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                violated[i] = !cstrs.get(i).isSatisfied(mo);
+            }
+        }
+    }
+
+    /**
+     * A task that checks a range of constraints against a plan.
+     * Each task only writes the cells of {@code violated} that correspond to its range.
+     */
+    private class PlanTask extends RecursiveAction {
+
+        private ReconfigurationPlan plan;
+
+        private ReconfigurationPlanChecker.Timeline timeline;
+
+        private List<? extends SatConstraint> cstrs;
+
+        private boolean[] violated;
+
+        private int from, to;
+
+        PlanTask(ReconfigurationPlan p, ReconfigurationPlanChecker.Timeline t, List<? extends SatConstraint> cstrs, boolean[] violated, int from, int to) {
+            this.plan = p;
+            this.timeline = t;
+            this.cstrs = cstrs;
+            this.violated = violated;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunkSize) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PlanTask(plan, timeline, cstrs, violated, from, mid),
+                        new PlanTask(plan, timeline, cstrs, violated, mid, to));
+                return;
+            }
+            //The checkers are stateful. After a violation, the chunk is replayed
+            //with fresh checkers for the constraints that are not known to be violated yet.
+            boolean done = false;
+            while (!done) {
+                ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker();
+                Map<SatConstraint, Integer> positions = new IdentityHashMap<>();
+                for (int i = from; i < to; i++) {
+                    if (!violated[i]) {
+                        SatConstraintChecker c = cstrs.get(i).getChecker();
+                        positions.put(c.getConstraint(), i);
+                        chk.addChecker(c);
+                    }
+                }
+                try {
+                    chk.check(plan, timeline);
+                    done = true;
+                } catch (ReconfigurationPlanCheckerException ex) {
+                    Integer i = positions.get(ex.getConstraint());
+                    if (i == null) {
+                        //Should not happen. The constraint does not come from this chunk
+                        throw new IllegalStateException("Unexpected violated constraint: " + ex.getConstraint(), ex);
+                    }
+                    violated[i] = true;
+                }
+            }
+        }
+    }
+}
@@ -19,13 +19,15 @@
 package btrplace.plan;
 
 import btrplace.model.Model;
+import btrplace.model.Node;
+import btrplace.model.VM;
+import btrplace.model.constraint.AllowAllConstraintChecker;
 import btrplace.model.constraint.SatConstraint;
 import btrplace.model.constraint.SatConstraintChecker;
 import btrplace.plan.event.*;
+import gnu.trove.list.array.TIntArrayList;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.*;
 
 /**
  * Checker to verify if a reconfiguration plan satisfies a set of
@@ -37,6 +39,10 @@ import java.util.PriorityQueue;
  * <p/>
  * Actions start and end moment are notified in the increasing order of their associated moment with
  * a priority given to the end moments.
+ * <p/>
+ * An action or an event is only notified to the checkers that involve its VM or one of its nodes.
+ * The checkers that are not {@link AllowAllConstraintChecker}, or that are declared
+ * as global using {@link AllowAllConstraintChecker#isGlobal()}, are notified for every action and event.
  *
  * @author Fabien Hermenier
  */
@@ -44,15 +50,36 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     private boolean startingEvent = true;
 
-    private static final TimedBasedActionComparator STARTS_CMP = new TimedBasedActionComparator(true, true);
-    private static final TimedBasedActionComparator ENDS_CMP = new TimedBasedActionComparator(false, true);
+    private static final TimedBasedActionComparator ENDS_CMP = new TimedBasedActionComparator(false, false);
+
     private List<SatConstraintChecker> checkers;
 
+    /**
+     * The position of the checkers to notify for every action and event.
+     */
+    private TIntArrayList globals;
+
+    /**
+     * The position of the checkers involving each VM.
+     */
+    private Map<VM, TIntArrayList> vmIndex;
+
+    /**
+     * The position of the checkers involving each node.
+     */
+    private Map<Node, TIntArrayList> nodeIndex;
+
+    private TIntArrayList positions;
+
+    private List<SatConstraintChecker> selected;
+
     /**
      * Make a new instance.
      */
     public ReconfigurationPlanChecker() {
         checkers = new ArrayList<>();
+        positions = new TIntArrayList();
+        selected = new ArrayList<>();
     }
 
     /**
@@ -62,6 +89,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
      * @return {@code true} iff the checker has been added
      */
     public boolean addChecker(SatConstraintChecker c) {
+        vmIndex = null;
         return checkers.add(c);
     }
 
@@ -72,12 +100,85 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
      * @return {@code true} iff the checker was present
      */
     public boolean removeChecker(SatConstraintChecker c) {
+        vmIndex = null;
         return checkers.remove(c);
     }
 
+    /**
+     * Index the checkers by the elements they involve.
+     */
+    private void makeIndex() {
+        globals = new TIntArrayList();
+        vmIndex = new HashMap<>();
+        nodeIndex = new HashMap<>();
+        for (int i = 0; i < checkers.size(); i++) {
+            SatConstraintChecker c = checkers.get(i);
+            if (c instanceof AllowAllConstraintChecker && !((AllowAllConstraintChecker) c).isGlobal()) {
+                AllowAllConstraintChecker<?> ac = (AllowAllConstraintChecker<?>) c;
+                for (VM v : ac.getVMs()) {
+                    register(vmIndex, v, i);
+                }
+                for (Node n : ac.getNodes()) {
+                    register(nodeIndex, n, i);
+                }
+            } else {
+                globals.add(i);
+            }
+        }
+    }
+
+    private static <E> void register(Map<E, TIntArrayList> idx, E e, int pos) {
+        TIntArrayList l = idx.get(e);
+        if (l == null) {
+            l = new TIntArrayList();
+            idx.put(e, l);
+        }
+        l.add(pos);
+    }
+
+    /**
+     * Get the checkers to notify for an action or an event.
+     *
+     * @param vm    the involved VM. May be {@code null}
+     * @param nodes the involved nodes. May contain {@code null}
+     * @return the checkers, in the order of their registration
+     */
+    private List<SatConstraintChecker> relevant(VM vm, Node... nodes) {
+        if (vmIndex == null) {
+            makeIndex();
+        }
+        positions.resetQuick();
+        positions.addAll(globals);
+        if (vm != null) {
+            TIntArrayList l = vmIndex.get(vm);
+            if (l != null) {
+                positions.addAll(l);
+            }
+        }
+        for (Node n : nodes) {
+            if (n != null) {
+                TIntArrayList l = nodeIndex.get(n);
+                if (l != null) {
+                    positions.addAll(l);
+                }
+            }
+        }
+        positions.sort();
+        selected.clear();
+        int prev = -1;
+        for (int i = 0; i < positions.size(); i++) {
+            int x = positions.getQuick(i);
+            if (x != prev) {
+                selected.add(checkers.get(x));
+                prev = x;
+            }
+        }
+        return selected;
+    }
+
     @Override
     public SatConstraint visit(Allocate a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getHost())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -91,7 +192,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(AllocateEvent a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM())) {
             if (!c.consume(a)) {
                 return c.getConstraint();
             }
@@ -101,17 +202,24 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(SubstitutedVMEvent a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM())) {
             if (!c.consume(a)) {
                 return c.getConstraint();
             }
         }
+        //The checkers now involve the new VM
+        TIntArrayList l = vmIndex.get(a.getVM());
+        if (l != null) {
+            for (int i = 0; i < l.size(); i++) {
+                register(vmIndex, a.getNewVM(), l.getQuick(i));
+            }
+        }
         return null;
     }
 
     @Override
     public SatConstraint visit(BootNode a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(null, a.getNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -126,7 +234,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(BootVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -141,7 +249,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(ForgeVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -156,7 +264,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(KillVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -170,7 +278,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(MigrateVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -184,7 +292,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ResumeVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -198,7 +306,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownNode a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(null, a.getNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -212,7 +320,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -226,7 +334,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(SuspendVM a) {
-        for (SatConstraintChecker c : checkers) {
+        for (SatConstraintChecker c : relevant(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -248,51 +356,117 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
         if (checkers.isEmpty()) {
             return;
         }
+        check(p, new Timeline(p));
+    }
 
-        checkModel(p.getOrigin(), true);
+    /**
+     * Check if a plan satisfies all the {@link SatConstraintChecker}.
+     *
+     * @param p the plan to check
+     * @param t the timeline of the plan. It is not modified so it can be shared among multiple checkers
+     * @throws ReconfigurationPlanCheckerException if a violation is detected
+     */
+    void check(ReconfigurationPlan p, Timeline t) throws ReconfigurationPlanCheckerException {
+        if (checkers.isEmpty()) {
+            return;
+        }
+        makeIndex();
 
-        if (!p.getActions().isEmpty()) {
-            PriorityQueue<Action> starts = new PriorityQueue<>(p.getActions().size(), STARTS_CMP);
-            PriorityQueue<Action> ends = new PriorityQueue<>(p.getActions().size(), ENDS_CMP);
-            starts.addAll(p.getActions());
-            ends.addAll(p.getActions());
-
-            //Starts the actions
-            int curMoment = starts.peek().getStart();
-            while (!starts.isEmpty() || !ends.isEmpty()) {
-                Action a = ends.peek();
-                while (a != null && a.getEnd() == curMoment) {
-                    ends.remove();
-                    startingEvent = false;
-                    visitAndThrowOnViolation(a);
-                    visitEvents(a, Action.Hook.POST);
-                    a = ends.peek();
-                }
-                a = starts.peek();
-
-                while (a != null && a.getStart() == curMoment) {
-                    starts.remove();
-                    startingEvent = true;
-                    visitEvents(a, Action.Hook.PRE);
-                    visitAndThrowOnViolation(a);
-                    a = starts.peek();
-                }
-                int nextEnd = Integer.MAX_VALUE;
-                if (!ends.isEmpty()) {
-                    nextEnd = ends.peek().getEnd();
-                }
-                int nextStart = Integer.MAX_VALUE;
-                if (!starts.isEmpty()) {
-                    nextStart = starts.peek().getStart();
-                }
+        checkModel(p.getOrigin(), true);
 
-                curMoment = Math.min(nextEnd, nextStart);
+        for (int i = 0; i < t.size(); i++) {
+            Action a = t.getAction(i);
+            if (t.isStart(i)) {
+                startingEvent = true;
+                visitEvents(a, Action.Hook.PRE);
+                visitAndThrowOnViolation(a);
+            } else {
+                startingEvent = false;
+                visitAndThrowOnViolation(a);
+                visitEvents(a, Action.Hook.POST);
             }
         }
         Model mo = p.getResult();
         checkModel(mo, false);
     }
 
+    /**
+     * The sequence of start and end notifications for the actions of a plan.
+     * Actions start and end moment are sorted in the increasing order of their associated moment with
+     * a priority given to the end moments.
+     */
+    static class Timeline {
+
+        private Action[] actions;
+
+        private boolean[] starts;
+
+        /**
+         * Make the timeline of a plan.
+         *
+         * @param p the plan
+         */
+        Timeline(ReconfigurationPlan p) {
+            int nb = p.getActions().size();
+            actions = new Action[nb * 2];
+            starts = new boolean[nb * 2];
+            if (nb == 0) {
+                return;
+            }
+            //The plan iterates over its actions wrt. their start moment
+            List<Action> st = new ArrayList<>(nb);
+            for (Action a : p) {
+                st.add(a);
+            }
+            List<Action> ed;
+            if (p instanceof DefaultReconfigurationPlan) {
+                ed = ((DefaultReconfigurationPlan) p).getActionsByEnd();
+            } else {
+                ed = new ArrayList<>(st);
+                Collections.sort(ed, ENDS_CMP);
+            }
+            //Merge both lists. At a given moment, the ends come first
+            int i = 0, j = 0, x = 0;
+            while (i < nb || j < nb) {
+                if (j < nb && (i == nb || ed.get(j).getEnd() <= st.get(i).getStart())) {
+                    actions[x++] = ed.get(j++);
+                } else {
+                    starts[x] = true;
+                    actions[x++] = st.get(i++);
+                }
+            }
+        }
+
+        /**
+         * Get the number of notifications.
+         *
+         * @return twice the number of actions
+         */
+        int size() {
+            return actions.length;
+        }
+
+        /**
+         * Get the action associated to a notification.
+         *
+         * @param i the notification index
+         * @return the action
+         */
+        Action getAction(int i) {
+            return actions[i];
+        }
+
+        /**
+         * Indicate whether a notification is about the beginning or the end of its action.
+         *
+         * @param i the notification index
+         * @return {@code true} for the beginning of the action
+         */
+        boolean isStart(int i) {
+            return starts[i];
+        }
+    }
+
     private void visitAndThrowOnViolation(Action a) throws ReconfigurationPlanCheckerException {
         SatConstraint c = (SatConstraint) a.visit(this);
         if (c != null) {
@@ -21,8 +21,6 @@ package btrplace.plan;
 import btrplace.model.Model;
 import btrplace.plan.event.Action;
 
-import java.util.*;
-
 /**
  * An applier that relies on the estimated start moment and
  * the duration of the actions.
@@ -31,8 +29,6 @@ import java.util.*;
  */
 public class TimeBasedPlanApplier extends DefaultPlanApplier {
 
-    private static Comparator<Action> startFirstComparator = new TimedBasedActionComparator();
-
     /**
      * Make a new applier.
      */
@@ -43,9 +39,8 @@ public class TimeBasedPlanApplier extends DefaultPlanApplier {
     @Override
     public Model apply(ReconfigurationPlan p) {
         Model res = p.getOrigin().clone();
-        List<Action> actions = new ArrayList<>(p.getActions());
-        Collections.sort(actions, startFirstComparator);
-        for (Action a : actions) {
+        //The plan iterates over its actions wrt. their starting moment
+        for (Action a : p) {
             if (!a.apply(res)) {
                 return null;
             }
@@ -56,10 +51,8 @@ public class TimeBasedPlanApplier extends DefaultPlanApplier {
 
     @Override
     public String toString(ReconfigurationPlan p) {
-        Set<Action> sorted = new TreeSet<>(new TimedBasedActionComparator(true, true));
-        sorted.addAll(p.getActions());
         StringBuilder b = new StringBuilder();
-        for (Action a : sorted) {
+        for (Action a : p) {
             b.append(a.getStart()).append(':').append(a.getEnd()).append(' ').append(a.toString()).append('\n');
         }
         return b.toString();
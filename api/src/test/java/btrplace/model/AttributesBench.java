@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import java.util.Random;
+
+/**
+ * Compare the memory footprint and the throughput of {@link DefaultAttributes}
+ * and {@link CompactAttributes} on a model with 100k VMs.
+ *
+ * @author Fabien Hermenier
+ */
+public class AttributesBench {
+
+    private static Random rnd = new Random();
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void bench(boolean compact, int nbVMs) {
+        VM[] vms = new VM[nbVMs];
+        for (int i = 0; i < nbVMs; i++) {
+            vms[i] = new VM(i);
+        }
+
+        //The usual attributes of a VM: durations, a template and a flag
+        long mem = usedMemory();
+        long st = System.currentTimeMillis();
+        Attributes attrs = compact ? new CompactAttributes() : new DefaultAttributes();
+        for (VM v : vms) {
+            attrs.put(v, "boot", 5 + v.id() % 7);
+            attrs.put(v, "shutdown", 3 + v.id() % 5);
+            attrs.put(v, "migrate", 1.5 + v.id() % 3);
+            attrs.put(v, "template", v.id() % 2 == 0 ? "small" : "large");
+            attrs.put(v, "clone", v.id() % 3 == 0);
+        }
+        long build = System.currentTimeMillis() - st;
+        mem = usedMemory() - mem;
+
+        //Random primitive reads, like a duration evaluator does
+        st = System.currentTimeMillis();
+        long sum = 0;
+        for (int i = 0; i < 1000000; i++) {
+            VM v = vms[rnd.nextInt(nbVMs)];
+            sum += attrs.getInteger(v, "boot", 0) + attrs.getInteger(v, "shutdown", 0);
+            sum += (long) attrs.getDouble(v, "migrate", 0);
+            sum += attrs.getBoolean(v, "clone", false) ? 1 : 0;
+        }
+        long reads = System.currentTimeMillis() - st;
+
+        //Random updates
+        st = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            attrs.put(vms[rnd.nextInt(nbVMs)], "boot", i % 10);
+        }
+        long writes = System.currentTimeMillis() - st;
+
+        //A clone followed by a first write
+        st = System.currentTimeMillis();
+        Attributes cpy = attrs.clone();
+        cpy.put(vms[0], "boot", 42);
+        long clone = System.currentTimeMillis() - st;
+
+        System.out.println((compact ? "compact" : "default") + " " + nbVMs + " " + (mem / 1024)
+                + " KB, build: " + build + " ms, 4M reads: " + reads + " ms, 1M writes: " + writes
+                + " ms, clone+write: " + clone + " ms (" + sum + ")");
+    }
+
+    public static void main(String[] args) {
+        for (int r = 0; r < 5; r++) {
+            bench(false, 100000);
+            bench(true, 100000);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link CompactAttributes}.
+ * The contract of {@link Attributes} is checked using the tests from {@link DefaultAttributesTest}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CompactAttributesTest extends DefaultAttributesTest {
+
+    @Override
+    protected Attributes newAttributes() {
+        return new CompactAttributes();
+    }
+
+    @Test
+    public void testTypeChange() {
+        Attributes attrs = new CompactAttributes();
+        VM v = new VM(3);
+        attrs.put(v, "foo", "bar");
+        Assert.assertFalse(attrs.put(new VM(1000), "foo", 7));
+        Assert.assertTrue(attrs.put(v, "foo", 1.5));
+        Assert.assertEquals(attrs.get(v, "foo"), 1.5);
+        Assert.assertEquals(attrs.getString(v, "foo"), "1.5");
+        Assert.assertEquals(attrs.getInteger(new VM(1000), "foo", 0), 7);
+        Assert.assertEquals(attrs.getDefined().size(), 2);
+        attrs.clear(v);
+        Assert.assertEquals(attrs.getDefined().size(), 1);
+        Assert.assertTrue(attrs.getKeys(v).isEmpty());
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        Attributes attrs = new CompactAttributes();
+        VM v = new VM(0);
+        Node n = new Node(0);
+        attrs.put(v, "foo", 1);
+        attrs.put(n, "foo", true);
+        Attributes cpy = attrs.clone();
+        Assert.assertEquals(cpy, attrs);
+        Assert.assertEquals(cpy.hashCode(), attrs.hashCode());
+
+        cpy.put(v, "foo", 2);
+        cpy.put(v, "bar", "baz");
+        Assert.assertEquals(attrs.getInteger(v, "foo", -1), 1);
+        Assert.assertFalse(attrs.isSet(v, "bar"));
+
+        attrs.unset(n, "foo");
+        Assert.assertTrue(cpy.getBoolean(n, "foo", false));
+        Assert.assertNotEquals(cpy, attrs);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link CompactMapping}.
+ * The contract of {@link Mapping} is checked using the tests from {@link DefaultMappingTest}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CompactMappingTest extends DefaultMappingTest {
+
+    @Override
+    protected LiveMapping newMapping() {
+        return new CompactMapping();
+    }
+
+    @Test
+    public void testGrowth() {
+        Mapping m = new CompactMapping(1, 1);
+        List<Node> ns = Util.newNodes(100);
+        List<VM> vms = Util.newVMs(1000);
+        for (Node n : ns) {
+            m.addOnlineNode(n);
+        }
+        for (VM v : vms) {
+            m.addRunningVM(v, ns.get(v.id() % ns.size()));
+        }
+        Assert.assertEquals(m.getNbNodes(), 100);
+        Assert.assertEquals(m.getNbVMs(), 1000);
+        Assert.assertEquals(m.getRunningVMs().size(), 1000);
+        Assert.assertEquals(m.getRunningVMs(ns.get(3)).size(), 10);
+        Assert.assertEquals(m.getVMLocation(vms.get(999)), ns.get(99));
+    }
+
+    @Test
+    public void testEqualsDefaultMapping() {
+        List<Node> ns = Util.newNodes(3);
+        List<VM> vms = Util.newVMs(5);
+        Mapping c1 = new CompactMapping();
+        c1.addOnlineNode(ns.get(0));
+        c1.addOnlineNode(ns.get(1));
+        c1.addOfflineNode(ns.get(2));
+        c1.addReadyVM(vms.get(0));
+        c1.addRunningVM(vms.get(1), ns.get(0));
+        c1.addSleepingVM(vms.get(2), ns.get(0));
+        c1.addRunningVM(vms.get(3), ns.get(1));
+        c1.addRunningVM(vms.get(4), ns.get(1));
+
+        Mapping c2 = new DefaultMapping(c1);
+        Assert.assertEquals(c1, c2);
+        Assert.assertEquals(c2, c1);
+        Assert.assertEquals(new CompactMapping(c2), c1);
+        Assert.assertEquals(c1.getAllVMs(), c2.getAllVMs());
+        Assert.assertEquals(c1.getAllNodes(), c2.getAllNodes());
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        List<Node> ns = Util.newNodes(2);
+        List<VM> vms = Util.newVMs(3);
+        Mapping c1 = new CompactMapping();
+        c1.addOnlineNode(ns.get(0));
+        c1.addRunningVM(vms.get(0), ns.get(0));
+        c1.addReadyVM(vms.get(1));
+
+        Mapping c2 = c1.clone();
+        Mapping c3 = c1.clone();
+        c2.addOnlineNode(ns.get(1));
+        c2.addRunningVM(vms.get(0), ns.get(1));
+        Assert.assertEquals(c1.getVMLocation(vms.get(0)), ns.get(0));
+        Assert.assertFalse(c1.contains(ns.get(1)));
+        Assert.assertEquals(c1, c3);
+
+        c1.addSleepingVM(vms.get(2), ns.get(0));
+        Assert.assertFalse(c3.contains(vms.get(2)));
+        Assert.assertFalse(c2.contains(vms.get(2)));
+        Assert.assertEquals(c2.getVMLocation(vms.get(0)), ns.get(1));
+
+        c3.clear();
+        Assert.assertEquals(c1.getNbVMs(), 3);
+        Assert.assertEquals(c2.getNbVMs(), 2);
+    }
+
+    @Test(expectedExceptions = {UnsupportedOperationException.class})
+    public void testReadOnlyViews() {
+        LiveMapping m = new CompactMapping();
+        Node n = new Node(0);
+        m.addOnlineNode(n);
+        m.getAllNodesView().add(new Node(1));
+    }
+}
@@ -37,9 +37,18 @@ public class DefaultAttributesTest {
     private static List<VM> vms = Util.newVMs(mo, 10);
     private static List<Node> nodes = Util.newNodes(mo, 10);
 
+    /**
+     * Make the attributes to test.
+     *
+     * @return empty attributes
+     */
+    protected Attributes newAttributes() {
+        return new DefaultAttributes();
+    }
+
     @Test
     public void testInstantiation() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         Assert.assertFalse(attrs.toString().contains("null"));
         Assert.assertTrue(attrs.getDefined().isEmpty());
     }
@@ -47,7 +56,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetString() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", "bar"));
         Assert.assertEquals(attrs.getString(vms.get(0), "foo"), "bar");
@@ -60,7 +69,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetDouble() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", 17.3));
         Assert.assertEquals(attrs.getDouble(vms.get(0), "foo"), 17.3);
@@ -68,7 +77,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetBoolean() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", true));
         Assert.assertEquals(attrs.getBoolean(vms.get(0), "foo"), Boolean.TRUE);
@@ -76,9 +85,28 @@ public class DefaultAttributesTest {
         Assert.assertEquals(attrs.getBoolean(vms.get(0), "foo"), Boolean.FALSE);
     }
 
+    @Test(dependsOnMethods = {"testInstantiation"})
+    public void testPrimitiveGetters() {
+        Attributes attrs = newAttributes();
+        VM v = vms.get(0);
+        attrs.put(v, "i", 5);
+        attrs.put(v, "d", 1.5);
+        attrs.put(v, "b", true);
+        attrs.put(v, "s", "foo");
+        Assert.assertEquals(attrs.getInteger(v, "i", -1), 5);
+        Assert.assertEquals(attrs.getDouble(v, "d", -1), 1.5);
+        Assert.assertTrue(attrs.getBoolean(v, "b", false));
+        //Unset or wrong type leads to the default value
+        Assert.assertEquals(attrs.getInteger(v, "d", -1), -1);
+        Assert.assertEquals(attrs.getInteger(v, "__", -1), -1);
+        Assert.assertEquals(attrs.getDouble(v, "s", -1), -1.0);
+        Assert.assertFalse(attrs.getBoolean(vms.get(1), "b", false));
+        Assert.assertFalse(attrs.getBoolean(nodes.get(0), "b", false));
+    }
+
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testCastAndPut() {
-        DefaultAttributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         attrs.castAndPut(vms.get(0), "foo", "foo");
         Assert.assertEquals(attrs.get(vms.get(0), "foo").getClass(), String.class);
@@ -100,7 +128,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testPutAndGetString", "testInstantiation"})
     public void testIsSet() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.isSet(vms.get(0), "foo"));
         attrs.put(vms.get(0), "foo", "bar");
@@ -109,7 +137,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testPutAndGetString", "testInstantiation"})
     public void testUnset() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.unset(vms.get(0), "foo"));
         attrs.put(vms.get(0), "foo", "bar");
@@ -120,7 +148,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testUnset"})
     public void testClone() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         List<Node> l = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
             Node u = mo.newNode();
@@ -138,7 +166,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testUnset", "testClone"})
     public void testEqualsHashCode() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         for (int i = 0; i < 5; i++) {
             attrs.put(nodes.get(0), Integer.toString(i), i);
             attrs.put(vms.get(0), Integer.toString(i), i);
@@ -156,7 +184,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testClear() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         for (int i = 0; i < 5; i++) {
             attrs.put(nodes.get(i), Integer.toString(i), i);
             attrs.put(vms.get(i), Integer.toString(i), i);
@@ -167,7 +195,7 @@ public class DefaultAttributesTest {
 
     @Test
     public void testGetKeys() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         VM u = vms.get(0);
         attrs.put(u, "foo", 1);
         attrs.put(u, "bar", 1);
@@ -177,4 +205,18 @@ public class DefaultAttributesTest {
         Assert.assertEquals(attrs.getKeys(mo.newVM()).size(), 0);
         Assert.assertEquals(attrs.getKeys(mo.newNode()).size(), 0);
     }
+
+    @Test
+    public void testRemoveThroughKeys() {
+        Attributes attrs = new DefaultAttributes();
+        VM u = vms.get(0);
+        attrs.put(u, "foo", 1);
+        attrs.put(u, "bar", 1);
+        Attributes cpy = attrs.clone();
+        Assert.assertTrue(attrs.getKeys(u).remove("foo"));
+        Assert.assertFalse(attrs.isSet(u, "foo"));
+        Assert.assertTrue(attrs.isSet(u, "bar"));
+        //The clone is not impacted
+        Assert.assertTrue(cpy.isSet(u, "foo"));
+    }
 }
@@ -18,9 +18,13 @@
 
 package btrplace.model;
 
+import gnu.trove.procedure.TIntProcedure;
+import gnu.trove.set.hash.TIntHashSet;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -36,12 +40,21 @@ public class DefaultMappingTest {
     private static List<VM> vms = Util.newVMs(10);
     private static List<Node> ns = Util.newNodes(10);
 
+    /**
+     * Make the mapping to test.
+     *
+     * @return an empty mapping
+     */
+    protected LiveMapping newMapping() {
+        return new DefaultMapping();
+    }
+
     /**
      * Create an empty mapping and check all the getters.
      */
     @Test
     public void testInstantiation() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Global getters
         Assert.assertTrue(c.getAllNodes().isEmpty());
@@ -76,7 +89,7 @@ public class DefaultMappingTest {
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOnlineNode() {
 
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         //Basic getters for online
@@ -108,7 +121,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOfflineNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         //Add an offline node
         Assert.assertTrue(c.addOfflineNode(ns.get(1)));
         Assert.assertEquals(c.getNbNodes(), 1);
@@ -127,7 +140,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM", "testSleeping", "testOnlineNode", "testOfflineNode"})
     public void testRemoveNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Remove empty online node
         c.addOnlineNode(ns.get(0));
@@ -172,7 +185,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -215,7 +228,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testSleeping() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -246,7 +259,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testWaiting() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         Assert.assertTrue(c.getAllVMs().size() == 1 && c.getAllVMs().contains(vms.get(0)));
         Assert.assertTrue(c.getReadyVMs().size() == 1 && c.isReady(vms.get(0)));
@@ -261,7 +274,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOfflineNode", "testOnlineNode", "testInstantiation"})
     public void testSwitchNodeState() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Set online then offline then online. Everything is ok
         c.addOnlineNode(ns.get(0));
@@ -295,7 +308,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM"})
     public void testReplaceRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addOfflineNode(ns.get(2));
@@ -341,7 +354,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testSleeping"})
     public void testReplaceSleepingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addSleepingVM(vms.get(0), ns.get(0));
@@ -395,7 +408,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testClear", "testWaiting", "testRunningVM", "testSleeping"})
     public void testReplaceWaitingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         c.addOnlineNode(ns.get(0));
         Assert.assertEquals(c.getNbVMs(), 1);
@@ -425,7 +438,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testToString() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -447,7 +460,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testClone() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -473,7 +486,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testClone"})
     public void testEquals() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -512,7 +525,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClear() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(1));
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -536,7 +549,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClearAllVMs() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(1));
@@ -559,7 +572,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testClearNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -576,7 +589,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testGetRunningVMsOnOfflineNodes() {
-        Mapping m = new DefaultMapping();
+        Mapping m = newMapping();
         m.addOnlineNode(ns.get(0));
         m.addOnlineNode(ns.get(1));
         m.addRunningVM(vms.get(0), ns.get(0));
@@ -590,4 +603,173 @@ public class DefaultMappingTest {
         nodes.add(ns.get(2));
         Assert.assertTrue(m.getRunningVMs(nodes).isEmpty());
     }
+
+    @Test
+    public void testForEach() {
+        LiveMapping m = newMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addOnlineNode(ns.get(1));
+        m.addOfflineNode(ns.get(2));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addRunningVM(vms.get(1), ns.get(1));
+        m.addSleepingVM(vms.get(2), ns.get(1));
+        m.addReadyVM(vms.get(3));
+
+        final TIntHashSet ids = new TIntHashSet();
+        TIntProcedure collect = new TIntProcedure() {
+            @Override
+            public boolean execute(int id) {
+                ids.add(id);
+                return true;
+            }
+        };
+        Assert.assertTrue(m.forEachVM(VMState.RUNNING, collect));
+        Assert.assertEquals(ids, new TIntHashSet(new int[]{vms.get(0).id(), vms.get(1).id()}));
+        ids.clear();
+        Assert.assertTrue(m.forEachVM(VMState.SLEEPING, collect));
+        Assert.assertEquals(ids, new TIntHashSet(new int[]{vms.get(2).id()}));
+        ids.clear();
+        Assert.assertTrue(m.forEachVM(VMState.READY, collect));
+        Assert.assertEquals(ids, new TIntHashSet(new int[]{vms.get(3).id()}));
+        ids.clear();
+        Assert.assertTrue(m.forEachNode(NodeState.ONLINE, collect));
+        Assert.assertEquals(ids, new TIntHashSet(new int[]{ns.get(0).id(), ns.get(1).id()}));
+        ids.clear();
+        Assert.assertTrue(m.forEachNode(NodeState.OFFLINE, collect));
+        Assert.assertEquals(ids, new TIntHashSet(new int[]{ns.get(2).id()}));
+
+        //Early termination
+        final int[] nb = {0};
+        Assert.assertFalse(m.forEachVM(VMState.RUNNING, new TIntProcedure() {
+            @Override
+            public boolean execute(int id) {
+                nb[0]++;
+                return false;
+            }
+        }));
+        Assert.assertEquals(nb[0], 1);
+    }
+
+    @Test
+    public void testLiveViews() {
+        LiveMapping m = newMapping();
+        Set<VM> running = m.getRunningVMsView();
+        Set<VM> sleeping = m.getSleepingVMsView();
+        Set<VM> all = m.getAllVMsView();
+        Set<Node> nodes = m.getAllNodesView();
+        Assert.assertTrue(running.isEmpty());
+        Assert.assertTrue(all.isEmpty());
+
+        m.addOnlineNode(ns.get(0));
+        m.addOfflineNode(ns.get(1));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addSleepingVM(vms.get(1), ns.get(0));
+        m.addReadyVM(vms.get(2));
+        Assert.assertEquals(nodes.size(), 2);
+        Assert.assertTrue(nodes.contains(ns.get(1)));
+        Assert.assertEquals(running.size(), 1);
+        Assert.assertTrue(running.contains(vms.get(0)));
+        Assert.assertFalse(running.contains(vms.get(1)));
+        Assert.assertEquals(sleeping.size(), 1);
+        Assert.assertTrue(sleeping.contains(vms.get(1)));
+        Assert.assertEquals(all.size(), 3);
+        Assert.assertEquals(new HashSet<>(all), new HashSet<>(vms.subList(0, 3)));
+
+        m.addReadyVM(vms.get(0));
+        Assert.assertTrue(running.isEmpty());
+        Assert.assertEquals(all.size(), 3);
+        m.remove(vms.get(1));
+        Assert.assertTrue(sleeping.isEmpty());
+        Assert.assertEquals(all.size(), 2);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testReadOnlyRunningView() {
+        LiveMapping m = newMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.getRunningVMsView().remove(vms.get(0));
+    }
+
+    @Test
+    public void testSnapshots() {
+        Mapping m = newMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        Set<VM> running = m.getRunningVMs();
+        Set<VM> all = m.getAllVMs();
+        Set<Node> nodes = m.getAllNodes();
+        m.addReadyVM(vms.get(0));
+        m.addOfflineNode(ns.get(1));
+        Assert.assertEquals(running, Collections.singleton(vms.get(0)));
+        Assert.assertEquals(all, Collections.singleton(vms.get(0)));
+        Assert.assertEquals(nodes, Collections.singleton(ns.get(0)));
+        //The copies can be modified freely
+        running.remove(vms.get(0));
+        Assert.assertTrue(m.contains(vms.get(0)));
+    }
+
+    @Test
+    public void testAdapters() {
+        Mapping m = newMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addSleepingVM(vms.get(1), ns.get(0));
+        Mapping sub = new SubMapping(m, Collections.singleton(ns.get(0)));
+        for (Mapping x : Arrays.asList(m, sub)) {
+            Assert.assertEquals(MappingUtils.runningVMs(x), Collections.singleton(vms.get(0)));
+            Assert.assertEquals(MappingUtils.sleepingVMs(x), Collections.singleton(vms.get(1)));
+            Assert.assertEquals(MappingUtils.allVMs(x), new HashSet<>(vms.subList(0, 2)));
+            Assert.assertEquals(MappingUtils.allNodes(x), Collections.singleton(ns.get(0)));
+            final TIntHashSet ids = new TIntHashSet();
+            TIntProcedure collect = new TIntProcedure() {
+                @Override
+                public boolean execute(int id) {
+                    ids.add(id);
+                    return true;
+                }
+            };
+            Assert.assertTrue(MappingUtils.forEachVM(x, VMState.SLEEPING, collect));
+            Assert.assertEquals(ids, new TIntHashSet(new int[]{vms.get(1).id()}));
+            ids.clear();
+            Assert.assertTrue(MappingUtils.forEachNode(x, NodeState.ONLINE, collect));
+            Assert.assertEquals(ids, new TIntHashSet(new int[]{ns.get(0).id()}));
+        }
+    }
+
+    @Test
+    public void testJournal() {
+        Mapping m = newMapping();
+        Journal j = new Journal();
+        ((Journaled) m).setJournal(j);
+        Assert.assertSame(((Journaled) m).getJournal(), j);
+        m.addOnlineNode(ns.get(0));
+        m.addOnlineNode(ns.get(1));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addRunningVM(vms.get(0), ns.get(1));
+        m.addReadyVM(vms.get(1));
+        m.remove(vms.get(1));
+        Assert.assertEquals(j.size(), 6);
+        Assert.assertEquals(j.getType(0), Journal.Type.NODE_STATE);
+        Assert.assertEquals(j.getNodeState(1), NodeState.ONLINE);
+        Assert.assertEquals(j.getElement(3), vms.get(0));
+        Assert.assertEquals(j.getVMState(3), VMState.RUNNING);
+        Assert.assertEquals(j.getLocation(3), ns.get(1));
+        Assert.assertEquals(j.getVMState(4), VMState.READY);
+        Assert.assertNull(j.getLocation(4));
+        Assert.assertNull(j.getVMState(5));
+
+        //Not transmitted to the clones
+        Assert.assertNull(((Journaled) m.clone()).getJournal());
+
+        j.clear();
+        m.clearNode(ns.get(1));
+        Assert.assertEquals(j.size(), 1);
+        Assert.assertEquals(j.getElement(0), vms.get(0));
+        Assert.assertNull(j.getVMState(0));
+
+        ((Journaled) m).setJournal(null);
+        m.addOfflineNode(ns.get(2));
+        Assert.assertEquals(j.size(), 1);
+    }
 }
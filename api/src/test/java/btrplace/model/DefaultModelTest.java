@@ -37,6 +37,7 @@ public class DefaultModelTest {
         Model i = new DefaultModel();
         Assert.assertTrue(i.getViews().isEmpty());
         Assert.assertNotNull(i.getAttributes());
+        Assert.assertTrue(i.getMapping() instanceof DefaultMapping);
     }
 
     @Test
@@ -114,6 +115,21 @@ public class DefaultModelTest {
 
     }
 
+    @Test
+    public void testCloneWithCompactMapping() {
+        Model i = new DefaultModel(new DefaultElementBuilder(), new CompactMapping());
+        Node n = i.newNode();
+        VM v = i.newVM();
+        i.getMapping().addOnlineNode(n);
+        i.getMapping().addRunningVM(v, n);
+        Model c = i.clone();
+        Assert.assertTrue(c.getMapping() instanceof CompactMapping);
+        Assert.assertEquals(c, i);
+        c.getMapping().addReadyVM(v);
+        Assert.assertTrue(i.getMapping().isRunning(v));
+        Assert.assertTrue(c.getMapping().isReady(v));
+    }
+
     @Test(dependsOnMethods = {"testAttachView", "testInstantiate"})
     public void testDetachView() {
         Model i = new DefaultModel();
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import java.util.Random;
+
+/**
+ * Compare the memory footprint and the throughput of {@link DefaultMapping}
+ * and {@link CompactMapping} on large models.
+ *
+ * @author Fabien Hermenier
+ */
+public class MappingBench {
+
+    private static Random rnd = new Random();
+
+    private static Mapping newMapping(boolean compact, int nbNodes, int ratio) {
+        return compact ? new CompactMapping(nbNodes * ratio, nbNodes) : new DefaultMapping();
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void bench(boolean compact, int nbNodes, int ratio) {
+        int nbVMs = nbNodes * ratio;
+        Node[] ns = new Node[nbNodes];
+        VM[] vms = new VM[nbVMs];
+        for (int i = 0; i < nbNodes; i++) {
+            ns[i] = new Node(i);
+        }
+        for (int i = 0; i < nbVMs; i++) {
+            vms[i] = new VM(i);
+        }
+
+        //Build, the elements are allocated before to only count the mapping
+        long mem = usedMemory();
+        long st = System.currentTimeMillis();
+        Mapping map = newMapping(compact, nbNodes, ratio);
+        for (Node n : ns) {
+            map.addOnlineNode(n);
+        }
+        for (int i = 0; i < nbVMs; i++) {
+            map.addRunningVM(vms[i], ns[i / ratio]);
+        }
+        long build = System.currentTimeMillis() - st;
+        mem = usedMemory() - mem;
+
+        //Random lookups
+        st = System.currentTimeMillis();
+        int nb = 0;
+        for (int i = 0; i < 1000000; i++) {
+            if (map.getVMLocation(vms[rnd.nextInt(nbVMs)]) != null) {
+                nb++;
+            }
+        }
+        long lookup = System.currentTimeMillis() - st;
+
+        //Random relocations
+        st = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            map.addRunningVM(vms[rnd.nextInt(nbVMs)], ns[rnd.nextInt(nbNodes)]);
+        }
+        long moves = System.currentTimeMillis() - st;
+
+        //Iterate over the VMs of each node
+        st = System.currentTimeMillis();
+        for (Node n : ns) {
+            for (VM v : map.getRunningVMs(n)) {
+                nb += v.id() & 1;
+            }
+        }
+        long iterate = System.currentTimeMillis() - st;
+
+        //A clone followed by a first modification
+        st = System.currentTimeMillis();
+        Mapping cpy = map.clone();
+        cpy.addRunningVM(vms[0], ns[nbNodes - 1]);
+        long clone = System.currentTimeMillis() - st;
+
+        System.out.println((compact ? "compact" : "default") + " " + nbNodes + " " + nbVMs
+                + " " + (mem / 1024) + " KB, build: " + build + " ms, 1M lookups: " + lookup
+                + " ms, 1M moves: " + moves + " ms, iterate: " + iterate + " ms, clone+write: " + clone
+                + " ms (" + nb + ")");
+    }
+
+    public static void main(String[] args) {
+        int ratio = 10;
+        for (int nbNodes : new int[]{1000, 10000, 50000}) {
+            for (int r = 0; r < 3; r++) {
+                bench(false, nbNodes, ratio);
+                bench(true, nbNodes, ratio);
+            }
+        }
+    }
+}
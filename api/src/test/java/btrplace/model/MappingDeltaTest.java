@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link MappingDelta}.
+ *
+ * @author Fabien Hermenier
+ */
+public class MappingDeltaTest {
+
+    private static List<VM> vms = Util.newVMs(10);
+    private static List<Node> ns = Util.newNodes(10);
+
+    private static Mapping makeSource() {
+        Mapping m = new DefaultMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addOnlineNode(ns.get(1));
+        m.addOnlineNode(ns.get(2));
+        m.addOfflineNode(ns.get(3));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addRunningVM(vms.get(1), ns.get(0));
+        m.addSleepingVM(vms.get(2), ns.get(1));
+        m.addRunningVM(vms.get(3), ns.get(2));
+        m.addReadyVM(vms.get(4));
+        return m;
+    }
+
+    private static void change(Mapping dst) {
+        dst.addOnlineNode(ns.get(3));
+        dst.addRunningVM(vms.get(0), ns.get(3));
+        dst.addRunningVM(vms.get(2), ns.get(1));
+        dst.remove(vms.get(3));
+        dst.addOfflineNode(ns.get(2));
+        dst.addRunningVM(vms.get(4), ns.get(1));
+        dst.addReadyVM(vms.get(5));
+        //No-op at the end
+        dst.addRunningVM(vms.get(1), ns.get(1));
+        dst.addRunningVM(vms.get(1), ns.get(0));
+    }
+
+    private static void check(MappingDelta d) {
+        Assert.assertEquals(d.getNodes().size(), 2);
+        Assert.assertEquals(d.getSourceState(ns.get(3)), NodeState.OFFLINE);
+        Assert.assertEquals(d.getDestinationState(ns.get(3)), NodeState.ONLINE);
+        Assert.assertEquals(d.getDestinationState(ns.get(2)), NodeState.OFFLINE);
+
+        Assert.assertEquals(d.getVMs().size(), 5);
+        Assert.assertFalse(d.getVMs().contains(vms.get(1)));
+        Assert.assertEquals(d.getSourceLocation(vms.get(0)), ns.get(0));
+        Assert.assertEquals(d.getDestinationLocation(vms.get(0)), ns.get(3));
+        Assert.assertEquals(d.getSourceState(vms.get(2)), VMState.SLEEPING);
+        Assert.assertEquals(d.getDestinationState(vms.get(2)), VMState.RUNNING);
+        Assert.assertNull(d.getDestinationState(vms.get(3)));
+        Assert.assertNull(d.getDestinationLocation(vms.get(3)));
+        Assert.assertNull(d.getSourceState(vms.get(5)));
+        Assert.assertEquals(d.getDestinationState(vms.get(5)), VMState.READY);
+        Assert.assertFalse(d.isEmpty());
+    }
+
+    @Test
+    public void testFullComparison() {
+        Mapping src = makeSource();
+        Mapping dst = src.clone();
+        Assert.assertTrue(new MappingDelta(src, dst).isEmpty());
+        change(dst);
+        MappingDelta d = new MappingDelta(src, dst);
+        check(d);
+    }
+
+    @Test
+    public void testFromJournal() {
+        Mapping src = makeSource();
+        CompactMapping dst = new CompactMapping(src);
+        Journal j = new Journal();
+        dst.setJournal(j);
+        Assert.assertTrue(new MappingDelta(src, dst, j).isEmpty());
+        change(dst);
+        check(new MappingDelta(src, dst, j));
+    }
+
+    @Test(dependsOnMethods = {"testFullComparison", "testFromJournal"})
+    public void testApplyTo() {
+        Mapping src = makeSource();
+        Mapping dst = src.clone();
+        change(dst);
+        MappingDelta d = new MappingDelta(src, dst);
+        Mapping m = src.clone();
+        Assert.assertTrue(d.applyTo(m));
+        Assert.assertEquals(m, dst);
+    }
+}
@@ -19,6 +19,7 @@
 package btrplace.model;
 
 import btrplace.model.constraint.SatConstraint;
+import btrplace.model.constraint.Spread;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -54,4 +55,18 @@ public class SatConstraintTest {
         Assert.assertTrue(c.setContinuous(false));
         Assert.assertFalse(c.isContinuous());
     }
+
+    @Test
+    public void testCopyOfLiveViews() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n = mo.newNode();
+        map.addOnlineNode(n);
+        map.addRunningVM(mo.newVM(), n);
+        map.addRunningVM(mo.newVM(), n);
+        SatConstraint c = new Spread(map.getAllVMs());
+        map.addReadyVM(mo.newVM());
+        Assert.assertEquals(c.getInvolvedVMs().size(), 2);
+        Assert.assertEquals(c, new Spread(map.getRunningVMs()));
+    }
 }
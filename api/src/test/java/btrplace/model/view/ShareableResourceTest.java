@@ -23,6 +23,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -119,6 +120,22 @@ public class ShareableResourceTest {
 
         Assert.assertFalse(rc.unset(nodes.get(0)));
 
+        //Through the sets of defined elements
+        rc.setConsumption(vms.get(0), 3);
+        rc.setConsumption(vms.get(1), 4);
+        rc.setCapacity(nodes.get(0), 3);
+        ShareableResource cpy = rc.clone();
+        Assert.assertTrue(rc.getDefinedVMs().remove(vms.get(0)));
+        Assert.assertFalse(rc.getDefinedVMs().remove(vms.get(0)));
+        Assert.assertFalse(rc.consumptionDefined(vms.get(0)));
+        Iterator<Node> ite = rc.getDefinedNodes().iterator();
+        ite.next();
+        ite.remove();
+        Assert.assertFalse(rc.capacityDefined(nodes.get(0)));
+        Assert.assertEquals(rc.getDefinedVMs().size(), 1);
+        //The clone is not impacted
+        Assert.assertTrue(cpy.consumptionDefined(vms.get(0)));
+        Assert.assertTrue(cpy.capacityDefined(nodes.get(0)));
     }
 
     @Test(dependsOnMethods = {"testInstantiation", "testDefinition"})
@@ -142,6 +159,26 @@ public class ShareableResourceTest {
 
     }
 
+    @Test(dependsOnMethods = {"testInstantiation", "testDefinition"})
+    public void testBulkGetters() {
+        ShareableResource rc = new ShareableResource("foo", -1, -2);
+        rc.setConsumption(vms.get(0), 3);
+        rc.setConsumption(vms.get(2), 7);
+        rc.setCapacity(nodes.get(1), 5);
+        VM[] vs = {vms.get(2), vms.get(1), vms.get(0)};
+        Assert.assertEquals(rc.getConsumptions(vs), new int[]{7, -2, 3});
+        Node[] ns = {nodes.get(0), nodes.get(1)};
+        Assert.assertEquals(rc.getCapacities(ns), new int[]{-1, 5});
+
+        //Identifiers beyond the current storage
+        VM big = new VM(1000);
+        Assert.assertEquals(rc.getConsumption(big), -2);
+        rc.setConsumption(big, 12);
+        Assert.assertEquals(rc.getConsumption(big), 12);
+        Assert.assertEquals(rc.getDefinedVMs().size(), 3);
+        Assert.assertTrue(rc.getDefinedVMs().contains(big));
+    }
+
     @Test(dependsOnMethods = {"testInstantiation", "testDefinition"})
     public void testToString() {
         ShareableResource rc = new ShareableResource("foo");
@@ -192,6 +229,11 @@ public class ShareableResourceTest {
         Assert.assertNotEquals(rc1, rc2);
         rc1.setCapacity(nodes.get(0), 10);
         Assert.assertEquals(rc1, rc2);
+
+        rc2.setConsumption(vms.get(1), 7);
+        Assert.assertEquals(rc1.getConsumption(vms.get(1)), 5);
+        rc2.unset(nodes.get(1));
+        Assert.assertEquals(rc1.getCapacity(nodes.get(1)), 20);
     }
 
     @Test
@@ -203,4 +245,27 @@ public class ShareableResourceTest {
         Assert.assertTrue(rc.substituteVM(vms.get(2), vms.get(6)));
         Assert.assertEquals(rc.getConsumption(vms.get(6)), 0);
     }
+
+    @Test
+    public void testJournal() {
+        ShareableResource rc = new ShareableResource("foo");
+        Journal j = new Journal();
+        rc.setJournal(j);
+        Assert.assertSame(rc.getJournal(), j);
+        rc.setConsumption(vms.get(0), 3);
+        rc.setCapacity(nodes.get(0), 10);
+        rc.unset(vms.get(0));
+        Assert.assertFalse(rc.unset(vms.get(0)));
+        rc.unset(nodes.get(0));
+        Assert.assertEquals(j.size(), 4);
+        Assert.assertEquals(j.getType(0), Journal.Type.CONSUMPTION);
+        Assert.assertEquals(j.getResource(0), "foo");
+        Assert.assertEquals(j.getValue(0), 3);
+        Assert.assertEquals(j.getType(1), Journal.Type.CAPACITY);
+        Assert.assertEquals(j.getElement(1), nodes.get(0));
+        Assert.assertEquals(j.getValue(1), 10);
+        Assert.assertEquals(j.getType(2), Journal.Type.UNSET_CONSUMPTION);
+        Assert.assertEquals(j.getType(3), Journal.Type.UNSET_CAPACITY);
+        Assert.assertNull(rc.clone().getJournal());
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.*;
+import btrplace.plan.event.Action;
+import btrplace.plan.event.BootNode;
+import btrplace.plan.event.MigrateVM;
+import btrplace.plan.event.ShutdownNode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for {@link ConcurrentReconfigurationPlanMonitor}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConcurrentReconfigurationPlanMonitorTest {
+
+    /**
+     * Make a plan that evacuates {@code nbNodes} nodes hosting {@code nbVMs} VMs each
+     * to nodes that must be booted. The evacuated nodes are then turned off.
+     */
+    static ReconfigurationPlan makeEvacuation(int nbNodes, int nbVMs) {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        for (int i = 0; i < nbNodes; i++) {
+            Node src = mo.newNode();
+            Node dst = mo.newNode();
+            map.addOnlineNode(src);
+            map.addOfflineNode(dst);
+            p.add(new BootNode(dst, 0, 2));
+            for (int j = 0; j < nbVMs; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, src);
+                p.add(new MigrateVM(v, src, dst, 2 + j % 5, 5 + j % 5));
+            }
+            p.add(new ShutdownNode(src, 10, 12));
+        }
+        return p;
+    }
+
+    @Test
+    public void testSequential() {
+        ReconfigurationPlan p = makeEvacuation(1, 3);
+        ConcurrentReconfigurationPlanMonitor exec = new ConcurrentReconfigurationPlanMonitor(p);
+        Assert.assertEquals(exec.getReconfigurationPlan(), p);
+        Assert.assertEquals(exec.getCurrentModel(), p.getOrigin());
+        Action boot = exec.pollUnblocked();
+        Assert.assertTrue(boot instanceof BootNode);
+        Assert.assertNull(exec.pollUnblocked());
+        for (Action a : p) {
+            Assert.assertEquals(exec.isBlocked(a), a != boot);
+        }
+        //Blocked actions cannot be applied
+        for (Action a : p) {
+            if (a instanceof ShutdownNode) {
+                Assert.assertNull(exec.commit(a));
+            }
+        }
+        Set<Action> released = exec.commit(boot);
+        Assert.assertEquals(released.size(), 3);
+        Assert.assertNull(exec.commit(boot));
+        Assert.assertEquals(exec.getNbCommitted(), 1);
+        Action shutdown = null;
+        for (Action a : released) {
+            Assert.assertFalse(exec.isBlocked(a));
+        }
+        for (int i = 0; i < released.size(); i++) {
+            Action a = exec.pollUnblocked();
+            Assert.assertTrue(released.contains(a));
+            Set<Action> s = exec.commit(a);
+            if (!s.isEmpty()) {
+                shutdown = s.iterator().next();
+            }
+        }
+        Assert.assertTrue(shutdown instanceof ShutdownNode);
+        Assert.assertEquals(exec.pollUnblocked(), shutdown);
+        Assert.assertTrue(exec.commit(shutdown).isEmpty());
+        Assert.assertEquals(exec.getNbCommitted(), p.getSize());
+        Assert.assertEquals(exec.getCurrentModel(), p.getResult());
+    }
+
+    /**
+     * Many threads execute the unblocked actions and commit them.
+     * Every action must be released once, after its dependencies.
+     */
+    @Test
+    public void testConcurrentCommits() {
+        final ReconfigurationPlan p = makeEvacuation(200, 10);
+        final ConcurrentReconfigurationPlanMonitor exec = new ConcurrentReconfigurationPlanMonitor(p);
+        final Set<Action> started = Collections.newSetFromMap(new ConcurrentHashMap<Action, Boolean>());
+        //The plan is not thread-safe
+        final Map<Action, Set<Action>> deps = new HashMap<>();
+        for (Action a : p) {
+            deps.put(a, p.getDirectDependencies(a));
+        }
+        final AtomicReference<String> error = new AtomicReference<>();
+        int nbThreads = 16;
+        Thread[] ths = new Thread[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (exec.getNbCommitted() != p.getSize() && error.get() == null) {
+                        Action a = exec.pollUnblocked();
+                        if (a == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        if (!started.containsAll(deps.get(a))) {
+                            error.set("Released before its dependencies: " + a);
+                        }
+                        if (!started.add(a)) {
+                            error.set("Released twice: " + a);
+                        }
+                        if (exec.commit(a) == null) {
+                            error.set("Unable to commit " + a);
+                        }
+                    }
+                }
+            });
+            ths[i] = t;
+            t.start();
+        }
+        try {
+            for (int i = 0; i < nbThreads; i++) {
+                ths[i].join();
+            }
+        } catch (InterruptedException ex) {
+            Assert.fail(ex.getMessage(), ex);
+        }
+        Assert.assertNull(error.get(), error.get());
+        Assert.assertEquals(exec.getNbCommitted(), p.getSize());
+        Assert.assertEquals(started.size(), p.getSize());
+        Assert.assertNull(exec.pollUnblocked());
+        Assert.assertEquals(exec.getCurrentModel(), p.getResult());
+    }
+}
@@ -20,12 +20,18 @@ package btrplace.plan;
 
 import btrplace.model.*;
 import btrplace.plan.event.Action;
+import btrplace.plan.event.BootNode;
+import btrplace.plan.event.MigrateVM;
 import btrplace.plan.event.ShutdownNode;
 import btrplace.plan.event.SuspendVM;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -163,4 +169,113 @@ Expected:
 1:2 {action=shutdown(node=node#1)}
          */
     }
+
+    @Test
+    public void testTimeAndElementQueries() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 2);
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(0));
+        map.addOnlineNode(ns.get(1));
+        map.addOfflineNode(ns.get(2));
+        map.addRunningVM(vms.get(0), ns.get(0));
+        map.addRunningVM(vms.get(1), ns.get(1));
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        Action m2 = new MigrateVM(vms.get(1), ns.get(1), ns.get(0), 4, 7);
+        Action b = new BootNode(ns.get(2), 0, 3);
+        Action m1 = new MigrateVM(vms.get(0), ns.get(0), ns.get(2), 3, 5);
+        Action s = new ShutdownNode(ns.get(1), 7, 9);
+        p.add(m2);
+        p.add(b);
+        Assert.assertEquals(p.getDuration(), 7);
+        Assert.assertEquals(p.getActions(ns.get(0)), Collections.singletonList(m2));
+        //Indexed incrementally from now
+        p.add(m1);
+        p.add(s);
+        Assert.assertEquals(p.getDuration(), 9);
+
+        List<Action> l = new ArrayList<>();
+        for (Action a : p) {
+            l.add(a);
+        }
+        Assert.assertEquals(l, Arrays.asList(b, m1, m2, s));
+        Assert.assertEquals(p.getActionsByEnd(), Arrays.asList(b, m1, m2, s));
+
+        Assert.assertEquals(p.getActionsAt(0), Collections.singletonList(b));
+        Assert.assertEquals(p.getActionsAt(3), Collections.singletonList(m1));
+        Assert.assertEquals(p.getActionsAt(4), Arrays.asList(m1, m2));
+        Assert.assertEquals(p.getActionsAt(7), Collections.singletonList(s));
+        Assert.assertTrue(p.getActionsAt(9).isEmpty());
+        Assert.assertEquals(p.getActionsBetween(2, 5), Arrays.asList(b, m1, m2));
+        Assert.assertEquals(p.getActionsBetween(0, 100), Arrays.asList(b, m1, m2, s));
+        Assert.assertTrue(p.getActionsBetween(3, 3).isEmpty());
+
+        Assert.assertEquals(p.getActions(vms.get(0)), Collections.singletonList(m1));
+        Assert.assertEquals(p.getActions(ns.get(0)), Arrays.asList(m2, m1));
+        Assert.assertEquals(p.getActions(ns.get(1)), Arrays.asList(m2, s));
+        Assert.assertEquals(p.getActions(ns.get(2)), Arrays.asList(b, m1));
+    }
+
+    @Test
+    public void testElementQueriesInRegistrationOrder() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 2);
+        List<VM> vms = Util.newVMs(mo, 3);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        //Registered in a non-chronological order, before and after the index is built
+        Action m0 = new MigrateVM(vms.get(0), ns.get(0), ns.get(1), 5, 6);
+        Action m1 = new MigrateVM(vms.get(1), ns.get(0), ns.get(1), 0, 2);
+        Action m2 = new MigrateVM(vms.get(2), ns.get(0), ns.get(1), 3, 4);
+        p.add(m0);
+        p.add(m1);
+        Assert.assertEquals(p.getActions(ns.get(0)), Arrays.asList(m0, m1));
+        p.add(m2);
+        Assert.assertEquals(p.getActions(ns.get(0)), Arrays.asList(m0, m1, m2));
+        Assert.assertEquals(p.getActions(ns.get(1)), Arrays.asList(m0, m1, m2));
+
+        //Same result when the index is built once all the actions are registered
+        DefaultReconfigurationPlan p2 = new DefaultReconfigurationPlan(mo);
+        p2.add(m0);
+        p2.add(m1);
+        p2.add(m2);
+        Assert.assertEquals(p2.getActions(ns.get(0)), Arrays.asList(m0, m1, m2));
+    }
+
+    @Test
+    public void testActionsBetweenAgainstScan() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 2);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        List<Action> all = new ArrayList<>();
+        Random rnd = new Random(12);
+        for (int i = 0; i < 200; i++) {
+            int st = rnd.nextInt(100);
+            Action a = new MigrateVM(mo.newVM(), ns.get(0), ns.get(1), st, st + 1 + rnd.nextInt(20));
+            p.add(a);
+            all.add(a);
+            if (i % 50 == 0) {
+                //Interleave the queries with the insertions
+                Assert.assertEquals(p.getActionsAt(st), scan(p, st, st + 1));
+            }
+        }
+        for (int from = 0; from < 130; from += 3) {
+            for (int to = from; to < 130; to += 7) {
+                Assert.assertEquals(p.getActionsBetween(from, to), scan(p, from, to));
+            }
+        }
+    }
+
+    /**
+     * The actions of a plan overlapping a period, using a scan in the start order.
+     */
+    private static List<Action> scan(ReconfigurationPlan p, int from, int to) {
+        List<Action> res = new ArrayList<>();
+        for (Action a : p) {
+            if (a.getStart() < to && a.getEnd() > from) {
+                res.add(a);
+            }
+        }
+        return res;
+    }
 }
@@ -24,7 +24,7 @@ import btrplace.plan.event.*;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Unit tests for {@link DependenciesExtractor}.
@@ -143,4 +143,110 @@ public class DependenciesExtractorTest {
         Assert.assertTrue(ex.getDependencies(a1).contains(a2), ex.getDependencies(a1).toString());
     }
 
+
+    /**
+     * Random migrations among a few nodes. The dependencies from the graph
+     * must match a pairwise comparison of the actions.
+     */
+    @Test
+    public void testDependencyGraph() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        List<Node> nodes = Util.newNodes(mo, 5);
+        List<VM> vs = Util.newVMs(mo, 200);
+        for (Node n : nodes) {
+            map.addOnlineNode(n);
+        }
+        Random rnd = new Random(1);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        for (VM v : vs) {
+            Node src = nodes.get(rnd.nextInt(nodes.size()));
+            Node dst = nodes.get((nodes.indexOf(src) + 1 + rnd.nextInt(nodes.size() - 1)) % nodes.size());
+            map.addRunningVM(v, src);
+            int st = rnd.nextInt(50);
+            p.add(new MigrateVM(v, src, dst, st, st + 1 + rnd.nextInt(10)));
+        }
+        DependencyGraph g = p.getDependencyGraph();
+        Assert.assertEquals(g.size(), p.getSize());
+        int nbEdges = 0;
+        for (int i = 0; i < g.size(); i++) {
+            MigrateVM a = (MigrateVM) g.getAction(i);
+            Assert.assertEquals(g.getId(a), i);
+            Set<Action> expected = new HashSet<>();
+            for (Action x : p) {
+                if (((MigrateVM) x).getSourceNode().equals(a.getDestinationNode()) && x.getEnd() <= a.getStart()) {
+                    expected.add(x);
+                }
+            }
+            Set<Action> got = new HashSet<>();
+            for (int j = 0; j < g.getNbDependencies(i); j++) {
+                int x = g.getDependency(i, j);
+                got.add(g.getAction(x));
+                Assert.assertEquals(g.getFreeingNode(x), g.getDemandingNode(i));
+            }
+            Assert.assertEquals(got, expected);
+            Assert.assertEquals(p.getDirectDependencies(a), expected);
+            nbEdges += expected.size();
+        }
+        Assert.assertTrue(nbEdges > 0);
+        //Each demanding action is released once, when the prefix reaches its number of dependencies
+        int nbReleased = 0;
+        for (int n = 0; n < g.getNbNodes(); n++) {
+            for (int k = 0; k <= g.getNbFreeings(n); k++) {
+                for (int j = 0; j < g.getNbReleased(n, k); j++) {
+                    int x = g.getReleased(n, k, j);
+                    Assert.assertEquals(g.getDemandingNode(x), n);
+                    Assert.assertEquals(g.getNbDependencies(x), k);
+                    nbReleased++;
+                }
+            }
+        }
+        Assert.assertEquals(nbReleased, g.size());
+        Assert.assertTrue(p.isApplyable());
+        p.setReconfigurationApplier(new DependencyBasedPlanApplier());
+        Assert.assertNotNull(p.getResult());
+    }
+
+    /**
+     * A migration to the same node frees resources on this node.
+     * When its duration is null, it must not depend on itself.
+     */
+    @Test
+    public void testSameNodeMigration() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(0));
+        map.addRunningVM(vms.get(0), ns.get(0));
+        map.addRunningVM(vms.get(1), ns.get(0));
+        map.addReadyVM(vms.get(2));
+        MigrateVM loop = new MigrateVM(vms.get(0), ns.get(0), ns.get(0), 0, 3);
+        MigrateVM instant = new MigrateVM(vms.get(1), ns.get(0), ns.get(0), 3, 3);
+        BootVM boot = new BootVM(vms.get(2), ns.get(0), 3, 5);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        Assert.assertTrue(p.add(boot));
+        Assert.assertTrue(p.add(instant));
+        Assert.assertTrue(p.add(loop));
+
+        Assert.assertEquals(p.getDirectDependencies(boot), new HashSet<Action>(Arrays.asList(loop, instant)));
+        Assert.assertEquals(p.getDirectDependencies(instant), Collections.<Action>singleton(loop));
+        Assert.assertTrue(p.getDirectDependencies(loop).isEmpty());
+
+        DependencyGraph g = p.getDependencyGraph();
+        int i = g.getId(instant);
+        Assert.assertEquals(g.getNbDependencies(i), 1);
+        Assert.assertEquals(g.getAction(g.getDependency(i, 0)), loop);
+        Assert.assertEquals(g.getNbDependencies(g.getId(boot)), 2);
+        Assert.assertEquals(g.getNbDependencies(g.getId(loop)), 0);
+        //Each demanding action is released once, when the prefix reaches its number of dependencies
+        int nbReleased = 0;
+        for (int n = 0; n < g.getNbNodes(); n++) {
+            for (int k = 0; k <= g.getNbFreeings(n); k++) {
+                for (int j = 0; j < g.getNbReleased(n, k); j++) {
+                    Assert.assertEquals(g.getNbDependencies(g.getReleased(n, k, j)), k);
+                    nbReleased++;
+                }
+            }
+        }
+        Assert.assertEquals(nbReleased, g.size());
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.*;
+import btrplace.model.constraint.*;
+import btrplace.plan.event.MigrateVM;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Unit tests for {@link ModelAuditor}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelAuditorTest {
+
+    private static List<SatConstraint> expected(Model mo, List<SatConstraint> cstrs) {
+        List<SatConstraint> res = new ArrayList<>();
+        for (SatConstraint c : cstrs) {
+            if (!c.isSatisfied(mo)) {
+                res.add(c);
+            }
+        }
+        return res;
+    }
+
+    private static List<SatConstraint> expected(ReconfigurationPlan p, List<SatConstraint> cstrs) {
+        List<SatConstraint> res = new ArrayList<>();
+        for (SatConstraint c : cstrs) {
+            if (!c.isSatisfied(p)) {
+                res.add(c);
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void testModelAudit() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 10);
+        List<VM> vms = Util.newVMs(mo, 100);
+        Mapping map = mo.getMapping();
+        for (Node n : ns) {
+            map.addOnlineNode(n);
+        }
+        for (int i = 0; i < vms.size(); i++) {
+            map.addRunningVM(vms.get(i), ns.get(i % ns.size()));
+        }
+        Random rnd = new Random(1);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (VM v : vms) {
+            cstrs.add(new Ban(v, Collections.singleton(ns.get(rnd.nextInt(ns.size())))));
+            cstrs.add(new Fence(v, new HashSet<>(ns.subList(0, 1 + rnd.nextInt(ns.size())))));
+        }
+        List<SatConstraint> exp = expected(mo, cstrs);
+        Assert.assertFalse(exp.isEmpty());
+        Assert.assertNotEquals(exp.size(), cstrs.size());
+        for (int threads : new int[]{1, 4}) {
+            for (int chunk : new int[]{1, 7, ModelAuditor.DEFAULT_CHUNK_SIZE}) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ModelAuditor a = new ModelAuditor(pool);
+                a.setChunkSize(chunk);
+                Assert.assertEquals(a.getChunkSize(), chunk);
+                Assert.assertEquals(a.audit(mo, cstrs), exp);
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testPlanAudit() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 4);
+        List<VM> vms = Util.newVMs(mo, 4);
+        Mapping map = mo.getMapping();
+        for (Node n : ns) {
+            map.addOnlineNode(n);
+        }
+        map.addRunningVM(vms.get(0), ns.get(0));
+        map.addRunningVM(vms.get(1), ns.get(1));
+        map.addRunningVM(vms.get(2), ns.get(2));
+        map.addRunningVM(vms.get(3), ns.get(3));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        //vm0 goes on ns1 before vm1 leaves it.
+        p.add(new MigrateVM(vms.get(0), ns.get(0), ns.get(1), 0, 3));
+        p.add(new MigrateVM(vms.get(1), ns.get(1), ns.get(0), 2, 5));
+        p.add(new MigrateVM(vms.get(2), ns.get(2), ns.get(3), 0, 1));
+        p.add(new MigrateVM(vms.get(3), ns.get(3), ns.get(2), 1, 2));
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            //Violated in the middle of the plan
+            cstrs.add(new Spread(new HashSet<>(Arrays.asList(vms.get(0), vms.get(1))), true));
+            //Satisfied all along the plan
+            cstrs.add(new Spread(new HashSet<>(Arrays.asList(vms.get(2), vms.get(3))), true));
+            //Only checked at the end
+            cstrs.add(new Spread(new HashSet<>(Arrays.asList(vms.get(0), vms.get(1))), false));
+            //Violated at the end
+            cstrs.add(new Ban(vms.get(i % 4), Collections.singleton(ns.get((i + 1) % 4))));
+        }
+        List<SatConstraint> exp = expected(p, cstrs);
+        Assert.assertFalse(exp.isEmpty());
+        for (int threads : new int[]{1, 4}) {
+            for (int chunk : new int[]{1, 3, ModelAuditor.DEFAULT_CHUNK_SIZE}) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ModelAuditor a = new ModelAuditor(pool);
+                a.setChunkSize(chunk);
+                Assert.assertEquals(a.audit(p, cstrs), exp);
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testClose() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (ModelAuditor a = new ModelAuditor(pool)) {
+            Assert.assertTrue(a.audit(new DefaultModel(), Collections.<SatConstraint>emptyList()).isEmpty());
+        }
+        //A given pool is left to the caller
+        Assert.assertFalse(pool.isShutdown());
+        pool.shutdown();
+
+        ModelAuditor a = new ModelAuditor();
+        Assert.assertTrue(a.audit(new DefaultModel(), Collections.<SatConstraint>emptyList()).isEmpty());
+        a.close();
+        try {
+            a.audit(new DefaultModel(), Collections.<SatConstraint>emptyList());
+            Assert.fail("The pool should be shut down");
+        } catch (RejectedExecutionException ex) {
+            //Expected
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadChunkSize() {
+        new ModelAuditor(new ForkJoinPool(1)).setChunkSize(0);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.*;
+import btrplace.model.view.ShareableResource;
+import btrplace.plan.event.Action;
+import btrplace.plan.event.MigrateVM;
+
+import java.util.Random;
+
+/**
+ * Measure the cost of the model copies made to apply or to monitor a small
+ * plan on a large model, when the model relies on a {@link DefaultMapping}
+ * or on a {@link CompactMapping}, the default of {@link DefaultModel#DefaultModel()}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PlanApplierBench {
+
+    private static Random rnd = new Random();
+
+    private static ReconfigurationPlan makePlan(boolean compact, int nbNodes, int ratio, int nbMigrations) {
+        Model mo = compact ? new DefaultModel(new DefaultElementBuilder(), new CompactMapping()) : new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 32, 1);
+        mo.attach(cpu);
+        Node[] ns = new Node[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            ns[i] = mo.newNode();
+            map.addOnlineNode(ns[i]);
+        }
+        VM[] vms = new VM[nbNodes * ratio];
+        for (int i = 0; i < vms.length; i++) {
+            vms[i] = mo.newVM();
+            map.addRunningVM(vms[i], ns[i / ratio]);
+        }
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        for (int i = 0; i < nbMigrations; i++) {
+            VM v = vms[i * ratio];
+            p.add(new MigrateVM(v, map.getVMLocation(v), ns[(i / ratio + 1 + rnd.nextInt(nbNodes - 1)) % nbNodes], 0, 3));
+        }
+        return p;
+    }
+
+    private static void bench(boolean compact, int nbNodes, int ratio) {
+        ReconfigurationPlan p = makePlan(compact, nbNodes, ratio, 10);
+
+        long st = System.currentTimeMillis();
+        Model res = p.getResult();
+        long apply = System.currentTimeMillis() - st;
+
+        st = System.currentTimeMillis();
+        boolean ok = p.isApplyable();
+        long applyable = System.currentTimeMillis() - st;
+
+        st = System.currentTimeMillis();
+        ReconfigurationPlanMonitor mon = new DefaultReconfigurationPlanMonitor(p);
+        for (Action a : p) {
+            mon.commit(a);
+        }
+        long monitor = System.currentTimeMillis() - st;
+
+        System.out.println((compact ? "compact" : "default") + " " + nbNodes + " " + nbNodes * ratio
+                + " getResult: " + apply + " ms, isApplyable: " + applyable
+                + " ms, monitor: " + monitor + " ms (" + (ok && res != null
+                && mon.getCurrentModel().equals(res)) + ")");
+    }
+
+    public static void main(String[] args) {
+        int ratio = 10;
+        for (int nbNodes : new int[]{1000, 10000, 50000}) {
+            for (int r = 0; r < 3; r++) {
+                bench(false, nbNodes, ratio);
+                bench(true, nbNodes, ratio);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.model.*;
+import btrplace.model.constraint.Spread;
+import btrplace.model.constraint.SpreadChecker;
+import btrplace.plan.event.MigrateVM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Measure the time required by {@link ReconfigurationPlanChecker} to check
+ * a plan against a large number of constraints, with and without the
+ * dispatching of the actions to the involved checkers only.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanCheckerBench {
+
+    private static ReconfigurationPlanChecker makeChecker(List<Spread> cstrs, final boolean global) {
+        ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker();
+        for (Spread s : cstrs) {
+            chk.addChecker(new SpreadChecker(s) {
+                @Override
+                public boolean isGlobal() {
+                    return global;
+                }
+            });
+        }
+        return chk;
+    }
+
+    public static void main(String[] args) throws ReconfigurationPlanCheckerException {
+        int nbNodes = 5000;
+        int nbCstrs = 100000;
+        int nbActions = 5000;
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node[] nodes = new Node[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            nodes[i] = mo.newNode();
+            map.addOnlineNode(nodes[i]);
+        }
+        //One spread per application of 2 VMs, placed on distinct nodes
+        List<Spread> cstrs = new ArrayList<>();
+        List<VM> firsts = new ArrayList<>();
+        for (int i = 0; i < nbCstrs; i++) {
+            VM v1 = mo.newVM();
+            VM v2 = mo.newVM();
+            map.addRunningVM(v1, nodes[(2 * i) % nbNodes]);
+            map.addRunningVM(v2, nodes[(2 * i + 1) % nbNodes]);
+            cstrs.add(new Spread(new HashSet<>(Arrays.asList(v1, v2))));
+            firsts.add(v1);
+        }
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        for (int i = 0; i < nbActions; i++) {
+            VM v = firsts.get(i);
+            Node src = map.getVMLocation(v);
+            //Move to the next even node, never on the node of its sibling
+            Node dst = nodes[(2 * i + 2) % nbNodes];
+            p.add(new MigrateVM(v, src, dst, i % 10, i % 10 + 3));
+        }
+        for (int r = 0; r < 5; r++) {
+            ReconfigurationPlanChecker indexed = makeChecker(cstrs, false);
+            long st = System.currentTimeMillis();
+            indexed.check(p);
+            long idxDuration = System.currentTimeMillis() - st;
+
+            ReconfigurationPlanChecker global = makeChecker(cstrs, true);
+            st = System.currentTimeMillis();
+            global.check(p);
+            long globalDuration = System.currentTimeMillis() - st;
+            System.out.println(nbCstrs + " constraints, " + nbActions + " actions: indexed " + idxDuration + " ms; global " + globalDuration + " ms");
+        }
+    }
+}
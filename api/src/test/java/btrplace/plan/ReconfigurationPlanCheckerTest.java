@@ -19,6 +19,8 @@
 package btrplace.plan;
 
 import btrplace.model.*;
+import btrplace.model.constraint.AllowAllConstraintChecker;
+import btrplace.model.constraint.Ban;
 import btrplace.model.constraint.SatConstraintChecker;
 import btrplace.plan.event.BootNode;
 import btrplace.plan.event.BootVM;
@@ -27,6 +29,9 @@ import org.mockito.InOrder;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.inOrder;
@@ -86,6 +91,67 @@ public class ReconfigurationPlanCheckerTest {
         order.verify(chk).endsWith(res);
     }
 
+    /**
+     * A checker that records the actions it has been notified about.
+     */
+    private static class Recorder extends AllowAllConstraintChecker<Ban> {
+
+        private List<MigrateVM> seen = new ArrayList<>();
+
+        private boolean global;
+
+        public Recorder(Ban b, boolean g) {
+            super(b);
+            global = g;
+        }
+
+        @Override
+        public boolean start(MigrateVM a) {
+            seen.add(a);
+            return true;
+        }
+
+        @Override
+        public boolean isGlobal() {
+            return global;
+        }
+    }
+
+    @Test
+    public void testIndexedDispatch() throws ReconfigurationPlanCheckerException {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 4);
+        List<VM> vms = Util.newVMs(mo, 3);
+        Mapping m = mo.getMapping();
+        for (Node n : ns) {
+            m.addOnlineNode(n);
+        }
+        m.addRunningVM(vms.get(0), ns.get(0));
+        m.addRunningVM(vms.get(1), ns.get(1));
+        m.addRunningVM(vms.get(2), ns.get(2));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        MigrateVM m0 = new MigrateVM(vms.get(0), ns.get(0), ns.get(3), 0, 3);
+        MigrateVM m1 = new MigrateVM(vms.get(1), ns.get(1), ns.get(3), 1, 4);
+        MigrateVM m2 = new MigrateVM(vms.get(2), ns.get(2), ns.get(1), 2, 5);
+        p.add(m0);
+        p.add(m1);
+        p.add(m2);
+
+        //Involved through its VM
+        Recorder byVM = new Recorder(new Ban(vms.get(0), Collections.singleton(ns.get(0))), false);
+        //Involved through its node, as a source or a destination
+        Recorder byNode = new Recorder(new Ban(vms.get(0), Collections.singleton(ns.get(1))), false);
+        Recorder global = new Recorder(new Ban(vms.get(0), Collections.singleton(ns.get(2))), true);
+        ReconfigurationPlanChecker rc = new ReconfigurationPlanChecker();
+        rc.addChecker(byVM);
+        rc.addChecker(byNode);
+        rc.addChecker(global);
+        rc.check(p);
+        Assert.assertEquals(byVM.seen, Collections.singletonList(m0));
+        Assert.assertEquals(byNode.seen, Arrays.asList(m0, m1, m2));
+        Assert.assertEquals(global.seen, Arrays.asList(m0, m1, m2));
+    }
+
     @Test
     public void testWithNoActions() throws ReconfigurationPlanCheckerException {
         Model mo = new DefaultModel();
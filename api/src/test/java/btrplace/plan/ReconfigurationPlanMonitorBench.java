@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.plan;
+
+import btrplace.plan.event.Action;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Measure the throughput of {@link DefaultReconfigurationPlanMonitor} and
+ * {@link ConcurrentReconfigurationPlanMonitor} when many threads commit the
+ * actions of a large evacuation plan.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanMonitorBench {
+
+    /**
+     * Execute a plan using a given number of workers.
+     *
+     * @return the duration in milliseconds
+     */
+    private static long execute(final ReconfigurationPlanMonitor mon, int nbThreads) throws InterruptedException {
+        final ReconfigurationPlan p = mon.getReconfigurationPlan();
+        final Queue<Action> ready = new ConcurrentLinkedQueue<>();
+        for (Action a : p) {
+            if (!mon.isBlocked(a)) {
+                ready.add(a);
+            }
+        }
+        Thread[] ths = new Thread[nbThreads];
+        long st = System.currentTimeMillis();
+        for (int i = 0; i < nbThreads; i++) {
+            ths[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (mon.getNbCommitted() != p.getSize()) {
+                        Action a = ready.poll();
+                        if (a == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        Set<Action> released = mon.commit(a);
+                        if (released == null) {
+                            throw new IllegalStateException("Unable to commit " + a);
+                        }
+                        ready.addAll(released);
+                    }
+                }
+            });
+            ths[i].start();
+        }
+        for (Thread t : ths) {
+            t.join();
+        }
+        return System.currentTimeMillis() - st;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ReconfigurationPlan p = ConcurrentReconfigurationPlanMonitorTest.makeEvacuation(5000, 20);
+        for (int nbThreads : new int[]{1, 8, 64, 256}) {
+            for (int r = 0; r < 3; r++) {
+                long def = execute(new DefaultReconfigurationPlanMonitor(p), nbThreads);
+                long conc = execute(new ConcurrentReconfigurationPlanMonitor(p), nbThreads);
+                System.out.println(p.getSize() + " actions, " + nbThreads + " threads: default " + def + " ms; concurrent " + conc + " ms");
+            }
+        }
+    }
+}
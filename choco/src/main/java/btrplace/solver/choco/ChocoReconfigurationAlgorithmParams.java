@@ -20,6 +20,7 @@ package btrplace.solver.choco;
 
 import btrplace.solver.choco.constraint.ConstraintMapper;
 import btrplace.solver.choco.duration.DurationEvaluators;
+import btrplace.solver.choco.runner.SolutionListener;
 import btrplace.solver.choco.transition.TransitionFactory;
 import btrplace.solver.choco.view.ModelViewMapper;
 import btrplace.solver.choco.view.SolverViewBuilder;
@@ -64,6 +65,24 @@ public interface ChocoReconfigurationAlgorithmParams {
      */
     boolean doOptimize();
 
+    /**
+     * State if the algorithm improves the solutions using a large neighborhood search
+     * ({@link btrplace.solver.choco.constraint.mttr.LargeNeighborhood}) instead of a complete search.
+     * The search is then only stopped by the time limit.
+     * This is ignored when the optimization is disabled or when the instance solver customizes the search.
+     *
+     * @param b {@code true} to rely on a large neighborhood search
+     * @return the current instance
+     */
+    ChocoReconfigurationAlgorithmParams doLNS(boolean b);
+
+    /**
+     * Indicate if the algorithm improves the solutions using a large neighborhood search.
+     *
+     * @return {@code true} iff it relies on a large neighborhood search
+     */
+    boolean doLNS();
+
     /**
      * Get the mapper that is used to associate the {@link btrplace.model.view.ModelView}
      * to the {@link btrplace.solver.choco.view.ChocoView}.
@@ -200,4 +219,26 @@ public interface ChocoReconfigurationAlgorithmParams {
      * @return a collection that may be empty
      */
     Collection<SolverViewBuilder> getSolverViews();
+
+    /**
+     * Add a listener to notify each time a solution is computed.
+     *
+     * @param l the listener to add
+     */
+    void addSolutionListener(SolutionListener l);
+
+    /**
+     * Remove a solution listener.
+     *
+     * @param l the listener to remove
+     * @return {@code true} iff the listener has been removed
+     */
+    boolean removeSolutionListener(SolutionListener l);
+
+    /**
+     * Get the solution listeners.
+     *
+     * @return a collection that may be empty
+     */
+    Collection<SolutionListener> getSolutionListeners();
 }
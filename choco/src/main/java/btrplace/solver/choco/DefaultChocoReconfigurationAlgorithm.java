@@ -29,6 +29,7 @@ import btrplace.solver.choco.constraint.ConstraintMapper;
 import btrplace.solver.choco.duration.DurationEvaluators;
 import btrplace.solver.choco.runner.InstanceResult;
 import btrplace.solver.choco.runner.InstanceSolver;
+import btrplace.solver.choco.runner.SolutionListener;
 import btrplace.solver.choco.runner.SolvingStatistics;
 import btrplace.solver.choco.runner.single.SingleRunner;
 import btrplace.solver.choco.transition.TransitionFactory;
@@ -80,6 +81,16 @@ public class DefaultChocoReconfigurationAlgorithm implements ChocoReconfiguratio
         return params.doOptimize();
     }
 
+    @Override
+    public ChocoReconfigurationAlgorithmParams doLNS(boolean b) {
+        return params.doLNS(b);
+    }
+
+    @Override
+    public boolean doLNS() {
+        return params.doLNS();
+    }
+
     @Override
     public ChocoReconfigurationAlgorithmParams setTimeLimit(int t) {
         return params.setTimeLimit(t);
@@ -207,4 +218,19 @@ public class DefaultChocoReconfigurationAlgorithm implements ChocoReconfiguratio
     public Collection<SolverViewBuilder> getSolverViews() {
         return params.getSolverViews();
     }
+
+    @Override
+    public void addSolutionListener(SolutionListener l) {
+        params.addSolutionListener(l);
+    }
+
+    @Override
+    public boolean removeSolutionListener(SolutionListener l) {
+        return params.removeSolutionListener(l);
+    }
+
+    @Override
+    public Collection<SolutionListener> getSolutionListeners() {
+        return params.getSolutionListeners();
+    }
 }
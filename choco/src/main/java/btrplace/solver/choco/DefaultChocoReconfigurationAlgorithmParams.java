@@ -20,23 +20,25 @@ package btrplace.solver.choco;
 
 import btrplace.solver.choco.constraint.ConstraintMapper;
 import btrplace.solver.choco.duration.DurationEvaluators;
+import btrplace.solver.choco.runner.SolutionListener;
 import btrplace.solver.choco.transition.TransitionFactory;
 import btrplace.solver.choco.view.*;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Default implementation of {@link ChocoReconfigurationAlgorithmParams}.
  * <ul>
  * <li>repair mode is disabled</li>
+ * <li>large neighborhood search is disabled</li>
  * <li>no time limit</li>
  * <li>the transition factory comes from {@link btrplace.solver.choco.transition.TransitionFactory#newBundle()}</li>
  * <li>the view mapper comes from {@link btrplace.solver.choco.view.ModelViewMapper#newBundle()}</li>
  * <li>the duration evaluator is {@link btrplace.solver.choco.duration.DurationEvaluators#newBundle()}</li>
  * <li>the constraint mapper is {@link btrplace.solver.choco.constraint.ConstraintMapper#newBundle()}</li>
- * <li>the {@link btrplace.solver.choco.view.Packing} constraint is {@link btrplace.solver.choco.view.DefaultPacking}</li>
+ * <li>the {@link btrplace.solver.choco.view.Packing} constraint is {@link btrplace.solver.choco.view.DefaultPacking}.
+ *  {@link btrplace.solver.choco.view.VectorPacking} is an alternative that handles all the dimensions in one constraint</li>
  * <li>the {@link btrplace.solver.choco.view.Cumulatives} view is {@link btrplace.solver.choco.view.DefaultCumulatives}</li>
  * <li>the {@link btrplace.solver.choco.view.AliasedCumulatives} view is {@link btrplace.solver.choco.view.DefaultAliasedCumulatives}</li>
  * </ul>
@@ -53,6 +55,8 @@ public class DefaultChocoReconfigurationAlgorithmParams implements ChocoReconfig
 
     private boolean optimize = false;
 
+    private boolean lns = false;
+
     /**
      * No time limit by default.
      */
@@ -68,6 +72,8 @@ public class DefaultChocoReconfigurationAlgorithmParams implements ChocoReconfig
 
     private Map<String, SolverViewBuilder> solverViewsBuilder;
 
+    private List<SolutionListener> listeners;
+
     /**
      * New set of parameters.
      */
@@ -77,6 +83,7 @@ public class DefaultChocoReconfigurationAlgorithmParams implements ChocoReconfig
         viewMapper = ModelViewMapper.newBundle();
         amf = TransitionFactory.newBundle();
         solverViewsBuilder = new HashMap<>();
+        listeners = new CopyOnWriteArrayList<>();
         //Default solver views
         solverViewsBuilder.put(Packing.VIEW_ID, new DefaultPacking.Builder());
         solverViewsBuilder.put(Cumulatives.VIEW_ID, new DefaultCumulatives.Builder());
@@ -106,6 +113,17 @@ public class DefaultChocoReconfigurationAlgorithmParams implements ChocoReconfig
         return optimize;
     }
 
+    @Override
+    public ChocoReconfigurationAlgorithmParams doLNS(boolean b) {
+        lns = b;
+        return this;
+    }
+
+    @Override
+    public boolean doLNS() {
+        return lns;
+    }
+
     @Override
     public ModelViewMapper getViewMapper() {
         return viewMapper;
@@ -196,4 +214,19 @@ public class DefaultChocoReconfigurationAlgorithmParams implements ChocoReconfig
     public Collection<SolverViewBuilder> getSolverViews() {
         return solverViewsBuilder.values();
     }
+
+    @Override
+    public void addSolutionListener(SolutionListener l) {
+        listeners.add(l);
+    }
+
+    @Override
+    public boolean removeSolutionListener(SolutionListener l) {
+        return listeners.remove(l);
+    }
+
+    @Override
+    public Collection<SolutionListener> getSolutionListeners() {
+        return listeners;
+    }
 }
@@ -101,6 +101,8 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
 
     private TransitionFactory amFactory;
 
+    private Set<Node> staticNodes;
+
     private SolverViewsManager viewsManager;
 
     /**
@@ -124,6 +126,32 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
                                          Set<VM> sleeping,
                                          Set<VM> killed,
                                          Set<VM> preRooted) throws SolverException {
+        this(m, ps, ready, running, sleeping, killed, preRooted, Collections.<Node>emptySet());
+    }
+
+    /**
+     * Make a new RP where the next state for every VM is indicated.
+     * If the state for a VM is omitted, it is considered as unchanged
+     *
+     * @param m           the initial model
+     * @param ps          parameters to customize the problem
+     * @param ready       the VMs that must be in the ready state
+     * @param running     the VMs that must be in the running state
+     * @param sleeping    the VMs that must be in the sleeping state
+     * @param killed      the VMs that must be killed
+     * @param preRooted   the VMs that can be managed by the solver when they are already running and they must keep running
+     * @param staticNodes the online nodes that are known to stay online
+     * @throws SolverException if an error occurred
+     * @see DefaultReconfigurationProblemBuilder to ease the instantiation process
+     */
+    public DefaultReconfigurationProblem(Model m,
+                                         ChocoReconfigurationAlgorithmParams ps,
+                                         Set<VM> ready,
+                                         Set<VM> running,
+                                         Set<VM> sleeping,
+                                         Set<VM> killed,
+                                         Set<VM> preRooted,
+                                         Set<Node> staticNodes) throws SolverException {
         this.ready = new HashSet<>(ready);
         this.running = new HashSet<>(running);
         this.sleeping = new HashSet<>(sleeping);
@@ -131,6 +159,7 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
         this.manageable = new HashSet<>(preRooted);
         this.useLabels = ps.getVerbosity() > 0;
         this.amFactory = ps.getTransitionFactory();
+        this.staticNodes = staticNodes;
         model = m;
         durEval = ps.getDurationEvaluators();
 
@@ -220,7 +249,11 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
             //We don't know if the CSP has a solution
             throw new SolverException(model, "Unable to state about the problem feasibility.");
         }
+        return buildReconfigurationPlan();
+    }
 
+    @Override
+    public ReconfigurationPlan buildReconfigurationPlan() throws SolverException {
         DefaultReconfigurationPlan plan = new DefaultReconfigurationPlan(model);
         for (Transition action : nodeActions) {
             action.insertActions(plan);
@@ -323,8 +356,8 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
 
     private void fillElements() {
         Set<VM> allVMs = new HashSet<>();
-        allVMs.addAll(model.getMapping().getSleepingVMs());
-        allVMs.addAll(model.getMapping().getRunningVMs());
+        allVMs.addAll(MappingUtils.sleepingVMs(model.getMapping()));
+        allVMs.addAll(MappingUtils.runningVMs(model.getMapping()));
         allVMs.addAll(model.getMapping().getReadyVMs());
         //We have to integrate VMs in the ready state: the only VMs that may not appear in the mapping
         allVMs.addAll(ready);
@@ -402,6 +435,10 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
             Node nId = nodes[i];
             NodeState state = m.getOfflineNodes().contains(nId) ? NodeState.OFFLINE : NodeState.ONLINE;
             NodeTransitionBuilder b = amFactory.getBuilder(state);
+            if (state == NodeState.ONLINE && staticNodes.contains(nId) && amFactory.getStaticNodeBuilder() != null) {
+                //The node stays online for sure, no need to model its transition
+                b = amFactory.getStaticNodeBuilder();
+            }
             if (b == null) {
                 throw new SolverException(model, "No model available for a node transition " + state + " -> (offline|online)");
             }
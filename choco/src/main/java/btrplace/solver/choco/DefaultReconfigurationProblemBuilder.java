@@ -19,6 +19,7 @@
 package btrplace.solver.choco;
 
 import btrplace.model.Mapping;
+import btrplace.model.MappingUtils;
 import btrplace.model.Model;
 import btrplace.model.Node;
 import btrplace.model.VM;
@@ -36,6 +37,7 @@ import java.util.Set;
  * <li>All the VMs are manageable</li>
  * <li>Default ChocoReconfigurationAlgorithmParams: {@link btrplace.solver.choco.DefaultChocoReconfigurationAlgorithmParams}</li>
  * <li>The state of the VMs is unchanged</li>
+ * <li>The online nodes hosting a running VM that is not manageable and stays running are known to stay online</li>
  * </ul>
  *
  * @author Fabien Hermenier
@@ -48,6 +50,8 @@ public class DefaultReconfigurationProblemBuilder {
 
     private Set<VM> manageable;
 
+    private Set<Node> staticNodes;
+
     private ChocoReconfigurationAlgorithmParams ps;
 
     /**
@@ -102,6 +106,19 @@ public class DefaultReconfigurationProblemBuilder {
         return this;
     }
 
+    /**
+     * Set the online nodes that are known to stay online.
+     * Their transition is then modeled using
+     * {@link btrplace.solver.choco.transition.TransitionFactory#getStaticNodeBuilder()}
+     *
+     * @param nodes the set of nodes
+     * @return the current builder
+     */
+    public DefaultReconfigurationProblemBuilder setStaticNodes(Set<Node> nodes) {
+        staticNodes = nodes;
+        return this;
+    }
+
     /**
      * Build the problem
      *
@@ -125,15 +142,40 @@ public class DefaultReconfigurationProblemBuilder {
 
         if (manageable == null) {
             manageable = new HashSet<>();
-            manageable.addAll(model.getMapping().getSleepingVMs());
-            manageable.addAll(model.getMapping().getRunningVMs());
+            manageable.addAll(MappingUtils.sleepingVMs(model.getMapping()));
+            manageable.addAll(MappingUtils.runningVMs(model.getMapping()));
             manageable.addAll(model.getMapping().getReadyVMs());
         }
 
+        if (staticNodes == null) {
+            staticNodes = detectStaticNodes();
+        }
+
         if (ps == null) {
             ps = new DefaultChocoReconfigurationAlgorithmParams();
         }
-        return new DefaultReconfigurationProblem(model, ps, waits, runs, sleep, over, manageable);
+        return new DefaultReconfigurationProblem(model, ps, waits, runs, sleep, over, manageable, staticNodes);
+    }
+
+    /**
+     * Detect the online nodes that stay online for sure.
+     * A running VM that is not manageable and stays running cannot leave its host
+     * so this host must stay online.
+     *
+     * @return the set of nodes
+     */
+    private Set<Node> detectStaticNodes() {
+        Mapping map = model.getMapping();
+        Set<Node> res = new HashSet<>();
+        for (Node n : map.getOnlineNodes()) {
+            for (VM v : map.getRunningVMs(n)) {
+                if (!manageable.contains(v) && runs.contains(v)) {
+                    res.add(n);
+                    break;
+                }
+            }
+        }
+        return res;
     }
 
 }
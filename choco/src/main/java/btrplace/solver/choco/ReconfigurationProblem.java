@@ -216,6 +216,16 @@ public interface ReconfigurationProblem {
      */
     ReconfigurationPlan solve(int timeLimit, boolean optimize) throws SolverException;
 
+    /**
+     * Build the reconfiguration plan associated to the current instantiation of the variables.
+     * This method is meaningful when a solution has just been computed, for example from a
+     * {@link solver.search.loop.monitors.IMonitorSolution}.
+     *
+     * @return the resulting plan
+     * @throws SolverException if an error occurred while building the plan
+     */
+    ReconfigurationPlan buildReconfigurationPlan() throws SolverException;
+
     /**
      * Get the Solver used to model this problem.
      *
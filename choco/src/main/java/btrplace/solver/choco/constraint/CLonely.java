@@ -26,7 +26,7 @@ import btrplace.model.constraint.Constraint;
 import btrplace.model.constraint.Lonely;
 import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.extensions.Disjoint;
-import btrplace.solver.choco.extensions.Precedences;
+import btrplace.solver.choco.extensions.MultiPrecedences;
 import btrplace.solver.choco.transition.VMTransition;
 import gnu.trove.list.array.TIntArrayList;
 import solver.Solver;
@@ -95,28 +95,39 @@ public class CLonely implements ChocoConstraint {
                     }
                 }
             }
-            for (VM vm : vms) {
-                VMTransition a = rp.getVMAction(vm);
-                Precedences p = new Precedences(a.getDSlice().getHoster(),
-                        a.getDSlice().getStart(),
-                        otherPos.toArray(),
-                        otherEnds.toArray(new IntVar[otherEnds.size()]));
-                s.post(p);
+            //The VMs arriving on a node start after the end of the c-slices of the other VMs on that node
+            if (!vms.isEmpty() && !otherEnds.isEmpty()) {
+                s.post(new MultiPrecedences(dHosts(rp, vms), dStarts(rp, vms),
+                        otherPos.toArray(), otherEnds.toArray(new IntVar[otherEnds.size()]),
+                        rp.getNodes().length, s));
             }
-
-            //TODO: The following reveals a model problem. Too many constraints!!
-            for (VM vm : otherVMs) {
-                VMTransition a = rp.getVMAction(vm);
-                Precedences p = new Precedences(a.getDSlice().getHoster(),
-                        a.getDSlice().getStart(),
-                        minePos.toArray(),
-                        mineEnds.toArray(new IntVar[mineEnds.size()]));
-                s.post(p);
+            if (!otherVMs.isEmpty() && !mineEnds.isEmpty()) {
+                s.post(new MultiPrecedences(dHosts(rp, otherVMs), dStarts(rp, otherVMs),
+                        minePos.toArray(), mineEnds.toArray(new IntVar[mineEnds.size()]),
+                        rp.getNodes().length, s));
             }
         }
         return true;
     }
 
+    private static IntVar[] dHosts(ReconfigurationProblem rp, Collection<VM> vms) {
+        IntVar[] hosts = new IntVar[vms.size()];
+        int i = 0;
+        for (VM vm : vms) {
+            hosts[i++] = rp.getVMAction(vm).getDSlice().getHoster();
+        }
+        return hosts;
+    }
+
+    private static IntVar[] dStarts(ReconfigurationProblem rp, Collection<VM> vms) {
+        IntVar[] starts = new IntVar[vms.size()];
+        int i = 0;
+        for (VM vm : vms) {
+            starts[i++] = rp.getVMAction(vm).getDSlice().getStart();
+        }
+        return starts;
+    }
+
     @Override
     public Set<VM> getMisPlacedVMs(Model m) {
         Set<VM> bad = new HashSet<>();
@@ -27,7 +27,6 @@ import btrplace.model.constraint.ResourceCapacity;
 import btrplace.model.view.ShareableResource;
 import btrplace.solver.SolverException;
 import btrplace.solver.choco.ReconfigurationProblem;
-import btrplace.solver.choco.Slice;
 import btrplace.solver.choco.transition.VMTransition;
 import btrplace.solver.choco.view.AliasedCumulatives;
 import btrplace.solver.choco.view.CShareableResource;
@@ -130,15 +129,15 @@ public class CResourceCapacity implements ChocoConstraint {
             TIntArrayList cUse = new TIntArrayList();
             List<IntVar> dUse = new ArrayList<>();
 
-            for (VM vmId : rp.getVMs()) {
-                VMTransition a = rp.getVMAction(vmId);
-                Slice c = a.getCSlice();
-                Slice d = a.getDSlice();
-                if (c != null) {
-                    cUse.add(rcm.getSourceResource().getConsumption(vmId));
+            int[] cons = rcm.getVMsConsumption();
+            IntVar[] allocs = rcm.getVMsAllocation();
+            VMTransition[] actions = rp.getVMActions();
+            for (int j = 0; j < actions.length; j++) {
+                if (actions[j].getCSlice() != null) {
+                    cUse.add(cons[j]);
                 }
-                if (d != null) {
-                    dUse.add(rcm.getVMsAllocation()[rp.getVM(vmId)]);
+                if (actions[j].getDSlice() != null) {
+                    dUse.add(allocs[j]);
                 }
             }
             ChocoView v = rp.getView(AliasedCumulatives.VIEW_ID);
@@ -160,14 +159,12 @@ public class CResourceCapacity implements ChocoConstraint {
         Set<VM> bad = new HashSet<>();
         int remainder = cstr.getAmount();
         for (Node n : cstr.getInvolvedNodes()) {
-            for (VM v : map.getRunningVMs(n)) {
-                remainder -= rc.getConsumption(v);
-                if (remainder < 0) {
-                    for (Node n2 : cstr.getInvolvedNodes()) {
-                        bad.addAll(map.getRunningVMs(n2));
-                    }
-                    return bad;
+            remainder -= rc.sumConsumptions(map.getRunningVMs(n), true);
+            if (remainder < 0) {
+                for (Node n2 : cstr.getInvolvedNodes()) {
+                    bad.addAll(map.getRunningVMs(n2));
                 }
+                return bad;
             }
         }
         return bad;
@@ -28,7 +28,7 @@ import btrplace.solver.SolverException;
 import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.Slice;
 import btrplace.solver.choco.extensions.DisjointMultiple;
-import btrplace.solver.choco.extensions.Precedences;
+import btrplace.solver.choco.extensions.MultiPrecedences;
 import btrplace.solver.choco.transition.VMTransition;
 import gnu.trove.list.array.TIntArrayList;
 import solver.Solver;
@@ -105,20 +105,29 @@ public class CSplit implements ChocoConstraint {
 
         fullfillOthers(rp, otherPositions, otherEnds, vmGroups);
 
-        //Now, we just have to put way too many precedences constraint, one per VM.
+        //One precedences constraint per group, the horizons of the nodes are shared by all its VMs
+        int nbNodes = rp.getNodes().length;
         for (int i = 0; i < vmGroups.size(); i++) {
-            List<VM> grp = vmGroups.get(i);
-            for (VM vm : grp) {
+            if (otherEnds[i].isEmpty()) {
+                continue;
+            }
+            List<IntVar> hosts = new ArrayList<>();
+            List<IntVar> starts = new ArrayList<>();
+            for (VM vm : vmGroups.get(i)) {
                 if (rp.getFutureRunningVMs().contains(vm)) {
                     VMTransition a = rp.getVMAction(vm);
-                    IntVar myPos = a.getDSlice().getHoster();
-                    IntVar myStart = a.getDSlice().getStart();
-                    rp.getSolver().post(new Precedences(myPos,
-                            myStart,
-                            otherPositions[i].toArray(),
-                            otherEnds[i].toArray(new IntVar[otherEnds[i].size()])));
+                    hosts.add(a.getDSlice().getHoster());
+                    starts.add(a.getDSlice().getStart());
                 }
             }
+            if (hosts.isEmpty()) {
+                continue;
+            }
+            rp.getSolver().post(new MultiPrecedences(hosts.toArray(new IntVar[hosts.size()]),
+                    starts.toArray(new IntVar[starts.size()]),
+                    otherPositions[i].toArray(),
+                    otherEnds[i].toArray(new IntVar[otherEnds[i].size()]),
+                    nbNodes, rp.getSolver()));
         }
         return true;
     }
@@ -26,12 +26,11 @@ import btrplace.model.constraint.Constraint;
 import btrplace.model.constraint.Spread;
 import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.Slice;
-import btrplace.solver.choco.extensions.ChocoUtils;
+import btrplace.solver.choco.extensions.MultiPrecedences;
 import btrplace.solver.choco.transition.VMTransition;
+import gnu.trove.list.array.TIntArrayList;
 import solver.Solver;
-import solver.constraints.Arithmetic;
 import solver.constraints.IntConstraintFactory;
-import solver.variables.BoolVar;
 import solver.variables.IntVar;
 
 import java.util.*;
@@ -68,55 +67,40 @@ public class CSpread implements ChocoConstraint {
         s.post(IntConstraintFactory.alldifferent(running.toArray(new IntVar[running.size()]), "BC"));
 
         if (cstr.isContinuous()) {
-            VM[] vms = new VM[running.size()];
-            int x = 0;
+            //A VM cannot arrive on a node before the other VMs leave it
+            List<IntVar> dHosts = new ArrayList<>();
+            List<IntVar> dStarts = new ArrayList<>();
+            TIntArrayList cHosts = new TIntArrayList();
+            List<IntVar> cEnds = new ArrayList<>();
+            TIntArrayList owners = new TIntArrayList();
             for (VM vm : cstr.getInvolvedVMs()) {
-                vms[x++] = vm;
-            }
-            for (int i = 0; i < vms.length; i++) {
-                VM vm = vms[i];
-                VMTransition aI = rp.getVMAction(vm);
-                for (int j = 0; j < i; j++) {
-                    VM vmJ = vms[j];
-                    VMTransition aJ = rp.getVMAction(vmJ);
-                    disallowOverlap(s, aI, aJ);
+                VMTransition a = rp.getVMAction(vm);
+                Slice d = a.getDSlice();
+                Slice c = a.getCSlice();
+                int owner = -1;
+                if (d != null && rp.getFutureRunningVMs().contains(vm)) {
+                    owner = dHosts.size();
+                    dHosts.add(d.getHoster());
+                    dStarts.add(d.getStart());
                 }
+                if (c != null && c.getHoster().instantiated()) {
+                    cHosts.add(c.getHoster().getValue());
+                    cEnds.add(c.getEnd());
+                    owners.add(owner);
+                }
+            }
+            if (!dHosts.isEmpty() && !cEnds.isEmpty()) {
+                s.post(new MultiPrecedences(dHosts.toArray(new IntVar[dHosts.size()]),
+                        dStarts.toArray(new IntVar[dStarts.size()]),
+                        cHosts.toArray(),
+                        cEnds.toArray(new IntVar[cEnds.size()]),
+                        owners.toArray(),
+                        rp.getNodes().length, s));
             }
         }
         return true;
     }
 
-    private void disallowOverlap(Solver s, VMTransition t1, VMTransition t2) {
-        Slice dI = t1.getDSlice();
-        Slice cJ = t1.getCSlice();
-
-        Slice dJ = t2.getDSlice();
-        Slice cI = t2.getCSlice();
-
-        if (dI != null && cJ != null) {
-            precedenceIfOverlap(s, dI, cJ);
-        }
-        //The inverse relation
-        if (dJ != null && cI != null) {
-            precedenceIfOverlap(s, dJ, cI);
-        }
-    }
-
-    /**
-     * Establish the precedence constraint {@code c.getEnd() <= d.getStart()} if the two slices may overlap.
-     */
-    private void precedenceIfOverlap(Solver s, Slice d, Slice c) {
-        //No need to place the constraints if the slices do not have a chance to overlap
-        if (!(c.getHoster().instantiated() && !d.getHoster().contains(c.getHoster().getValue()))
-                && !(d.getHoster().instantiated() && !c.getHoster().contains(d.getHoster().getValue()))
-                ) {
-            Arithmetic eqCstr = IntConstraintFactory.arithm(d.getHoster(), "=", c.getHoster());
-            BoolVar eq = eqCstr.reif();
-            Arithmetic leqCstr = IntConstraintFactory.arithm(c.getEnd(), "<=", d.getStart());
-            ChocoUtils.postImplies(s, eq, leqCstr);
-        }
-    }
-
     private List<IntVar> placementVariables(ReconfigurationProblem rp) {
         List<IntVar> running = new ArrayList<>();
         for (VM vmId : cstr.getInvolvedVMs()) {
@@ -19,6 +19,7 @@
 package btrplace.solver.choco.constraint.mttr;
 
 import btrplace.model.Mapping;
+import btrplace.model.MappingUtils;
 import btrplace.model.Model;
 import btrplace.model.VM;
 import btrplace.model.constraint.MinMTTR;
@@ -107,7 +108,7 @@ public class CMinMTTR implements btrplace.solver.choco.constraint.CObjective {
         //Get the VMs to move
         Set<VM> onBadNodes = p.getManageableVMs();
 
-        for (VM vm : map.getSleepingVMs()) {
+        for (VM vm : MappingUtils.sleepingVMs(map)) {
             if (p.getFutureRunningVMs().contains(vm)) {
                 onBadNodes.add(vm);
             }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.constraint.mttr;
+
+import btrplace.model.VM;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.runner.SearchCustomizer;
+import solver.Solver;
+import solver.search.limits.FailCounter;
+import solver.search.loop.lns.LargeNeighborhoodSearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A customizer to optimize the placement of the VMs using
+ * a large neighborhood search (LNS).
+ * Once a first solution is computed, the search repeatedly explores
+ * a {@link MTTRNeighborhood} of the current solution under a small fail limit.
+ * <p/>
+ * The search is not complete so it runs until the time limit.
+ * It is then only meaningful for an optimization process with a time limit.
+ * Use it with {@link btrplace.solver.choco.runner.single.SingleRunner#SingleRunner(SearchCustomizer)} for example.
+ *
+ * @author Fabien Hermenier
+ */
+public class LargeNeighborhood implements SearchCustomizer {
+
+    /**
+     * The default number of fails allowed to explore a neighborhood.
+     */
+    public static final int DEFAULT_FAIL_LIMIT = 100;
+
+    private List<Collection<VM>> groups;
+
+    private long seed;
+
+    private int failLimit;
+
+    /**
+     * Make a new LNS where neighborhoods are either random or per-node.
+     *
+     * @param s the seed for the random number generator
+     */
+    public LargeNeighborhood(long s) {
+        this(s, Collections.<SatConstraint>emptyList());
+    }
+
+    /**
+     * Make a new LNS that also frees the VMs involved in a same constraint.
+     *
+     * @param s     the seed for the random number generator
+     * @param cstrs the constraints that define groups of VMs to free together
+     */
+    public LargeNeighborhood(long s, Collection<SatConstraint> cstrs) {
+        seed = s;
+        failLimit = DEFAULT_FAIL_LIMIT;
+        groups = new ArrayList<>(cstrs.size());
+        for (SatConstraint c : cstrs) {
+            if (c.getInvolvedVMs().size() > 1) {
+                groups.add(c.getInvolvedVMs());
+            }
+        }
+    }
+
+    /**
+     * Set the number of fails allowed to explore a neighborhood.
+     *
+     * @param l a positive integer
+     * @return the current instance
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public LargeNeighborhood setFailLimit(int l) {
+        if (l < 1) {
+            throw new IllegalArgumentException("The fail limit must be positive");
+        }
+        failLimit = l;
+        return this;
+    }
+
+    /**
+     * Get the number of fails allowed to explore a neighborhood.
+     *
+     * @return a positive integer
+     */
+    public int getFailLimit() {
+        return failLimit;
+    }
+
+    @Override
+    public void customize(ReconfigurationProblem rp) {
+        MTTRNeighborhood n = new MTTRNeighborhood(rp, groups, seed);
+        if (n.getVariables().length == 0) {
+            return;
+        }
+        Solver s = rp.getSolver();
+        LargeNeighborhoodSearch lns = new LargeNeighborhoodSearch(s, n, true);
+        s.getSearchLoop().plugSearchMonitor(lns);
+        //Restart on a new neighborhood once the fail limit is reached
+        FailCounter fc = new FailCounter(failLimit);
+        fc.setAction(lns);
+        s.getSearchLoop().plugSearchMonitor(fc);
+    }
+
+    @Override
+    public String toString() {
+        return "lns(seed=" + seed + ", failLimit=" + failLimit + ", groups=" + groups.size() + ")";
+    }
+}
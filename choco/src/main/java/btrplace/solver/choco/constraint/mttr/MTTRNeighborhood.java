@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.constraint.mttr;
+
+import btrplace.model.VM;
+import btrplace.solver.choco.ReconfigurationProblem;
+import gnu.trove.list.array.TIntArrayList;
+import solver.ICause;
+import solver.exception.ContradictionException;
+import solver.search.loop.lns.neighbors.INeighbor;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A neighborhood for a large neighborhood search over the placement of the VMs.
+ * Around the current solution, the neighborhood frees a subset of the hosting variables
+ * and fixes the others to their value in the solution.
+ * <p/>
+ * Three ways of selecting the VMs to free are used in turn:
+ * <ul>
+ * <li>random: VMs are picked up randomly</li>
+ * <li>per-node: all the VMs that are hosted on randomly picked nodes, either currently or in the solution</li>
+ * <li>per-group: all the VMs of randomly picked groups, typically the VMs involved in a same constraint.
+ * This mode is skipped when there is no group</li>
+ * </ul>
+ * The number of VMs to free starts small and grows each time a neighborhood is explored
+ * without finding any improving solution. It is reset to its initial value on each new solution.
+ *
+ * @author Fabien Hermenier
+ */
+public class MTTRNeighborhood implements INeighbor {
+
+    private static final int RANDOM = 0;
+
+    private static final int PER_NODE = 1;
+
+    private static final int PER_GROUP = 2;
+
+    private IntVar[] hosts;
+
+    /**
+     * The current location of the VM associated to each hosting variable. -1 if unknown.
+     */
+    private int[] curLocations;
+
+    /**
+     * The hosting variable indexes related to each node, either currently or in the solution.
+     * The variables of node {@code n} are stored in {@code onNodes[nodeStart[n] .. nodeStart[n + 1] - 1]}.
+     * Updated on each solution.
+     */
+    private int[] onNodes;
+
+    private int[] nodeStart;
+
+    /**
+     * The hosting variable indexes, per group.
+     */
+    private List<int[]> groups;
+
+    private int[] solution;
+
+    private Random rnd;
+
+    private int size;
+
+    private int initSize;
+
+    private int nbCalls;
+
+    private BitSet free;
+
+    /**
+     * Make a new neighborhood.
+     *
+     * @param p    the problem to rely on
+     * @param grps groups of VMs to free together. May be empty
+     * @param seed the seed for the random number generator
+     */
+    public MTTRNeighborhood(ReconfigurationProblem p, Collection<? extends Collection<VM>> grps, long seed) {
+        List<IntVar> hs = new ArrayList<>();
+        TIntArrayList idx = new TIntArrayList();
+        int[] varIdx = new int[p.getVMs().length];
+        for (int i = 0; i < p.getVMs().length; i++) {
+            VM vm = p.getVM(i);
+            varIdx[i] = -1;
+            if (p.getFutureRunningVMs().contains(vm)) {
+                varIdx[i] = hs.size();
+                hs.add(p.getVMAction(vm).getDSlice().getHoster());
+                idx.add(i);
+            }
+        }
+        hosts = hs.toArray(new IntVar[hs.size()]);
+        curLocations = new int[hosts.length];
+        for (int i = 0; i < hosts.length; i++) {
+            curLocations[i] = p.getCurrentVMLocation(idx.get(i));
+        }
+        solution = new int[hosts.length];
+        onNodes = new int[hosts.length * 2];
+        nodeStart = new int[p.getNodes().length + 1];
+        free = new BitSet(hosts.length);
+
+        groups = new ArrayList<>(grps.size());
+        for (Collection<VM> g : grps) {
+            TIntArrayList l = new TIntArrayList(g.size());
+            for (VM vm : g) {
+                int i = p.getVM(vm);
+                if (i >= 0 && varIdx[i] >= 0) {
+                    l.add(varIdx[i]);
+                }
+            }
+            if (!l.isEmpty()) {
+                groups.add(l.toArray());
+            }
+        }
+        rnd = new Random(seed);
+        initSize = Math.min(hosts.length, 10);
+        size = initSize;
+    }
+
+    /**
+     * Get the hosting variables the neighborhood relies on.
+     *
+     * @return an array of variables that may be empty
+     */
+    public IntVar[] getVariables() {
+        return hosts;
+    }
+
+    /**
+     * Get the current number of VMs to free.
+     *
+     * @return a positive integer
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public void recordSolution() {
+        for (int i = 0; i < hosts.length; i++) {
+            solution[i] = hosts[i].getValue();
+        }
+        //An improving solution, restart with small neighborhoods
+        size = initSize;
+        indexPerNode();
+    }
+
+    /**
+     * Index the hosting variables per node, either currently or in the solution.
+     */
+    private void indexPerNode() {
+        Arrays.fill(nodeStart, 0);
+        for (int i = 0; i < hosts.length; i++) {
+            nodeStart[solution[i]]++;
+            if (curLocations[i] >= 0 && curLocations[i] != solution[i]) {
+                nodeStart[curLocations[i]]++;
+            }
+        }
+        //nodeStart[n] is now the end of the range of node n
+        for (int n = 1; n < nodeStart.length; n++) {
+            nodeStart[n] += nodeStart[n - 1];
+        }
+        //Fill each range from its end, so nodeStart[n] ends up at its beginning
+        for (int i = hosts.length - 1; i >= 0; i--) {
+            onNodes[--nodeStart[solution[i]]] = i;
+            if (curLocations[i] >= 0 && curLocations[i] != solution[i]) {
+                onNodes[--nodeStart[curLocations[i]]] = i;
+            }
+        }
+    }
+
+    @Override
+    public void fixSomeVariables(ICause cause) throws ContradictionException {
+        int mode = nbCalls++ % (groups.isEmpty() ? 2 : 3);
+        free.clear();
+        if (mode == RANDOM) {
+            freeRandomly();
+        } else if (mode == PER_NODE) {
+            freePerNode();
+        } else if (mode == PER_GROUP) {
+            freePerGroup();
+        }
+        for (int i = free.nextClearBit(0); i < hosts.length; i = free.nextClearBit(i + 1)) {
+            hosts[i].instantiateTo(solution[i], cause);
+        }
+    }
+
+    private void freeRandomly() {
+        while (free.cardinality() < size) {
+            free.set(rnd.nextInt(hosts.length));
+        }
+    }
+
+    private void freePerNode() {
+        int nbNodes = nodeStart.length - 1;
+        for (int tries = 0; free.cardinality() < size && tries < nbNodes * 2; tries++) {
+            int n = rnd.nextInt(nbNodes);
+            for (int k = nodeStart[n]; k < nodeStart[n + 1]; k++) {
+                free.set(onNodes[k]);
+            }
+        }
+    }
+
+    private void freePerGroup() {
+        for (int tries = 0; free.cardinality() < size && tries < groups.size() * 2; tries++) {
+            for (int i : groups.get(rnd.nextInt(groups.size()))) {
+                free.set(i);
+            }
+        }
+    }
+
+    @Override
+    public void restrictLess() {
+        size = Math.min(hosts.length, size + Math.max(1, size / 2));
+    }
+
+    @Override
+    public boolean isSearchComplete() {
+        return size >= hosts.length;
+    }
+}
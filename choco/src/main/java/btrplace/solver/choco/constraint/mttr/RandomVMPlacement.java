@@ -71,9 +71,22 @@ public class RandomVMPlacement implements InValueIterator {
      * @param stayFirst   {@code true} to force an already VM to stay on its current node if possible
      */
     public RandomVMPlacement(ReconfigurationProblem p, Map<IntVar, VM> pVarMapping, TIntHashSet[] priorities, boolean stayFirst) {
+        this(p, pVarMapping, priorities, stayFirst, new Random());
+    }
+
+    /**
+     * Make a new heuristic that relies on a given random number generator.
+     *
+     * @param p           the problem to rely on
+     * @param pVarMapping a map to indicate the VM associated to each of the placement variable
+     * @param priorities  a list of favorites servers. Servers in rank i will be favored wrt. servers in rank i + 1. May be {@code null}
+     * @param stayFirst   {@code true} to force an already VM to stay on its current node if possible
+     * @param r           the random number generator to use
+     */
+    public RandomVMPlacement(ReconfigurationProblem p, Map<IntVar, VM> pVarMapping, TIntHashSet[] priorities, boolean stayFirst, Random r) {
         stay = stayFirst;
         this.rp = p;
-        rnd = new Random();
+        rnd = r;
         vmPlacement = pVarMapping;
         this.ranks = priorities;
     }
@@ -19,7 +19,6 @@
 package btrplace.solver.choco.extensions;
 
 
-import gnu.trove.map.hash.TIntIntHashMap;
 import memory.IStateInt;
 import memory.IStateIntVector;
 import org.slf4j.Logger;
@@ -65,13 +64,20 @@ public class AliasedCumulativesFiltering {
 
     public static final int NO_ASSOCIATIONS = -1;
 
-    private int[] sortedMinProfile;
-
-    private TIntIntHashMap[] profilesMin;
+    /**
+     * What is necessarily used on the resource.
+     */
+    private Profile profileMin;
 
-    private TIntIntHashMap[] profilesMax;
+    /**
+     * Maximum possible usage on the resource.
+     */
+    private Profile profileMax;
 
-    private int[] sortedMaxProfile;
+    /**
+     * The resource usage at startup for each dimension.
+     */
+    private int[] startupUsage;
 
     /**
      * LB of the moment the last c-slice leaves.
@@ -118,12 +124,10 @@ public class AliasedCumulativesFiltering {
         //The amount of free resources at startup
 
         startupFree = new int[nbDims];
-        profilesMax = new TIntIntHashMap[nbDims];
-        profilesMin = new TIntIntHashMap[nbDims];
+        profileMax = new Profile(nbDims);
+        profileMin = new Profile(nbDims);
         for (int i = 0; i < capacities.length; i++) {
             startupFree[i] = capacities[i];
-            profilesMax[i] = new TIntIntHashMap();
-            profilesMin[i] = new TIntIntHashMap();
         }
 
         int lastInf = out.isEmpty() ? 0 : Integer.MAX_VALUE;
@@ -145,6 +149,11 @@ public class AliasedCumulativesFiltering {
         }
         this.lastCendInf = cEnds[0].getSolver().getEnvironment().makeInt(lastInf);
         this.lastCendSup = cEnds[0].getSolver().getEnvironment().makeInt(lastSup);
+
+        startupUsage = new int[nbDims];
+        for (int i = 0; i < nbDims; i++) {
+            startupUsage[i] = capacities[i] - startupFree[i];
+        }
     }
 
     public boolean propagate() throws ContradictionException {
@@ -158,34 +167,12 @@ public class AliasedCumulativesFiltering {
         return true;
     }
 
-    /**
-     * Translation for a relatives resources changes to an absolute free resources.
-     *
-     * @param changes       the map that indicates the free CPU variation
-     * @param sortedMoments the different moments sorted in ascending order
-     */
-    private static void toAbsoluteFreeResources(TIntIntHashMap changes, int[] sortedMoments) {
-        for (int i = 1; i < sortedMoments.length; i++) {
-            int t = sortedMoments[i];
-            int lastT = sortedMoments[i - 1];
-            int lastFree = changes.get(lastT);
-
-            changes.put(t, changes.get(t) + lastFree);
-        }
-    }
-
     public void computeProfiles() {
 
-        for (int i = 0; i < nbDims; i++) {
-            //sure about what is used on the resource
-            profilesMin[i].clear();
-
-            //simultaneous max in the worst case on the resource
-            profilesMax[i].clear();
-
-            profilesMax[i].put(0, capacities[i] - startupFree[i]);
-            profilesMin[i].put(0, capacities[i] - startupFree[i]);
-        }
+        profileMin.clear();
+        profileMax.clear();
+        profileMax.add(0, startupUsage);
+        profileMin.add(0, startupUsage);
 
         int lastInf = out.isEmpty() ? 0 : Integer.MAX_VALUE;
         int lastSup = 0;
@@ -201,14 +188,10 @@ public class AliasedCumulativesFiltering {
                 if (DEBUG) {
                     LOGGER.debug("{} increasing", cEnds[j].toString());
                 }
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMax[i].put(t, profilesMax[i].get(t) - cUsages[i][j]);
-                }
+                profileMax.add(t, cUsages, j, -1);
 
             } else {
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMin[i].put(t, profilesMin[i].get(t) - cUsages[i][j]);
-                }
+                profileMin.add(t, cUsages, j, -1);
 
             }
 
@@ -217,13 +200,9 @@ public class AliasedCumulativesFiltering {
                 lastSup = t;
             }
             if (associatedToDSliceOnCurrentNode(j) && increase(j, revAssociations[j])) {
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMin[i].put(t, profilesMin[i].get(t) - cUsages[i][j]);
-                }
+                profileMin.add(t, cUsages, j, -1);
             } else {
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMax[i].put(t, profilesMax[i].get(t) - cUsages[i][j]);
-                }
+                profileMax.add(t, cUsages, j, -1);
             }
         }
         if (out.isEmpty()) {
@@ -234,32 +213,14 @@ public class AliasedCumulativesFiltering {
         lastCendInf.set(lastInf);
         lastCendSup.set(lastSup);
 
-        for (int i = 0; i < nbDims; i++) {
-            for (int x = 0; x < vIn.size(); x++) {
-                int j = vIn.get(x);
-                int t = dStarts[j].getUB();
-                profilesMin[i].put(t, profilesMin[i].get(t) + dUsages[i][j]);
-                t = dStarts[j].getLB();
-                profilesMax[i].put(t, profilesMax[i].get(t) + dUsages[i][j]);
-            }
+        for (int x = 0; x < vIn.size(); x++) {
+            int j = vIn.get(x);
+            profileMin.add(dStarts[j].getUB(), dUsages, j, 1);
+            profileMax.add(dStarts[j].getLB(), dUsages, j, 1);
         }
         //Now transforms into an absolute profile
-        sortedMinProfile = null;
-        sortedMinProfile = profilesMin[0].keys();
-        Arrays.sort(sortedMinProfile);
-
-        sortedMaxProfile = null;
-        sortedMaxProfile = profilesMax[0].keys();
-        for (int i = 0; i < nbDims; i++) {
-            profilesMax[i].keys(sortedMaxProfile);
-        }
-
-        Arrays.sort(sortedMaxProfile);
-
-        for (int i = 0; i < nbDims; i++) {
-            toAbsoluteFreeResources(profilesMin[i], sortedMinProfile);
-            toAbsoluteFreeResources(profilesMax[i], sortedMaxProfile);
-        }
+        profileMin.build();
+        profileMax.build();
 
         if (DEBUG) {
             LOGGER.debug("--- startup=(" + Arrays.toString(startupFree) + ")"
@@ -275,10 +236,8 @@ public class AliasedCumulativesFiltering {
             LOGGER.debug("---");
 
 
-            for (int i = 0; i < nbDims; i++) {
-                LOGGER.debug("profileMin(dim {})= {}", i, prettyProfile(sortedMinProfile, profilesMin[i]));
-                LOGGER.debug("profileMax(dim {})= {}", i, prettyProfile(sortedMaxProfile, profilesMax[i]));
-            }
+            LOGGER.debug("profileMin= {}", profileMin);
+            LOGGER.debug("profileMax= {}", profileMax);
         }
     }
 
@@ -311,31 +270,14 @@ public class AliasedCumulativesFiltering {
                 && out.get(associations[dSlice]);
     }
 
-    private String prettyProfile(int[] ascMoments, TIntIntHashMap prof) {
-        StringBuilder b = new StringBuilder();
-        for (int i = 0; i < ascMoments.length; i++) {
-            int t = ascMoments[i];
-            b.append(t);
-            b.append(":(");
-            b.append(prof.get(t));
-            b.append(",");
-            b.append(prof.get(t));
-            b.append(")");
-            if (i != ascMoments.length - 1) {
-                b.append(" ");
-            }
-        }
-        return b.toString();
-    }
-
     public boolean checkInvariant() {
-        for (int x = 0; x < sortedMinProfile.length; x++) {
-            int t = sortedMinProfile[x];
+        for (int x = 0; x < profileMin.size(); x++) {
+            int t = profileMin.getMoment(x);
             for (int i = 0; i < nbDims; i++) {
-                if (profilesMin[i].get(t) > capacities[i]) {
+                if (profileMin.getUsage(i, x) > capacities[i]) {
                     if (DEBUG) {
                         LOGGER.debug("Invalid min profile at " + t + " on dimension " + i
-                                + ": " + profilesMin[i].get(t) + " > " + capacities[i]);
+                                + ": " + profileMin.getUsage(i, x) + " > " + capacities[i]);
                     }
                     return false;
                 }
@@ -350,17 +292,14 @@ public class AliasedCumulativesFiltering {
             int i = vIn.get(idx);
             if (!dStarts[i].instantiated() && !associatedToCSliceOnCurrentNode(i)) {
 
-                int[] myUsage = getUsages(dUsages, i);
-
                 int lastT = -1;
-                for (int x = sortedMinProfile.length - 1; x >= 0; x--) {
-                    int t = sortedMinProfile[x];
+                for (int x = profileMin.size() - 1; x >= 0; x--) {
+                    int t = profileMin.getMoment(x);
                     if (t <= dStarts[i].getLB()) {
                         break;
                     }
-                    int prevT = sortedMinProfile[x - 1];
                     if (t <= dStarts[i].getUB()
-                            && exceedCapacity(profilesMin, prevT, myUsage)) {
+                            && exceedCapacity(profileMin, x - 1, dUsages, i)) {
                         lastT = t;
                         break;
                     }
@@ -377,9 +316,9 @@ public class AliasedCumulativesFiltering {
 
         int[] myCapacity = capacities;
         int lastSup = -1;
-        for (int i = sortedMaxProfile.length - 1; i >= 0; i--) {
-            int t = sortedMaxProfile[i];
-            if (!exceedCapacity(profilesMax, t, myCapacity)) {
+        for (int x = profileMax.size() - 1; x >= 0; x--) {
+            int t = profileMax.getMoment(x);
+            if (!exceedCapacity(profileMax, x, myCapacity)) {
                 lastSup = t;
             } else {
                 break;
@@ -400,14 +339,13 @@ public class AliasedCumulativesFiltering {
         for (int i = out.nextSetBit(0); i >= 0; i = out.nextSetBit(i + 1)) {
             if (!cEnds[i].instantiated() && !associatedToDSliceOnCurrentNode(i)) {
 
-                int[] myUsage = getUsages(cUsages, i);
                 int lastT = -1;
-                for (int x = 0; x < sortedMinProfile.length; x++) {
-                    int t = sortedMinProfile[x];
+                for (int x = 0; x < profileMin.size(); x++) {
+                    int t = profileMin.getMoment(x);
                     if (t >= cEnds[i].getUB()) {
                         break;
                     } else if (t >= cEnds[i].getLB() &&
-                            exceedCapacity(profilesMin, t, myUsage)) {
+                            exceedCapacity(profileMin, x, cUsages, i)) {
                         lastT = t;
                         break;
                     }
@@ -423,20 +361,21 @@ public class AliasedCumulativesFiltering {
         }
     }
 
-    private boolean exceedCapacity(TIntIntHashMap[] profiles, int t, int[] usage) {
-        for (int i = 0; i < nbDims; i++) {
-            if (profiles[i].get(t) + usage[i] > capacities[i]) {
+    private boolean exceedCapacity(Profile profile, int x, int[][] usages, int j) {
+        for (int d = 0; d < nbDims; d++) {
+            if (profile.getUsage(d, x) + usages[d][j] > capacities[d]) {
                 return true;
             }
         }
         return false;
     }
 
-    private int[] getUsages(int[][] usages, int i) {
-        int[] u = new int[nbDims];
-        for (int x = 0; x < nbDims; x++) {
-            u[x] = usages[x][i];
+    private boolean exceedCapacity(Profile profile, int x, int[] usage) {
+        for (int i = 0; i < nbDims; i++) {
+            if (profile.getUsage(i, x) + usage[i] > capacities[i]) {
+                return true;
+            }
         }
-        return u;
+        return false;
     }
 }
@@ -23,6 +23,7 @@ import solver.Solver;
 import solver.constraints.Constraint;
 import solver.constraints.IntConstraintFactory;
 import solver.variables.BoolVar;
+import solver.variables.IntVar;
 import solver.variables.VariableFactory;
 
 import static solver.constraints.LogicalConstraintFactory.and;
@@ -70,4 +71,34 @@ public final class ChocoUtils {
         BoolVar notBC2 = bC2.not();
         s.post(or(and(b1, bC2), and(notBC1, notBC2)));
     }
+
+    /**
+     * Extract a subset of an array.
+     *
+     * @param a   the array
+     * @param idx the indexes to keep
+     * @return the selected values, in the order of {@code idx}
+     */
+    public static int[] select(int[] a, int[] idx) {
+        int[] res = new int[idx.length];
+        for (int i = 0; i < idx.length; i++) {
+            res[i] = a[idx[i]];
+        }
+        return res;
+    }
+
+    /**
+     * Extract a subset of an array.
+     *
+     * @param a   the array
+     * @param idx the indexes to keep
+     * @return the selected variables, in the order of {@code idx}
+     */
+    public static IntVar[] select(IntVar[] a, int[] idx) {
+        IntVar[] res = new IntVar[idx.length];
+        for (int i = 0; i < idx.length; i++) {
+            res[i] = a[idx[i]];
+        }
+        return res;
+    }
 }
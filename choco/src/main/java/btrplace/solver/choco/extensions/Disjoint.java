@@ -28,10 +28,8 @@ import solver.constraints.PropagatorPriority;
 import solver.exception.ContradictionException;
 import solver.variables.EventType;
 import solver.variables.IntVar;
-import solver.variables.delta.IIntDeltaMonitor;
 import util.ESat;
 import util.iterators.DisposableValueIterator;
-import util.procedure.UnaryIntProcedure;
 import util.tools.ArrayUtils;
 
 import java.util.BitSet;
@@ -39,6 +37,11 @@ import java.util.BitSet;
 /**
  * Enforces two sets of variables values to be disjoint
  * created sofdem - 08/09/11
+ * <p/>
+ * For each value, a reversible bitset indexed by the variables tells which
+ * variables may still be assigned to the value. When a variable is instantiated,
+ * the value is removed from the variables of the other group by iterating over
+ * the set bits only.
  *
  * @author Sophie Demassey
  */
@@ -55,15 +58,18 @@ public class Disjoint extends IntConstraint<IntVar> {
     private final int nbValues;
 
     /**
-     * candidates[g][v] = number of variables in group 'g' which can be assigned to the value 'v',
-     * with g = 0 || 1 and 0 <= v < nbValues
+     * holders[v].get(i) iff the value 'v' may be in the domain of the variable 'i',
+     * with 0 <= v < nbValues and 0 <= i < vars.length.
+     * The bits are not cleared when a value is removed by another constraint. They are cleared
+     * lazily when the value becomes required: a value is never in the domain of a variable with a cleared bit
      */
-    private IStateInt[][] candidates;
+    private IStateBitSet[] holders;
+
     /**
-     * required[g].get(v) iff at least one variable in the group 'g' is assigned to the value 'v',
-     * with g = 0 || 1 and 0 <= v < nbValues
+     * owner[v] = the group having a variable assigned to the value 'v', -1 if there is none
+     * with 0 <= v < nbValues
      */
-    private IStateBitSet[] required;
+    private IStateInt[] owner;
 
     /**
      * @param s solver
@@ -75,13 +81,11 @@ public class Disjoint extends IntConstraint<IntVar> {
         super(ArrayUtils.append(x, y), s);
         this.nbX = x.length;
         this.nbValues = c;
-        candidates = new IStateInt[2][c];
-        required = new IStateBitSet[2];
-        required[0] = s.getEnvironment().makeBitSet(c);
-        required[1] = s.getEnvironment().makeBitSet(c);
+        holders = new IStateBitSet[c];
+        owner = new IStateInt[c];
         for (int v = 0; v < c; v++) {
-            candidates[0][v] = s.getEnvironment().makeInt(0);
-            candidates[1][v] = s.getEnvironment().makeInt(0);
+            holders[v] = s.getEnvironment().makeBitSet(x.length + y.length);
+            owner[v] = s.getEnvironment().makeInt(-1);
         }
         setPropagators(new DisjointPropagator(x, y));
     }
@@ -103,30 +107,15 @@ public class Disjoint extends IntConstraint<IntVar> {
 
     class DisjointPropagator extends Propagator<IntVar> {
 
-        private IIntDeltaMonitor[] idms;
-
         private boolean first = true;
 
-        private RemProc remProc;
-
-        private IntVar[][] groups;
-
         public DisjointPropagator(IntVar[] g1, IntVar[] g2) {
             super(ArrayUtils.append(g1, g2), PropagatorPriority.VERY_SLOW, true);
-            idms = new IIntDeltaMonitor[vars.length];
-            int i = 0;
-            for (IntVar v : vars) {
-                idms[i++] = v.monitorDelta(aCause);
-            }
-            remProc = new RemProc();
-            groups = new IntVar[2][];
-            groups[0] = g1;
-            groups[1] = g2;
         }
 
         @Override
         protected int getPropagationConditions(int vIdx) {
-            return EventType.BOUND.mask + EventType.INSTANTIATE.mask;
+            return EventType.INSTANTIATE.mask;
         }
 
         @Override
@@ -135,54 +124,16 @@ public class Disjoint extends IntConstraint<IntVar> {
                 awake();
                 first = false;
             }
-
-            for (int v = 0; v < nbValues; v++) {
-                //Check if the value 'v' is required by a group
-                if (required[0].get(v)) {
-                    //Required by group 0
-                    setRequired(v, 0, 1);
-                }
-                if (required[1].get(v)) {
-                    setRequired(v, 1, 0);
+            for (int i = 0; i < vars.length; i++) {
+                if (vars[i].instantiated()) {
+                    setRequired(vars[i].getValue(), i < nbX ? 0 : 1);
                 }
             }
         }
 
-        private void filterInst(int idx, int g) throws ContradictionException {
-            int val = groups[g][idx].getLB();
-            int otherGroup = 1 - g;
-            //Required in the group
-            required[g].set(val);
-            //Forbidden for the other
-            required[otherGroup].clear(val);
-
-            //remove the value for the domains of the other groups
-            int i = 0;
-            for (IntVar v : groups[otherGroup]) {
-                if (v.removeValue(val, aCause)) {
-                    candidates[otherGroup][val].add(-1);
-                    if (v.instantiated()) {
-                        filterInst(i, otherGroup);
-                    }
-                }
-                i++;
-            }
-            //remove the candidates for the delta domain
-            idms[idx + g * nbX].freeze();
-            idms[idx + g * nbX].forEach(remProc.set(idx + g * nbX), EventType.REMOVE);
-            idms[idx + g * nbX].unfreeze();
-        }
-
         @Override
         public void propagate(int idx, int mask) throws ContradictionException {
-            if (EventType.isInstantiate(mask)) {
-                int group = (idx < nbX) ? 0 : 1;
-                filterInst(idx - group * nbX, group);
-            } else if (EventType.isBound(mask)) {
-                idms[idx].freeze();
-                idms[idx].forEach(remProc.set(idx), EventType.REMOVE);
-                idms[idx].unfreeze();
-            }
+            setRequired(vars[idx].getValue(), idx < nbX ? 0 : 1);
         }
 
         @Override
@@ -201,35 +152,24 @@ public class Disjoint extends IntConstraint<IntVar> {
         }
 
         /**
-         * Initialise required and candidate for a given variable
-         * that belong to a given group.
+         * Declare a variable as a holder of each value in its domain.
          *
-         * @param var   the variable
-         * @param group the group of the variable
+         * @param idx the variable index
          */
-        private void initVar(IntVar var, int group) {
-            if (var.instantiated()) {
-                required[group].set(var.getValue());
-            } else {
-                DisposableValueIterator it = var.getValueIterator(true);
-                try {
-                    while (it.hasNext()) {
-                        int val = it.next();
-                        candidates[group][val].add(1);
-                    }
-                } finally {
-                    it.dispose();
+        private void initVar(int idx) {
+            DisposableValueIterator it = vars[idx].getValueIterator(true);
+            try {
+                while (it.hasNext()) {
+                    holders[it.next()].set(idx);
                 }
+            } finally {
+                it.dispose();
             }
         }
 
         public void awake() {
-            int i = 0;
-            for (; i < nbX; i++) {
-                initVar(vars[i], 0);
-            }
-            for (; i < vars.length; i++) {
-                initVar(vars[i], 1);
+            for (int i = 0; i < vars.length; i++) {
+                initVar(i);
             }
         }
 
@@ -240,49 +180,28 @@ public class Disjoint extends IntConstraint<IntVar> {
          *
          * @param val   the new assigned value
          * @param group the group of the new instantiated variable
-         * @param other the other group (other = 1-group)
          * @throws ContradictionException when some variables in both groups are instantiated to the same value
          */
-        public boolean setRequired(int val, int group, int other) throws ContradictionException {
-
-            if (required[other].get(val)) {
+        public void setRequired(int val, int group) throws ContradictionException {
+            int o = owner[val].get();
+            if (o == group) {
+                //Already done
+                return;
+            }
+            if (o >= 0) {
                 //The value is used in the other group. It's a contradiction
                 contradiction(null, "");
             }
-            if (candidates[other][val].get() > 0) {
-                //The value was possible for the other group, so we remove it from its variable
-                //n is the number of variables that were updated
-                int n = 0;
-                int i = (other == 0) ? 0 : nbX;
-                int end = (other == 0) ? nbX : vars.length;
-                for (; i < end; i++) {
-                    if (vars[i].removeValue(val, aCause)) {
-                        n++;
-                    }
+            owner[val].set(group);
+            IStateBitSet h = holders[val];
+            //Only the words of the other group having a set bit are visited
+            int end = group == 0 ? vars.length : nbX;
+            for (int i = h.nextSetBit(group == 0 ? nbX : 0); i >= 0 && i < end; i = h.nextSetBit(i + 1)) {
+                h.clear(i);
+                if (vars[i].removeValue(val, aCause) && vars[i].instantiated()) {
+                    setRequired(vars[i].getValue(), 1 - group);
                 }
-                assert n == candidates[other][val].get() : n + " variables in group '" + other + "' were updated for value '" + val + "' but candidate was equals to " + candidates[other][val].get();
-                candidates[other][val].set(0);
-                return true;
             }
-            required[group].set(val);
-            return false;
         }
     }
-
-    private class RemProc implements UnaryIntProcedure<Integer> {
-        private int var;
-
-        @Override
-        public UnaryIntProcedure set(Integer idxVar) {
-            this.var = idxVar;
-            return this;
-        }
-
-        @Override
-        public void execute(int val) throws ContradictionException {
-            int group = (var < nbX) ? 0 : 1;
-            candidates[group][val].add(-1);
-        }
-    }
-
 }
@@ -28,10 +28,8 @@ import solver.constraints.PropagatorPriority;
 import solver.exception.ContradictionException;
 import solver.variables.EventType;
 import solver.variables.IntVar;
-import solver.variables.delta.IIntDeltaMonitor;
 import util.ESat;
 import util.iterators.DisposableValueIterator;
-import util.procedure.UnaryIntProcedure;
 import util.tools.ArrayUtils;
 
 import java.util.BitSet;
@@ -39,6 +37,12 @@ import java.util.BitSet;
 /**
  * Enforces multiple sets of variables values to be disjoint
  * created sofdem - 08/09/11
+ * <p/>
+ * For each value, a reversible bitset indexed by the variables tells which
+ * variables may still be assigned to the value. When a variable is instantiated,
+ * the value is removed from the variables of the other groups by iterating over
+ * the set bits only, so the cost depends on the number of words and on the number
+ * of variables actually impacted rather than on the size of the groups.
  *
  * @author Sophie Demassey
  */
@@ -61,15 +65,18 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
     private final int[] groupIdx;
 
     /**
-     * candidates[g][v] = number of variables in group 'g' which can be assigned to value 'v',
-     * with 0 <= g < nbGroups and 0 <= v < nbValues
+     * holders[v].get(i) iff the value 'v' may be in the domain of the variable 'i',
+     * with 0 <= v < nbValues and 0 <= i < vars.length.
+     * The bits are not cleared when a value is removed by another constraint. They are cleared
+     * lazily when the value becomes required: a value is never in the domain of a variable with a cleared bit
      */
-    private IStateInt[][] candidates;
+    private IStateBitSet[] holders;
+
     /**
-     * required[g].get(v) iff at least one variable in group 'g' is assigned to value 'v',
-     * with 0 <= g < nbGroups and 0 <= v < nbValues
+     * owner[v] = the group having a variable assigned to the value 'v', -1 if there is none
+     * with 0 <= v < nbValues
      */
-    private IStateBitSet[] required;
+    private IStateInt[] owner;
 
     /**
      * @param s  solver
@@ -81,17 +88,17 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
         nbValues = c;
         nbGroups = vs.length;
         groupIdx = new int[nbGroups + 1];
-        candidates = new IStateInt[nbGroups][c];
-        required = new IStateBitSet[nbGroups];
         groupIdx[0] = 0;
         int idx = 0;
         for (int g = 0; g < nbGroups; g++) {
             idx += vs[g].length;
             groupIdx[g + 1] = idx;
-            required[g] = s.getEnvironment().makeBitSet(c);
-            for (int v = 0; v < c; v++) {
-                candidates[g][v] = s.getEnvironment().makeInt(0);
-            }
+        }
+        holders = new IStateBitSet[c];
+        owner = new IStateInt[c];
+        for (int v = 0; v < c; v++) {
+            holders[v] = s.getEnvironment().makeBitSet(idx);
+            owner[v] = s.getEnvironment().makeInt(-1);
         }
         setPropagators(new DisjointPropagator(vs));
     }
@@ -125,7 +132,7 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
                     return ESat.FALSE;
                 }
             }
-            for (int i = groupIdx[g + 1]; i < groupIdx[nbGroups + 1]; i++) {
+            for (int i = groupIdx[g + 1]; i < groupIdx[nbGroups]; i++) {
                 if (valuesOne.get(tuple[i])) {
                     return ESat.FALSE;
                 }
@@ -137,25 +144,15 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
 
     class DisjointPropagator extends Propagator<IntVar> {
 
-        private IIntDeltaMonitor[] idms;
-
         private boolean first = true;
 
-        private RemProc remProc;
-
         public DisjointPropagator(IntVar[][] g) {
             super(ArrayUtils.flatten(g), PropagatorPriority.VERY_SLOW, true);
-            idms = new IIntDeltaMonitor[vars.length];
-            int i = 0;
-            for (IntVar v : vars) {
-                idms[i++] = v.monitorDelta(aCause);
-            }
-            remProc = new RemProc();
         }
 
         @Override
         protected int getPropagationConditions(int vIdx) {
-            return EventType.REMOVE.mask + EventType.INSTANTIATE.mask;
+            return EventType.INSTANTIATE.mask;
         }
 
         @Override
@@ -181,24 +178,18 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
         }
 
         /**
-         * Initialise required and candidate for a given variable that belong to a given group.
+         * Declare a variable as a holder of each value in its domain.
          *
-         * @param var   the variable
-         * @param group the group of the variable
+         * @param idx the variable index
          */
-        private void initVar(IntVar var, int group) {
-            if (var.instantiated()) {
-                required[group].set(var.getValue());
-            } else {
-                DisposableValueIterator it = var.getValueIterator(true);
-                try {
-                    while (it.hasNext()) {
-                        int val = it.next();
-                        candidates[group][val].add(1);
-                    }
-                } finally {
-                    it.dispose();
+        private void initVar(int idx) {
+            DisposableValueIterator it = vars[idx].getValueIterator(true);
+            try {
+                while (it.hasNext()) {
+                    holders[it.next()].set(idx);
                 }
+            } finally {
+                it.dispose();
             }
         }
 
@@ -206,85 +197,60 @@ public class DisjointMultiple extends IntConstraint<IntVar> {
         public void propagate(int m) throws ContradictionException {
             if (first) {
                 first = false;
-                int i = 0;
-                for (int g = 0; g < nbGroups; g++) {
-                    for (; i < groupIdx[g + 1]; i++) {
-                        initVar(vars[i], g);
-                    }
+                for (int i = 0; i < vars.length; i++) {
+                    initVar(i);
                 }
             }
-
-            for (int v = 0; v < nbValues; v++) {
-                for (int g = 0; g < nbGroups; g++) {
-                    if (required[g].get(v)) {
-                        setRequired(v, g);
-                    }
+            int g = 0;
+            for (int i = 0; i < vars.length; i++) {
+                while (i >= groupIdx[g + 1]) {
+                    g++;
+                }
+                if (vars[i].instantiated()) {
+                    setRequired(vars[i].getValue(), g);
                 }
             }
         }
 
         @Override
         public void propagate(int idx, int mask) throws ContradictionException {
-            if (EventType.isRemove(mask)) {
-                idms[idx].freeze();
-                idms[idx].forEach(remProc.set(idx), EventType.REMOVE);
-                idms[idx].unfreeze();
-            }
-            if (EventType.isInstantiate(mask)) {
-                int group = getGroup(idx);
-                if (!required[group].get(vars[idx].getValue())) {
-                    setRequired(vars[idx].getValue(), group);
-                }
-            }
+            setRequired(vars[idx].getValue(), getGroup(idx));
         }
 
         /**
          * update the internal data and filter when a variable is newly instantiated
-         * 1) fail if a variable in the other group is already instantiated to this value
-         * 2) remove the value of the domains of all the variables of the other group
+         * 1) fail if a variable in another group is already instantiated to this value
+         * 2) remove the value of the domains of all the variables of the other groups
          *
          * @param val   the new assigned value
          * @param group the group of the new instantiated variable
-         * @throws ContradictionException when some variables in both groups are instantiated to the same value
+         * @throws ContradictionException when some variables in two groups are instantiated to the same value
          */
         public void setRequired(int val, int group) throws ContradictionException {
-            required[group].set(val);
-            for (int g = 0; g < nbGroups; g++) {
-                if (g != group) {
-                    if (required[g].get(val)) {
-                        //The value is used in the other group. It's a contradiction
-                        contradiction(null, "");
-                    }
-                    if (candidates[g][val].get() > 0) {
-                        //The value was possible for the other group, so we remove it from its variable
-                        for (int i = groupIdx[g]; i < groupIdx[g + 1]; i++) {
-                            if (vars[i].removeValue(val, aCause)) {
-                                candidates[g][val].add(-1);
-                                if (vars[i].instantiated()) {
-                                    if (!required[g].get(vars[i].getValue())) {
-                                        setRequired(vars[i].getValue(), g);
-                                    }
-                                }
-                            }
-                        }
-                    }
+            int o = owner[val].get();
+            if (o == group) {
+                //Already done
+                return;
+            }
+            if (o >= 0) {
+                //The value is used in another group. It's a contradiction
+                contradiction(null, "");
+            }
+            owner[val].set(group);
+            IStateBitSet h = holders[val];
+            //Only the words having a set bit outside of the group are visited
+            int i = h.nextSetBit(0);
+            while (i >= 0) {
+                if (i >= groupIdx[group] && i < groupIdx[group + 1]) {
+                    i = h.nextSetBit(groupIdx[group + 1]);
+                    continue;
+                }
+                h.clear(i);
+                if (vars[i].removeValue(val, aCause) && vars[i].instantiated()) {
+                    setRequired(vars[i].getValue(), getGroup(i));
                 }
+                i = h.nextSetBit(i + 1);
             }
         }
     }
-
-    private class RemProc implements UnaryIntProcedure<Integer> {
-        private int group;
-
-        @Override
-        public UnaryIntProcedure set(Integer idxVar) {
-            this.group = getGroup(idxVar);
-            return this;
-        }
-
-        @Override
-        public void execute(int val) throws ContradictionException {
-            candidates[group][val].add(-1);
-        }
-    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+import memory.IEnvironment;
+import memory.IStateInt;
+import solver.Solver;
+import solver.variables.IntVar;
+
+/**
+ * The horizons of a set of tasks that leave some resources.
+ * The horizon of a resource is the latest moment a task leaves it.
+ * <p/>
+ * For each resource, the LB and the UB of the horizon are the maximum of the LBs
+ * and of the UBs of the ends of the tasks on this resource. They are maintained
+ * using one reversible max-tree per resource, so the refresh of an end costs
+ * O(log n), with n the number of tasks on its resource.
+ * <p/>
+ * An instance can be shared by several {@link Precedences} posted on the same tasks.
+ * Each constraint refreshes the ends it is notified about, so a horizon may lag
+ * behind the current domains but it is never stronger than them.
+ *
+ * @author Fabien Hermenier
+ */
+public class Horizons {
+
+    private int[] othersHost;
+
+    private IntVar[] othersEnd;
+
+    /**
+     * The tasks on each resource.
+     */
+    private int[][] endsByHost;
+
+    /**
+     * The leaf of each task in the trees of its resource. {@code -1} if the resource is not watched.
+     */
+    private int[] leaf;
+
+    /**
+     * For each resource, the max-tree of the ends LB. The root is at index 1,
+     * the leaves are at the end of the array.
+     */
+    private IStateInt[][] lbs;
+
+    /**
+     * For each resource, the max-tree of the ends UB.
+     */
+    private IStateInt[][] ubs;
+
+    /**
+     * Make the horizons.
+     *
+     * @param oh  the resource of each task
+     * @param oe  the moment each task leaves its resource
+     * @param nbR the number of resources to watch. The tasks on the other resources are ignored
+     * @param s   the solver
+     */
+    public Horizons(int[] oh, IntVar[] oe, int nbR, Solver s) {
+        this.othersHost = oh;
+        this.othersEnd = oe;
+        IEnvironment env = s.getEnvironment();
+        int[] nbEnds = new int[nbR];
+        for (int h : oh) {
+            if (h < nbR) {
+                nbEnds[h]++;
+            }
+        }
+        endsByHost = new int[nbR][];
+        lbs = new IStateInt[nbR][];
+        ubs = new IStateInt[nbR][];
+        for (int r = 0; r < nbR; r++) {
+            endsByHost[r] = new int[nbEnds[r]];
+            lbs[r] = new IStateInt[2 * nbEnds[r]];
+            ubs[r] = new IStateInt[2 * nbEnds[r]];
+            for (int x = 1; x < lbs[r].length; x++) {
+                lbs[r][x] = env.makeInt(0);
+                ubs[r][x] = env.makeInt(0);
+            }
+            nbEnds[r] = 0;
+        }
+        leaf = new int[oh.length];
+        for (int i = 0; i < oh.length; i++) {
+            int r = oh[i];
+            if (r < nbR) {
+                endsByHost[r][nbEnds[r]] = i;
+                leaf[i] = endsByHost[r].length + nbEnds[r]++;
+                refresh(i);
+            } else {
+                leaf[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Get the number of watched resources.
+     *
+     * @return a positive integer
+     */
+    public int getNbResources() {
+        return endsByHost.length;
+    }
+
+    /**
+     * Get the resource of each task.
+     *
+     * @return an array indexed by task
+     */
+    public int[] getHosts() {
+        return othersHost;
+    }
+
+    /**
+     * Get the moment each task leaves its resource.
+     *
+     * @return an array indexed by task
+     */
+    public IntVar[] getEnds() {
+        return othersEnd;
+    }
+
+    /**
+     * Get the tasks on a given resource.
+     *
+     * @param r the resource
+     * @return the task indexes. Empty if the resource is not watched
+     */
+    public int[] getTasks(int r) {
+        return r < endsByHost.length ? endsByHost[r] : new int[0];
+    }
+
+    /**
+     * Get the LB of the horizon of a resource.
+     *
+     * @param r the resource
+     * @return the maximum of the LBs of the ends on {@code r}. {@code 0} if there is none
+     */
+    public int getLB(int r) {
+        return r < lbs.length && lbs[r].length > 1 ? lbs[r][1].get() : 0;
+    }
+
+    /**
+     * Get the UB of the horizon of a resource.
+     *
+     * @param r the resource
+     * @return the maximum of the UBs of the ends on {@code r}. {@code 0} if there is none
+     */
+    public int getUB(int r) {
+        return r < ubs.length && ubs[r].length > 1 ? ubs[r][1].get() : 0;
+    }
+
+    /**
+     * Refresh the horizon of the resource of a task with the current bounds of its end.
+     *
+     * @param i the task index
+     * @return {@code true} iff the LB of the horizon changed
+     */
+    public boolean refresh(int i) {
+        if (leaf[i] < 0) {
+            return false;
+        }
+        IStateInt[] lb = lbs[othersHost[i]];
+        int before = lb[1].get();
+        update(lb, leaf[i], othersEnd[i].getLB());
+        update(ubs[othersHost[i]], leaf[i], othersEnd[i].getUB());
+        return lb[1].get() != before;
+    }
+
+    /**
+     * Set the value of a leaf then update its ancestors until one is unchanged.
+     */
+    private static void update(IStateInt[] t, int l, int v) {
+        if (t[l].get() == v) {
+            return;
+        }
+        t[l].set(v);
+        for (int p = l / 2; p >= 1; p /= 2) {
+            int m = Math.max(t[2 * p].get(), t[2 * p + 1].get());
+            if (t[p].get() == m) {
+                return;
+            }
+            t[p].set(m);
+        }
+    }
+}
@@ -28,14 +28,18 @@ import solver.exception.ContradictionException;
 import solver.variables.EventType;
 import solver.variables.IntVar;
 import util.ESat;
-import util.iterators.DisposableIntIterator;
+import solver.variables.delta.IIntDeltaMonitor;
 import util.iterators.DisposableValueIterator;
+import util.procedure.UnaryIntProcedure;
 import util.tools.ArrayUtils;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 /**
- * Lighter but faster version of a bin packing that does not provide the knapsack filtering
+ * Lighter but faster version of a bin packing that does not provide the knapsack filtering.
+ * All the dimensions are handled by a single propagator so an item is removed
+ * from a bin as soon as it does not fit into it on one of the dimensions.
  *
  * @author Fabien Hermenier
  */
@@ -93,6 +97,27 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
 
     private IStateBitSet notEntailedDims;
 
+    private IIntDeltaMonitor[] idms;
+
+    private RemProc remProc;
+
+    /**
+     * The bins whose candidate items must be checked.
+     * A bin is marked once its required load increased or its load UB decreased.
+     */
+    private BitSet toCheck;
+
+    /**
+     * The items sorted by decreasing size on each dimension. [nbDims][nbItems]
+     */
+    private final int[][] sortedItems;
+
+    /**
+     * For each bin, the position in {@code sortedItems} of the first item that may still fit into it.
+     * The items before are either assigned to the bin or no longer candidates. [nbDims][nbBins]
+     */
+    private IStateInt[][] firstFit;
+
     /**
      * constructor of the FastBinPacking global constraint
      *
@@ -111,6 +136,17 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
         this.iSizes = s;
         this.bTLoads = new IStateInt[nbDims][nbBins];
         this.bRLoads = new IStateInt[nbDims][nbBins];
+        this.firstFit = new IStateInt[nbDims][nbBins];
+        this.toCheck = new BitSet(nbBins);
+        this.sortedItems = new int[nbDims][];
+        for (int d = 0; d < nbDims; d++) {
+            sortedItems[d] = sortDecreasing(s[d]);
+        }
+        this.remProc = new RemProc();
+        this.idms = new IIntDeltaMonitor[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            idms[i] = bins[i].monitorDelta(aCause);
+        }
     }
 
     public boolean isConsistent() {
@@ -136,9 +172,9 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
     @Override
     public int getPropagationConditions(int idx) {
         if (idx < bins.length) {
-            return EventType.REMOVE.mask;
+            return EventType.REMOVE.mask + EventType.INSTANTIATE.mask;
         }
-        return EventType.BOUND.mask;
+        return EventType.BOUND.mask + EventType.INSTANTIATE.mask;
     }
 
     @Override
@@ -201,6 +237,7 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
             for (int d = 0; d < nbDims; d++) {
                 bRLoads[d][b] = environment.makeInt(rLoads[d][b]);
                 bTLoads[d][b] = environment.makeInt(rLoads[d][b] + cLoads[d][b]);
+                firstFit[d][b] = environment.makeInt(0);
                 loads[d][b].updateLowerBound(rLoads[d][b], aCause);
                 loads[d][b].updateUpperBound(rLoads[d][b] + cLoads[d][b], aCause);
                 slb[d] += loads[d][b].getLB();
@@ -219,9 +256,15 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
 
         detectEntailedDimensions(nbUnassigned);
 
+        //The removals made before are already considered
+        for (IIntDeltaMonitor idm : idms) {
+            idm.freeze();
+            idm.unfreeze();
+        }
+        toCheck.set(0, nbBins);
+
         assert checkLoadConsistency();
         LOGGER.trace("BinPacking: " + Arrays.toString(name) + " notEntailed dimensions: " + notEntailedDims);
-        forcePropagate(EventType.INSTANTIATE);
     }
 
     /**
@@ -277,21 +320,88 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
                 contradiction(null, "");
             }
         }
+        //rule 1.1
+        for (int d = notEntailedDims.nextSetBit(0); d >= 0; d = notEntailedDims.nextSetBit(d + 1)) {
+            for (int b = 0; b < nbBins; b++) {
+                filterLoadInf(d, b, (int) (sumISizes[d] - sumLoadSup[d].get() + loads[d][b].getUB()));
+                filterLoadSup(d, b, (int) (sumISizes[d] - sumLoadInf[d].get() + loads[d][b].getLB()));
+            }
+        }
+        //rule 2.1, on every dimension at once
+        for (int b = toCheck.nextSetBit(0); b >= 0; b = toCheck.nextSetBit(0)) {
+            toCheck.clear(b);
+            filterCandidates(b);
+        }
         assert checkLoadConsistency();
     }
 
     @Override
     public void propagate(int idx, int mask) throws ContradictionException {
-        if (EventType.isBound(mask)) {
-            awakeOnRemovals(idx, null);
+        if (first) {
+            //Not awake yet. Everything will be computed from the current domains
+            forcePropagate(EventType.INSTANTIATE);
+            return;
         }
-        if (EventType.isInclow(mask)) {
-            awakeOnInf(idx);
+        if (idx < bins.length) {
+            idms[idx].freeze();
+            idms[idx].forEach(remProc.set(idx), EventType.REMOVE);
+            idms[idx].unfreeze();
+            if (bins[idx].instantiated()) {
+                assignItem(idx, bins[idx].getValue());
+            }
+        } else {
+            //on loads variables: delay propagation
+            loadsHaveChanged.set(true);
+            toCheck.set((idx - bins.length) % nbBins);
         }
-        if (EventType.isDecupp(mask)) {
-            awakeOnSup(idx);
+        forcePropagate(EventType.INSTANTIATE);
+    }
+
+    /**
+     * Remove a bin from the candidates of every item that does not fit into it
+     * on at least one dimension: {@code binRequiredLoad + itemSize > binLoadSup}.
+     * On each dimension, the items are visited by decreasing size from {@code firstFit}
+     * and the scan stops at the first item that fits. As the free space of a bin only decreases
+     * within a branch, the visited items never fit again and {@code firstFit} moves past them.
+     *
+     * @param bin the bin index
+     * @throws ContradictionException if an item can no longer be packed
+     */
+    private void filterCandidates(int bin) throws ContradictionException {
+        for (int d = 0; d < nbDims; d++) {
+            int[] sorted = sortedItems[d];
+            int p = firstFit[d][bin].get();
+            while (p < sorted.length && iSizes[d][sorted[p]] > loads[d][bin].getUB() - bRLoads[d][bin].get()) {
+                int i = sorted[p++];
+                if (!bins[i].instantiated() && bins[i].contains(bin)) {
+                    bins[i].removeValue(bin, aCause);
+                    removeItem(i, bin);
+                    if (bins[i].instantiated()) {
+                        assignItem(i, bins[i].getValue());
+                    }
+                }
+            }
+            firstFit[d][bin].set(p);
         }
+    }
 
+    /**
+     * Sort item indexes by decreasing size.
+     *
+     * @param sizes the item sizes
+     * @return the item indexes
+     */
+    private static int[] sortDecreasing(int[] sizes) {
+        long[] keys = new long[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            keys[i] = ((long) sizes[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[sizes.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[keys.length - 1 - i] = (int) keys[i];
+        }
+        return sorted;
     }
 
     /**
@@ -316,52 +426,6 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
         return true;
     }
 
-    /**
-     * on loads variables: delay propagation
-     */
-    //@Override
-    public void awakeOnInf(int varIdx) throws ContradictionException {
-        loadsHaveChanged.set(true);
-        forcePropagate(EventType.INSTANTIATE);
-        //constAwake(false);
-    }
-
-    /**
-     * on loads variables: delay propagation
-     */
-    //@Override
-    public void awakeOnSup(int varIdx) throws ContradictionException {
-        loadsHaveChanged.set(true);
-        forcePropagate(EventType.INSTANTIATE);
-        //constAwake(false);
-    }
-
-
-    /**
-     * on bins variables: propagate the removal of item-to-bins assignments.
-     * 1) update the candidate and check to decrease the load UB of each removed bins: binLoad <= binTotalLoad
-     * 2) if item is assigned: update the required and check to increase the load LB of the bin: binLoad >= binRequiredLoad
-     *
-     * @throws solver.exception.ContradictionException on the load variables
-     */
-    //@Override
-    public void awakeOnRemovals(int iIdx, DisposableIntIterator deltaDomain) throws ContradictionException {
-        try {
-            while (deltaDomain.hasNext()) {
-                int b = deltaDomain.next();
-                removeItem(iIdx, b);
-            }
-
-        } finally {
-            deltaDomain.dispose();
-        }
-        if (vars[iIdx].getLB() == vars[iIdx].getUB()) {
-            assignItem(iIdx, vars[iIdx].getValue());
-        }
-        forcePropagate(EventType.INSTANTIATE);
-        //this.constAwake(false);
-    }
-
     //****************************************************************//
     //********* VARIABLE FILTERING ***********************************//
     //****************************************************************//
@@ -380,6 +444,7 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
             int r = bRLoads[d][bin].add(iSizes[d][item]);
             filterLoadInf(d, bin, r);
         }
+        toCheck.set(bin);
     }
 
     /**
@@ -392,7 +457,8 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
      * @throws solver.exception.ContradictionException on the load[bin] variable
      */
     private void removeItem(int item, int bin) throws ContradictionException {
-        for (int d = notEntailedDims.nextSetBit(0); d >= 0; d = notEntailedDims.nextSetBit(d + 1)) {
+        //On every dimension, so the load is instantiated once the bin content is known
+        for (int d = 0; d < nbDims; d++) {
             int r = bTLoads[d][bin].add(-1 * iSizes[d][item]);
             filterLoadSup(d, bin, r);
         }
@@ -431,6 +497,7 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
         int dec = newLoadSup - loads[dim][bin].getUB();
         if (dec < 0) {
             loads[dim][bin].updateUpperBound(newLoadSup, aCause);
+            toCheck.set(bin);
             int r = sumLoadSup[dim].add(dec);
             if (sumISizes[dim] > r) {
                 contradiction(null, "");
@@ -519,4 +586,22 @@ public class LightBinPackingPropagator extends Propagator<IntVar> {
         }
         return check;
     }
+
+    /**
+     * Propagate the removal of an item-to-bin assignment.
+     */
+    private class RemProc implements UnaryIntProcedure<Integer> {
+        private int item;
+
+        @Override
+        public UnaryIntProcedure set(Integer idxVar) {
+            this.item = idxVar;
+            return this;
+        }
+
+        @Override
+        public void execute(int bin) throws ContradictionException {
+            removeItem(item, bin);
+        }
+    }
 }
\ No newline at end of file
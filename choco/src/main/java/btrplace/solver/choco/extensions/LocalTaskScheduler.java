@@ -19,7 +19,6 @@
 package btrplace.solver.choco.extensions;
 
 
-import gnu.trove.map.hash.TIntIntHashMap;
 import memory.IStateInt;
 import memory.IStateIntVector;
 import org.slf4j.Logger;
@@ -59,13 +58,20 @@ public class LocalTaskScheduler {
     private int[] startupFree;
     private int[] associations;
     private int[] revAssociations;
-    private int[] sortedMinProfile;
-
-    private TIntIntHashMap[] profilesMin;
+    /**
+     * What is necessarily used on the resource.
+     */
+    private Profile profileMin;
 
-    private TIntIntHashMap[] profilesMax;
+    /**
+     * Maximum possible usage on the resource.
+     */
+    private Profile profileMax;
 
-    private int[] sortedMaxProfile;
+    /**
+     * The resource usage at startup for each dimension.
+     */
+    private int[] startupUsage;
 
     /**
      * LB of the moment the last c-slice leaves.
@@ -120,12 +126,10 @@ public class LocalTaskScheduler {
         //The amount of free resources at startup
 
         startupFree = new int[nbDims];
-        profilesMax = new TIntIntHashMap[nbDims];
-        profilesMin = new TIntIntHashMap[nbDims];
+        profileMax = new Profile(nbDims);
+        profileMin = new Profile(nbDims);
         for (int i = 0; i < capacities.length; i++) {
             startupFree[i] = capacities[i][me];
-            profilesMax[i] = new TIntIntHashMap();
-            profilesMin[i] = new TIntIntHashMap();
         }
 
         int lastInf = out.isEmpty() ? 0 : Integer.MAX_VALUE;
@@ -147,21 +151,10 @@ public class LocalTaskScheduler {
         }
         this.lastCendInf = early.getSolver().getEnvironment().makeInt(lastInf);
         this.lastCendSup = early.getSolver().getEnvironment().makeInt(lastSup);
-    }
-
-    /**
-     * Translation for a relatives resources changes to an absolute free resources.
-     *
-     * @param changes       the map that indicates the free CPU variation
-     * @param sortedMoments the different moments sorted in ascending order
-     */
-    private static void toAbsoluteFreeResources(TIntIntHashMap changes, int[] sortedMoments) {
-        for (int i = 1; i < sortedMoments.length; i++) {
-            int t = sortedMoments[i];
-            int lastT = sortedMoments[i - 1];
-            int lastFree = changes.get(lastT);
 
-            changes.put(t, changes.get(t) + lastFree);
+        startupUsage = new int[nbDims];
+        for (int i = 0; i < nbDims; i++) {
+            startupUsage[i] = capacities[i][me] - startupFree[i];
         }
     }
 
@@ -178,18 +171,30 @@ public class LocalTaskScheduler {
         return true;
     }
 
-    public void computeProfiles() {
+    /**
+     * Get the sum of the domain size of the variables related to the resource.
+     * This allows to detect a fixpoint without having to look at the variables
+     * of the other resources.
+     *
+     * @return a positive number
+     */
+    public long getDomainsSize() {
+        long size = early.getDomainSize() + last.getDomainSize();
+        for (int j = out.nextSetBit(0); j >= 0; j = out.nextSetBit(j + 1)) {
+            size += cEnds[j].getDomainSize();
+        }
+        for (int x = 0; x < vIn.size(); x++) {
+            size += dStarts[vIn.get(x)].getDomainSize();
+        }
+        return size;
+    }
 
-        for (int i = 0; i < nbDims; i++) {
-            //What is necessarily used on the resource
-            profilesMin[i] = new TIntIntHashMap();
+    public void computeProfiles() {
 
-            //Maximum possible usage on the resource
-            profilesMax[i] = new TIntIntHashMap();
-
-            profilesMax[i].put(0, capacities[i][me] - startupFree[i]);
-            profilesMin[i].put(0, capacities[i][me] - startupFree[i]);
-        }
+        profileMin.clear();
+        profileMax.clear();
+        profileMax.add(0, startupUsage);
+        profileMin.add(0, startupUsage);
 
         int lastInf = out.isEmpty() ? 0 : Integer.MAX_VALUE;
         int lastSup = 0;
@@ -205,17 +210,13 @@ public class LocalTaskScheduler {
                 if (me == DEBUG || DEBUG == DEBUG_ALL) {
                     LOGGER.debug(me + " " + cEnds[j].toString() + " increasing");
                 }
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMax[i].put(t, profilesMax[i].get(t) - cUsages[i][j]);
-                }
+                profileMax.add(t, cUsages, j, -1);
 
             } else {
                 if (me == DEBUG || DEBUG == DEBUG_ALL) {
                     LOGGER.debug(me + " " + cEnds[j].toString() + " < or non-associated (" + (revAssociations[j] >= 0 ? dStarts[revAssociations[j]].toString() : "no rev") + "?)");
                 }
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMin[i].put(t, profilesMin[i].get(t) - cUsages[i][j]);
-                }
+                profileMin.add(t, cUsages, j, -1);
 
             }
 
@@ -224,13 +225,9 @@ public class LocalTaskScheduler {
                 lastSup = t;
             }
             if (increasing) {
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMin[i].put(t, profilesMin[i].get(t) - cUsages[i][j]);
-                }
+                profileMin.add(t, cUsages, j, -1);
             } else {
-                for (int i = 0; i < nbDims; i++) {
-                    profilesMax[i].put(t, profilesMax[i].get(t) - cUsages[i][j]);
-                }
+                profileMax.add(t, cUsages, j, -1);
             }
         }
         if (out.isEmpty()) {
@@ -241,32 +238,14 @@ public class LocalTaskScheduler {
         lastCendInf.set(lastInf);
         lastCendSup.set(lastSup);
 
-        for (int i = 0; i < nbDims; i++) {
-            for (int x = 0; x < vIn.size(); x++) {
-                int j = vIn.get(x);
-                int t = dStarts[j].getUB();
-                profilesMin[i].put(t, profilesMin[i].get(t) + dUsages[i][j]);
-                t = dStarts[j].getLB();
-                profilesMax[i].put(t, profilesMax[i].get(t) + dUsages[i][j]);
-            }
+        for (int x = 0; x < vIn.size(); x++) {
+            int j = vIn.get(x);
+            profileMin.add(dStarts[j].getUB(), dUsages, j, 1);
+            profileMax.add(dStarts[j].getLB(), dUsages, j, 1);
         }
         //Now transforms into an absolute profile
-        sortedMinProfile = null;
-        sortedMinProfile = profilesMin[0].keys();
-        Arrays.sort(sortedMinProfile);
-
-        sortedMaxProfile = null;
-        sortedMaxProfile = profilesMax[0].keys();
-        for (int i = 0; i < nbDims; i++) {
-            profilesMax[i].keys(sortedMaxProfile);
-        }
-
-        Arrays.sort(sortedMaxProfile);
-
-        for (int i = 0; i < nbDims; i++) {
-            toAbsoluteFreeResources(profilesMin[i], sortedMinProfile);
-            toAbsoluteFreeResources(profilesMax[i], sortedMaxProfile);
-        }
+        profileMin.build();
+        profileMax.build();
 
         if (me == DEBUG || DEBUG == DEBUG_ALL) {
             LOGGER.debug("---" + me + "--- startupFree=" + Arrays.toString(startupFree)
@@ -281,10 +260,8 @@ public class LocalTaskScheduler {
             }
 
 
-            for (int i = 0; i < nbDims; i++) {
-                LOGGER.debug("profileMin dim " + i + "=" + prettyProfile(sortedMinProfile, profilesMin[i]));
-                LOGGER.debug("profileMax dim " + i + "=" + prettyProfile(sortedMaxProfile, profilesMax[i]));
-            }
+            LOGGER.debug("profileMin=" + profileMin);
+            LOGGER.debug("profileMax=" + profileMax);
             LOGGER.debug("/--- " + me + "---/");
         }
     }
@@ -317,28 +294,14 @@ public class LocalTaskScheduler {
         return associations[dSlice] != NO_ASSOCIATIONS && out.get(associations[dSlice]);
     }
 
-    private String prettyProfile(int[] ascMoments, TIntIntHashMap prof) {
-        StringBuilder b = new StringBuilder();
-        for (int i = 0; i < ascMoments.length; i++) {
-            int t = ascMoments[i];
-            b.append(t);
-            b.append(':');
-            b.append(prof.get(t));
-            if (i != ascMoments.length - 1) {
-                b.append(' ');
-            }
-        }
-        return b.toString();
-    }
-
     public boolean checkInvariant() {
-        for (int x = 0; x < sortedMinProfile.length; x++) {
-            int t = sortedMinProfile[x];
+        for (int x = 0; x < profileMin.size(); x++) {
+            int t = profileMin.getMoment(x);
             for (int i = 0; i < nbDims; i++) {
-                if (profilesMin[i].get(t) > capacities[i][me]) {
+                if (profileMin.getUsage(i, x) > capacities[i][me]) {
                     if (me == DEBUG || DEBUG == DEBUG_ALL) {
                         LOGGER.debug("(" + me + ") Invalid min profile at " + t + " on dimension " + i
-                                + ": " + profilesMin[i].get(t) + " > " + capacities[i][me]);
+                                + ": " + profileMin.getUsage(i, x) + " > " + capacities[i][me]);
                     }
                     return false;
                 }
@@ -377,17 +340,14 @@ public class LocalTaskScheduler {
                     LOGGER.debug("(" + me + ") - try to update lb of " + dStarts[i]);
                 }
 
-                int[] myUsage = getUsages(dUsages, i);
-
                 int lastT = -1;
-                for (int x = sortedMinProfile.length - 1; x >= 0; x--) {
-                    int t = sortedMinProfile[x];
+                for (int x = profileMin.size() - 1; x >= 0; x--) {
+                    int t = profileMin.getMoment(x);
                     if (t <= dStarts[i].getLB()) {
                         break;
                     }
-                    int prevT = sortedMinProfile[x - 1];
                     if (t <= dStarts[i].getUB()
-                            && exceedCapacity(profilesMin, prevT, myUsage)) {
+                            && exceedCapacity(profileMin, x - 1, dUsages, i)) {
                         lastT = t;
                         break;
                     }
@@ -400,11 +360,10 @@ public class LocalTaskScheduler {
     private void updateDStartsSup() throws ContradictionException {
 
 
-        int[] myCapacity = getUsages(capacities, me);
         int lastSup = -1;
-        for (int i = sortedMaxProfile.length - 1; i >= 0; i--) {
-            int t = sortedMaxProfile[i];
-            if (!exceedCapacity(profilesMax, t, myCapacity)) {
+        for (int x = profileMax.size() - 1; x >= 0; x--) {
+            int t = profileMax.getMoment(x);
+            if (!exceedCapacity(profileMax, x, capacities, me)) {
                 lastSup = t;
             } else {
                 break;
@@ -425,14 +384,13 @@ public class LocalTaskScheduler {
         for (int i = out.nextSetBit(0); i >= 0; i = out.nextSetBit(i + 1)) {
             if (!cEnds[i].instantiated() && !associatedToDSliceOnCurrentNode(i)) {
 
-                int[] myUsage = getUsages(cUsages, i);
                 int lastT = -1;
-                for (int x = 0; x < sortedMinProfile.length; x++) {
-                    int t = sortedMinProfile[x];
+                for (int x = 0; x < profileMin.size(); x++) {
+                    int t = profileMin.getMoment(x);
                     if (t >= cEnds[i].getUB()) {
                         break;
                     } else if (t >= cEnds[i].getLB() &&
-                            exceedCapacity(profilesMin, t, myUsage)) {
+                            exceedCapacity(profileMin, x, cUsages, i)) {
                         lastT = t;
                         break;
                     }
@@ -447,9 +405,9 @@ public class LocalTaskScheduler {
         }
     }
 
-    private boolean exceedCapacity(TIntIntHashMap[] profiles, int t, int[] usage) {
-        for (int i = 0; i < nbDims; i++) {
-            if (profiles[i].get(t) + usage[i] > capacities[i][me]) {
+    private boolean exceedCapacity(Profile profile, int x, int[][] usages, int j) {
+        for (int d = 0; d < nbDims; d++) {
+            if (profile.getUsage(d, x) + usages[d][j] > capacities[d][me]) {
                 return true;
             }
         }
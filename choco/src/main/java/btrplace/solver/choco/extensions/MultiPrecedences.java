@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+
+import memory.IStateInt;
+import memory.IStateIntVector;
+import solver.Solver;
+import solver.constraints.IntConstraint;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import util.ESat;
+import util.tools.ArrayUtils;
+
+import java.util.Arrays;
+
+/**
+ * A global version of {@link Precedences} for a set of tasks.
+ * Each task arriving on a resource must start after the end of every
+ * "other" task that is already on that resource.
+ * <p/>
+ * The constraint maintains, per resource, the lower bound of the latest end
+ * of the other tasks. A task placed on a resource then has its start updated
+ * in constant time, while a single constraint replaces one {@link Precedences}
+ * per task. Like {@link Precedences}, the start of a task that is not placed yet
+ * is at least the smallest horizon among its candidate resources.
+ * <p/>
+ * An other task may be owned by one of the tasks, for example when the two
+ * tasks are the two slices of a same VM. A task owns at most one other task.
+ * A task placed on the resource of the other task it owns stays on this resource
+ * rather than arriving on it, so it is not constrained there.
+ *
+ * @author Fabien Hermenier
+ */
+public class MultiPrecedences extends IntConstraint<IntVar> {
+
+    private IntVar[] hosts;
+
+    private IntVar[] starts;
+
+    private int[] othersHost;
+
+    private IntVar[] othersEnd;
+
+    /**
+     * For each task, the resource of the other task it owns. {@code -1} if it owns none.
+     */
+    private int[] ownedHost;
+
+    /**
+     * Make a new constraint.
+     *
+     * @param h   the host of each task
+     * @param st  the moment each task arrives on its host
+     * @param oh  the host of each of the other tasks
+     * @param oe  the moment each of the other tasks leave their host
+     * @param nbR the number of resources
+     * @param s   the solver
+     */
+    public MultiPrecedences(IntVar[] h, IntVar[] st, int[] oh, IntVar[] oe, int nbR, Solver s) {
+        this(h, st, oh, oe, noOwners(oe.length), nbR, s);
+    }
+
+    /**
+     * Make a new constraint where some of the other tasks are owned by a task.
+     *
+     * @param h   the host of each task
+     * @param st  the moment each task arrives on its host
+     * @param oh  the host of each of the other tasks
+     * @param oe  the moment each of the other tasks leave their host
+     * @param ow  the index of the task owning each of the other tasks. {@code -1} if there is no owner
+     * @param nbR the number of resources
+     * @param s   the solver
+     */
+    public MultiPrecedences(IntVar[] h, IntVar[] st, int[] oh, IntVar[] oe, int[] ow, int nbR, Solver s) {
+        super(ArrayUtils.append(h, st, oe), s);
+        this.hosts = h;
+        this.starts = st;
+        this.othersHost = oh;
+        this.othersEnd = oe;
+        ownedHost = new int[h.length];
+        Arrays.fill(ownedHost, -1);
+        for (int o = 0; o < ow.length; o++) {
+            if (ow[o] >= 0) {
+                if (ownedHost[ow[o]] >= 0) {
+                    throw new IllegalArgumentException("Task " + ow[o] + " owns more than one other task");
+                }
+                ownedHost[ow[o]] = oh[o];
+            }
+        }
+        setPropagators(new MultiPrecedencesPropagator(nbR));
+    }
+
+    private static int[] noOwners(int nb) {
+        int[] ow = new int[nb];
+        Arrays.fill(ow, -1);
+        return ow;
+    }
+
+    @Override
+    public ESat isSatisfied(int[] tuple) {
+        int nb = hosts.length;
+        for (int o = 0; o < othersHost.length; o++) {
+            int end = tuple[2 * nb + o];
+            for (int i = 0; i < nb; i++) {
+                if (tuple[i] == othersHost[o] && tuple[i] != ownedHost[i] && tuple[nb + i] < end) {
+                    return ESat.FALSE;
+                }
+            }
+        }
+        return ESat.TRUE;
+    }
+
+    class MultiPrecedencesPropagator extends Propagator<IntVar> {
+
+        private boolean first = true;
+
+        private int nbResources;
+
+        /**
+         * The other tasks on each resource.
+         */
+        private int[][] endsByHost;
+
+        /**
+         * The LB of the latest end of the other tasks for each resource.
+         */
+        private IStateInt[] horizonLB;
+
+        /**
+         * The tasks arriving on each resource.
+         */
+        private IStateIntVector[] placed;
+
+        public MultiPrecedencesPropagator(int nbR) {
+            super(ArrayUtils.append(hosts, starts, othersEnd), PropagatorPriority.LINEAR, true);
+            this.nbResources = nbR;
+        }
+
+        @Override
+        protected int getPropagationConditions(int idx) {
+            if (idx < hosts.length) {
+                return EventType.INSTANTIATE.mask + EventType.REMOVE.mask;
+            } else if (idx < 2 * hosts.length) {
+                return EventType.DECUPP.mask + EventType.INSTANTIATE.mask;
+            }
+            return EventType.INCLOW.mask + EventType.INSTANTIATE.mask;
+        }
+
+        private void awake() throws ContradictionException {
+            horizonLB = new IStateInt[nbResources];
+            placed = new IStateIntVector[nbResources];
+            int[] nbEnds = new int[nbResources];
+            for (int h : othersHost) {
+                nbEnds[h]++;
+            }
+            endsByHost = new int[nbResources][];
+            for (int r = 0; r < nbResources; r++) {
+                horizonLB[r] = environment.makeInt(0);
+                placed[r] = environment.makeIntVector(0, 0);
+                endsByHost[r] = new int[nbEnds[r]];
+                nbEnds[r] = 0;
+            }
+            for (int i = 0; i < othersHost.length; i++) {
+                int r = othersHost[i];
+                endsByHost[r][nbEnds[r]++] = i;
+                if (othersEnd[i].getLB() > horizonLB[r].get()) {
+                    horizonLB[r].set(othersEnd[i].getLB());
+                }
+            }
+            for (int i = 0; i < hosts.length; i++) {
+                if (hosts[i].instantiated()) {
+                    place(i);
+                } else {
+                    filterCandidates(i);
+                }
+            }
+        }
+
+        @Override
+        public void propagate(int m) throws ContradictionException {
+            if (first) {
+                first = false;
+                awake();
+            }
+        }
+
+        @Override
+        public void propagate(int idx, int mask) throws ContradictionException {
+            if (first) {
+                forcePropagate(EventType.INSTANTIATE);
+                return;
+            }
+            int nb = hosts.length;
+            if (idx < nb) {
+                if (EventType.isInstantiate(mask)) {
+                    place(idx);
+                } else {
+                    filterCandidates(idx);
+                }
+            } else if (idx < 2 * nb) {
+                int t = idx - nb;
+                if (hosts[t].instantiated()) {
+                    restrictEnds(t, hosts[t].getValue(), starts[t].getUB());
+                }
+            } else {
+                int o = idx - 2 * nb;
+                int r = othersHost[o];
+                int lb = othersEnd[o].getLB();
+                if (lb > horizonLB[r].get()) {
+                    //LBs only grow along a branch, so the horizon is updated incrementally
+                    horizonLB[r].set(lb);
+                    IStateIntVector ts = placed[r];
+                    for (int x = 0; x < ts.size(); x++) {
+                        starts[ts.get(x)].updateLowerBound(lb, aCause);
+                    }
+                }
+                if (EventType.isInstantiate(mask)) {
+                    //As in Precedences, the tasks that may go on this resource are checked once the end is known
+                    for (int t = 0; t < nb; t++) {
+                        if (!hosts[t].instantiated() && hosts[t].contains(r)) {
+                            filterCandidates(t);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the horizon of a resource for a given task.
+         *
+         * @param t the task index
+         * @param r the resource
+         * @return the LB of the latest end of the other tasks on {@code r}. {@code 0} if the task stays on {@code r}
+         */
+        private int horizon(int t, int r) {
+            if (r >= nbResources || r == ownedHost[t]) {
+                return 0;
+            }
+            return horizonLB[r].get();
+        }
+
+        /**
+         * A task that is not placed starts after the smallest horizon of its candidate resources.
+         *
+         * @param t the task index
+         * @throws ContradictionException if the task cannot start after this horizon
+         */
+        private void filterCandidates(int t) throws ContradictionException {
+            int min = Integer.MAX_VALUE;
+            int ub = hosts[t].getUB();
+            for (int r = hosts[t].getLB(); r <= ub && min > 0; r = hosts[t].nextValue(r)) {
+                min = Math.min(min, horizon(t, r));
+            }
+            starts[t].updateLowerBound(min, aCause);
+        }
+
+        /**
+         * A task is now placed. Its start is updated with the horizon of its host
+         * while the other tasks on this host must end before its start.
+         *
+         * @param t the task index
+         * @throws ContradictionException if the task cannot start after the other tasks
+         */
+        private void place(int t) throws ContradictionException {
+            int r = hosts[t].getValue();
+            if (r >= nbResources || r == ownedHost[t]) {
+                return;
+            }
+            placed[r].add(t);
+            starts[t].updateLowerBound(horizonLB[r].get(), aCause);
+            restrictEnds(t, r, starts[t].getUB());
+        }
+
+        private void restrictEnds(int t, int r, int ub) throws ContradictionException {
+            if (r >= nbResources || r == ownedHost[t]) {
+                return;
+            }
+            for (int o : endsByHost[r]) {
+                othersEnd[o].updateUpperBound(ub, aCause);
+            }
+        }
+
+        @Override
+        public ESat isEntailed() {
+            for (int i = 0; i < hosts.length; i++) {
+                if (!hosts[i].instantiated() || !starts[i].instantiated()) {
+                    return ESat.UNDEFINED;
+                }
+            }
+            for (IntVar e : othersEnd) {
+                if (!e.instantiated()) {
+                    return ESat.UNDEFINED;
+                }
+            }
+            int[] tuple = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                tuple[i] = vars[i].getValue();
+            }
+            return isSatisfied(tuple);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.extensions;
+
+import java.util.Arrays;
+
+/**
+ * A multi-dimensional resource profile.
+ * The profile is first described by a set of events, each event
+ * being a moment and a usage variation for every dimension.
+ * Once {@link #build()} is called, the events are merged into
+ * a list of distinct moments, in ascending order, with the absolute
+ * usage of each dimension at each moment.
+ * <p/>
+ * The arrivals and the departures of tasks are kept in two separated streams.
+ * Each stream remembers the order of its tasks from the previous call to {@link #build()}
+ * and restores the ascending order using an insertion sort. As the moments of the tasks
+ * only change slightly from one propagation to another, only the tasks that moved past another one are shifted.
+ * The streams and the other events are then merged.
+ * <p/>
+ * All the data are stored into primitive arrays that are re-used
+ * from one computation to another so a profile can be computed on every
+ * propagation without allocating memory once the arrays are large enough.
+ *
+ * @author Fabien Hermenier
+ */
+public class Profile {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int nbDims;
+
+    /**
+     * The moment of each event that is not related to a task, in ascending order.
+     */
+    private int[] events;
+
+    /**
+     * The usage variation of each event that is not related to a task, for each dimension.
+     */
+    private int[][] deltas;
+
+    private int nbEvents;
+
+    /**
+     * The departures of tasks.
+     */
+    private Stream departures;
+
+    /**
+     * The arrivals of tasks.
+     */
+    private Stream arrivals;
+
+    private int[] moments;
+
+    /**
+     * The absolute usage at each moment for each dimension.
+     */
+    private int[][] usages;
+
+    private int nbMoments;
+
+    /**
+     * Make a new empty profile.
+     *
+     * @param nbDims the number of dimensions
+     */
+    public Profile(int nbDims) {
+        this.nbDims = nbDims;
+        events = new int[DEFAULT_CAPACITY];
+        deltas = new int[nbDims][DEFAULT_CAPACITY];
+        departures = new Stream(-1);
+        arrivals = new Stream(1);
+        moments = new int[DEFAULT_CAPACITY];
+        usages = new int[nbDims][DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Remove all the events and the moments.
+     */
+    public void clear() {
+        nbEvents = 0;
+        nbMoments = 0;
+        departures.clear();
+        arrivals.clear();
+    }
+
+    /**
+     * Add an event.
+     *
+     * @param t     the moment
+     * @param delta the usage variation for each dimension
+     */
+    public void add(int t, int[] delta) {
+        if (nbEvents == events.length) {
+            int cap = nbEvents * 2;
+            events = Arrays.copyOf(events, cap);
+            for (int d = 0; d < nbDims; d++) {
+                deltas[d] = Arrays.copyOf(deltas[d], cap);
+            }
+        }
+        //Insert the event at its place. There are only a few such events
+        int x = nbEvents++;
+        for (; x > 0 && events[x - 1] > t; x--) {
+            events[x] = events[x - 1];
+            for (int d = 0; d < nbDims; d++) {
+                deltas[d][x] = deltas[d][x - 1];
+            }
+        }
+        events[x] = t;
+        for (int d = 0; d < nbDims; d++) {
+            deltas[d][x] = delta[d];
+        }
+    }
+
+    /**
+     * Add an event that corresponds to the arrival or the departure of a task.
+     * A task can be added at most once as an arrival and once as a departure between two calls to {@link #clear()}.
+     * All the arrivals must rely on the same usage array, and so must the departures.
+     *
+     * @param t      the moment
+     * @param usages the usages of every task for each dimension
+     * @param j      the task index
+     * @param sign   {@code 1} to increase the usage with the task usage, {@code -1} to decrease it
+     */
+    public void add(int t, int[][] usages, int j, int sign) {
+        (sign < 0 ? departures : arrivals).add(t, usages, j);
+    }
+
+    /**
+     * Compute the absolute usage at each distinct moment.
+     */
+    public void build() {
+        departures.sort();
+        arrivals.sort();
+        int max = nbEvents + departures.size + arrivals.size;
+        if (moments.length < max) {
+            moments = new int[max];
+            for (int d = 0; d < nbDims; d++) {
+                usages[d] = new int[max];
+            }
+        }
+        nbMoments = 0;
+        int x = 0;
+        int dx = 0;
+        int ax = 0;
+        while (x < nbEvents || dx < departures.size || ax < arrivals.size) {
+            int t = Math.min(x < nbEvents ? events[x] : Integer.MAX_VALUE,
+                    Math.min(departures.moment(dx), arrivals.moment(ax)));
+            int m = nbMoments++;
+            moments[m] = t;
+            for (int d = 0; d < nbDims; d++) {
+                usages[d][m] = m == 0 ? 0 : usages[d][m - 1];
+            }
+            for (; x < nbEvents && events[x] == t; x++) {
+                for (int d = 0; d < nbDims; d++) {
+                    usages[d][m] += deltas[d][x];
+                }
+            }
+            dx = departures.apply(dx, t, m);
+            ax = arrivals.apply(ax, t, m);
+        }
+    }
+
+    /**
+     * Get the number of distinct moments.
+     * Only meaningful after a call to {@link #build()}.
+     *
+     * @return a positive integer
+     */
+    public int size() {
+        return nbMoments;
+    }
+
+    /**
+     * Get a moment.
+     *
+     * @param x the moment index, moments being sorted in ascending order
+     * @return the moment
+     */
+    public int getMoment(int x) {
+        return moments[x];
+    }
+
+    /**
+     * Get the absolute usage of a dimension at a given moment.
+     *
+     * @param d the dimension
+     * @param x the moment index
+     * @return the usage
+     */
+    public int getUsage(int d, int x) {
+        return usages[d][x];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (int x = 0; x < nbMoments; x++) {
+            if (x > 0) {
+                b.append(' ');
+            }
+            b.append(moments[x]).append(":(");
+            for (int d = 0; d < nbDims; d++) {
+                if (d > 0) {
+                    b.append(',');
+                }
+                b.append(usages[d][x]);
+            }
+            b.append(')');
+        }
+        return b.toString();
+    }
+
+    /**
+     * The arrivals or the departures of tasks.
+     * The tasks are kept in ascending order of moment, and the order survives {@link #clear()}
+     * so it is only repaired by the next {@link #sort()}.
+     */
+    private final class Stream {
+
+        private final int sign;
+
+        private int[][] taskUsages;
+
+        /**
+         * The tasks, in ascending order of moment once sorted.
+         */
+        private int[] order = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The moment of the tasks in {@code order}.
+         */
+        private int[] sorted = new int[DEFAULT_CAPACITY];
+
+        private int size;
+
+        /**
+         * The moment of each task, indexed by task.
+         */
+        private int[] at = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The generation each task has been added in, indexed by task.
+         */
+        private int[] added = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The generation each task has been put in {@code order} in, indexed by task.
+         */
+        private int[] kept = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The tasks added since the last {@link #clear()}.
+         */
+        private int[] news = new int[DEFAULT_CAPACITY];
+
+        private int nbNews;
+
+        /**
+         * Starts at 1 so no task is marked initially.
+         */
+        private int generation = 1;
+
+        Stream(int s) {
+            sign = s;
+        }
+
+        void clear() {
+            generation++;
+            nbNews = 0;
+        }
+
+        void add(int t, int[][] u, int j) {
+            taskUsages = u;
+            if (j >= at.length) {
+                int cap = Math.max(j + 1, at.length * 2);
+                at = Arrays.copyOf(at, cap);
+                added = Arrays.copyOf(added, cap);
+                kept = Arrays.copyOf(kept, cap);
+                order = Arrays.copyOf(order, cap);
+                sorted = Arrays.copyOf(sorted, cap);
+                news = Arrays.copyOf(news, cap);
+            }
+            at[j] = t;
+            added[j] = generation;
+            news[nbNews++] = j;
+        }
+
+        /**
+         * Restore the ascending order of the tasks added since the last {@link #clear()}.
+         * The tasks that are still there are inserted in their previous order, then the new tasks.
+         * A task is only shifted past the tasks it moved past.
+         */
+        void sort() {
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int j = order[k];
+                if (added[j] == generation) {
+                    kept[j] = generation;
+                    insert(j, n++);
+                }
+            }
+            for (int k = 0; k < nbNews; k++) {
+                int j = news[k];
+                if (kept[j] != generation) {
+                    kept[j] = generation;
+                    insert(j, n++);
+                }
+            }
+            size = n;
+        }
+
+        /**
+         * Insert a task into the first {@code n} sorted tasks.
+         * The positions after {@code n} are not modified.
+         */
+        private void insert(int j, int n) {
+            int t = at[j];
+            int x = n;
+            for (; x > 0 && sorted[x - 1] > t; x--) {
+                order[x] = order[x - 1];
+                sorted[x] = sorted[x - 1];
+            }
+            order[x] = j;
+            sorted[x] = t;
+        }
+
+        int moment(int k) {
+            return k < size ? sorted[k] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Add the usage variation of the tasks at a given moment.
+         *
+         * @param k the position of the first task to consider
+         * @param t the moment
+         * @param m the moment index
+         * @return the position of the first task after the moment
+         */
+        int apply(int k, int t, int m) {
+            for (; k < size && sorted[k] == t; k++) {
+                int j = order[k];
+                for (int d = 0; d < nbDims; d++) {
+                    usages[d][m] += sign * taskUsages[d][j];
+                }
+            }
+            return k;
+        }
+    }
+}
@@ -28,58 +28,78 @@ import solver.variables.IntVar;
 import util.ESat;
 
 /**
- * A constraint to enforce {@code a == b / divider} where {@code divider} is a real and {@code a} and {@code b} are
- * both integers.
- * The division is rounded up to the smallest integer.
+ * A constraint to enforce {@code a == b / divider} where {@code divider} is a rational
+ * {@code num / den} and {@code a} and {@code b} are both non-negative integers.
+ * The division is rounded up to the smallest integer. Only integer arithmetic is used.
  * <p/>
  * In practice, the constraint maintains:
  * <ul>
- * <li>{@code a = Math.ceil(b / divider)}</li>
- * <li>{@code b = ((a - 1 )* divider) % 1 == 0 ? [(a - 1)*divider + 1; Math.floor(a * divider)] : [Math.ceil((a -1)*divider); Math.floor(a * divider)]}</li>
+ * <li>{@code a = ceil(b * den / num)}</li>
+ * <li>{@code b = [floor((a - 1) * num / den) + 1; floor(a * num / den)]}</li>
  * </ul>
  *
  * @author Fabien Hermenier
  */
 public class RoundedUpDivision extends IntConstraint<IntVar> {
 
-    private double qq;
+    private int num;
+
+    private int den;
 
     /**
      * Make a new constraint.
      *
-     * @param a the variable to divide
-     * @param b the resulting ratio
-     * @param d the divider
+     * @param a   the variable to divide
+     * @param b   the resulting ratio
+     * @param num the numerator of the divider. Strictly positive
+     * @param den the denominator of the divider. Strictly positive
      */
-    public RoundedUpDivision(IntVar a, IntVar b, double d) {
+    public RoundedUpDivision(IntVar a, IntVar b, int num, int den) {
         super(new IntVar[]{a, b}, a.getSolver());
-        qq = d;
-        setPropagators(new RoundedUpDivisionPropagator(vars, d));
+        this.num = num;
+        this.den = den;
+        setPropagators(new RoundedUpDivisionPropagator(vars, num, den));
+    }
+
+    /**
+     * Compute {@code ceil(b * den / num)}.
+     *
+     * @param b   a non-negative value
+     * @param num the numerator of the divider
+     * @param den the denominator of the divider
+     * @return the rounded up quotient
+     */
+    static int div(int b, int num, int den) {
+        return (int) (((long) b * den + num - 1) / num);
     }
 
     @Override
     public ESat isSatisfied(int[] values) {
-        return ESat.eval(values[0] == (int) Math.ceil((double) values[1] / qq));
+        return ESat.eval(values[0] == div(values[1], num, den));
     }
 
     @Override
     public String toString() {
-        return vars[0].toString() + " = " + vars[1].toString() + '/' + qq;
+        return vars[0].toString() + " = " + vars[1].toString() + " * " + den + '/' + num;
     }
 
     static class RoundedUpDivisionPropagator extends Propagator<IntVar> {
 
-        private double divider;
+        private int num;
+
+        private int den;
 
         /**
          * New propagator
          *
-         * @param vs the variables
-         * @param d  the divider
+         * @param vs  the variables
+         * @param num the numerator of the divider
+         * @param den the denominator of the divider
          */
-        public RoundedUpDivisionPropagator(IntVar[] vs, double d) {
+        public RoundedUpDivisionPropagator(IntVar[] vs, int num, int den) {
             super(vs, PropagatorPriority.BINARY, true);
-            this.divider = d;
+            this.num = num;
+            this.den = den;
         }
 
         @Override
@@ -90,20 +110,24 @@ public class RoundedUpDivision extends IntConstraint<IntVar> {
         @Override
         public ESat isEntailed() {
             if (vars[0].getDomainSize() == 1 && vars[1].getDomainSize() == 1) {
-                return ESat.eval(vars[0].getValue() == (int) Math.ceil((double) vars[1].getValue() / divider));
+                return ESat.eval(vars[0].getValue() == div(vars[1].getValue()));
             }
             return ESat.UNDEFINED;
         }
 
         private int div(int b) {
-            return (int) Math.ceil((double) b / divider);
+            return RoundedUpDivision.div(b, num, den);
         }
 
         private int multLB(int a) {
-            if ((a - 1 * divider) % 1 == 0) {
-                return (int) ((a - 1) * divider + 1);
+            if (a <= 0) {
+                return vars[1].getLB();
             }
-            return (int) Math.ceil(divider * (a - 1));
+            return (int) Math.min(Integer.MAX_VALUE, (long) (a - 1) * num / den + 1);
+        }
+
+        private int multUB(int a) {
+            return (int) Math.min(Integer.MAX_VALUE, (long) a * num / den);
         }
 
         @Override
@@ -142,7 +166,7 @@ public class RoundedUpDivision extends IntConstraint<IntVar> {
             if (i == 1) {
                 return vars[0].updateUpperBound(div(vars[1].getUB()), aCause);
             } else {
-                return vars[1].updateUpperBound((int) Math.floor(divider * vars[0].getUB()), aCause);
+                return vars[1].updateUpperBound(multUB(vars[0].getUB()), aCause);
             }
         }
     }
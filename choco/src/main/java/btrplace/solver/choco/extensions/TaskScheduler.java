@@ -21,6 +21,8 @@ package btrplace.solver.choco.extensions;
 
 import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import memory.IStateBitSet;
+import memory.IStateInt;
 import memory.IStateIntVector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -252,6 +254,18 @@ public class TaskScheduler extends IntConstraint<IntVar> {
 
         private IntVar[] earlyStarts, lastEnds;
 
+        /**
+         * The number of dHosters that are not instantiated yet.
+         */
+        private IStateInt toInstantiate;
+
+        /**
+         * The resources whose local scheduler must be re-propagated.
+         * The set is reversible so the resources marked before a contradiction
+         * are not considered after the backtrack.
+         */
+        private IStateBitSet dirty;
+
         public TaskSchedulerPropagator(IntVar[] earlyStarts,
                                        IntVar[] lastEnds,
                                        int[][] capas,
@@ -288,6 +302,7 @@ public class TaskScheduler extends IntConstraint<IntVar> {
                 }
             }
 
+            this.dirty = earlyStarts[0].getSolver().getEnvironment().makeBitSet(scheds.length);
             for (int i = 0; i < scheds.length; i++) {
                 vIns[i] = earlyStarts[0].getSolver().getEnvironment().makeIntVector(0, 0);
                 scheds[i] = new LocalTaskScheduler(i,
@@ -310,21 +325,60 @@ public class TaskScheduler extends IntConstraint<IntVar> {
 
         @Override
         protected int getPropagationConditions(int vIdx) {
-            return EventType.INSTANTIATE.mask;
+            if (vIdx < dHosters.length + cHosters.length) {
+                return EventType.INSTANTIATE.mask;
+            }
+            //The local schedulers rely on the bounds of the moments
+            return EventType.BOUND.mask + EventType.INSTANTIATE.mask;
         }
 
         private boolean first = true;
 
         @Override
         public void propagate(int idx, int mask) throws ContradictionException {
-
-            if (idx < dHosters.length) {
+            if (first) {
+                //Not awake yet, the initial propagation will consider everything
+                forcePropagate(EventType.INSTANTIATE);
+                return;
+            }
+            int nbD = dHosters.length;
+            int nbC = cHosters.length;
+            if (idx < nbD) {
                 int nIdx = vars[idx].getValue();
                 vIns[nIdx].add(idx);
+                toInstantiate.add(-1);
+                if (toInstantiate.get() == 0) {
+                    //The placement is now complete, every resource has to be checked
+                    markAll();
+                    forcePropagate(EventType.INSTANTIATE);
+                    return;
+                }
+            }
+            if (toInstantiate.get() > 0) {
+                //Every resource will be marked once the placement will be complete
+                return;
+            }
+            if (idx < nbD) {
+                dirty.set(vars[idx].getValue());
+            } else if (idx < nbD + nbC) {
+                //cHosters are instantiated since the beginning
+                return;
+            } else if (idx < nbD + 2 * nbC) {
+                dirty.set(cHosters[idx - nbD - nbC].getValue());
+            } else if (idx < 2 * nbD + 2 * nbC) {
+                dirty.set(dHosters[idx - nbD - 2 * nbC].getValue());
+            } else {
+                dirty.set((idx - 2 * nbD - 2 * nbC) % scheds.length);
             }
             forcePropagate(EventType.INSTANTIATE);
         }
 
+        private void markAll() {
+            for (int j = 0; j < scheds.length; j++) {
+                dirty.set(j);
+            }
+        }
+
         @Override
         public ESat isEntailed() {
             //Split this use tab to ease the analysis
@@ -433,48 +487,34 @@ public class TaskScheduler extends IntConstraint<IntVar> {
         public void propagate(int evtmask) throws ContradictionException {
             if (first) {
                 first = false;
-                boolean isFull = true;
+                toInstantiate = earlyStarts[0].getSolver().getEnvironment().makeInt(dHosters.length);
                 for (int i = 0; i < dHosters.length; i++) {
                     if (dHosters[i].instantiated()) {
                         int nIdx = dHosters[i].getValue();
                         vIns[nIdx].add(i);
-                    } else {
-                        isFull = false;
+                        toInstantiate.add(-1);
                     }
                 }
-                //Already completely instantiated, need to propagate
-                if (isFull) {
-                    for (int j = 0; j < scheds.length; j++) {
-                        if (!scheds[j].propagate()) {
-                            this.contradiction(earlyStarts[j], "Invalid profile on resource '" + j + "'");
-                        }
-                    }
+                if (toInstantiate.get() == 0) {
+                    //Already completely instantiated, need to propagate
+                    markAll();
                 }
-            } else {
+            }
+            if (toInstantiate.get() > 0) {
+                return;
+            }
+            //Only the dirty resources are re-propagated. Each local scheduler
+            //only alters the variables of its own resource, so reaching a
+            //fixpoint on each of them is sufficient
+            for (int j = dirty.nextSetBit(0); j >= 0; j = dirty.nextSetBit(j + 1)) {
                 long size;
                 do {
-                    size = 0;
-                    for (IntVar v : vars) {
-                        size += v.getDomainSize();
-                    }
-                    boolean isFull = true;
-                    for (IntVar v : dHosters) {
-                        if (!v.instantiated()) {
-                            isFull = false;
-                            break;
-                        }
-                    }
-                    if (isFull) {
-                        for (int i = 0; i < scheds.length; i++) {
-                            if (!scheds[i].propagate()) {
-                                this.contradiction(earlyStarts[i], "Invalid profile on resource '" + i + "'");
-                            }
-                        }
-                    }
-                    for (IntVar v : vars) {
-                        size -= v.getDomainSize();
+                    size = scheds[j].getDomainsSize();
+                    if (!scheds[j].propagate()) {
+                        this.contradiction(earlyStarts[j], "Invalid profile on resource '" + j + "'");
                     }
-                } while (size > 0);
+                } while (size != scheds[j].getDomainsSize());
+                dirty.clear(j);
             }
         }
     }
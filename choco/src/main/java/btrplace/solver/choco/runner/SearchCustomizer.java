@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner;
+
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ReconfigurationProblem;
+
+/**
+ * Interface to customize the search of a problem before its solving.
+ * This allows to diversify the solving processes of a same instance.
+ *
+ * @author Fabien Hermenier
+ * @see btrplace.solver.choco.runner.single.InstanceSolverRunner
+ */
+public interface SearchCustomizer {
+
+    /**
+     * Customize the search.
+     * The method is called once the constraints have been injected in the problem.
+     *
+     * @param rp the problem to customize
+     * @throws SolverException if an error occurred
+     */
+    void customize(ReconfigurationProblem rp) throws SolverException;
+}
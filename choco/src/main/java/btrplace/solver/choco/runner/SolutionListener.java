@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner;
+
+import btrplace.plan.ReconfigurationPlan;
+
+/**
+ * A listener that is notified each time the solver computes a solution.
+ * In optimization mode, each solution improves the previous one.
+ * <p/>
+ * The listener is called by the thread that runs the solving process, so it
+ * must return quickly. When the instance is solved by several threads, as with
+ * {@link btrplace.solver.choco.runner.disjoint.StaticPartitioning} or
+ * {@link btrplace.solver.choco.runner.portfolio.Portfolio}, the listener may be
+ * called concurrently and receives the plans computed for each (sub-)instance.
+ *
+ * @author Fabien Hermenier
+ * @see btrplace.solver.choco.ChocoReconfigurationAlgorithmParams#addSolutionListener(SolutionListener)
+ */
+public interface SolutionListener {
+
+    /**
+     * Notify a new solution.
+     *
+     * @param plan the plan associated to the solution
+     * @param st   the statistics of the solution, including its cost if there is an objective
+     */
+    void onSolution(ReconfigurationPlan plan, SolutionStatistics st);
+}
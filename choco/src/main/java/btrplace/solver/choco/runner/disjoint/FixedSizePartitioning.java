@@ -20,6 +20,7 @@ package btrplace.solver.choco.runner.disjoint;
 
 import btrplace.model.Instance;
 import btrplace.model.Mapping;
+import btrplace.model.MappingUtils;
 import btrplace.model.Node;
 import btrplace.solver.SolverException;
 import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
@@ -83,7 +84,7 @@ public class FixedSizePartitioning extends FixedNodeSetsPartitioning {
         Set<Node> curPartition = new HashSet<>(partSize);
         partOfNodes.add(curPartition);
 
-        for (Node node : map.getAllNodes()) {
+        for (Node node : MappingUtils.allNodes(map)) {
             if (curPartition.size() == partSize) {
                 curPartition = new HashSet<>(partSize);
                 partOfNodes.add(curPartition);
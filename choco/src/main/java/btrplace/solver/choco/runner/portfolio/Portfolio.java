@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner.portfolio;
+
+import btrplace.model.Instance;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.runner.InstanceResult;
+import btrplace.solver.choco.runner.InstanceSolver;
+import btrplace.solver.choco.runner.SearchCustomizer;
+import btrplace.solver.choco.runner.SolutionStatistics;
+import btrplace.solver.choco.runner.single.InstanceSolverRunner;
+import solver.ResolutionPolicy;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A solver that races several diversified searches of a same instance in parallel.
+ * Each worker builds its own problem and customizes its search using
+ * a {@link SearchCustomizer}.
+ * <p/>
+ * In satisfaction mode, the result of the first worker that terminates is retained
+ * and the other workers are stopped.
+ * In optimization mode, the workers run until the time limit and the best plan is retained.
+ * If a worker proves the optimality of its solution before the time limit,
+ * the other workers are stopped.
+ * <p/>
+ * By default, there is one worker per available core. The first worker
+ * uses the default search while the others use a {@link RandomizedPlacement}
+ * with a distinct seed.
+ *
+ * @author Fabien Hermenier
+ */
+public class Portfolio implements InstanceSolver {
+
+    private List<SearchCustomizer> workers;
+
+    /**
+     * Make a new portfolio with one worker per available core.
+     */
+    public Portfolio() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Make a new portfolio with a given number of workers.
+     * The first worker uses the default search while the others
+     * use a {@link RandomizedPlacement} with a distinct seed.
+     *
+     * @param nb the number of workers. Must be >= 1
+     */
+    public Portfolio(int nb) {
+        if (nb < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        workers = new ArrayList<>(nb);
+        workers.add(null);
+        for (int i = 1; i < nb; i++) {
+            workers.add(new RandomizedPlacement(i));
+        }
+    }
+
+    /**
+     * Make a new portfolio with specific workers.
+     *
+     * @param ws the customizer for each worker. A {@code null} customizer denotes the default search
+     */
+    public Portfolio(List<SearchCustomizer> ws) {
+        if (ws.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        workers = new ArrayList<>(ws);
+    }
+
+    /**
+     * Get the customizer of each worker.
+     *
+     * @return a list of customizers. A {@code null} customizer denotes the default search
+     */
+    public List<SearchCustomizer> getWorkers() {
+        return Collections.unmodifiableList(workers);
+    }
+
+    @Override
+    public InstanceResult solve(ChocoReconfigurationAlgorithmParams ps, Instance i) throws SolverException {
+        long start = System.currentTimeMillis();
+        int nb = workers.size();
+        InstanceSolverRunner[] runners = new InstanceSolverRunner[nb];
+        InstanceResult[] results = new InstanceResult[nb];
+        Map<Future<InstanceResult>, Integer> ids = new HashMap<>(nb);
+
+        ExecutorService exe = Executors.newFixedThreadPool(nb);
+        CompletionService<InstanceResult> completionService = new ExecutorCompletionService<>(exe);
+
+        long duration = -System.currentTimeMillis();
+        for (int w = 0; w < nb; w++) {
+            runners[w] = new InstanceSolverRunner(ps, i, workers.get(w));
+            ids.put(completionService.submit(runners[w]), w);
+        }
+
+        int winner = -1;
+        boolean over = false;
+        Throwable error = null;
+        try {
+            for (int k = 0; k < nb; k++) {
+                Future<InstanceResult> f = completionService.take();
+                int w = ids.get(f);
+                try {
+                    results[w] = f.get();
+                } catch (ExecutionException ex) {
+                    if (error == null) {
+                        error = ex.getCause() != null ? ex.getCause() : ex;
+                    }
+                    continue;
+                }
+                if (over || results[w] == null) {
+                    continue;
+                }
+                if (!ps.doOptimize() || isTerminated(ps, start)) {
+                    //First result in satisfaction mode, or a proven optimal/infeasible problem
+                    winner = w;
+                    over = true;
+                    stop(runners);
+                } else if (results[w].getPlan() != null
+                        && (winner < 0 || isBetter(runners[w], results[w], results[winner]))) {
+                    winner = w;
+                }
+            }
+        } catch (InterruptedException e) {
+            stop(runners);
+            throw new SolverException(i.getModel(), e.getMessage(), e);
+        } finally {
+            exe.shutdown();
+        }
+        duration += System.currentTimeMillis();
+
+        if (winner < 0 && error != null) {
+            throw new SolverException(i.getModel(), error.getMessage(), error);
+        }
+
+        PortfolioStatistics stats = new PortfolioStatistics(ps,
+                i.getModel().getMapping().getNbNodes(),
+                i.getModel().getMapping().getNbVMs(),
+                i.getSatConstraints().size(),
+                start,
+                duration,
+                winner);
+        for (InstanceResult res : results) {
+            stats.addWorkerStatistics(res == null ? null : res.getStatistics());
+        }
+        return new InstanceResult(winner < 0 ? null : results[winner].getPlan(), stats);
+    }
+
+    /**
+     * Check if a worker terminated before the time limit.
+     * In that case, it proved the optimality of its solution or the absence of solution.
+     */
+    private static boolean isTerminated(ChocoReconfigurationAlgorithmParams ps, long start) {
+        return ps.getTimeLimit() <= 0 || System.currentTimeMillis() - start < ps.getTimeLimit() * 1000L;
+    }
+
+    private static void stop(InstanceSolverRunner[] runners) {
+        for (InstanceSolverRunner r : runners) {
+            r.stop();
+        }
+    }
+
+    /**
+     * Check if a result has a better objective value than another.
+     *
+     * @param r    the runner that computed the candidate
+     * @param cand the candidate result
+     * @param best the best result so far
+     * @return {@code true} iff the candidate is strictly better
+     */
+    private static boolean isBetter(InstanceSolverRunner r, InstanceResult cand, InstanceResult best) {
+        ReconfigurationProblem rp = r.getProblem();
+        List<SolutionStatistics> c = cand.getStatistics().getSolutions();
+        List<SolutionStatistics> b = best.getStatistics().getSolutions();
+        if (rp == null || c.isEmpty() || b.isEmpty()) {
+            return false;
+        }
+        SolutionStatistics lastC = c.get(c.size() - 1);
+        SolutionStatistics lastB = b.get(b.size() - 1);
+        if (!lastC.hasObjective() || !lastB.hasObjective()) {
+            return false;
+        }
+        if (rp.getResolutionPolicy() == ResolutionPolicy.MAXIMIZE) {
+            return lastC.getOptValue() > lastB.getOptValue();
+        }
+        return lastC.getOptValue() < lastB.getOptValue();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner.portfolio;
+
+import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.runner.SolutionStatistics;
+import btrplace.solver.choco.runner.SolvingStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics for a portfolio solving process.
+ * The solutions are those of the worker that computed the retained plan
+ * while the search statistics are cumulated over all the workers.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioStatistics implements SolvingStatistics {
+
+    private List<SolvingStatistics> workerResults;
+
+    private int nbNodes, nbVMs, nbConstraints, winner;
+
+    private long nbSearchNodes, nbBacktracks, coreRPDuration, speRPDuration;
+
+    private long duration, start;
+
+    private ChocoReconfigurationAlgorithmParams params;
+
+    /**
+     * Make the statistics.
+     *
+     * @param ps the standard parameters for the solving process
+     * @param n  the number of nodes in the model
+     * @param v  the number of VMs in the model
+     * @param c  the number of satisfaction-oriented constraints.
+     * @param st the moment the computation started, epoch format
+     * @param d  the solving process duration in milliseconds
+     * @param w  the index of the worker that computed the retained result. {@code -1} if there is none
+     */
+    public PortfolioStatistics(ChocoReconfigurationAlgorithmParams ps, int n, int v, int c,
+                               long st, long d, int w) {
+        workerResults = new ArrayList<>();
+        params = ps;
+        nbNodes = n;
+        nbVMs = v;
+        nbConstraints = c;
+        start = st;
+        duration = d;
+        winner = w;
+    }
+
+    /**
+     * Add the statistics related to a worker.
+     * Workers must be added in order.
+     *
+     * @param stats the worker statistics. {@code null} if the worker failed
+     */
+    public void addWorkerStatistics(SolvingStatistics stats) {
+        workerResults.add(stats);
+        if (stats != null) {
+            nbSearchNodes += stats.getNbSearchNodes();
+            nbBacktracks += stats.getNbBacktracks();
+            coreRPDuration = Math.max(coreRPDuration, stats.getCoreRPBuildDuration());
+            speRPDuration = Math.max(speRPDuration, stats.getSpeRPDuration());
+        }
+    }
+
+    /**
+     * Get the statistics of each worker.
+     *
+     * @return a list of statistics, ordered by worker. A {@code null} element denotes a worker that failed
+     */
+    public List<SolvingStatistics> getWorkerStatistics() {
+        return Collections.unmodifiableList(workerResults);
+    }
+
+    /**
+     * Get the worker that computed the retained result.
+     *
+     * @return the worker index. {@code -1} if there is no result
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Get the number of workers.
+     *
+     * @return a number >= 1
+     */
+    public int getNbWorkers() {
+        return workerResults.size();
+    }
+
+    private SolvingStatistics winnerStatistics() {
+        return winner < 0 ? null : workerResults.get(winner);
+    }
+
+    @Override
+    public long getSolvingDuration() {
+        return duration;
+    }
+
+    @Override
+    public long getCoreRPBuildDuration() {
+        return coreRPDuration;
+    }
+
+    @Override
+    public long getSpeRPDuration() {
+        return speRPDuration;
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getNbSearchNodes() {
+        return nbSearchNodes;
+    }
+
+    @Override
+    public long getNbBacktracks() {
+        return nbBacktracks;
+    }
+
+    @Override
+    public boolean hitTimeout() {
+        SolvingStatistics w = winnerStatistics();
+        return w == null || w.hitTimeout();
+    }
+
+    /**
+     * Get the solutions computed by the worker that computed the retained result.
+     *
+     * @return a list of solutions that may be empty
+     */
+    @Override
+    public List<SolutionStatistics> getSolutions() {
+        SolvingStatistics w = winnerStatistics();
+        if (w == null) {
+            return Collections.emptyList();
+        }
+        return w.getSolutions();
+    }
+
+    @Override
+    public int getNbVMs() {
+        return nbVMs;
+    }
+
+    @Override
+    public int getNbNodes() {
+        return nbNodes;
+    }
+
+    @Override
+    public int getNbManagedVMs() {
+        SolvingStatistics w = winnerStatistics();
+        return w == null ? nbVMs : w.getNbManagedVMs();
+    }
+
+    @Override
+    public int getNbConstraints() {
+        return nbConstraints;
+    }
+
+    @Override
+    public ChocoReconfigurationAlgorithmParams getParameters() {
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append(nbNodes).append(" node(s)")
+                .append("; ").append(nbVMs).append(" VM(s)")
+                .append("; ").append(getNbWorkers()).append(" worker(s)")
+                .append("; ").append(nbConstraints).append(" constraint(s)");
+        if (params.doOptimize()) {
+            b.append("; optimize");
+        }
+        if (params.getTimeLimit() > 0) {
+            b.append("; timeout: ").append(params.getTimeLimit()).append("s");
+        }
+        b.append("\nAfter ").append(duration).append("ms of search: ")
+                .append(nbSearchNodes).append(" opened search node(s), ")
+                .append(nbBacktracks).append(" backtrack(s)");
+        if (winner >= 0) {
+            b.append("; retained worker: ").append(winner);
+        }
+        for (int i = 0; i < workerResults.size(); i++) {
+            b.append("\n--- worker ").append(i).append(" ---\n");
+            b.append(workerResults.get(i) == null ? "failed" : workerResults.get(i).toString());
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner.portfolio;
+
+import btrplace.model.VM;
+import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.constraint.mttr.RandomVMPlacement;
+import btrplace.solver.choco.constraint.mttr.VMPlacementUtils;
+import btrplace.solver.choco.runner.SearchCustomizer;
+import solver.Solver;
+import solver.search.strategy.selectors.variables.InputOrder;
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.search.strategy.strategy.Assignment;
+import solver.search.strategy.strategy.StrategiesSequencer;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A customizer that places first the VMs in a random order.
+ * A VM stays on its current node when possible, otherwise
+ * it is placed on a random node.
+ * The randomness is driven by a seed so the search is reproducible.
+ *
+ * @author Fabien Hermenier
+ */
+public class RandomizedPlacement implements SearchCustomizer {
+
+    private long seed;
+
+    /**
+     * Make a new customizer.
+     *
+     * @param s the seed for the random number generator
+     */
+    public RandomizedPlacement(long s) {
+        seed = s;
+    }
+
+    /**
+     * Get the seed of the random number generator.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public void customize(ReconfigurationProblem rp) {
+        Map<IntVar, VM> pla = VMPlacementUtils.makePlacementMap(rp);
+        if (pla.isEmpty()) {
+            return;
+        }
+        //Start from the VMs index to be reproducible
+        List<IntVar> hosts = new ArrayList<>(pla.size());
+        for (VM vm : rp.getVMs()) {
+            if (rp.getFutureRunningVMs().contains(vm)) {
+                hosts.add(rp.getVMAction(vm).getDSlice().getHoster());
+            }
+        }
+        Random rnd = new Random(seed);
+        Collections.shuffle(hosts, rnd);
+
+        Solver s = rp.getSolver();
+        AbstractStrategy placement = new Assignment(new InputOrder<>(hosts.toArray(new IntVar[hosts.size()])),
+                new RandomVMPlacement(rp, pla, null, true, rnd));
+        AbstractStrategy cur = s.getSearchLoop().getStrategy();
+        if (cur == null) {
+            s.getSearchLoop().set(placement);
+        } else {
+            s.getSearchLoop().set(new StrategiesSequencer(s.getEnvironment(), placement, cur));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "randomizedPlacement(seed=" + seed + ")";
+    }
+}
@@ -19,6 +19,7 @@
 package btrplace.solver.choco.runner.single;
 
 import btrplace.model.Instance;
+import btrplace.model.MappingUtils;
 import btrplace.model.Model;
 import btrplace.model.Node;
 import btrplace.model.VM;
@@ -32,10 +33,14 @@ import btrplace.solver.choco.DefaultReconfigurationProblemBuilder;
 import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.constraint.ChocoConstraint;
 import btrplace.solver.choco.constraint.ChocoConstraintBuilder;
+import btrplace.solver.choco.constraint.mttr.LargeNeighborhood;
 import btrplace.solver.choco.runner.InstanceResult;
+import btrplace.solver.choco.runner.SearchCustomizer;
+import btrplace.solver.choco.runner.SolutionListener;
 import btrplace.solver.choco.runner.SolutionStatistics;
 import solver.Cause;
 import solver.exception.ContradictionException;
+import solver.search.loop.monitors.IMonitorOpenNode;
 import solver.search.loop.monitors.IMonitorSolution;
 import solver.search.loop.monitors.SMF;
 import solver.search.measure.IMeasures;
@@ -74,6 +79,10 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
      */
     private List<ChocoConstraint> cConstraints;
 
+    private SearchCustomizer customizer;
+
+    private volatile boolean stopped;
+
     /**
      * Make a new runner.
      *
@@ -81,10 +90,41 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
      * @param i  the instance to solve
      */
     public InstanceSolverRunner(ChocoReconfigurationAlgorithmParams ps, Instance i) {
+        this(ps, i, null);
+    }
+
+    /**
+     * Make a new runner that customizes the search.
+     *
+     * @param ps the parameters for the solving process
+     * @param i  the instance to solve
+     * @param c  the customizer to apply once the constraints are injected. {@code null} to keep the default search
+     */
+    public InstanceSolverRunner(ChocoReconfigurationAlgorithmParams ps, Instance i, SearchCustomizer c) {
         cstrs = i.getSatConstraints();
         obj = i.getOptConstraint();
         origin = i.getModel();
         params = ps;
+        customizer = c;
+    }
+
+    /**
+     * Ask the runner to stop the solving process as soon as possible.
+     * The runner then returns the best solution computed so far, like
+     * when the time limit is reached.
+     * This method can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Get the problem built by the runner.
+     *
+     * @return the problem. {@code null} if the problem is not built yet
+     */
+    public ReconfigurationProblem getProblem() {
+        return rp;
     }
 
     @Override
@@ -110,6 +150,11 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
         if (!injectConstraints()) {
             return new InstanceResult(null, makeStatistics());
         }
+        if (customizer != null) {
+            customizer.customize(rp);
+        } else if (params.doOptimize() && params.doLNS()) {
+            new LargeNeighborhood(0, cstrs).customize(rp);
+        }
         speRPDuration += System.currentTimeMillis();
 
         //statistics
@@ -134,9 +179,27 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
                             (long) m.getTimeCount());
                 }
                 measures.add(sol);
+                notifyListeners(sol);
             }
         });
 
+        //Check at each node if the runner has been stopped
+        rp.getSolver().getSearchLoop().plugSearchMonitor(new IMonitorOpenNode() {
+            @Override
+            public void beforeOpenNode() {
+                if (stopped) {
+                    rp.getSolver().getSearchLoop().interrupt("Runner stopped");
+                }
+            }
+
+            @Override
+            public void afterOpenNode() {
+            }
+        });
+        if (stopped) {
+            return new InstanceResult(null, makeStatistics());
+        }
+
         //State the logging level for the solver
         SMF.log(rp.getSolver(), params.getVerbosity() >= 2, params.getVerbosity() >= 3);
 
@@ -213,6 +276,25 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
         return true;
     }
 
+    /**
+     * Notify the solution listeners with the plan associated to the current solution.
+     *
+     * @param sol the solution statistics
+     */
+    private void notifyListeners(SolutionStatistics sol) {
+        if (params.getSolutionListeners().isEmpty()) {
+            return;
+        }
+        try {
+            ReconfigurationPlan p = rp.buildReconfigurationPlan();
+            for (SolutionListener l : params.getSolutionListeners()) {
+                l.onSolution(p, sol);
+            }
+        } catch (SolverException ex) {
+            rp.getLogger().error("Unable to build the plan of the current solution: {}", ex.getMessage());
+        }
+    }
+
     /**
      * Build a sat constraint
      *
@@ -266,7 +348,7 @@ public class InstanceSolverRunner implements Callable<InstanceResult> {
             //This loop prevent from a useless allocation of memory when there is no issue
             if (!m.getMapping().contains(v)) {
                 Set<VM> unknown = new HashSet<>(vms);
-                unknown.removeAll(m.getMapping().getAllVMs());
+                unknown.removeAll(MappingUtils.allVMs(m.getMapping()));
                 throw new SolverException(m, "Unknown VMs: " + unknown);
             }
         }
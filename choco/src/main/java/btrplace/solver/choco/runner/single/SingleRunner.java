@@ -23,6 +23,7 @@ import btrplace.solver.SolverException;
 import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
 import btrplace.solver.choco.runner.InstanceResult;
 import btrplace.solver.choco.runner.InstanceSolver;
+import btrplace.solver.choco.runner.SearchCustomizer;
 
 /**
  * A simple runner that solve in one stage a whole instance.
@@ -31,10 +32,37 @@ import btrplace.solver.choco.runner.InstanceSolver;
  */
 public class SingleRunner implements InstanceSolver {
 
+    private SearchCustomizer customizer;
+
+    /**
+     * Make a new runner that relies on the default search.
+     */
+    public SingleRunner() {
+        this(null);
+    }
+
+    /**
+     * Make a new runner that customizes the search.
+     *
+     * @param c the customizer to use. {@code null} to keep the default search
+     */
+    public SingleRunner(SearchCustomizer c) {
+        customizer = c;
+    }
+
+    /**
+     * Get the customizer of the search.
+     *
+     * @return the customizer if any. {@code null} otherwise
+     */
+    public SearchCustomizer getSearchCustomizer() {
+        return customizer;
+    }
+
     @Override
     public InstanceResult solve(ChocoReconfigurationAlgorithmParams cra,
                                 Instance i) throws SolverException {
-        InstanceSolverRunner r = new InstanceSolverRunner(cra, i);
+        InstanceSolverRunner r = new InstanceSolverRunner(cra, i, customizer);
         return r.call();
 
     }
@@ -171,11 +171,11 @@ public class RelocatableVM implements KeepRunningVM {
 
     private void prepareRelocationMethod() throws SolverException {
         Model mo = rp.getSourceModel();
-        Boolean cloneable = mo.getAttributes().getBoolean(vm, "clone");
+        boolean cloneable = mo.getAttributes().getBoolean(vm, "clone", false);
         DurationEvaluators dev = rp.getDurationEvaluators();
         Solver s = rp.getSolver();
         int migrateDuration = dev.evaluate(rp.getSourceModel(), MigrateVM.class, vm);
-        if (Boolean.TRUE.equals(cloneable) && mo.getAttributes().isSet(vm, "template")) {
+        if (cloneable && mo.getAttributes().isSet(vm, "template")) {
             doReinstantiation = VariableFactory.bool(rp.makeVarLabel("relocation_method(", vm, ")"), s);
             int bootDuration = dev.evaluate(rp.getSourceModel(), btrplace.plan.event.BootVM.class, vm);
             int shutdownDuration = dev.evaluate(rp.getSourceModel(), btrplace.plan.event.ShutdownVM.class, vm);
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package btrplace.solver.choco.transition;
+
+import btrplace.model.Node;
+import btrplace.model.NodeState;
+import btrplace.plan.ReconfigurationPlan;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ReconfigurationProblem;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+
+/**
+ * A fake action model that indicates the node is online
+ * and will stay online for sure. No variables or constraints are created:
+ * <ul>
+ * <li>{@link #getState()} = 1</li>
+ * <li>{@link #getStart()} = {@link #getEnd()} = {@link #getDuration()} = {@link btrplace.solver.choco.ReconfigurationProblem#getStart()}</li>
+ * <li>{@link #getHostingStart()} = {@link btrplace.solver.choco.ReconfigurationProblem#getStart()}</li>
+ * <li>{@link #getHostingEnd()} = {@link btrplace.solver.choco.ReconfigurationProblem#getEnd()}</li>
+ * </ul>
+ * The model is only valid if it is sure the node cannot go offline, for example
+ * because it hosts a running VM that is not manageable.
+ *
+ * @author Fabien Hermenier
+ */
+public class StayOnlineNode implements NodeTransition {
+
+    private Node node;
+
+    private BoolVar one;
+
+    private IntVar start;
+
+    private IntVar end;
+
+    /**
+     * Make a new model.
+     *
+     * @param rp the RP to use as a basis.
+     * @param e  the node managed by the action
+     */
+    public StayOnlineNode(ReconfigurationProblem rp, Node e) {
+        node = e;
+        one = VariableFactory.one(rp.getSolver());
+        start = rp.getStart();
+        end = rp.getEnd();
+    }
+
+    @Override
+    public boolean insertActions(ReconfigurationPlan plan) {
+        return true;
+    }
+
+    @Override
+    public Node getNode() {
+        return node;
+    }
+
+    @Override
+    public IntVar getStart() {
+        return start;
+    }
+
+    @Override
+    public IntVar getEnd() {
+        return start;
+    }
+
+    @Override
+    public IntVar getDuration() {
+        return start;
+    }
+
+    @Override
+    public BoolVar getState() {
+        return one;
+    }
+
+    @Override
+    public IntVar getHostingStart() {
+        return start;
+    }
+
+    @Override
+    public IntVar getHostingEnd() {
+        return end;
+    }
+
+    /**
+     * The builder devoted to a online->online transition.
+     */
+    public static class Builder extends NodeTransitionBuilder {
+
+        /**
+         * New builder
+         */
+        public Builder() {
+            super("stayOnline", NodeState.ONLINE);
+        }
+
+        @Override
+        public NodeTransition build(ReconfigurationProblem r, Node n) throws SolverException {
+            return new StayOnlineNode(r, n);
+        }
+    }
+}
@@ -35,6 +35,8 @@ public class TransitionFactory {
 
     private Map<NodeState, NodeTransitionBuilder> nodeAMB;
 
+    private NodeTransitionBuilder staticNodeBuilder;
+
     /**
      * Make a new factory.
      */
@@ -115,6 +117,25 @@ public class TransitionFactory {
         return nodeAMB.get(srcState);
     }
 
+    /**
+     * Set the builder to use for the online nodes that are known to stay online.
+     * Such a builder is expected to produce a model without any variable nor constraint.
+     *
+     * @param b the builder to use. {@code null} to use the regular builder for these nodes
+     */
+    public void setStaticNodeBuilder(NodeTransitionBuilder b) {
+        staticNodeBuilder = b;
+    }
+
+    /**
+     * Get the builder to use for the online nodes that are known to stay online.
+     *
+     * @return a builder. {@code null} if the regular builder must be used
+     */
+    public NodeTransitionBuilder getStaticNodeBuilder() {
+        return staticNodeBuilder;
+    }
+
     /**
      * a new factory that embeds the default builders.
      *
@@ -133,6 +154,7 @@ public class TransitionFactory {
         f.add(new StayAwayVM.BuilderSleeping());
         f.add(new BootableNode.Builder());
         f.add(new ShutdownableNode.Builder());
+        f.setStaticNodeBuilder(new StayOnlineNode.Builder());
         return f;
     }
 
@@ -142,6 +164,9 @@ public class TransitionFactory {
         for (Object nb : nodeAMB.values()) {
             b.append("node ").append(nb).append('\n');
         }
+        if (staticNodeBuilder != null) {
+            b.append("static node ").append(staticNodeBuilder).append('\n');
+        }
         Set<VMTransitionBuilder> vmb = new HashSet<>();
         for (Map.Entry<VMState, List<VMTransitionBuilder>> entry : vmAMB2.entrySet()) {
             for (VMTransitionBuilder a : entry.getValue()) {
@@ -25,6 +25,7 @@ import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.transition.BootableNode;
 import btrplace.solver.choco.transition.NodeTransition;
 import btrplace.solver.choco.transition.ShutdownableNode;
+import btrplace.solver.choco.transition.StayOnlineNode;
 import solver.variables.IntVar;
 import solver.variables.VF;
 
@@ -68,6 +69,9 @@ public class CPowerView implements ChocoView {
             } else if (na instanceof BootableNode) {
                 powerStarts.put(rp.getNode(n), na.getStart());
                 powerEnds.put(rp.getNode(n), na.getHostingEnd());
+            } else if (na instanceof StayOnlineNode) {
+                powerStarts.put(rp.getNode(n), rp.getStart());
+                powerEnds.put(rp.getNode(n), rp.getEnd());
             }
         }
     }
@@ -19,6 +19,7 @@
 package btrplace.solver.choco.view;
 
 import btrplace.model.Mapping;
+import btrplace.model.MappingUtils;
 import btrplace.model.Model;
 import btrplace.model.Node;
 import btrplace.model.VM;
@@ -37,7 +38,6 @@ import solver.Solver;
 import solver.constraints.IntConstraintFactory;
 import solver.exception.ContradictionException;
 import solver.variables.IntVar;
-import solver.variables.RealVar;
 import solver.variables.VariableFactory;
 
 import java.util.*;
@@ -58,7 +58,20 @@ public class CShareableResource implements ChocoView {
 
     private IntVar[] vmAllocation;
 
-    private RealVar[] ratios;
+    /**
+     * The overbooking ratio for each node, as a fixed-point value with a precision of {@link #RATIO_PRECISION}.
+     */
+    private int[] ratios;
+
+    /**
+     * The current consumption of each VM, indexed like {@link ReconfigurationProblem#getVMs()}.
+     */
+    private int[] vmConsumptions;
+
+    /**
+     * The capacity of each node, indexed like {@link ReconfigurationProblem#getNodes()}.
+     */
+    private int[] nodeCapacities;
 
     private ReconfigurationProblem rp;
 
@@ -74,7 +87,12 @@ public class CShareableResource implements ChocoView {
     /**
      * The default value of ratio is not logical to detect an unchanged value
      */
-    public static final double UNCHECKED_RATIO = Double.MAX_VALUE / 100;
+    public static final int UNCHECKED_RATIO = Integer.MAX_VALUE / 100;
+
+    /**
+     * The overbooking ratios are stored as integers. This is the value of a ratio equals to 1.
+     */
+    public static final int RATIO_PRECISION = 100;
 
     /**
      * Make a new mapping.
@@ -92,13 +110,15 @@ public class CShareableResource implements ChocoView {
         Node[] nodes = p.getNodes();
         phyRcUsage = new IntVar[nodes.length];
         virtRcUsage = new IntVar[nodes.length];
-        this.ratios = new RealVar[nodes.length];
+        this.ratios = new int[nodes.length];
         id = ShareableResource.VIEW_ID_BASE + r.getResourceIdentifier();
+        nodeCapacities = r.getCapacities(nodes);
+        vmConsumptions = r.getConsumptions(p.getVMs());
         for (int i = 0; i < nodes.length; i++) {
             Node nId = p.getNode(i);
-            phyRcUsage[i] = VariableFactory.bounded(p.makeVarLabel("phyRcUsage('", r.getResourceIdentifier(), "', '", nId, "')"), 0, r.getCapacity(nodes[i]), p.getSolver());
+            phyRcUsage[i] = VariableFactory.bounded(p.makeVarLabel("phyRcUsage('", r.getResourceIdentifier(), "', '", nId, "')"), 0, nodeCapacities[i], p.getSolver());
             virtRcUsage[i] = VariableFactory.bounded(p.makeVarLabel("virtRcUsage('", r.getResourceIdentifier(), "', '", nId, "')"), 0, Integer.MAX_VALUE / 100, p.getSolver());
-            ratios[i] = VariableFactory.real(p.makeVarLabel("overbook('", r.getResourceIdentifier(), "', '", nId, "')"), 1, UNCHECKED_RATIO, 0.01, p.getSolver());
+            ratios[i] = UNCHECKED_RATIO;
         }
 
 
@@ -213,6 +233,15 @@ public class CShareableResource implements ChocoView {
         return vmAllocation;
     }
 
+    /**
+     * Get the current consumption of each VM.
+     *
+     * @return an array of consumptions indexed like {@link ReconfigurationProblem#getVMs()}
+     */
+    public int[] getVMsConsumption() {
+        return vmConsumptions;
+    }
+
     /**
      * Get the amount of virtual resource to allocate a given VM.
      * <b>Warning: the only possible approach to restrict this value is to increase their
@@ -230,25 +259,43 @@ public class CShareableResource implements ChocoView {
 
     /**
      * Get the overbooking ratio for a node.
-     * <b>WARNING: it is only allowed to reduce the upper-bound of the ratio using {@code #setSup(x)} methods</b>
      *
      * @param nId the node identifier
-     * @return an array of ratios.
+     * @return the ratio as a fixed-point value with a precision of {@link #RATIO_PRECISION}.
+     * {@link #UNCHECKED_RATIO} if the ratio has not been restricted
      */
-    public RealVar getOverbookRatio(int nId) {
+    public int getOverbookRatio(int nId) {
         return ratios[nId];
     }
 
     /**
      * Get the overbooking ratios for every nodes.
-     * <b>WARNING: it is only allowed to reduce the upper-bound of the ratio using {@code #setSup(x)} methods</b>
      *
-     * @return an array of ratios.
+     * @return an array of fixed-point ratios with a precision of {@link #RATIO_PRECISION}.
      */
-    public RealVar[] getOverbookRatios() {
+    public int[] getOverbookRatios() {
         return ratios;
     }
 
+    /**
+     * Restrict the overbooking ratio of a node.
+     * The ratio is truncated to the precision of {@link #RATIO_PRECISION}.
+     * It is only possible to reduce a ratio.
+     *
+     * @param nId the node identifier
+     * @param r   the maximum ratio
+     * @return {@code false} if the ratio is lesser than 1
+     */
+    public boolean capOverbookRatio(int nId, double r) {
+        //The epsilon prevents a value like 0.29 * 100 to be truncated to 28
+        int q = (int) Math.min(UNCHECKED_RATIO - 1, Math.floor(r * RATIO_PRECISION + 1e-6));
+        if (q < RATIO_PRECISION) {
+            return false;
+        }
+        ratios[nId] = Math.min(ratios[nId], q);
+        return true;
+    }
+
     /**
      * Generate and addDim an {@link btrplace.plan.event.Allocate} action if the amount of
      * resources allocated to a VM has changed.
@@ -262,8 +309,9 @@ public class CShareableResource implements ChocoView {
      */
     public boolean addAllocateAction(ReconfigurationPlan plan, VM e, Node node, int st, int ed) {
 
-        int use = vmAllocation[rp.getVM(e)].getLB();
-        if (rc.getConsumption(e) != use) {
+        int vmIdx = rp.getVM(e);
+        int use = vmAllocation[vmIdx].getLB();
+        if (vmConsumptions[vmIdx] != use) {
             //The allocation has changed
             Allocate a = new Allocate(e, node, rc.getIdentifier(), use, st, ed);
             return plan.add(a);
@@ -290,11 +338,11 @@ public class CShareableResource implements ChocoView {
      */
     @Override
     public boolean beforeSolve(ReconfigurationProblem p) throws SolverException {
-        for (VM vm : source.getMapping().getAllVMs()) {
+        for (VM vm : MappingUtils.allVMs(source.getMapping())) {
             int vmId = p.getVM(vm);
             IntVar v = vmAllocation[vmId];
             if (v.getLB() < 0) {
-                int prevUsage = rc.getConsumption(vm);
+                int prevUsage = vmConsumptions[vmId];
                 try {
                     v.updateLowerBound(prevUsage, Cause.Null);
                 } catch (ContradictionException e) {
@@ -370,8 +418,9 @@ public class CShareableResource implements ChocoView {
 
     private boolean insertAllocateAction(ReconfigurationPlan p, VM vm, Node destNode, int st) {
         String rcId = getResourceIdentifier();
-        int prev = rc.getConsumption(vm);
-        int now = getVMsAllocation()[rp.getVM(vm)].getValue();
+        int vmIdx = rp.getVM(vm);
+        int prev = vmConsumptions[vmIdx];
+        int now = vmAllocation[vmIdx].getValue();
         if (prev != now) {
             Allocate a = new Allocate(vm, destNode, rcId, now, st, st);
             return p.add(a);
@@ -391,15 +440,13 @@ public class CShareableResource implements ChocoView {
         TIntArrayList cUse = new TIntArrayList();
         List<IntVar> dUse = new ArrayList<>();
 
-        for (VM vmId : rp.getVMs()) {
-            VMTransition a = rp.getVMAction(vmId);
-            Slice c = a.getCSlice();
-            Slice d = a.getDSlice();
-            if (c != null) {
-                cUse.add(getSourceResource().getConsumption(vmId));
+        VMTransition[] actions = rp.getVMActions();
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i].getCSlice() != null) {
+                cUse.add(vmConsumptions[i]);
             }
-            if (d != null) {
-                dUse.add(vmAllocation[rp.getVM(vmId)]);
+            if (actions[i].getDSlice() != null) {
+                dUse.add(vmAllocation[i]);
             }
         }
 
@@ -415,21 +462,14 @@ public class CShareableResource implements ChocoView {
     }
 
     private boolean linkVirtualToPhysicalUsage(int nIdx) {
-        double r = ratios[nIdx].getUB();
+        int r = ratios[nIdx];
         if (r == UNCHECKED_RATIO) {
             //Default overbooking ratio is 1.
-            r = 1;
+            r = RATIO_PRECISION;
+            ratios[nIdx] = r;
         }
 
-        try {
-            ratios[nIdx].updateBounds(r, r, Cause.Null);
-        } catch (ContradictionException ex) {
-            rp.getLogger().error("Unable to set '{}' to {}", ratios[nIdx], r);
-            return false;
-        }
-
-
-        if (r == 1) {
+        if (r == RATIO_PRECISION) {
             solver.post(IntConstraintFactory.arithm(phyRcUsage[nIdx], "=", virtRcUsage[nIdx]));
             try {
                 virtRcUsage[nIdx].updateUpperBound(phyRcUsage[nIdx].getUB(), Cause.Null);
@@ -438,10 +478,10 @@ public class CShareableResource implements ChocoView {
                 return false;
             }
         } else {
-            int maxPhy = getSourceResource().getCapacity(rp.getNode(nIdx));
-            int maxVirt = (int) (maxPhy * r);
+            int maxPhy = nodeCapacities[nIdx];
+            long maxVirt = (long) maxPhy * r / RATIO_PRECISION;
             if (maxVirt != 0) {
-                solver.post(new RoundedUpDivision(phyRcUsage[nIdx], virtRcUsage[nIdx], r));
+                solver.post(new RoundedUpDivision(phyRcUsage[nIdx], virtRcUsage[nIdx], r, RATIO_PRECISION));
             } else {
                 try {
                     phyRcUsage[nIdx].instantiateTo(0, Cause.Null);
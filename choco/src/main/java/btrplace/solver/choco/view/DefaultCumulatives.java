@@ -22,17 +22,21 @@ import btrplace.model.VM;
 import btrplace.plan.ReconfigurationPlan;
 import btrplace.solver.choco.ReconfigurationProblem;
 import btrplace.solver.choco.Slice;
+import btrplace.solver.choco.extensions.ChocoUtils;
 import btrplace.solver.choco.extensions.FastImpliesEq;
+import btrplace.solver.choco.extensions.LocalTaskScheduler;
 import btrplace.solver.choco.extensions.TaskScheduler;
 import btrplace.solver.choco.transition.KeepRunningVM;
 import btrplace.solver.choco.transition.TransitionUtils;
 import btrplace.solver.choco.transition.VMTransition;
+import gnu.trove.list.array.TIntArrayList;
 import solver.Cause;
 import solver.exception.ContradictionException;
 import solver.variables.BoolVar;
 import solver.variables.IntVar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -125,20 +129,88 @@ public class DefaultCumulatives extends AbstractCumulatives implements Cumulativ
             i++;
         }
         symmetryBreakingForStayingVMs();
+
+        //The slices that are pinned to their host since the beginning of the reconfiguration
+        //are compiled into the initial resource profile of the nodes.
+        int[] cKeep = movingCSlices();
+        int[] dKeep = movingDSlices(capas, dUses);
+        for (int d = 0; d < capas.length; d++) {
+            for (int j = 0; j < capas[d].length; j++) {
+                if (capas[d][j] < 0) {
+                    rp.getLogger().error("The VMs that cannot move overload node '{}'", rp.getNode(j));
+                    return false;
+                }
+            }
+        }
+        int[] cNew = new int[cHosts.length];
+        Arrays.fill(cNew, LocalTaskScheduler.NO_ASSOCIATIONS);
+        for (int x = 0; x < cKeep.length; x++) {
+            cNew[cKeep[x]] = x;
+        }
+        int[] assocs = new int[dKeep.length];
+        for (int x = 0; x < dKeep.length; x++) {
+            int a = associations[dKeep[x]];
+            assocs[x] = a == LocalTaskScheduler.NO_ASSOCIATIONS ? a : cNew[a];
+        }
+        for (int d = 0; d < capas.length; d++) {
+            cUses[d] = ChocoUtils.select(cUses[d], cKeep);
+            dUses[d] = ChocoUtils.select(dUses[d], dKeep);
+        }
+
         IntVar[] earlyStarts = TransitionUtils.getHostingStarts(rp.getNodeActions());
         IntVar[] lastEnd = TransitionUtils.getHostingEnds(rp.getNodeActions());
         rp.getSolver().post(
                 new TaskScheduler(earlyStarts,
                         lastEnd,
                         capas,
-                        cHosts, cUses, cEnds,
-                        dHosts, dUses, dStarts,
-                        associations,
+                        ChocoUtils.select(cHosts, cKeep), cUses, ChocoUtils.select(cEnds, cKeep),
+                        ChocoUtils.select(dHosts, dKeep), dUses, ChocoUtils.select(dStarts, dKeep),
+                        assocs,
                         rp.getSolver())
         );
         return true;
     }
 
+    /**
+     * Get the cSlices that may hold resources once the reconfiguration started.
+     * The others have a known host and end at the beginning of the reconfiguration.
+     *
+     * @return the indexes of the cSlices to schedule
+     */
+    private int[] movingCSlices() {
+        TIntArrayList res = new TIntArrayList(cHosts.length);
+        for (int i = 0; i < cHosts.length; i++) {
+            if (!cHosts[i].instantiated() || !cEnds[i].instantiatedTo(0)) {
+                res.add(i);
+            }
+        }
+        return res.toArray();
+    }
+
+    /**
+     * Get the dSlices that are not pinned to their host since the beginning of the reconfiguration.
+     * The resources used by the others are removed from the node capacities.
+     *
+     * @param capas the node capacities. Updated
+     * @param dUses the dSlices resource usage
+     * @return the indexes of the dSlices to schedule
+     */
+    private int[] movingDSlices(int[][] capas, int[][] dUses) {
+        TIntArrayList res = new TIntArrayList(dHosts.length);
+        for (int i = 0; i < dHosts.length; i++) {
+            if (!dHosts[i].instantiated() || !dStarts[i].instantiatedTo(0)) {
+                res.add(i);
+            } else {
+                int h = dHosts[i].getValue();
+                for (int d = 0; d < capas.length; d++) {
+                    capas[d][h] -= dUses[d][i];
+                }
+            }
+        }
+        return res.toArray();
+    }
+
+
     private Boolean strictlyDecreasingOrUnchanged(VM vm) {
         //If it has non-overlapping slices
         int[] slicesIndexes = non.get(vm);
@@ -21,6 +21,7 @@ package btrplace.solver.choco.view;
 import btrplace.model.VM;
 import btrplace.plan.ReconfigurationPlan;
 import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.extensions.ChocoUtils;
 import solver.Cause;
 import solver.Solver;
 import solver.constraints.IntConstraintFactory;
@@ -74,6 +75,9 @@ public class DefaultPacking extends Packing {
     @Override
     public boolean beforeSolve(ReconfigurationProblem p) {
         Solver solver = rp.getSolver();
+        //The VMs having a known host are compiled into offsets on the loads
+        int[] free = unpackedItems(bins.get(0));
+        IntVar[] freeBins = ChocoUtils.select(bins.get(0), free);
         int[][] iSizes = new int[sizes.size()][sizes.get(0).length];
         for (int i = 0; i < sizes.size(); i++) {
             IntVar[] s = sizes.get(i);
@@ -83,12 +87,17 @@ public class DefaultPacking extends Packing {
                 try {
                     ss.instantiateTo(ss.getLB(), Cause.Null);
                 } catch (ContradictionException ex) {
-                    rp.getLogger().error("Unable post the packing constraint for dimension '{}': ", names.get(i));
+                    rp.getLogger().error("Unable to post the packing constraint for dimension '{}'", names.get(i));
                     return false;
                 }
             }
             if (!rp.getFutureRunningVMs().isEmpty()) {
-                solver.post(IntConstraintFactory.bin_packing(bins.get(0), iSizes[i], loads.get(i), 0));
+                IntVar[] l = residualLoads(loads.get(i), iSizes[i], bins.get(0));
+                if (free.length > 0) {
+                    solver.post(IntConstraintFactory.bin_packing(freeBins, ChocoUtils.select(iSizes[i], free), l, 0));
+                } else {
+                    noLoads(solver, l);
+                }
             }
         }
         return true;
@@ -18,7 +18,11 @@
 
 package btrplace.solver.choco.view;
 
+import gnu.trove.list.array.TIntArrayList;
+import solver.Solver;
+import solver.constraints.IntConstraintFactory;
 import solver.variables.IntVar;
+import solver.variables.VariableFactory;
 
 /**
  * An abstract constraint to create vector packing constraints.
@@ -47,4 +51,58 @@ public abstract class Packing implements ChocoView {
      * @param b    the placement variable for each VM. Same order than for {@code l}
      */
     public abstract void addDim(String name, IntVar[] l, IntVar[] s, IntVar[] b);
+
+    /**
+     * Get the items that are not packed yet.
+     * In repair mode, this discards the VMs that are not manageable as their host is known.
+     *
+     * @param b the placement variable for each item
+     * @return the indexes of the items having an uninstantiated placement variable
+     */
+    protected static int[] unpackedItems(IntVar[] b) {
+        TIntArrayList res = new TIntArrayList(b.length);
+        for (int i = 0; i < b.length; i++) {
+            if (!b[i].instantiated()) {
+                res.add(i);
+            }
+        }
+        return res.toArray();
+    }
+
+    /**
+     * Compile the items that are already packed into constant offsets on the bin loads.
+     * The resulting loads are views so no variable is created.
+     *
+     * @param l the load of each bin
+     * @param s the size of each item
+     * @param b the placement variable for each item
+     * @return the load of each bin minus the size of its packed items
+     */
+    protected static IntVar[] residualLoads(IntVar[] l, int[] s, IntVar[] b) {
+        int[] offsets = new int[l.length];
+        for (int i = 0; i < b.length; i++) {
+            if (b[i].instantiated()) {
+                offsets[b[i].getValue()] += s[i];
+            }
+        }
+        IntVar[] res = new IntVar[l.length];
+        for (int j = 0; j < l.length; j++) {
+            res[j] = offsets[j] == 0 ? l[j] : VariableFactory.offset(l[j], -offsets[j]);
+        }
+        return res;
+    }
+
+    /**
+     * State the loads are equal to 0 when there is no more items to pack.
+     * The restriction is posted as constraints rather than applied on the domains
+     * as the other views may still read the bounds of the loads.
+     *
+     * @param s the solver
+     * @param l the loads
+     */
+    protected static void noLoads(Solver s, IntVar[] l) {
+        for (IntVar v : l) {
+            s.post(IntConstraintFactory.arithm(v, "=", 0));
+        }
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.view;
+
+import btrplace.model.VM;
+import btrplace.plan.ReconfigurationPlan;
+import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.extensions.ChocoUtils;
+import btrplace.solver.choco.extensions.LightBinPacking;
+import solver.Cause;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A vector packing that relies on a single {@link LightBinPacking} constraint
+ * to handle all the dimensions at once.
+ * The loads are maintained incrementally and an item is removed from a bin
+ * as soon as it does not fit into it on one of the dimensions.
+ * <p/>
+ * To use it instead of {@link DefaultPacking}, register its builder using
+ * {@link btrplace.solver.choco.ChocoReconfigurationAlgorithmParams#addSolverViewBuilder(SolverViewBuilder)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class VectorPacking extends Packing {
+
+    private ReconfigurationProblem rp;
+
+    private List<IntVar[]> loads;
+
+    private List<IntVar[]> bins;
+
+    private List<IntVar[]> sizes;
+
+    private List<String> names;
+
+    /**
+     * A new constraint.
+     *
+     * @param p the associated problem
+     */
+    public VectorPacking(ReconfigurationProblem p) {
+        loads = new ArrayList<>();
+        bins = new ArrayList<>();
+        sizes = new ArrayList<>();
+        names = new ArrayList<>();
+        this.rp = p;
+    }
+
+    @Override
+    public void addDim(String name, IntVar[] l, IntVar[] s, IntVar[] b) {
+        this.loads.add(l);
+        this.sizes.add(s);
+        this.bins.add(b);
+        this.names.add(name);
+    }
+
+    @Override
+    public boolean beforeSolve(ReconfigurationProblem p) {
+        int nbDims = sizes.size();
+        //The VMs having a known host are compiled into offsets on the loads
+        int[] free = unpackedItems(bins.get(0));
+        int[][] iSizes = new int[nbDims][];
+        for (int i = 0; i < nbDims; i++) {
+            IntVar[] s = sizes.get(i);
+            iSizes[i] = new int[s.length];
+            for (int x = 0; x < s.length; x++) {
+                iSizes[i][x] = s[x].getLB();
+                try {
+                    s[x].instantiateTo(s[x].getLB(), Cause.Null);
+                } catch (ContradictionException ex) {
+                    rp.getLogger().error("Unable to post the packing constraint for dimension '{}'", names.get(i));
+                    return false;
+                }
+            }
+        }
+        if (!rp.getFutureRunningVMs().isEmpty()) {
+            IntVar[][] l = new IntVar[nbDims][];
+            int[][] freeSizes = new int[nbDims][];
+            for (int i = 0; i < nbDims; i++) {
+                l[i] = residualLoads(loads.get(i), iSizes[i], bins.get(0));
+                freeSizes[i] = ChocoUtils.select(iSizes[i], free);
+                if (free.length == 0) {
+                    noLoads(rp.getSolver(), l[i]);
+                }
+            }
+            if (free.length > 0) {
+                rp.getSolver().post(new LightBinPacking(names.toArray(new String[nbDims]),
+                        l,
+                        freeSizes,
+                        ChocoUtils.select(bins.get(0), free)));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean insertActions(ReconfigurationProblem pb, ReconfigurationPlan p) {
+        return true;
+    }
+
+    @Override
+    public boolean cloneVM(VM vm, VM clone) {
+        return true;
+    }
+
+    /**
+     * Builder associated to this constraint.
+     */
+    public static class Builder extends SolverViewBuilder {
+
+        @Override
+        public String getKey() {
+            return Packing.VIEW_ID;
+        }
+
+        @Override
+        public Packing build(ReconfigurationProblem p) {
+            return new VectorPacking(p);
+        }
+
+        @Override
+        public List<String> getDependencies() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -25,6 +25,8 @@ import btrplace.plan.ReconfigurationPlan;
 import btrplace.solver.SolverException;
 import btrplace.solver.choco.constraint.ChocoConstraint;
 import btrplace.solver.choco.constraint.ChocoConstraintBuilder;
+import btrplace.solver.choco.runner.SolutionListener;
+import btrplace.solver.choco.runner.SolutionStatistics;
 import btrplace.solver.choco.runner.SolvingStatistics;
 import btrplace.solver.choco.transition.TransitionFactory;
 import btrplace.solver.choco.transition.TransitionUtils;
@@ -65,6 +67,10 @@ public class DefaultChocoReconfigurationAlgorithmTest {
         cra.doRepair(true);
         Assert.assertEquals(cra.doRepair(), true);
 
+        Assert.assertEquals(cra.doLNS(), false);
+        cra.doLNS(true);
+        Assert.assertEquals(cra.doLNS(), true);
+
         cra.setVerbosity(3);
         Assert.assertEquals(cra.getVerbosity(), 3);
 
@@ -138,6 +144,53 @@ public class DefaultChocoReconfigurationAlgorithmTest {
         Assert.assertEquals(st.getSolutions().size(), 10);
     }
 
+    @Test
+    public void testSolutionListener() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n0 = mo.newNode();
+        map.addOnlineNode(n0);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            VM v = mo.newVM();
+            map.addRunningVM(v, n0);
+            cstrs.add(new Ban(v, Collections.singleton(n0)));
+        }
+        final List<ReconfigurationPlan> plans = new ArrayList<>();
+        final List<SolutionStatistics> sols = new ArrayList<>();
+        SolutionListener l = new SolutionListener() {
+            @Override
+            public void onSolution(ReconfigurationPlan plan, SolutionStatistics st) {
+                plans.add(plan);
+                sols.add(st);
+            }
+        };
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.addSolutionListener(l);
+        Assert.assertEquals(cra.getSolutionListeners().size(), 1);
+        cra.doOptimize(true);
+        ReconfigurationPlan p = cra.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        Assert.assertFalse(plans.isEmpty());
+        Assert.assertEquals(plans.size(), cra.getStatistics().getSolutions().size());
+        for (int i = 0; i < plans.size(); i++) {
+            Assert.assertEquals(plans.get(i).getSize(), 5);
+            for (SatConstraint c : cstrs) {
+                Assert.assertTrue(c.isSatisfied(plans.get(i)));
+            }
+            Assert.assertTrue(sols.get(i).hasObjective());
+            if (i > 0) {
+                Assert.assertTrue(sols.get(i).getOptValue() < sols.get(i - 1).getOptValue());
+            }
+        }
+        Assert.assertEquals(plans.get(plans.size() - 1).getResult(), p.getResult());
+
+        Assert.assertTrue(cra.removeSolutionListener(l));
+        Assert.assertTrue(cra.getSolutionListeners().isEmpty());
+    }
+
     @Test
     public void testSolvableRepair() throws SolverException {
         Model mo = new DefaultModel();
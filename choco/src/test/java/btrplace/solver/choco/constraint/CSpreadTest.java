@@ -19,6 +19,7 @@
 package btrplace.solver.choco.constraint;
 
 import btrplace.model.*;
+import btrplace.model.constraint.Ban;
 import btrplace.model.constraint.Fence;
 import btrplace.model.constraint.Online;
 import btrplace.model.constraint.SatConstraint;
@@ -138,4 +139,44 @@ public class CSpreadTest {
         Mapping res = p.getResult().getMapping();
         Assert.assertNotSame(res.getVMLocation(vm1), res.getVMLocation(vm2));
     }
+
+    /**
+     * 2 VMs swap their hosts. With 2 nodes, one VM necessarily arrives on a node
+     * before the other leaves it, so there is no solution in continuous mode
+     * while the discrete mode accepts the swap. With a spare node and a VM that
+     * only has to leave its node, the VM must go to the spare node and the
+     * computed plan must satisfy the continuous restriction.
+     */
+    @Test
+    public void testSwapWithContinuous() throws SolverException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        new MappingFiller(mo.getMapping()).on(n1, n2).run(n1, vm1).run(n2, vm2).get();
+
+        Spread s = new Spread(mo.getMapping().getAllVMs(), false);
+        List<SatConstraint> cstr = new ArrayList<>();
+        cstr.add(s);
+        cstr.add(new Fence(vm1, Collections.singleton(n2)));
+        cstr.add(new Fence(vm2, Collections.singleton(n1)));
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        ReconfigurationPlan p = cra.solve(mo, cstr);
+        Assert.assertNotNull(p);
+        //The swap overlaps
+        Assert.assertFalse(new Spread(mo.getMapping().getAllVMs(), true).isSatisfied(p));
+
+        s.setContinuous(true);
+        Assert.assertNull(cra.solve(mo, cstr));
+
+        Node n3 = mo.newNode();
+        mo.getMapping().addOnlineNode(n3);
+        cstr.remove(cstr.size() - 1);
+        cstr.add(new Ban(vm2, Collections.singleton(n2)));
+        p = cra.solve(mo, cstr);
+        Assert.assertNotNull(p);
+        Assert.assertTrue(s.isSatisfied(p), p.toString());
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm2), n3);
+    }
 }
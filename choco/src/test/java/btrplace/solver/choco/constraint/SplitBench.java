@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package btrplace.solver.choco.constraint;
+
+import btrplace.model.*;
+import btrplace.model.constraint.MinMTTR;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.constraint.Split;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.runner.SolvingStatistics;
+
+import java.util.*;
+
+/**
+ * Measure the cost of {@link CSplit} on instances made of
+ * 10 groups of VMs spread over 1000 nodes.
+ *
+ * @author Fabien Hermenier
+ */
+public class SplitBench {
+
+    private static Instance makeInstance(int nbNodes, int nbGroups, int ratio, boolean continuous) {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Collection<Collection<VM>> parts = new ArrayList<>();
+        for (int g = 0; g < nbGroups; g++) {
+            parts.add(new ArrayList<VM>());
+        }
+        int perGroup = nbNodes / nbGroups;
+        Iterator<Collection<VM>> ite = parts.iterator();
+        Collection<VM> group = null;
+        for (int i = 0; i < nbNodes; i++) {
+            if (i % perGroup == 0 && ite.hasNext()) {
+                group = ite.next();
+            }
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            for (int j = 0; j < ratio; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, n);
+                group.add(v);
+            }
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Split(parts, continuous));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    private static String solve(Instance i) throws SolverException {
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.solve(i);
+        SolvingStatistics st = cra.getStatistics();
+        long first = st.getSolutions().isEmpty() ? -1 : st.getSolutions().get(0).getTime();
+        return first + " ms, " + st.getNbSearchNodes() + " nodes, " + st.getNbBacktracks() + " backtracks";
+    }
+
+    public static void main(String[] args) throws SolverException {
+        for (int s = 0; s < 5; s++) {
+            System.out.println("discrete: " + solve(makeInstance(1000, 10, 2, false))
+                    + "; continuous: " + solve(makeInstance(1000, 10, 2, true)));
+        }
+    }
+}
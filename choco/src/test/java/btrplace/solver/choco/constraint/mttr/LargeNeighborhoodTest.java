@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.constraint.mttr;
+
+import btrplace.model.*;
+import btrplace.model.constraint.Ban;
+import btrplace.model.constraint.MinMTTR;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.constraint.Spread;
+import btrplace.plan.ReconfigurationPlan;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.runner.single.SingleRunner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+/**
+ * Unit tests for {@link LargeNeighborhood}.
+ *
+ * @author Fabien Hermenier
+ */
+public class LargeNeighborhoodTest {
+
+    @Test
+    public void testOptimize() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            ns.add(n);
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        Set<VM> spread = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            VM v = mo.newVM();
+            map.addRunningVM(v, ns.get(i % 3));
+            if (i % 5 == 0) {
+                cstrs.add(new Ban(v, Collections.singleton(ns.get(i % 3))));
+            }
+            if (i < 3) {
+                spread.add(v);
+            }
+        }
+        cstrs.add(new Spread(spread));
+
+        LargeNeighborhood lns = new LargeNeighborhood(1, cstrs).setFailLimit(50);
+        Assert.assertEquals(lns.getFailLimit(), 50);
+        SingleRunner r = new SingleRunner(lns);
+        Assert.assertEquals(r.getSearchCustomizer(), lns);
+
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.setInstanceSolver(r);
+        cra.doOptimize(true);
+        cra.setTimeLimit(2);
+        ReconfigurationPlan p = cra.solve(mo, cstrs, new MinMTTR());
+        Assert.assertNotNull(p);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(p));
+        }
+        //At least the banned VMs had to move
+        Assert.assertTrue(p.getSize() >= 6);
+    }
+
+    @Test
+    public void testLNSFlag() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            ns.add(n);
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            VM v = mo.newVM();
+            map.addRunningVM(v, ns.get(0));
+            cstrs.add(new Ban(v, Collections.singleton(ns.get(0))));
+        }
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.doLNS(true);
+        cra.doOptimize(true);
+        cra.setTimeLimit(1);
+        ReconfigurationPlan p = cra.solve(mo, cstrs, new MinMTTR());
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getSize(), 15);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(p));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadFailLimit() {
+        new LargeNeighborhood(1).setFailLimit(0);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.constraint.mttr;
+
+import btrplace.model.*;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.DefaultReconfigurationProblemBuilder;
+import btrplace.solver.choco.ReconfigurationProblem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Cause;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link MTTRNeighborhood}.
+ *
+ * @author Fabien Hermenier
+ */
+public class MTTRNeighborhoodTest {
+
+    /**
+     * 10 nodes hosting 3 VMs each.
+     */
+    private static ReconfigurationProblem makeProblem() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        for (int i = 0; i < 10; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            for (int j = 0; j < 3; j++) {
+                map.addRunningVM(mo.newVM(), n);
+            }
+        }
+        return new DefaultReconfigurationProblemBuilder(mo).build();
+    }
+
+    /**
+     * Record a solution where every VM stays on its current node.
+     */
+    private static void recordStay(ReconfigurationProblem rp, MTTRNeighborhood n) throws ContradictionException {
+        IntVar[] hosts = n.getVariables();
+        rp.getSolver().getEnvironment().worldPush();
+        for (int i = 0; i < hosts.length; i++) {
+            hosts[i].instantiateTo(rp.getCurrentVMLocation(i), Cause.Null);
+        }
+        n.recordSolution();
+        rp.getSolver().getEnvironment().worldPop();
+    }
+
+    @Test
+    public void testSizeResetOnSolution() throws SolverException, ContradictionException {
+        ReconfigurationProblem rp = makeProblem();
+        MTTRNeighborhood n = new MTTRNeighborhood(rp, Collections.<Collection<VM>>emptyList(), 1);
+        Assert.assertEquals(n.getVariables().length, 30);
+        Assert.assertEquals(n.getSize(), 10);
+        n.restrictLess();
+        n.restrictLess();
+        Assert.assertTrue(n.getSize() > 10);
+        recordStay(rp, n);
+        Assert.assertEquals(n.getSize(), 10);
+        while (!n.isSearchComplete()) {
+            n.restrictLess();
+        }
+        Assert.assertEquals(n.getSize(), 30);
+        recordStay(rp, n);
+        Assert.assertEquals(n.getSize(), 10);
+    }
+
+    @Test
+    public void testFreePerNode() throws SolverException, ContradictionException {
+        ReconfigurationProblem rp = makeProblem();
+        MTTRNeighborhood n = new MTTRNeighborhood(rp, Collections.<Collection<VM>>emptyList(), 1);
+        IntVar[] hosts = n.getVariables();
+        recordStay(rp, n);
+        for (int k = 0; k < 10; k++) {
+            rp.getSolver().getEnvironment().worldPush();
+            n.fixSomeVariables(Cause.Null);
+            int nbFree = 0;
+            for (int i = 0; i < hosts.length; i++) {
+                if (!hosts[i].instantiated()) {
+                    nbFree++;
+                }
+            }
+            Assert.assertTrue(nbFree >= n.getSize(), "Only " + nbFree + " VMs freed");
+            if (k % 2 == 1) {
+                //per-node mode: the VMs of a node are freed together
+                for (int i = 0; i < hosts.length; i++) {
+                    for (int j = 0; j < hosts.length; j++) {
+                        if (rp.getCurrentVMLocation(i) == rp.getCurrentVMLocation(j)) {
+                            Assert.assertEquals(hosts[i].instantiated(), hosts[j].instantiated());
+                        }
+                    }
+                }
+            }
+            rp.getSolver().getEnvironment().worldPop();
+        }
+    }
+}
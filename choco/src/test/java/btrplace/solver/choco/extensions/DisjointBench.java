@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+import solver.Cause;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Measure the cost of the instantiations in {@link DisjointMultiple}
+ * with 10 groups of 200 variables over 1000 values.
+ * The domains are either complete, or restricted to 30 random values.
+ *
+ * @author Fabien Hermenier
+ */
+public class DisjointBench {
+
+    private static final int NB_GROUPS = 10;
+
+    private static final int GROUP_SIZE = 200;
+
+    private static final int NB_VALUES = 1000;
+
+    private static long run(boolean sparse, long seed) throws ContradictionException {
+        Random rnd = new Random(seed);
+        Solver s = new Solver();
+        IntVar[][] groups = new IntVar[NB_GROUPS][GROUP_SIZE];
+        for (int g = 0; g < NB_GROUPS; g++) {
+            for (int i = 0; i < GROUP_SIZE; i++) {
+                if (!sparse) {
+                    groups[g][i] = VF.enumerated("g" + g + "-" + i, 0, NB_VALUES - 1, s);
+                    continue;
+                }
+                TreeSet<Integer> dom = new TreeSet<>();
+                dom.add(value(g, i));
+                while (dom.size() < 30) {
+                    dom.add(rnd.nextInt(NB_VALUES));
+                }
+                int[] values = new int[dom.size()];
+                int x = 0;
+                for (int v : dom) {
+                    values[x++] = v;
+                }
+                groups[g][i] = VF.enumerated("g" + g + "-" + i, values, s);
+            }
+        }
+        s.post(new DisjointMultiple(s, groups, NB_VALUES));
+        s.propagate();
+        long st = System.currentTimeMillis();
+        for (int k = 0; k < 5; k++) {
+            s.getEnvironment().worldPush();
+            for (int i = 0; i < GROUP_SIZE; i++) {
+                for (int g = 0; g < NB_GROUPS; g++) {
+                    groups[g][i].instantiateTo(value(g, i), Cause.Null);
+                    s.propagate();
+                }
+            }
+            s.getEnvironment().worldPop();
+        }
+        return System.currentTimeMillis() - st;
+    }
+
+    /**
+     * Each group uses its own range of 100 values.
+     */
+    private static int value(int g, int i) {
+        return g * 100 + i % 100;
+    }
+
+    public static void main(String[] args) throws ContradictionException {
+        for (int s = 0; s < 5; s++) {
+            System.out.println("complete domains: " + run(false, s) + " ms; sparse domains: " + run(true, s) + " ms");
+        }
+    }
+}
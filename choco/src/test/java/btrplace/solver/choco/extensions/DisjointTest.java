@@ -18,9 +18,12 @@
 
 package btrplace.solver.choco.extensions;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import solver.Solver;
+import solver.Cause;
 import solver.constraints.IntConstraintFactory;
+import solver.exception.ContradictionException;
 import solver.search.loop.monitors.SMF;
 import solver.variables.IntVar;
 import solver.variables.VF;
@@ -63,5 +66,88 @@ public class DisjointTest {
 
     }
 
+    /**
+     * The solutions are the tuples where no value is shared by two groups.
+     */
+    @Test
+    public void testSolutionCount() {
+        int nbGroups = 3, size = 2, nbValues = 4;
+        Solver s = new Solver();
+        IntVar[][] groups = new IntVar[nbGroups][];
+        for (int g = 0; g < nbGroups; g++) {
+            groups[g] = VF.enumeratedArray("G" + g, size, 0, nbValues - 1, s);
+        }
+        s.post(new DisjointMultiple(s, groups, nbValues));
+        Assert.assertEquals(s.findAllSolutions(), countSolutions(nbGroups, size, nbValues));
+
+        s = new Solver();
+        IntVar[] g1 = VF.enumeratedArray("G1", 3, 0, nbValues - 1, s);
+        IntVar[] g2 = VF.enumeratedArray("G2", 3, 0, nbValues - 1, s);
+        s.post(new Disjoint(s, g1, g2, nbValues));
+        Assert.assertEquals(s.findAllSolutions(), countSolutions(2, 3, nbValues));
+    }
 
+    /**
+     * An instantiation removes the value from the other groups only, until a backtrack.
+     */
+    @Test
+    public void testFilterOnInstantiation() throws ContradictionException {
+        Solver s = new Solver();
+        IntVar[][] groups = new IntVar[3][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = VF.enumeratedArray("G" + g, 2, 0, 3, s);
+        }
+        s.post(new DisjointMultiple(s, groups, 4));
+        s.propagate();
+        s.getEnvironment().worldPush();
+        groups[1][0].instantiateTo(2, Cause.Null);
+        s.propagate();
+        Assert.assertTrue(groups[1][1].contains(2));
+        for (int g = 0; g < groups.length; g += 2) {
+            for (IntVar v : groups[g]) {
+                Assert.assertFalse(v.contains(2));
+                Assert.assertEquals(v.getDomainSize(), 3);
+            }
+        }
+        //A variable of group 2 is forced to 3, so group 0 loses the value
+        groups[2][0].removeValue(0, Cause.Null);
+        groups[2][0].removeValue(1, Cause.Null);
+        s.propagate();
+        Assert.assertFalse(groups[0][0].contains(3));
+        Assert.assertFalse(groups[1][1].contains(3));
+        s.getEnvironment().worldPop();
+        for (IntVar[] g : groups) {
+            for (IntVar v : g) {
+                Assert.assertEquals(v.getDomainSize(), 4);
+            }
+        }
+        //The internal state has been restored as well
+        groups[0][0].instantiateTo(2, Cause.Null);
+        s.propagate();
+        Assert.assertFalse(groups[1][0].contains(2));
+        Assert.assertTrue(groups[0][1].contains(2));
+    }
+
+    /**
+     * Count by enumeration the assignments where the groups do not share any value.
+     */
+    private static long countSolutions(int nbGroups, int size, int nbValues) {
+        int nbVars = nbGroups * size;
+        long nb = 0;
+        int[] t = new int[nbVars];
+        for (long x = 0; x < Math.pow(nbValues, nbVars); x++) {
+            long r = x;
+            for (int i = 0; i < nbVars; i++, r /= nbValues) {
+                t[i] = (int) (r % nbValues);
+            }
+            boolean ok = true;
+            for (int i = 0; i < nbVars && ok; i++) {
+                for (int j = i + 1; j < nbVars && ok; j++) {
+                    ok = i / size == j / size || t[i] != t[j];
+                }
+            }
+            nb += ok ? 1 : 0;
+        }
+        return nb;
+    }
 }
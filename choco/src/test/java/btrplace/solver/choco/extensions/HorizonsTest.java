@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Cause;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+/**
+ * Unit tests for {@link Horizons}.
+ *
+ * @author Fabien Hermenier
+ */
+public class HorizonsTest {
+
+    @Test
+    public void testBounds() throws ContradictionException {
+        Solver s = new Solver();
+        int[] hosts = {0, 1, 0, 0, 3};
+        IntVar[] ends = new IntVar[hosts.length];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = VF.bounded("e" + i, i, 10 + i, s);
+        }
+        Horizons hz = new Horizons(hosts, ends, 3, s);
+        Assert.assertEquals(hz.getNbResources(), 3);
+        Assert.assertEquals(hz.getTasks(0), new int[]{0, 2, 3});
+        Assert.assertEquals(hz.getTasks(3).length, 0);
+        Assert.assertEquals(hz.getLB(0), 3);
+        Assert.assertEquals(hz.getUB(0), 13);
+        Assert.assertEquals(hz.getLB(1), 1);
+        Assert.assertEquals(hz.getUB(2), 0);
+        //Not watched
+        Assert.assertEquals(hz.getUB(3), 0);
+        Assert.assertFalse(hz.refresh(4));
+
+        s.getEnvironment().worldPush();
+        ends[3].updateUpperBound(5, Cause.Null);
+        ends[0].updateLowerBound(7, Cause.Null);
+        Assert.assertFalse(hz.refresh(3));
+        Assert.assertTrue(hz.refresh(0));
+        Assert.assertEquals(hz.getLB(0), 7);
+        Assert.assertEquals(hz.getUB(0), 12);
+        ends[2].updateUpperBound(4, Cause.Null);
+        hz.refresh(2);
+        Assert.assertEquals(hz.getUB(0), 10);
+
+        //Back to the previous state
+        s.getEnvironment().worldPop();
+        Assert.assertEquals(hz.getLB(0), 3);
+        Assert.assertEquals(hz.getUB(0), 13);
+    }
+}
@@ -19,10 +19,13 @@
 package btrplace.solver.choco.extensions;
 
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
+import solver.Cause;
 import solver.Solver;
 import solver.constraints.Constraint;
 import solver.constraints.IntConstraintFactory;
+import solver.exception.ContradictionException;
 import solver.variables.IntVar;
 import solver.variables.VF;
 
@@ -126,6 +129,90 @@ public class LightBinPackingTest {
         testPack(2);
     }
 
+    /**
+     * Check that every candidate bin of an item has room for it on every dimension,
+     * while branching and backtracking.
+     */
+    @Test
+    public void testFilterCandidates() {
+        Random rnd = new Random(12);
+        int nBins = 4;
+        int nItems = 15;
+        for (int x = 0; x < 50; x++) {
+            s = new Solver();
+            IntVar[][] ls = new IntVar[2][nBins];
+            int[][] sz = new int[2][nItems];
+            bins = new IntVar[nItems];
+            for (int d = 0; d < 2; d++) {
+                for (int b = 0; b < nBins; b++) {
+                    ls[d][b] = VF.bounded("l" + d + "-" + b, 0, 15, s);
+                }
+                for (int i = 0; i < nItems; i++) {
+                    sz[d][i] = rnd.nextInt(6);
+                }
+            }
+            for (int i = 0; i < nItems; i++) {
+                bins[i] = VF.enumerated("b" + i, 0, nBins - 1, s);
+            }
+            s.post(new LightBinPacking(new String[]{"cpu", "mem"}, ls, sz, bins));
+            try {
+                s.propagate();
+            } catch (ContradictionException ex) {
+                continue;
+            }
+            checkCandidates(ls, sz);
+            int depth = 0;
+            for (int k = 0; k < 20; k++) {
+                if (depth > 0 && rnd.nextInt(3) == 0) {
+                    s.getEnvironment().worldPop();
+                    depth--;
+                    checkCandidates(ls, sz);
+                    continue;
+                }
+                s.getEnvironment().worldPush();
+                depth++;
+                try {
+                    if (rnd.nextBoolean()) {
+                        IntVar v = bins[rnd.nextInt(nItems)];
+                        if (!v.instantiated()) {
+                            v.instantiateTo(rnd.nextBoolean() ? v.getLB() : v.getUB(), Cause.Null);
+                        }
+                    } else {
+                        IntVar l = ls[rnd.nextInt(2)][rnd.nextInt(nBins)];
+                        l.updateUpperBound(l.getUB() - rnd.nextInt(3) - 1, Cause.Null);
+                    }
+                    s.propagate();
+                    checkCandidates(ls, sz);
+                } catch (ContradictionException ex) {
+                    s.getEngine().flush();
+                    s.getEnvironment().worldPop();
+                    depth--;
+                }
+            }
+        }
+    }
+
+    private void checkCandidates(IntVar[][] ls, int[][] sz) {
+        int[][] req = new int[ls.length][ls[0].length];
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i].instantiated()) {
+                for (int d = 0; d < ls.length; d++) {
+                    req[d][bins[i].getValue()] += sz[d][i];
+                }
+            }
+        }
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i].instantiated()) {
+                continue;
+            }
+            for (int b = bins[i].getLB(); b <= bins[i].getUB(); b = bins[i].nextValue(b)) {
+                for (int d = 0; d < ls.length; d++) {
+                    Assert.assertTrue(req[d][b] + sz[d][i] <= ls[d][b].getUB(), bins[i] + " does not fit into bin " + b + " on dimension " + d);
+                }
+            }
+        }
+    }
+
     /**
      * var = array[index]
      */
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.extensions;
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.variables.IntVar;
+import solver.variables.VF;
+import util.ESat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link MultiPrecedences}.
+ *
+ * @author Fabien Hermenier
+ */
+public class MultiPrecedencesTest {
+
+    /**
+     * Same instance than {@link PrecedencesTest#dummyTest()}
+     * so the number of solutions must be the same.
+     */
+    @Test
+    public void testSingleTask() {
+        Solver s = new Solver();
+        int[] others = {0, 0, 1, 1, 2};
+        IntVar[] ends = new IntVar[]{VF.fixed(1, s), VF.fixed(3, s), VF.fixed(2, s), VF.fixed(4, s), VF.fixed(5, s)};
+        IntVar host = VF.enumerated("host", 0, 2, s);
+        IntVar start = VF.bounded("start", 0, 5, s);
+        s.post(new MultiPrecedences(new IntVar[]{host}, new IntVar[]{start}, others, ends, 3, s));
+        Assert.assertEquals(s.findAllSolutions(), 6);
+    }
+
+    /**
+     * 2 tasks. The others ends are not instantiated.
+     */
+    @Test
+    public void testMultipleTasks() {
+        int[] others = {0, 1};
+        /*
+         e0 is free unless h0 == 0; e1 <= s1 and e1 <= s0 if h0 == 1
+         */
+        Solver s = new Solver();
+        IntVar[] ends = new IntVar[]{VF.bounded("e0", 1, 3, s), VF.bounded("e1", 2, 3, s)};
+        IntVar[] hosts = new IntVar[]{VF.enumerated("h0", 0, 1, s), VF.enumerated("h1", 1, 1, s)};
+        IntVar[] starts = new IntVar[]{VF.bounded("s0", 0, 3, s), VF.bounded("s1", 0, 3, s)};
+        s.post(new MultiPrecedences(hosts, starts, others, ends, 2, s));
+        Assert.assertEquals(s.findAllSolutions(), countSolutions());
+    }
+
+    /**
+     * A task placed on the resource of the other task it owns stays there,
+     * so it is only constrained on the other resources.
+     */
+    @Test
+    public void testOwners() {
+        Solver s = new Solver();
+        IntVar[] ends = new IntVar[]{VF.bounded("e0", 2, 3, s), VF.fixed(2, s)};
+        IntVar[] hosts = new IntVar[]{VF.enumerated("h0", 0, 1, s)};
+        IntVar[] starts = new IntVar[]{VF.bounded("s0", 0, 3, s)};
+        //h0 == 0: s0 and e0 are free. h0 == 1: s0 >= 2, e0 is free
+        s.post(new MultiPrecedences(hosts, starts, new int[]{0, 1}, ends, new int[]{0, -1}, 2, s));
+        Assert.assertEquals(s.findAllSolutions(), 4 * 2 + 2 * 2);
+    }
+
+    /**
+     * Enumerate the solutions of {@link #testMultipleTasks()} by hand.
+     */
+    private static long countSolutions() {
+        long nb = 0;
+        for (int e0 = 1; e0 <= 3; e0++) {
+            for (int e1 = 2; e1 <= 3; e1++) {
+                for (int h0 = 0; h0 <= 1; h0++) {
+                    for (int s0 = 0; s0 <= 3; s0++) {
+                        for (int s1 = 0; s1 <= 3; s1++) {
+                            boolean ok = s1 >= e1 && s0 >= (h0 == 0 ? e0 : e1);
+                            if (ok) {
+                                nb++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * Random instances. The number of solutions and the entailment of every
+     * tuple are compared to a brute-force enumeration of the tuples.
+     */
+    @Test
+    public void testAgainstEnumeration() {
+        Random rnd = new Random(7);
+        for (int x = 0; x < 50; x++) {
+            int nbR = 1 + rnd.nextInt(3);
+            int nbTasks = 1 + rnd.nextInt(2);
+            int nbOthers = 1 + rnd.nextInt(3);
+            int[] others = new int[nbOthers];
+            int[] owners = new int[nbOthers];
+            int[] ownedHosts = new int[nbTasks];
+            Arrays.fill(ownedHosts, -1);
+            int[] endLBs = new int[nbOthers];
+            int[] endUBs = new int[nbOthers];
+            for (int o = 0; o < nbOthers; o++) {
+                others[o] = rnd.nextInt(nbR);
+                //A task owns one other task at most
+                owners[o] = rnd.nextInt(nbTasks + 1) - 1;
+                if (owners[o] >= 0 && ownedHosts[owners[o]] >= 0) {
+                    owners[o] = -1;
+                } else if (owners[o] >= 0) {
+                    ownedHosts[owners[o]] = others[o];
+                }
+                endLBs[o] = rnd.nextInt(3);
+                endUBs[o] = endLBs[o] + rnd.nextInt(2);
+            }
+            int[] startUBs = new int[nbTasks];
+            for (int t = 0; t < nbTasks; t++) {
+                startUBs[t] = 1 + rnd.nextInt(3);
+            }
+
+            Solver s = new Solver();
+            IntVar[] hosts = new IntVar[nbTasks];
+            IntVar[] starts = new IntVar[nbTasks];
+            for (int t = 0; t < nbTasks; t++) {
+                hosts[t] = VF.enumerated("h" + t, 0, nbR - 1, s);
+                starts[t] = VF.bounded("s" + t, 0, startUBs[t], s);
+            }
+            IntVar[] ends = new IntVar[nbOthers];
+            for (int o = 0; o < nbOthers; o++) {
+                ends[o] = VF.bounded("e" + o, endLBs[o], endUBs[o], s);
+            }
+            MultiPrecedences c = new MultiPrecedences(hosts, starts, others, ends, owners, nbR, s);
+            s.post(c);
+
+            //Brute-force enumeration of the tuples (hosts, starts, ends)
+            int[] tuple = new int[2 * nbTasks + nbOthers];
+            int[] lbs = new int[tuple.length];
+            int[] ubs = new int[tuple.length];
+            for (int t = 0; t < nbTasks; t++) {
+                ubs[t] = nbR - 1;
+                ubs[nbTasks + t] = startUBs[t];
+            }
+            for (int o = 0; o < nbOthers; o++) {
+                lbs[2 * nbTasks + o] = endLBs[o];
+                ubs[2 * nbTasks + o] = endUBs[o];
+            }
+            long nb = 0;
+            System.arraycopy(lbs, 0, tuple, 0, tuple.length);
+            do {
+                boolean ok = true;
+                for (int o = 0; o < nbOthers; o++) {
+                    for (int t = 0; t < nbTasks; t++) {
+                        if (tuple[t] == others[o] && tuple[t] != ownedHosts[t] && tuple[nbTasks + t] < tuple[2 * nbTasks + o]) {
+                            ok = false;
+                        }
+                    }
+                }
+                Assert.assertEquals(c.isSatisfied(tuple), ok ? ESat.TRUE : ESat.FALSE, Arrays.toString(tuple));
+                if (ok) {
+                    nb++;
+                }
+            } while (next(tuple, lbs, ubs));
+            Assert.assertEquals(s.findAllSolutions(), nb, "instance " + x);
+        }
+    }
+
+    /**
+     * Move to the next tuple in the lexicographic order.
+     *
+     * @return {@code false} if there is no more tuple
+     */
+    private static boolean next(int[] tuple, int[] lbs, int[] ubs) {
+        for (int i = tuple.length - 1; i >= 0; i--) {
+            if (tuple[i] < ubs[i]) {
+                tuple[i]++;
+                return true;
+            }
+            tuple[i] = lbs[i];
+        }
+        return false;
+    }
+}
@@ -21,7 +21,9 @@ package btrplace.solver.choco.extensions;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import solver.Cause;
 import solver.Solver;
+import solver.exception.ContradictionException;
 import solver.variables.IntVar;
 import solver.variables.VF;
 
@@ -98,4 +100,99 @@ public class PrecedencesTest {
         s.post(p);
         Assert.assertEquals(s.findAllSolutions(), 75); //TODO: A way to check if it is correct ? :D
     }
+
+    /**
+     * Once placed, the task starts after the horizon of its host.
+     */
+    @Test
+    public void testStartOnPlacement() throws ContradictionException {
+        Solver s = new Solver();
+        int[] others = {0, 1};
+        IntVar[] ends = {VF.fixed(3, s), VF.fixed(7, s)};
+        IntVar host = VF.enumerated("host", 0, 1, s);
+        IntVar start = VF.bounded("start", 0, 10, s);
+        s.post(new Precedences(host, start, others, ends));
+        s.propagate();
+        Assert.assertEquals(start.getLB(), 3);
+        host.instantiateTo(1, Cause.Null);
+        s.propagate();
+        Assert.assertEquals(start.getLB(), 7);
+    }
+
+    /**
+     * A host with a horizon after the latest start is removed.
+     */
+    @Test
+    public void testRemoveLateHosts() throws ContradictionException {
+        Solver s = new Solver();
+        int[] others = {0, 1, 2};
+        IntVar[] ends = {VF.bounded("e0", 2, 4, s), VF.bounded("e1", 6, 8, s), VF.fixed(1, s)};
+        IntVar host = VF.enumerated("host", 0, 2, s);
+        IntVar start = VF.bounded("start", 0, 5, s);
+        s.post(new Precedences(host, start, others, ends));
+        s.propagate();
+        Assert.assertFalse(host.contains(1));
+        Assert.assertEquals(start.getLB(), 1);
+        host.instantiateTo(0, Cause.Null);
+        s.propagate();
+        Assert.assertEquals(start.getLB(), 2);
+        start.updateUpperBound(3, Cause.Null);
+        s.propagate();
+        Assert.assertEquals(ends[0].getUB(), 3);
+    }
+
+    /**
+     * Sharing the horizons does not change the solutions.
+     */
+    @Test
+    public void testSharedHorizons() {
+        int[] others = {0, 0, 1, 2};
+        int[] nbSolutions = new int[2];
+        for (int x = 0; x < 2; x++) {
+            Solver s = new Solver();
+            IntVar[] ends = new IntVar[others.length];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = VF.bounded("e" + i, 0, 1 + i, s);
+            }
+            IntVar[] hosts = VF.enumeratedArray("h", 2, 0, 2, s);
+            IntVar[] starts = VF.boundedArray("st", 2, 0, 4, s);
+            Horizons hz = new Horizons(others, ends, 3, s);
+            for (int t = 0; t < hosts.length; t++) {
+                s.post(x == 0 ? new Precedences(hosts[t], starts[t], others, ends) : new Precedences(hosts[t], starts[t], hz));
+            }
+            nbSolutions[x] = (int) s.findAllSolutions();
+        }
+        Assert.assertEquals(nbSolutions[0], countSolutions(others));
+        Assert.assertEquals(nbSolutions[1], nbSolutions[0]);
+    }
+
+    /**
+     * Count by enumeration the solutions of testSharedHorizons.
+     */
+    private static int countSolutions(int[] others) {
+        int nbTuples = 1;
+        for (int i = 0; i < others.length; i++) {
+            nbTuples *= 2 + i;
+        }
+        int nb = 0;
+        for (int x = 0; x < nbTuples; x++) {
+            int[] ends = new int[others.length];
+            for (int i = 0, r = x; i < others.length; r /= 2 + i, i++) {
+                ends[i] = r % (2 + i);
+            }
+            //For each task, the number of (host, start) pairs that are after the ends on the host
+            int nbPlacements = 0;
+            for (int h = 0; h < 3; h++) {
+                for (int st = 0; st <= 4; st++) {
+                    boolean ok = true;
+                    for (int i = 0; i < others.length; i++) {
+                        ok &= others[i] != h || ends[i] <= st;
+                    }
+                    nbPlacements += ok ? 1 : 0;
+                }
+            }
+            nb += nbPlacements * nbPlacements;
+        }
+        return nb;
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.extensions;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare the computation of a resource profile using a {@link Profile}
+ * against the previous computation based on a hashmap per dimension that
+ * was re-allocated and sorted at each propagation.
+ * Between two computations, the moments of a few tasks move.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProfileBench {
+
+    private static final int NB_DIMS = 2;
+
+    private static final int NB_ROUNDS = 200000;
+
+    private static int[][] cUsages, dUsages;
+
+    private static int[] cEnds, dStarts;
+
+    private static int usingMaps() {
+        TIntIntHashMap[] profiles = new TIntIntHashMap[NB_DIMS];
+        for (int d = 0; d < NB_DIMS; d++) {
+            profiles[d] = new TIntIntHashMap();
+            profiles[d].put(0, 10);
+            for (int j = 0; j < cEnds.length; j++) {
+                profiles[d].put(cEnds[j], profiles[d].get(cEnds[j]) - cUsages[d][j]);
+            }
+            for (int j = 0; j < dStarts.length; j++) {
+                profiles[d].put(dStarts[j], profiles[d].get(dStarts[j]) + dUsages[d][j]);
+            }
+        }
+        int[] moments = profiles[0].keys();
+        Arrays.sort(moments);
+        for (int d = 0; d < NB_DIMS; d++) {
+            for (int i = 1; i < moments.length; i++) {
+                profiles[d].put(moments[i], profiles[d].get(moments[i]) + profiles[d].get(moments[i - 1]));
+            }
+        }
+        return profiles[0].get(moments[moments.length - 1]);
+    }
+
+    private static int usingProfile(Profile p, int[] init) {
+        p.clear();
+        p.add(0, init);
+        for (int j = 0; j < cEnds.length; j++) {
+            p.add(cEnds[j], cUsages, j, -1);
+        }
+        for (int j = 0; j < dStarts.length; j++) {
+            p.add(dStarts[j], dUsages, j, 1);
+        }
+        p.build();
+        return p.getUsage(0, p.size() - 1);
+    }
+
+    public static void main(String[] args) {
+        int nbTasks = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Random rnd = new Random(0);
+        cUsages = new int[NB_DIMS][nbTasks];
+        dUsages = new int[NB_DIMS][nbTasks];
+        cEnds = new int[nbTasks];
+        dStarts = new int[nbTasks];
+        for (int j = 0; j < nbTasks; j++) {
+            cEnds[j] = rnd.nextInt(50);
+            dStarts[j] = rnd.nextInt(50);
+            for (int d = 0; d < NB_DIMS; d++) {
+                cUsages[d][j] = rnd.nextInt(5);
+                dUsages[d][j] = rnd.nextInt(5);
+            }
+        }
+        Profile p = new Profile(NB_DIMS);
+        int[] init = new int[NB_DIMS];
+        Arrays.fill(init, 10);
+        for (int run = 0; run < 3; run++) {
+            long maps = 0;
+            long prof = 0;
+            int chk = 0;
+            for (int i = 0; i < NB_ROUNDS; i++) {
+                //Between two propagations, the bounds of a few tasks move
+                int j = rnd.nextInt(nbTasks);
+                cEnds[j] = Math.max(0, cEnds[j] + rnd.nextInt(5) - 2);
+                j = rnd.nextInt(nbTasks);
+                dStarts[j] = Math.max(0, dStarts[j] + rnd.nextInt(5) - 2);
+                long st = System.nanoTime();
+                chk += usingMaps();
+                maps += System.nanoTime() - st;
+                st = System.nanoTime();
+                chk -= usingProfile(p, init);
+                prof += System.nanoTime() - st;
+            }
+            System.out.println(nbTasks + " tasks; maps: " + maps / NB_ROUNDS + " ns/call; profile: "
+                    + prof / NB_ROUNDS + " ns/call" + (chk != 0 ? " (results differ)" : ""));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.extensions;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link Profile}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProfileTest {
+
+    @Test
+    public void testBuild() {
+        Profile p = new Profile(2);
+        int[][] usages = new int[][]{{3, 5}, {1, 2}};
+        p.add(0, new int[]{8, 3});
+        p.add(7, usages, 0, -1);
+        p.add(3, usages, 1, 1);
+        p.add(7, usages, 1, -1);
+        p.add(3, usages, 0, 1);
+        p.build();
+        Assert.assertEquals(p.size(), 3);
+        Assert.assertEquals(p.getMoment(0), 0);
+        Assert.assertEquals(p.getMoment(1), 3);
+        Assert.assertEquals(p.getMoment(2), 7);
+
+        Assert.assertEquals(p.getUsage(0, 0), 8);
+        Assert.assertEquals(p.getUsage(1, 0), 3);
+        Assert.assertEquals(p.getUsage(0, 1), 16);
+        Assert.assertEquals(p.getUsage(1, 1), 6);
+        //Null variation, the moment is still there
+        Assert.assertEquals(p.getUsage(0, 2), 8);
+        Assert.assertEquals(p.getUsage(1, 2), 3);
+        Assert.assertEquals(p.toString(), "0:(8,3) 3:(16,6) 7:(8,3)");
+    }
+
+    @Test(dependsOnMethods = "testBuild")
+    public void testReuse() {
+        Profile p = new Profile(1);
+        int[][] usages = new int[1][100];
+        for (int i = 0; i < 100; i++) {
+            usages[0][i] = 1;
+        }
+        for (int i = 0; i < 100; i++) {
+            p.add(100 - i, usages, i, 1);
+        }
+        p.build();
+        Assert.assertEquals(p.size(), 100);
+        for (int x = 0; x < 100; x++) {
+            Assert.assertEquals(p.getMoment(x), x + 1);
+            Assert.assertEquals(p.getUsage(0, x), x + 1);
+        }
+
+        p.clear();
+        Assert.assertEquals(p.size(), 0);
+        p.add(5, usages, 0, -1);
+        p.add(2, usages, 1, 1);
+        p.build();
+        Assert.assertEquals(p.size(), 2);
+        Assert.assertEquals(p.getMoment(0), 2);
+        Assert.assertEquals(p.getUsage(0, 0), 1);
+        Assert.assertEquals(p.getUsage(0, 1), 0);
+    }
+
+    /**
+     * Successive builds with moving tasks, compared to a profile computed from scratch.
+     */
+    @Test
+    public void testSuccessiveBuilds() {
+        Random rnd = new Random(1);
+        int nbTasks = 30;
+        int[][] cUsages = new int[2][nbTasks];
+        int[][] dUsages = new int[2][nbTasks];
+        int[] cEnds = new int[nbTasks];
+        int[] dStarts = new int[nbTasks];
+        for (int j = 0; j < nbTasks; j++) {
+            cEnds[j] = rnd.nextInt(20);
+            dStarts[j] = rnd.nextInt(20);
+            for (int d = 0; d < 2; d++) {
+                cUsages[d][j] = rnd.nextInt(5);
+                dUsages[d][j] = rnd.nextInt(5);
+            }
+        }
+        Profile p = new Profile(2);
+        for (int round = 0; round < 200; round++) {
+            //Move some tasks and forget some others
+            for (int k = 0; k < 3; k++) {
+                cEnds[rnd.nextInt(nbTasks)] = rnd.nextInt(20);
+                dStarts[rnd.nextInt(nbTasks)] = rnd.nextInt(20);
+            }
+            boolean[] cIn = new boolean[nbTasks];
+            boolean[] dIn = new boolean[nbTasks];
+            int[][] exp = new int[2][21];
+            exp[0][0] = 10;
+            exp[1][0] = 5;
+            p.clear();
+            p.add(0, new int[]{10, 5});
+            for (int j = 0; j < nbTasks; j++) {
+                cIn[j] = rnd.nextInt(5) > 0;
+                dIn[j] = rnd.nextInt(5) > 0;
+                if (cIn[j]) {
+                    p.add(cEnds[j], cUsages, j, -1);
+                }
+                if (dIn[j]) {
+                    p.add(dStarts[j], dUsages, j, 1);
+                }
+            }
+            p.build();
+            boolean[] isMoment = new boolean[21];
+            isMoment[0] = true;
+            for (int j = 0; j < nbTasks; j++) {
+                for (int d = 0; d < 2; d++) {
+                    if (cIn[j]) {
+                        exp[d][cEnds[j]] -= cUsages[d][j];
+                        isMoment[cEnds[j]] = true;
+                    }
+                    if (dIn[j]) {
+                        exp[d][dStarts[j]] += dUsages[d][j];
+                        isMoment[dStarts[j]] = true;
+                    }
+                }
+            }
+            int x = 0;
+            int[] cur = new int[2];
+            for (int t = 0; t < 20; t++) {
+                cur[0] += exp[0][t];
+                cur[1] += exp[1][t];
+                if (isMoment[t]) {
+                    Assert.assertEquals(p.getMoment(x), t);
+                    Assert.assertEquals(p.getUsage(0, x), cur[0]);
+                    Assert.assertEquals(p.getUsage(1, x), cur[1]);
+                    x++;
+                }
+            }
+            Assert.assertEquals(p.size(), x);
+        }
+    }
+}
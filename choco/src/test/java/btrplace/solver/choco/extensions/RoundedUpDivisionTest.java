@@ -22,6 +22,7 @@ package btrplace.solver.choco.extensions;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import solver.Solver;
+import solver.exception.ContradictionException;
 import solver.variables.IntVar;
 import solver.variables.VF;
 
@@ -35,8 +36,7 @@ public class RoundedUpDivisionTest {
         Solver s = new Solver();
         IntVar a = VF.bounded("a", 0, 5, s);
         IntVar b = VF.bounded("b", 0, 5, s);
-        double q = 1;
-        s.post(new RoundedUpDivision(a, b, q));
+        s.post(new RoundedUpDivision(a, b, 1, 1));
         Assert.assertEquals(6, s.findAllSolutions());
         //Assert.assertEquals(s.getNbSolutions(), 6);
     }
@@ -46,11 +46,58 @@ public class RoundedUpDivisionTest {
         Solver s = new Solver();
         IntVar a = VF.bounded("a", 0, 32, s);
         IntVar b = VF.bounded("b", 0, 48, s);
-        double q = 1.5;
-        s.post(new RoundedUpDivision(a, b, q));
+        s.post(new RoundedUpDivision(a, b, 3, 2));
         Assert.assertEquals(s.findAllSolutions(), 49);
         //Assert.assertEquals(s.getNbSolutions(), 33);
     }
+
+    @Test
+    public void testDiv() {
+        for (int b = 0; b < 100; b++) {
+            Assert.assertEquals(RoundedUpDivision.div(b, 13, 10), (int) Math.ceil(b * 10 / 13.0));
+            Assert.assertEquals(RoundedUpDivision.div(b, 1, 1), b);
+        }
+    }
+
+    @Test
+    public void testRational() {
+        Solver s = new Solver();
+        IntVar a = VF.bounded("a", 0, 10, s);
+        IntVar b = VF.bounded("b", 0, 100, s);
+        s.post(new RoundedUpDivision(a, b, 13, 10));
+        //b * 10 / 13 <= 10 <=> b <= 13
+        Assert.assertEquals(s.findAllSolutions(), 14);
+    }
+
+    /**
+     * Check the bounds of the divided variable once the ratio is known.
+     * With 3/2, {@code a = 3} leads to {@code b = 4} as {@code ceil(3 / 1.5) = 2}.
+     * The previous double-based version only stated {@code 3 <= b}.
+     */
+    @Test
+    public void testBoundsOfDivided() throws ContradictionException {
+        int[][] dividers = {{1, 1}, {3, 2}, {13, 10}, {7, 3}, {5, 4}};
+        for (int[] d : dividers) {
+            for (int x = 1; x <= 20; x++) {
+                Solver s = new Solver();
+                IntVar a = VF.fixed(x, s);
+                IntVar b = VF.bounded("b", 0, 100, s);
+                s.post(new RoundedUpDivision(a, b, d[0], d[1]));
+                s.propagate();
+                int lb = -1;
+                int ub = -1;
+                for (int y = 0; y <= 100; y++) {
+                    if (RoundedUpDivision.div(y, d[0], d[1]) == x) {
+                        lb = lb < 0 ? y : lb;
+                        ub = y;
+                    }
+                }
+                Assert.assertEquals(b.getLB(), lb, "a=" + x + " divider=" + d[0] + "/" + d[1]);
+                Assert.assertEquals(b.getUB(), ub, "a=" + x + " divider=" + d[0] + "/" + d[1]);
+            }
+        }
+    }
+
     /*
     private static void pretty(int a, int b, double q) {
         StringBuilder a1 = new StringBuilder();
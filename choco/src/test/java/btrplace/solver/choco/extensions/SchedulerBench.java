@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+import btrplace.model.*;
+import btrplace.model.constraint.MinMTTR;
+import btrplace.model.constraint.Preserve;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.view.ShareableResource;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.runner.SolvingStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measure the search throughput of the {@link TaskScheduler} on
+ * repair problems where a lot of VMs have to be migrated. The search
+ * is stopped by the time limit so the number of search nodes per second
+ * is the quantity to compare.
+ *
+ * @author Fabien Hermenier
+ */
+public class SchedulerBench {
+
+    private static final int RATIO = 8;
+
+    private static Instance makeInstance(Random rnd, int nbNodes) {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 3 * RATIO, 0);
+        ShareableResource mem = new ShareableResource("mem", 3 * RATIO, 0);
+        mo.attach(cpu);
+        mo.attach(mem);
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            for (int j = 0; j < RATIO; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, n);
+                cpu.setConsumption(v, rnd.nextInt(3) + 1);
+                mem.setConsumption(v, rnd.nextInt(3) + 1);
+            }
+        }
+        //A third of the nodes become overloaded
+        List<SatConstraint> cstrs = new ArrayList<>();
+        List<VM> vms = new ArrayList<>(map.getRunningVMs());
+        Collections.shuffle(vms, rnd);
+        for (VM v : vms.subList(0, nbNodes / 3)) {
+            cstrs.add(new Preserve(v, rnd.nextBoolean() ? "cpu" : "mem", 6));
+        }
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    public static void main(String[] args) throws SolverException {
+        int timeLimit = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        for (int nbNodes = 25; nbNodes <= 100; nbNodes *= 2) {
+            Instance i = makeInstance(new Random(nbNodes), nbNodes);
+            //The first runs warm up the JIT
+            for (int run = 0; run < 3; run++) {
+                ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+                cra.setTimeLimit(timeLimit);
+                cra.solve(i);
+                SolvingStatistics stats = cra.getStatistics();
+                long duration = Math.max(1, stats.getSolvingDuration());
+                System.out.println(nbNodes + " nodes; " + stats.getSolutions().size() + " solution(s); "
+                        + stats.getNbSearchNodes() + " search nodes in " + duration + " ms; "
+                        + (stats.getNbSearchNodes() * 1000 / duration) + " nodes/s");
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.extensions;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Cause;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+import solver.variables.VF;
+import util.iterators.DisposableValueIterator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TaskScheduler}.
+ *
+ * @author Fabien Hermenier
+ */
+public class TaskSchedulerTest {
+
+    private static final int NB_RESOURCES = 3;
+
+    private static final int NB_C_TASKS = 6;
+
+    private static final int NB_D_TASKS = 4;
+
+    private static final int HORIZON = 10;
+
+    /**
+     * The variables of a scheduling problem, in the order of
+     * {@link #build(Solver, IntVar[][])}: earlyStarts, lastEnds, cHosters, cEnds, dHosters, dStarts.
+     */
+    private static IntVar[][] variables(Solver s) {
+        IntVar[][] vs = new IntVar[6][];
+        vs[0] = VF.boundedArray("early", NB_RESOURCES, 0, HORIZON, s);
+        vs[1] = VF.boundedArray("last", NB_RESOURCES, 0, HORIZON, s);
+        vs[2] = new IntVar[NB_C_TASKS];
+        for (int i = 0; i < NB_C_TASKS; i++) {
+            vs[2][i] = VF.fixed(i % NB_RESOURCES, s);
+        }
+        vs[3] = VF.boundedArray("cEnd", NB_C_TASKS, 0, HORIZON, s);
+        vs[4] = VF.enumeratedArray("dHost", NB_D_TASKS, 0, NB_RESOURCES - 1, s);
+        vs[5] = VF.boundedArray("dStart", NB_D_TASKS, 0, HORIZON, s);
+        return vs;
+    }
+
+    /**
+     * Copy the current domains of some variables into a new solver.
+     */
+    private static IntVar[][] copy(IntVar[][] vs, Solver s) {
+        IntVar[][] cpy = new IntVar[vs.length][];
+        for (int x = 0; x < vs.length; x++) {
+            cpy[x] = new IntVar[vs[x].length];
+            for (int i = 0; i < vs[x].length; i++) {
+                IntVar v = vs[x][i];
+                if (v.hasEnumeratedDomain()) {
+                    int[] values = new int[v.getDomainSize()];
+                    DisposableValueIterator it = v.getValueIterator(true);
+                    for (int k = 0; it.hasNext(); k++) {
+                        values[k] = it.next();
+                    }
+                    it.dispose();
+                    cpy[x][i] = VF.enumerated(v.getName(), values, s);
+                } else {
+                    cpy[x][i] = VF.bounded(v.getName(), v.getLB(), v.getUB(), s);
+                }
+            }
+        }
+        return cpy;
+    }
+
+    private static void build(Solver s, IntVar[][] vs) {
+        int[][] capas = {{3, 3, 3}};
+        int[][] cUsages = {{2, 1, 2, 1, 1, 1}};
+        int[][] dUsages = {{2, 1, 2, 1}};
+        int[] assocs = new int[NB_D_TASKS];
+        Arrays.fill(assocs, LocalTaskScheduler.NO_ASSOCIATIONS);
+        s.post(new TaskScheduler(vs[0], vs[1], capas, vs[2], cUsages, vs[3], vs[4], dUsages, vs[5], assocs, s));
+    }
+
+    private static String domains(IntVar[][] vs) {
+        StringBuilder b = new StringBuilder();
+        for (IntVar[] x : vs) {
+            for (IntVar v : x) {
+                b.append(v).append(' ');
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * The incremental propagation must reach the same fixpoint than a propagation
+     * that reconsiders every resource: after each random decision, the domains are copied
+     * into a new problem which initial propagation must not filter anything more.
+     * The decisions are taken in new worlds, that are popped after a failure or randomly.
+     */
+    @Test
+    public void testIncrementalIsComplete() throws ContradictionException {
+        int nbChecks = 0;
+        int nbFailures = 0;
+        for (int seed = 0; seed < 100; seed++) {
+            Random rnd = new Random(seed);
+            Solver s = new Solver();
+            IntVar[][] vs = variables(s);
+            build(s, vs);
+            s.propagate();
+            for (int i = 0; i < NB_D_TASKS; i++) {
+                vs[4][i].instantiateTo(i % NB_RESOURCES, Cause.Null);
+            }
+            s.propagate();
+            int depth = 0;
+            for (int step = 0; step < 30; step++) {
+                IntVar[] group = vs[rnd.nextBoolean() ? 3 : (rnd.nextBoolean() ? 5 : rnd.nextInt(2))];
+                IntVar v = group[rnd.nextInt(group.length)];
+                int t = rnd.nextInt(HORIZON + 1);
+                s.getEnvironment().worldPush();
+                depth++;
+                try {
+                    if (rnd.nextBoolean()) {
+                        v.updateLowerBound(t, Cause.Null);
+                    } else {
+                        v.updateUpperBound(t, Cause.Null);
+                    }
+                    s.propagate();
+                } catch (ContradictionException ex) {
+                    s.getEngine().flush();
+                    s.getEnvironment().worldPop();
+                    depth--;
+                    nbFailures++;
+                }
+                if (depth > 0 && rnd.nextInt(4) == 0) {
+                    s.getEnvironment().worldPop();
+                    depth--;
+                }
+                Solver s2 = new Solver();
+                IntVar[][] vs2 = copy(vs, s2);
+                build(s2, vs2);
+                String before = domains(vs2);
+                s2.propagate();
+                Assert.assertEquals(domains(vs2), before, "Seed " + seed + ", step " + step);
+                nbChecks++;
+            }
+        }
+        //Both the propagations and the backtracks were exercised
+        Assert.assertTrue(nbFailures > 10, nbFailures + " failures");
+        Assert.assertEquals(nbChecks, 3000);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package btrplace.solver.choco.runner.portfolio;
+
+import btrplace.model.*;
+import btrplace.model.constraint.MinMTTR;
+import btrplace.model.constraint.Running;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.runner.InstanceResult;
+import btrplace.solver.choco.runner.SearchCustomizer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link Portfolio}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioTest {
+
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        for (int i = 0; i < 10; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            for (int j = 0; j < 3; j++) {
+                VM v = mo.newVM();
+                mo.getMapping().addRunningVM(v, n);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        return new Instance(mo, (List) Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR());
+    }
+
+    @Test
+    public void testWorkers() {
+        Portfolio p = new Portfolio(3);
+        Assert.assertEquals(p.getWorkers().size(), 3);
+        Assert.assertNull(p.getWorkers().get(0));
+        Assert.assertEquals(((RandomizedPlacement) p.getWorkers().get(2)).getSeed(), 2);
+        Assert.assertEquals(new Portfolio().getWorkers().size(), Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWithoutWorkers() {
+        new Portfolio(0);
+    }
+
+    @Test
+    public void testSatisfaction() throws SolverException {
+        Instance i = makeInstance();
+        ChocoReconfigurationAlgorithmParams ps = new DefaultChocoReconfigurationAlgorithmParams();
+        Portfolio p = new Portfolio(Arrays.<SearchCustomizer>asList(null, new RandomizedPlacement(1), new RandomizedPlacement(2)));
+        InstanceResult res = p.solve(ps, i);
+        Assert.assertNotNull(res.getPlan());
+        Assert.assertEquals(res.getPlan().getSize(), 5);
+        PortfolioStatistics st = (PortfolioStatistics) res.getStatistics();
+        Assert.assertEquals(st.getNbWorkers(), 3);
+        Assert.assertTrue(st.getWinner() >= 0);
+        Assert.assertFalse(st.getSolutions().isEmpty());
+    }
+
+    @Test
+    public void testOptimize() throws SolverException {
+        Instance i = makeInstance();
+        ChocoReconfigurationAlgorithmParams ps = new DefaultChocoReconfigurationAlgorithmParams();
+        ps.doOptimize(true);
+        ps.setTimeLimit(2);
+        InstanceResult res = new Portfolio(2).solve(ps, i);
+        Assert.assertNotNull(res.getPlan());
+        Assert.assertTrue(res.getPlan().getResult().getMapping().getReadyVMs().isEmpty());
+        PortfolioStatistics st = (PortfolioStatistics) res.getStatistics();
+        Assert.assertEquals(st.getNbWorkers(), 2);
+        Assert.assertEquals(st.getWorkerStatistics().size(), 2);
+        Assert.assertTrue(st.getWinner() == 0 || st.getWinner() == 1);
+        Assert.assertNotNull(st.getWorkerStatistics().get(st.getWinner()));
+        Assert.assertFalse(st.getSolutions().isEmpty());
+        Assert.assertEquals(st.getNbNodes(), 10);
+        Assert.assertEquals(st.getNbVMs(), 35);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package btrplace.solver.choco.transition;
+
+import btrplace.model.*;
+import btrplace.plan.ReconfigurationPlan;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithmParams;
+import btrplace.solver.choco.DefaultReconfigurationProblemBuilder;
+import btrplace.solver.choco.ReconfigurationProblem;
+import btrplace.solver.choco.view.CPowerView;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+
+/**
+ * Unit tests for {@link StayOnlineNode}.
+ *
+ * @author Fabien Hermenier
+ */
+public class StayOnlineNodeTest {
+
+    @Test
+    public void testDetection() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        map.addOnlineNode(n1);
+        map.addOnlineNode(n2);
+        map.addOnlineNode(n3);
+        map.addRunningVM(vm1, n1);
+        map.addRunningVM(vm2, n2);
+
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setManageableVMs(Collections.singleton(vm2))
+                .build();
+        //vm1 cannot move so n1 stays online
+        Assert.assertEquals(rp.getNodeAction(n1).getClass(), StayOnlineNode.class);
+        //vm2 can leave n2, n3 hosts nothing
+        Assert.assertEquals(rp.getNodeAction(n2).getClass(), ShutdownableNode.class);
+        Assert.assertEquals(rp.getNodeAction(n3).getClass(), ShutdownableNode.class);
+    }
+
+    @Test
+    public void testBasics() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n1 = mo.newNode();
+        map.addOnlineNode(n1);
+
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setStaticNodes(Collections.singleton(n1))
+                .build();
+        StayOnlineNode ma = (StayOnlineNode) rp.getNodeAction(n1);
+        Assert.assertEquals(ma.getNode(), n1);
+        Assert.assertTrue(ma.getState().instantiatedTo(1));
+        Assert.assertTrue(ma.getStart().instantiatedTo(0));
+        Assert.assertTrue(ma.getEnd().instantiatedTo(0));
+        Assert.assertTrue(ma.getDuration().instantiatedTo(0));
+        Assert.assertEquals(ma.getHostingStart(), rp.getStart());
+        Assert.assertEquals(ma.getHostingEnd(), rp.getEnd());
+
+        ReconfigurationPlan p = rp.solve(0, false);
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getSize(), 0);
+        Assert.assertTrue(p.getResult().getMapping().isOnline(n1));
+    }
+
+    @Test
+    public void testPowerView() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        map.addOnlineNode(n1);
+        map.addOnlineNode(n2);
+
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setStaticNodes(Collections.singleton(n1))
+                .build();
+        Assert.assertEquals(rp.getNodeAction(n2).getClass(), ShutdownableNode.class);
+        CPowerView v = new CPowerView(rp);
+        //A static node is powered during the whole reconfiguration
+        Assert.assertEquals(v.getPowerStart(rp.getNode(n1)), rp.getStart());
+        Assert.assertEquals(v.getPowerEnd(rp.getNode(n1)), rp.getEnd());
+        Assert.assertEquals(v.getPowerStart(rp.getNode(n2)), rp.getStart());
+        Assert.assertNotNull(v.getPowerEnd(rp.getNode(n2)));
+    }
+
+    @Test
+    public void testWithoutStaticBuilder() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        map.addOnlineNode(n1);
+        map.addOfflineNode(n2);
+
+        ChocoReconfigurationAlgorithmParams ps = new DefaultChocoReconfigurationAlgorithmParams();
+        ps.getTransitionFactory().setStaticNodeBuilder(null);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setParams(ps)
+                .setStaticNodes(map.getAllNodes())
+                .build();
+        Assert.assertEquals(rp.getNodeAction(n1).getClass(), ShutdownableNode.class);
+        //Only online nodes may be static
+        Assert.assertEquals(rp.getNodeAction(n2).getClass(), BootableNode.class);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.view;
+
+import btrplace.model.*;
+import btrplace.model.constraint.MinMTTR;
+import btrplace.model.constraint.Preserve;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.view.ShareableResource;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.runner.SolvingStatistics;
+
+import java.util.*;
+
+/**
+ * Compare {@link DefaultPacking} and {@link VectorPacking} on the repair
+ * of instances with a few overloaded nodes on 2 resources.
+ *
+ * @author Fabien Hermenier
+ */
+public class PackingBench {
+
+    private static Random rnd = new Random();
+
+    private static Instance makeInstance(int nbNodes, int ratio) {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        //The initial placement fits, a Preserve may overload a node
+        ShareableResource cpu = new ShareableResource("cpu", 4 * ratio, 0);
+        ShareableResource mem = new ShareableResource("mem", 4 * ratio, 0);
+        mo.attach(cpu);
+        mo.attach(mem);
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            for (int j = 0; j < ratio; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, n);
+                cpu.setConsumption(v, rnd.nextInt(4) + 1);
+                mem.setConsumption(v, rnd.nextInt(4) + 1);
+            }
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        List<VM> vms = new ArrayList<>(map.getRunningVMs());
+        Collections.shuffle(vms, rnd);
+        for (VM v : vms.subList(0, nbNodes / 10)) {
+            cstrs.add(new Preserve(v, rnd.nextBoolean() ? "cpu" : "mem", 8));
+        }
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    private static String solve(Instance i, SolverViewBuilder packing) throws SolverException {
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.doRepair(true);
+        //Measure the first solution only
+        cra.doOptimize(false);
+        cra.setTimeLimit(60);
+        cra.addSolverViewBuilder(packing);
+        long st = System.currentTimeMillis();
+        cra.solve(i);
+        long ed = System.currentTimeMillis();
+        SolvingStatistics stats = cra.getStatistics();
+        return (stats.getSolutions().isEmpty() ? "no solution, " : "")
+                + (ed - st) + " ms, "
+                + stats.getNbSearchNodes() + " nodes, " + stats.getNbBacktracks() + " backtracks";
+    }
+
+    public static void main(String[] args) throws SolverException {
+        int ratio = 5;
+        for (int nbNodes = 100; nbNodes <= 1000; nbNodes += 100) {
+            for (int s = 0; s < 5; s++) {
+                Instance i = makeInstance(nbNodes, ratio);
+                System.out.println(nbNodes + " " + nbNodes * ratio
+                        + " default: " + solve(i, new DefaultPacking.Builder())
+                        + "; vector: " + solve(i, new VectorPacking.Builder()));
+            }
+        }
+    }
+}
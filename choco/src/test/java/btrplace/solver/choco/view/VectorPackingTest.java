@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2014 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package btrplace.solver.choco.view;
+
+import btrplace.model.*;
+import btrplace.model.constraint.Preserve;
+import btrplace.model.constraint.SatConstraint;
+import btrplace.model.view.ShareableResource;
+import btrplace.plan.ReconfigurationPlan;
+import btrplace.solver.SolverException;
+import btrplace.solver.choco.ChocoReconfigurationAlgorithm;
+import btrplace.solver.choco.DefaultChocoReconfigurationAlgorithm;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link VectorPacking}.
+ *
+ * @author Fabien Hermenier
+ */
+public class VectorPackingTest {
+
+    private static ChocoReconfigurationAlgorithm newAlgorithm() {
+        ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+        cra.addSolverViewBuilder(new VectorPacking.Builder());
+        int nb = 0;
+        for (SolverViewBuilder b : cra.getSolverViews()) {
+            if (b.getKey().equals(Packing.VIEW_ID)) {
+                Assert.assertTrue(b instanceof VectorPacking.Builder);
+                nb++;
+            }
+        }
+        Assert.assertEquals(nb, 1);
+        return cra;
+    }
+
+    /**
+     * Check no node is overloaded on any of the resources.
+     */
+    private static void checkCapacities(Model mo, ShareableResource... rcs) {
+        Mapping map = mo.getMapping();
+        for (Node n : map.getOnlineNodes()) {
+            for (ShareableResource rc : rcs) {
+                Assert.assertTrue(rc.sumConsumptions(map.getRunningVMs(n), true) <= rc.getCapacity(n),
+                        rc.getResourceIdentifier() + " overloaded on " + n);
+            }
+        }
+    }
+
+    @Test
+    public void testMultipleDimensions() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 0);
+        ShareableResource mem = new ShareableResource("mem", 4, 0);
+        mo.attach(cpu);
+        mo.attach(mem);
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        //A spare node, a direct swap between n0 and n1 would be a deadlock
+        Node n2 = mo.newNode();
+        map.addOnlineNode(n0);
+        map.addOnlineNode(n1);
+        map.addOnlineNode(n2);
+        //Fits on the memory, not on the CPU
+        VM v0 = mo.newVM();
+        VM v1 = mo.newVM();
+        //Fits on the CPU, not on the memory
+        VM v2 = mo.newVM();
+        VM v3 = mo.newVM();
+        map.addRunningVM(v0, n0);
+        map.addRunningVM(v1, n0);
+        map.addRunningVM(v2, n1);
+        map.addRunningVM(v3, n1);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (VM v : new VM[]{v0, v1}) {
+            mem.setConsumption(v, 1);
+            cstrs.add(new Preserve(v, "cpu", 3));
+        }
+        for (VM v : new VM[]{v2, v3}) {
+            cpu.setConsumption(v, 1);
+            cstrs.add(new Preserve(v, "mem", 3));
+        }
+        ReconfigurationPlan p = newAlgorithm().solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        Model res = p.getResult();
+        checkCapacities(res, (ShareableResource) res.getView("ShareableResource.cpu"),
+                (ShareableResource) res.getView("ShareableResource.mem"));
+        Assert.assertNotEquals(res.getMapping().getVMLocation(v0), res.getMapping().getVMLocation(v1));
+        Assert.assertNotEquals(res.getMapping().getVMLocation(v2), res.getMapping().getVMLocation(v3));
+    }
+
+    /**
+     * In repair mode, the VMs that are not manageable are compiled into
+     * offsets on the node loads.
+     */
+    @Test
+    public void testRepairWithFixedVMs() throws SolverException {
+        for (SolverViewBuilder b : new SolverViewBuilder[]{new VectorPacking.Builder(), new DefaultPacking.Builder()}) {
+            Model mo = new DefaultModel();
+            Mapping map = mo.getMapping();
+            ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+            mo.attach(cpu);
+            Node n0 = mo.newNode();
+            Node n1 = mo.newNode();
+            Node n2 = mo.newNode();
+            map.addOnlineNode(n0);
+            map.addOnlineNode(n1);
+            map.addOnlineNode(n2);
+            VM v0 = mo.newVM();
+            VM v1 = mo.newVM();
+            VM v2 = mo.newVM();
+            VM v3 = mo.newVM();
+            map.addRunningVM(v0, n0);
+            map.addRunningVM(v1, n1);
+            map.addRunningVM(v2, n1);
+            map.addRunningVM(v3, n2);
+            cpu.setConsumption(v0, 3);
+            cpu.setConsumption(v3, 1);
+            List<SatConstraint> cstrs = new ArrayList<>();
+            //Only v1 is manageable. It no longer fits on n1, and only fits on n2
+            cstrs.add(new Preserve(v1, "cpu", 3));
+            ChocoReconfigurationAlgorithm cra = new DefaultChocoReconfigurationAlgorithm();
+            cra.doRepair(true);
+            cra.addSolverViewBuilder(b);
+            ReconfigurationPlan p = cra.solve(mo, cstrs);
+            Assert.assertNotNull(p);
+            Model res = p.getResult();
+            checkCapacities(res, (ShareableResource) res.getView("ShareableResource.cpu"));
+            Assert.assertEquals(res.getMapping().getVMLocation(v0), n0);
+            Assert.assertEquals(res.getMapping().getVMLocation(v1), n2);
+            Assert.assertEquals(res.getMapping().getVMLocation(v2), n1);
+            Assert.assertEquals(res.getMapping().getVMLocation(v3), n2);
+        }
+    }
+
+    @Test
+    public void testUnsolvable() throws SolverException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        ShareableResource mem = new ShareableResource("mem", 4, 3);
+        mo.attach(cpu);
+        mo.attach(mem);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        map.addOnlineNode(n0);
+        map.addOnlineNode(n1);
+        //Enough CPU for 8 VMs but only enough memory for 2
+        for (int i = 0; i < 3; i++) {
+            VM v = mo.newVM();
+            map.addRunningVM(v, n0);
+            cstrs.add(new Preserve(v, "mem", 3));
+        }
+        Assert.assertNull(newAlgorithm().solve(mo, cstrs));
+    }
+}